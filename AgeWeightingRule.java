@@ -0,0 +1,38 @@
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.io.Serializable;
+
+/**
+ * A rule that awards points when a patient's age lies in a specific decade (where the last decade, 8, includes everyone 80 and up).
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class AgeWeightingRule extends WeightingRule implements Serializable {
+
+  /** The serial version used when decoding. */
+  private static final long serialVersionUID = 3200L;
+
+  /** The decade the rule applies to (0 through 8 inclusive). */
+  private int decade;
+
+  /**
+   * Constructor that takes the points and the decade.
+   * @param points the weighting points awarded when the rule applies.
+   * @param decade the decade the rule applies to (must be 0 through 8 inclusive).
+   */
+  public AgeWeightingRule(int points, int decade) {
+    super(points, "Age in " + decade + "0s" + (decade == PriorityScorer.MAXIMUM_DECADE ? "+" : ""));
+    this.decade = decade;
+  }
+
+  @Override
+  public int weightForPatient(Patient patient) {
+    int patientAgeInDecades = (int) patient.getBirthdate().until(LocalDate.now(), ChronoUnit.DECADES);
+    return Math.max(0, Math.min(patientAgeInDecades, PriorityScorer.MAXIMUM_DECADE)) == decade ? points : 0;
+  }
+
+  @Override
+  public void compileInto(PriorityScorer.Builder builder) {
+    builder.addAgeWeight(decade, points);
+  }
+}
@@ -0,0 +1,371 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The AppointmentProjector class works out which day and doctor a patient would be scheduled with from their rank in priority order (and where any active day of a schedule starts), without generating the schedule. When patients are scheduled in priority order, every active day is filled to its maximum doses, so the day follows from the doses in a week (with prefix sums over the active days of a week). The doctor follows from where the rotation across doctors starts that day, which is worked out once for each day of the week and starting doctor and repeats from week to week.
+ * This only applies to schedules that take patients in priority order (patients matched to the days they are available may be moved to later days).
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class AppointmentProjector {
+
+  /** The doctors patients are scheduled with. */
+  private final List<Doctor> doctors;
+
+  /** The mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day. */
+  private final int[] maximumDosesPerDay;
+
+  /** The index for the day of the week schedules start from (where 1 is Sunday and 7 is Saturday). */
+  private final int startingDayIndex;
+
+  /** The days of the week of the active days in a week (starting from the starting day). */
+  private final int[] activeDaysOfWeek;
+
+  /** The number of doses in a week before each active day (and the doses in a whole week at the end). */
+  private final long[] dosesBeforeDay;
+
+  /** The mapping of a day of the week minus one and the doctor index the day starts with to the doctor index of each dose that day (each computed when first needed). */
+  private final int[][][] doctorIndicesByDose;
+
+  /** The mapping of a day of the week minus one and the doctor index the day starts with to the doctor index the next day starts with (or -1 if not computed yet). */
+  private final int[][] nextDoctorIndices;
+
+  /** The doctor index each week starts with (computed until one repeats). */
+  private final ArrayList<Integer> weekStartDoctorIndices;
+
+  /** The first week whose starting doctor index repeats (or -1 if no repeat has been found yet). */
+  private int cycleStartWeek;
+
+  /**
+   * Constructor that takes the doctors and doses schedules are generated with.
+   * @param doctors the doctors to schedule patients with (this is copied).
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day (this is copied).
+   * @param startingDayIndex the index for the day of the week schedules start from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @throws FatalError if no doses can be administered (there is no way of scheduling patients).
+   */
+  public AppointmentProjector(List<Doctor> doctors, int[] maximumDosesPerDay, int startingDayIndex) {
+
+    // Ensure patients can be scheduled (as schedule generation does)
+    if (doctors.isEmpty()) {
+      throw new FatalError("No doctors in the register at schedule generation");
+    } else if (Arrays.stream(maximumDosesPerDay).allMatch(doses -> doses == 0)) {
+      throw new FatalError("No scheduling alignments in the register at schedule generation");
+    }
+
+    this.doctors = new ArrayList<Doctor>(doctors);
+    this.maximumDosesPerDay = maximumDosesPerDay.clone();
+    this.startingDayIndex = startingDayIndex;
+
+    // Find the active days of a week from the starting day, with the doses before each
+    int activeDayCount = 0;
+    for (int doses : maximumDosesPerDay) {
+      if (doses != 0) {
+        activeDayCount++;
+      }
+    }
+
+    activeDaysOfWeek = new int[activeDayCount];
+    dosesBeforeDay = new long[activeDayCount + 1];
+    int activeDay = 0;
+    for (int dayOfWeek = startingDayIndex; activeDay < activeDayCount; dayOfWeek = (dayOfWeek % 7) + 1) {
+      if (maximumDosesPerDay[dayOfWeek - 1] != 0) {
+        activeDaysOfWeek[activeDay] = dayOfWeek;
+        dosesBeforeDay[activeDay + 1] = dosesBeforeDay[activeDay] + maximumDosesPerDay[dayOfWeek - 1];
+        activeDay++;
+      }
+    }
+
+    doctorIndicesByDose = new int[7][this.doctors.size()][];
+    nextDoctorIndices = new int[7][this.doctors.size()];
+    for (int[] dayNextDoctorIndices : nextDoctorIndices) {
+      Arrays.fill(dayNextDoctorIndices, -1);
+    }
+
+    weekStartDoctorIndices = new ArrayList<Integer>();
+    weekStartDoctorIndices.add(0);
+    cycleStartWeek = -1;
+  }
+
+  /**
+   * Check whether the projector is for the given doctors, doses, and starting day (so it can be reused).
+   * @param doctors the doctors to schedule patients with.
+   * @param maximumDosesPerDay the mapping of day indices minus one to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week schedules start from.
+   * @return whether the projector is for them.
+   */
+  public boolean isFor(List<Doctor> doctors, int[] maximumDosesPerDay, int startingDayIndex) {
+
+    if (startingDayIndex != this.startingDayIndex || doctors.size() != this.doctors.size() || !Arrays.equals(maximumDosesPerDay, this.maximumDosesPerDay)) {
+      return false;
+    }
+
+    for (int doctorIndex = 0; doctorIndex < doctors.size(); doctorIndex++) {
+      if (doctors.get(doctorIndex) != this.doctors.get(doctorIndex)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Project the appointment of a patient from their rank in priority order.
+   * @param patient the patient.
+   * @param rank the number of patients before the patient in priority order.
+   * @return the projected appointment.
+   */
+  public Projection project(Patient patient, int rank) {
+
+    // Find the week and then the active day in the week (there are at most seven)
+    long dosesPerWeek = dosesBeforeDay[activeDaysOfWeek.length];
+    long week = rank / dosesPerWeek;
+    long doseInWeek = rank % dosesPerWeek;
+
+    int activeDay = 0;
+    while (dosesBeforeDay[activeDay + 1] <= doseInWeek) {
+      activeDay++;
+    }
+
+    // Find the doctor of the dose from where the rotation starts that day
+    int dayNumber = (int) (week * activeDaysOfWeek.length + activeDay + 1);
+    int dayOfWeek = activeDaysOfWeek[activeDay];
+    int dose = (int) (doseInWeek - dosesBeforeDay[activeDay]);
+    Doctor doctor = doctors.get(getDoctorIndicesByDose(dayOfWeek, getStartingDoctorIndex(dayNumber))[dose]);
+
+    return new Projection(patient, rank, dayNumber, dayOfWeek, doctor);
+  }
+
+  /**
+   * Get the number of doses administered before an active day (the rank in priority order of the day's first patient).
+   * @param dayNumber the active day number (from 1).
+   * @return the number of doses before the day.
+   */
+  public long getDosesBefore(int dayNumber) {
+    int activeDaysPerWeek = activeDaysOfWeek.length;
+    return (long) ((dayNumber - 1) / activeDaysPerWeek) * dosesBeforeDay[activeDaysPerWeek] + dosesBeforeDay[(dayNumber - 1) % activeDaysPerWeek];
+  }
+
+  /**
+   * Get the day of the week of an active day.
+   * @param dayNumber the active day number (from 1).
+   * @return the index for the day of the week (where 1 is Sunday and 7 is Saturday).
+   */
+  public int getDayOfWeek(int dayNumber) {
+    return activeDaysOfWeek[(dayNumber - 1) % activeDaysOfWeek.length];
+  }
+
+  /**
+   * Get the index of the doctor the rotation across doctors starts with on an active day.
+   * @param dayNumber the active day number (from 1).
+   * @return the doctor index.
+   */
+  public int getStartingDoctorIndex(int dayNumber) {
+
+    // Follow the rotation of doctors from the start of the week to the day
+    int activeDay = (dayNumber - 1) % activeDaysOfWeek.length;
+    int doctorIndex = getWeekStartDoctorIndex((dayNumber - 1) / activeDaysOfWeek.length);
+    for (int previousDay = 0; previousDay < activeDay; previousDay++) {
+      doctorIndex = getNextDoctorIndex(activeDaysOfWeek[previousDay], doctorIndex);
+    }
+
+    return doctorIndex;
+  }
+
+  /**
+   * Get the number of active days needed to schedule a number of patients.
+   * @param patientCount the number of patients.
+   * @return the number of active days.
+   */
+  public int getDaysNeeded(int patientCount) {
+
+    if (patientCount == 0) {
+      return 0;
+    }
+
+    long dosesPerWeek = dosesBeforeDay[activeDaysOfWeek.length];
+    long lastRank = patientCount - 1;
+    int activeDay = 0;
+    while (dosesBeforeDay[activeDay + 1] <= lastRank % dosesPerWeek) {
+      activeDay++;
+    }
+
+    return (int) (lastRank / dosesPerWeek * activeDaysOfWeek.length + activeDay + 1);
+  }
+
+  /**
+   * Helper method that gets the doctor index a week starts with (the indices repeat once one does, since there are finitely many).
+   * @param week the week (from 0).
+   * @return the doctor index.
+   */
+  private int getWeekStartDoctorIndex(long week) {
+
+    // Follow the weeks until the week is reached or an index repeats
+    while (cycleStartWeek == -1 && week >= weekStartDoctorIndices.size()) {
+
+      int doctorIndex = weekStartDoctorIndices.get(weekStartDoctorIndices.size() - 1);
+      for (int dayOfWeek : activeDaysOfWeek) {
+        doctorIndex = getNextDoctorIndex(dayOfWeek, doctorIndex);
+      }
+
+      int repeatedWeek = weekStartDoctorIndices.indexOf(doctorIndex);
+      if (repeatedWeek != -1) {
+        cycleStartWeek = repeatedWeek;
+      } else {
+        weekStartDoctorIndices.add(doctorIndex);
+      }
+    }
+
+    if (week < weekStartDoctorIndices.size()) {
+      return weekStartDoctorIndices.get((int) week);
+    }
+
+    int cycleLength = weekStartDoctorIndices.size() - cycleStartWeek;
+    return weekStartDoctorIndices.get(cycleStartWeek + (int) ((week - cycleStartWeek) % cycleLength));
+  }
+
+  /**
+   * Helper method that gets the doctor index the next active day starts with.
+   * @param dayOfWeek the day of the week of the day (where 1 is Sunday and 7 is Saturday).
+   * @param doctorIndex the doctor index the day starts with.
+   * @return the doctor index the next active day starts with.
+   */
+  private int getNextDoctorIndex(int dayOfWeek, int doctorIndex) {
+    if (nextDoctorIndices[dayOfWeek - 1][doctorIndex] == -1) {
+      simulateDay(dayOfWeek, doctorIndex);
+    }
+    return nextDoctorIndices[dayOfWeek - 1][doctorIndex];
+  }
+
+  /**
+   * Helper method that gets the doctor index of each dose on a day.
+   * @param dayOfWeek the day of the week of the day (where 1 is Sunday and 7 is Saturday).
+   * @param doctorIndex the doctor index the day starts with.
+   * @return the doctor index of each dose.
+   */
+  private int[] getDoctorIndicesByDose(int dayOfWeek, int doctorIndex) {
+    if (doctorIndicesByDose[dayOfWeek - 1][doctorIndex] == null) {
+      simulateDay(dayOfWeek, doctorIndex);
+    }
+    return doctorIndicesByDose[dayOfWeek - 1][doctorIndex];
+  }
+
+  /**
+   * Helper method that rotates doses across the doctors for a full day (as schedule generation does) and records the result.
+   * @param dayOfWeek the day of the week of the day (where 1 is Sunday and 7 is Saturday).
+   * @param startingDoctorIndex the doctor index the day starts with.
+   */
+  private void simulateDay(int dayOfWeek, int startingDoctorIndex) {
+
+    int[] doctorIndices = new int[maximumDosesPerDay[dayOfWeek - 1]];
+    int[] patientsHandledByDoctor = new int[doctors.size()];
+    int doctorIndex = startingDoctorIndex;
+
+    for (int dose = 0; dose < doctorIndices.length; ) {
+
+      // Give the dose to the doctor if they have room, and then cycle to the next doctor either way
+      if (patientsHandledByDoctor[doctorIndex] < doctors.get(doctorIndex).getDosesAdministeredPerDay(dayOfWeek)) {
+        doctorIndices[dose++] = doctorIndex;
+        patientsHandledByDoctor[doctorIndex]++;
+      }
+      doctorIndex = (doctorIndex + 1) % doctors.size();
+    }
+
+    doctorIndicesByDose[dayOfWeek - 1][startingDoctorIndex] = doctorIndices;
+    nextDoctorIndices[dayOfWeek - 1][startingDoctorIndex] = doctorIndex;
+  }
+
+  /**
+   * The Projection class is the projected appointment of a patient.
+   */
+  public static final class Projection {
+
+    /** The patient. */
+    private final Patient patient;
+
+    /** The number of patients before the patient in priority order. */
+    private final int rank;
+
+    /** The active day number of the appointment (or -1 if the patient would not be scheduled). */
+    private final int dayNumber;
+
+    /** The day of the week of the appointment (or -1 if the patient would not be scheduled). */
+    private final int dayOfWeek;
+
+    /** The doctor of the appointment (or null if the patient would not be scheduled). */
+    private final Doctor doctor;
+
+    /**
+     * The sole constructor.
+     * @param patient the patient.
+     * @param rank the number of patients before the patient in priority order.
+     * @param dayNumber the active day number of the appointment (or -1 if the patient would not be scheduled).
+     * @param dayOfWeek the day of the week of the appointment (or -1 if the patient would not be scheduled).
+     * @param doctor the doctor of the appointment (or null if the patient would not be scheduled).
+     */
+    Projection(Patient patient, int rank, int dayNumber, int dayOfWeek, Doctor doctor) {
+      this.patient = patient;
+      this.rank = rank;
+      this.dayNumber = dayNumber;
+      this.dayOfWeek = dayOfWeek;
+      this.doctor = doctor;
+    }
+
+    /**
+     * Getter for the patient.
+     * @return the patient.
+     */
+    public Patient getPatient() {
+      return patient;
+    }
+
+    /**
+     * Getter for the rank.
+     * @return the number of patients before the patient in priority order.
+     */
+    public int getRank() {
+      return rank;
+    }
+
+    /**
+     * Check whether the patient would be scheduled.
+     * @return whether the patient would be scheduled (patients who are only available on days without doses are not).
+     */
+    public boolean isScheduled() {
+      return doctor != null;
+    }
+
+    /**
+     * Getter for the day number.
+     * @return the active day number of the appointment (or -1 if the patient would not be scheduled).
+     */
+    public int getDayNumber() {
+      return dayNumber;
+    }
+
+    /**
+     * Getter for the day of the week.
+     * @return the index for the day of the week of the appointment, where 1 is Sunday and 7 is Saturday (or -1 if the patient would not be scheduled).
+     */
+    public int getDayOfWeek() {
+      return dayOfWeek;
+    }
+
+    /**
+     * Getter for the doctor.
+     * @return the doctor of the appointment (or null if the patient would not be scheduled).
+     */
+    public Doctor getDoctor() {
+      return doctor;
+    }
+
+    @Override
+    public String toString() {
+      String position = "Priority rank " + (rank + 1);
+      if (!isScheduled()) {
+        return position + ", not able to be scheduled on the days the patient is available";
+      }
+      return position + ", day " + dayNumber + " (" + BasicFormatter.getDayOfWeekName(dayOfWeek) + ") with " + doctor.getName();
+    }
+  }
+}
@@ -0,0 +1,303 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * This class provides a static method for assigning patients to the days of a schedule when patients are only available on certain days of the week. Patients are considered in priority order, and each is included if there is any way to make room for them along with the patients already included (so this schedules the most patients possible, and a patient is only left out in favor of higher priority patients).
+ * Since every day of the schedule that falls on the same day of the week is interchangeable for deciding who fits, the included patients are found from the combined capacity of each day of the week. The included patients are then given days in priority order, each taking the earliest open day that still leaves room for everyone after them, so a patient is only given a later day than a lower priority patient when that is the only way to fit both.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public final class AvailabilityMatcher {
+
+  /** The number of possible availability masks (one bit per day of the week). */
+  private static final int NUMBER_OF_MASKS = 1 << 7;
+
+  /** Overridden default constructor, so AvailabilityMatcher cannot be instantiated. */
+  private AvailabilityMatcher() {}
+
+  /**
+   * Assign patients to the active days of a schedule.
+   * @param patients the patients to consider in priority order (patients are taken from the iterator until every dose is assigned or there are no more patients).
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days in the schedule.
+   * @return the mapping of active day numbers minus one to the patients assigned to that day in priority order (up to the last day with patients).
+   */
+  public static ArrayList<ArrayList<Patient>> assignDays(Iterator<Patient> patients, int[] maximumDosesPerDay, int startingDayIndex, int numberOfDays) {
+
+    // Find the first active day number of each day of the week (indexed by day index minus one) and how many days of the week are active
+    int[] firstDayNumber = new int[7];
+    int activeDaysOfWeek = getFirstDayNumbers(maximumDosesPerDay, startingDayIndex, firstDayNumber);
+    int activeDayMask = getActiveDayMask(maximumDosesPerDay);
+
+    // Find the combined capacity of each set of days over the schedule
+    long[] setCapacity = getSetCapacity(maximumDosesPerDay, firstDayNumber, activeDaysOfWeek, numberOfDays);
+    long totalCapacity = setCapacity[NUMBER_OF_MASKS - 1];
+
+    // Include patients in priority order while there is room for them (see selectPatients), tracking the number of included patients only available on days in each set
+    long[] setCount = new long[NUMBER_OF_MASKS];
+    ArrayList<Patient> included = new ArrayList<Patient>();
+    ArrayList<Integer> includedMasks = new ArrayList<Integer>();
+
+    while (included.size() < totalCapacity && patients.hasNext()) {
+
+      Patient patient = patients.next();
+      int mask = patient.getAvailableDays() & activeDayMask;
+
+      if (mask != 0 && fits(mask, setCount, setCapacity)) {
+        for (int set = mask; set < NUMBER_OF_MASKS; set = (set + 1) | mask) {
+          setCount[set]++;
+        }
+        included.add(patient);
+        includedMasks.add(mask);
+      }
+    }
+
+    // Give each included patient in priority order the earliest open day that leaves room for the included patients after them
+    ArrayList<ArrayList<Patient>> patientsForDay = new ArrayList<ArrayList<Patient>>();
+    long[] dosesAssigned = new long[7];
+
+    for (int patientIndex = 0; patientIndex < included.size(); patientIndex++) {
+
+      int mask = includedMasks.get(patientIndex);
+      int triedDays = 0;
+      int dayIndex = -1;
+      long dayNumber = 0;
+
+      // Try the days of the week the patient is available in order of their next open day
+      while (dayIndex == -1) {
+
+        int nextDayIndex = -1;
+        long nextDayNumber = Long.MAX_VALUE;
+        for (int otherDayIndex = 0; otherDayIndex < 7; otherDayIndex++) {
+          if ((mask & ~triedDays & (1 << otherDayIndex)) != 0) {
+            long otherDayNumber = firstDayNumber[otherDayIndex] + (dosesAssigned[otherDayIndex] / maximumDosesPerDay[otherDayIndex]) * activeDaysOfWeek;
+            if (otherDayNumber < nextDayNumber) {
+              nextDayIndex = otherDayIndex;
+              nextDayNumber = otherDayNumber;
+            }
+          }
+        }
+        triedDays |= 1 << nextDayIndex;
+
+        if (nextDayNumber <= numberOfDays && leavesRoom(nextDayIndex, mask, setCount, setCapacity)) {
+          dayIndex = nextDayIndex;
+          dayNumber = nextDayNumber;
+        }
+      }
+
+      // Take the day from the patient's sets and the day's capacity from its sets
+      for (int set = mask; set < NUMBER_OF_MASKS; set = (set + 1) | mask) {
+        setCount[set]--;
+      }
+      for (int set = 1 << dayIndex; set < NUMBER_OF_MASKS; set = (set + 1) | (1 << dayIndex)) {
+        setCapacity[set]--;
+      }
+      dosesAssigned[dayIndex]++;
+
+      while (patientsForDay.size() < dayNumber) {
+        patientsForDay.add(new ArrayList<Patient>());
+      }
+      patientsForDay.get((int) dayNumber - 1).add(included.get(patientIndex));
+    }
+
+    return patientsForDay;
+  }
+
+  /**
+   * Find which patients a schedule would include without assigning them to days (this includes the same patients as assignDays). A patient is included if the included patients and the patient could all be matched, which holds when, for every set of days of the week, the patients only available on days in the set fit in the set's combined capacity (Hall's condition). Only the sets containing the patient's days need to be checked, so each patient takes at most 128 checks and no patients are moved.
+   * @param availableDays the availability masks of the patients to consider in priority order (bit 0 is Sunday and bit 6 is Saturday).
+   * @param count the number of patients to consider (from index 0).
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days in the schedule.
+   * @param selected the array to mark the included patients in (by their index in availableDays, and which must start with every element false).
+   * @return the number of patients included.
+   */
+  public static int selectPatients(int[] availableDays, int count, int[] maximumDosesPerDay, int startingDayIndex, int numberOfDays, boolean[] selected) {
+
+    // Find the combined capacity of each set of days over the schedule
+    int[] firstDayNumber = new int[7];
+    int activeDaysOfWeek = getFirstDayNumbers(maximumDosesPerDay, startingDayIndex, firstDayNumber);
+    int activeDayMask = getActiveDayMask(maximumDosesPerDay);
+    long[] setCapacity = getSetCapacity(maximumDosesPerDay, firstDayNumber, activeDaysOfWeek, numberOfDays);
+
+    // Create the mapping of sets of days to the number of included patients only available on days in the set
+    long[] setCount = new long[NUMBER_OF_MASKS];
+    long totalCapacity = setCapacity[NUMBER_OF_MASKS - 1];
+    int selectedCount = 0;
+
+    for (int index = 0; index < count && selectedCount < totalCapacity; index++) {
+
+      int mask = availableDays[index] & activeDayMask;
+
+      if (mask == 0 || !fits(mask, setCount, setCapacity)) {
+        continue;
+      }
+
+      for (int set = mask; set < NUMBER_OF_MASKS; set = (set + 1) | mask) {
+        setCount[set]++;
+      }
+      selected[index] = true;
+      selectedCount++;
+    }
+
+    return selectedCount;
+  }
+
+  /**
+   * Find the fewest active days a schedule needs to include every patient who is available on an active day. Every patient fits once, for every set of days of the week, the patients only available on days in the set fit in the set's combined capacity (Hall's condition), and the capacity only grows with more days, so the number of days is found by a binary search.
+   * @param patientCounts the mapping of availability masks to the number of patients with them (bit 0 is Sunday and bit 6 is Saturday, and the array has an element for every mask).
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @return the number of active days (0 if no patient is available on an active day, and at most Integer.MAX_VALUE).
+   */
+  public static int getDaysNeeded(int[] patientCounts, int[] maximumDosesPerDay, int startingDayIndex) {
+
+    int[] firstDayNumber = new int[7];
+    int activeDaysOfWeek = getFirstDayNumbers(maximumDosesPerDay, startingDayIndex, firstDayNumber);
+    int activeDayMask = getActiveDayMask(maximumDosesPerDay);
+
+    // Find the number of patients only available on days in each set (summing the counts of each set's subsets one day at a time)
+    long[] setCount = new long[NUMBER_OF_MASKS];
+    for (int mask = 1; mask < NUMBER_OF_MASKS; mask++) {
+      if ((mask & activeDayMask) != 0) {
+        setCount[mask & activeDayMask] += patientCounts[mask];
+      }
+    }
+    for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+      for (int set = 0; set < NUMBER_OF_MASKS; set++) {
+        if ((set & (1 << dayIndex)) != 0) {
+          setCount[set] += setCount[set ^ (1 << dayIndex)];
+        }
+      }
+    }
+
+    if (setCount[NUMBER_OF_MASKS - 1] == 0) {
+      return 0;
+    }
+
+    // Every set with patients gains at least one place each week, so a week per patient is always enough
+    long fewestDays = 1;
+    long mostDays = Math.min((long) activeDaysOfWeek * setCount[NUMBER_OF_MASKS - 1], Integer.MAX_VALUE);
+
+    while (fewestDays < mostDays) {
+
+      long days = (fewestDays + mostDays) >>> 1;
+      long[] setCapacity = getSetCapacity(maximumDosesPerDay, firstDayNumber, activeDaysOfWeek, (int) days);
+
+      boolean isEnough = true;
+      for (int set = 1; set < NUMBER_OF_MASKS && isEnough; set++) {
+        isEnough = setCount[set] <= setCapacity[set];
+      }
+
+      if (isEnough) {
+        mostDays = days;
+      } else {
+        fewestDays = days + 1;
+      }
+    }
+
+    return (int) fewestDays;
+  }
+
+  /**
+   * Helper method that finds which days of the week doses can be administered on.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @return the active days of the week as a bitmask (bit 0 is Sunday and bit 6 is Saturday).
+   */
+  private static int getActiveDayMask(int[] maximumDosesPerDay) {
+    int activeDayMask = 0;
+    for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+      if (maximumDosesPerDay[dayIndex] != 0) {
+        activeDayMask |= 1 << dayIndex;
+      }
+    }
+    return activeDayMask;
+  }
+
+  /**
+   * Helper method that finds the first active day number of each day of the week.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param firstDayNumber the array to put the first active day number of each day of the week in (indexed by day index minus one, and 0 for idle days of the week).
+   * @return the number of active days of the week (every day of the week repeats after this many active days).
+   */
+  private static int getFirstDayNumbers(int[] maximumDosesPerDay, int startingDayIndex, int[] firstDayNumber) {
+
+    int activeDaysOfWeek = 0;
+    for (int offset = 0; offset < 7; offset++) {
+      int dayIndex = (startingDayIndex - 1 + offset) % 7;
+      if (maximumDosesPerDay[dayIndex] != 0) {
+        firstDayNumber[dayIndex] = ++activeDaysOfWeek;
+      }
+    }
+
+    return activeDaysOfWeek;
+  }
+
+  /**
+   * Helper method that finds the combined capacity of each set of days of the week over a schedule.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param firstDayNumber the first active day number of each day of the week (from getFirstDayNumbers).
+   * @param activeDaysOfWeek the number of active days of the week.
+   * @param numberOfDays the number of active days in the schedule.
+   * @return the mapping of sets of days (as bitmasks) to their combined capacity.
+   */
+  private static long[] getSetCapacity(int[] maximumDosesPerDay, int[] firstDayNumber, int activeDaysOfWeek, int numberOfDays) {
+
+    // Each day of the week occurs once every activeDaysOfWeek active days from its first day
+    long[] capacity = new long[7];
+    for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+      if (maximumDosesPerDay[dayIndex] != 0 && firstDayNumber[dayIndex] <= numberOfDays) {
+        capacity[dayIndex] = ((long) (numberOfDays - firstDayNumber[dayIndex]) / activeDaysOfWeek + 1) * maximumDosesPerDay[dayIndex];
+      }
+    }
+
+    long[] setCapacity = new long[NUMBER_OF_MASKS];
+    for (int set = 1; set < NUMBER_OF_MASKS; set++) {
+      int lowestDay = Integer.numberOfTrailingZeros(set);
+      setCapacity[set] = setCapacity[set & (set - 1)] + capacity[lowestDay];
+    }
+
+    return setCapacity;
+  }
+
+  /**
+   * Helper method that checks if a patient can be included along with the included patients, which holds when every set of days containing the patient's days has room (Hall's condition).
+   * @param mask the days of the week (as a bitmask) the patient is available.
+   * @param setCount the mapping of sets of days to the number of included patients only available on days in the set.
+   * @param setCapacity the mapping of sets of days to their combined capacity.
+   * @return whether the patient can be included.
+   */
+  private static boolean fits(int mask, long[] setCount, long[] setCapacity) {
+    for (int set = mask; set < NUMBER_OF_MASKS; set = (set + 1) | mask) {
+      if (setCount[set] >= setCapacity[set]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Helper method that checks if giving a patient a day of the week still leaves room for the other included patients. Only the sets containing the day but not every one of the patient's days lose capacity without losing a patient, so only those need room to spare.
+   * @param dayIndex the day of the week (where 0 is Sunday and 6 is Saturday).
+   * @param mask the days of the week (as a bitmask) the patient is available.
+   * @param setCount the mapping of sets of days to the number of included patients yet to be given days only available on days in the set (including the patient).
+   * @param setCapacity the mapping of sets of days to their combined capacity left.
+   * @return whether the patient can be given the day.
+   */
+  private static boolean leavesRoom(int dayIndex, int mask, long[] setCount, long[] setCapacity) {
+
+    if (setCapacity[1 << dayIndex] == 0) {
+      return false;
+    }
+
+    for (int set = 1 << dayIndex; set < NUMBER_OF_MASKS; set = (set + 1) | (1 << dayIndex)) {
+      if ((set & mask) != mask && setCount[set] >= setCapacity[set]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
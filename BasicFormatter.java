@@ -1,4 +1,5 @@
 import java.time.LocalDate;
+import java.io.IOException;
 
 /**
  * A class that provides static formatting methods for the dates, days of the week, and tests used in our program.
@@ -38,6 +39,48 @@ public class BasicFormatter {
     return date.getMonthValue() + "/" + date.getDayOfMonth() + "/" + date.getYear();
   }
 
+  /**
+   * Append a date in the form month/day/year (without creating any strings).
+   * @param out the Appendable to append to.
+   * @param date the LocalDate to format.
+   * @throws IOException if the Appendable throws one.
+   */
+  public static void appendDate(Appendable out, LocalDate date) throws IOException {
+    appendNumber(out, date.getMonthValue());
+    out.append('/');
+    appendNumber(out, date.getDayOfMonth());
+    out.append('/');
+    appendNumber(out, date.getYear());
+  }
+
+  /**
+   * Append a number in decimal (without creating any strings).
+   * @param out the Appendable to append to.
+   * @param number the number to append.
+   * @throws IOException if the Appendable throws one.
+   */
+  public static void appendNumber(Appendable out, long number) throws IOException {
+
+    // Work with the negative of the number, so Long.MIN_VALUE does not overflow
+    long negative = number;
+    if (number < 0) {
+      out.append('-');
+    } else {
+      negative = -number;
+    }
+
+    // Find the place value of the first digit
+    long placeValue = 1;
+    while (negative / placeValue <= -10) {
+      placeValue *= 10;
+    }
+
+    // Append each digit from the first
+    for (; placeValue > 0; placeValue /= 10) {
+      out.append((char) ('0' - (negative / placeValue) % 10));
+    }
+  }
+
   /**
    * Convert an int between or equal to 0 and 999 to a three-digit string by adding any preceding necessary zeros.
    * @param number the number to be converted into a string.
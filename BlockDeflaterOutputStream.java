@@ -0,0 +1,224 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The BlockDeflaterOutputStream class compresses a stream (such as a save state) in independent blocks, each with a checksum of its contents, so the stream can be decompressed on several threads (see BlockInflaterInputStream). Blocks are also compressed on several threads while they are written, and are written out in order.
+ * The stream starts with a header (the magic value and the block size). Each block is its uncompressed length, compressed length, and CRC32 checksum (of the uncompressed bytes), followed by its deflated bytes. A block with an uncompressed length of 0 ends the stream, so a stream cut short is detected.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class BlockDeflaterOutputStream extends FilterOutputStream {
+
+  /** The value that starts a block compressed stream (a serialized object stream starts with 0xACED instead). */
+  static final int MAGIC = 0x50444246;
+
+  /** The number of uncompressed bytes in each block (but the last). */
+  static final int BLOCK_SIZE = 1 << 20;
+
+  /** The level the blocks are compressed with. */
+  private final int level;
+
+  /** The block being filled. */
+  private byte[] block;
+  /** The number of bytes in the block being filled. */
+  private int blockLength;
+
+  /** The blocks being compressed (in the order they are written). */
+  private final ArrayDeque<CompletableFuture<byte[]>> pendingBlocks;
+  /** The maximum number of blocks being compressed at once. */
+  private final int maximumPendingBlocks;
+
+  /** Whether the stream has been finished. */
+  private boolean isFinished;
+
+  /**
+   * Constructor that takes the stream to write to and the compression level (this writes the header).
+   * @param out the stream to write the compressed blocks to.
+   * @param level the compression level (from 1, the fastest, to 9, the smallest).
+   * @throws IOException if the header cannot be written.
+   * @throws IllegalArgumentException if the level is not from 1 to 9.
+   */
+  public BlockDeflaterOutputStream(OutputStream out, int level) throws IOException {
+
+    super(new DataOutputStream(out));
+
+    if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("illegal compression level: " + level);
+    }
+
+    this.level = level;
+    block = new byte[BLOCK_SIZE];
+    pendingBlocks = new ArrayDeque<CompletableFuture<byte[]>>();
+    maximumPendingBlocks = 2 * Math.max(ForkJoinPool.getCommonPoolParallelism(), 1);
+
+    DataOutputStream output = (DataOutputStream) this.out;
+    output.writeInt(MAGIC);
+    output.writeInt(BLOCK_SIZE);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+
+    if (blockLength == BLOCK_SIZE) {
+      submitBlock();
+    }
+    block[blockLength++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+
+    // Fill the current block (starting a new one each time it is full)
+    while (length > 0) {
+
+      if (blockLength == BLOCK_SIZE) {
+        submitBlock();
+      }
+
+      int copyLength = Math.min(length, BLOCK_SIZE - blockLength);
+      System.arraycopy(bytes, offset, block, blockLength, copyLength);
+      blockLength += copyLength;
+      offset += copyLength;
+      length -= copyLength;
+    }
+  }
+
+  /**
+   * Helper method that starts compressing the current block (writing out the oldest blocks if too many are being compressed) and starts a new one.
+   * @throws IOException if a block cannot be written.
+   */
+  private void submitBlock() throws IOException {
+
+    if (blockLength == 0) {
+      return;
+    }
+
+    byte[] uncompressedBlock = block;
+    int uncompressedLength = blockLength;
+    pendingBlocks.add(CompletableFuture.supplyAsync(() -> compressBlock(uncompressedBlock, uncompressedLength, level)));
+
+    block = new byte[BLOCK_SIZE];
+    blockLength = 0;
+
+    while (pendingBlocks.size() >= maximumPendingBlocks) {
+      writeOldestBlock();
+    }
+  }
+
+  /**
+   * Helper method that waits for the oldest block being compressed and writes it.
+   * @throws IOException if the block cannot be written.
+   */
+  private void writeOldestBlock() throws IOException {
+
+    try {
+      out.write(pendingBlocks.remove().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while compressing", e);
+    } catch (ExecutionException e) {
+      throw new IOException("a block could not be compressed", e.getCause());
+    }
+  }
+
+  /**
+   * Helper method that compresses a block (with its length and checksum).
+   * @param bytes the uncompressed bytes.
+   * @param length the number of uncompressed bytes.
+   * @param level the compression level.
+   * @return the block as it is written to the stream.
+   */
+  private static byte[] compressBlock(byte[] bytes, int length, int level) {
+
+    CRC32 checksum = new CRC32();
+    checksum.update(bytes, 0, length);
+
+    Deflater deflater = new Deflater(level);
+    ByteArrayOutputStream compressedBlock = new ByteArrayOutputStream(length / 2 + 64);
+
+    try {
+      deflater.setInput(bytes, 0, length);
+      deflater.finish();
+
+      // Leave room for the block's header
+      compressedBlock.write(new byte[16], 0, 16);
+      byte[] buffer = new byte[1 << 16];
+      while (!deflater.finished()) {
+        compressedBlock.write(buffer, 0, deflater.deflate(buffer));
+      }
+    } finally {
+      deflater.end();
+    }
+
+    // Fill in the header
+    byte[] result = compressedBlock.toByteArray();
+    writeInt(result, 0, length);
+    writeInt(result, 4, result.length - 16);
+    writeInt(result, 8, (int) (checksum.getValue() >>> 32));
+    writeInt(result, 12, (int) checksum.getValue());
+    return result;
+  }
+
+  /**
+   * Helper method that writes a big-endian int into an array.
+   * @param bytes the array.
+   * @param position the position of the int.
+   * @param value the int.
+   */
+  private static void writeInt(byte[] bytes, int position, int value) {
+    bytes[position] = (byte) (value >>> 24);
+    bytes[position + 1] = (byte) (value >>> 16);
+    bytes[position + 2] = (byte) (value >>> 8);
+    bytes[position + 3] = (byte) value;
+  }
+
+  /**
+   * Compress and write every remaining block and the end of the stream (without closing the underlying stream).
+   * @throws IOException if the blocks cannot be written.
+   */
+  public void finish() throws IOException {
+
+    if (isFinished) {
+      return;
+    }
+
+    submitBlock();
+    while (!pendingBlocks.isEmpty()) {
+      writeOldestBlock();
+    }
+
+    // Write the block that ends the stream
+    DataOutputStream output = (DataOutputStream) out;
+    output.writeInt(0);
+    output.writeInt(0);
+    output.writeLong(0);
+    isFinished = true;
+  }
+
+  /**
+   * Flush the underlying stream (the current block is not compressed until it is full or the stream is finished, so flushing does not split blocks).
+   * @throws IOException if the underlying stream cannot be flushed.
+   */
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,234 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The BlockInflaterInputStream class decompresses a stream written by a BlockDeflaterOutputStream. The calling thread reads the compressed blocks, while the blocks are decompressed and checked ahead of the reader on several threads (so reading is limited by the underlying stream rather than by decompression).
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class BlockInflaterInputStream extends InputStream {
+
+  /** The stream the compressed blocks are read from. */
+  private final DataInputStream in;
+
+  /** The largest number of uncompressed bytes a block can have. */
+  private final int blockSize;
+
+  /** The blocks being decompressed (in the order they are read). */
+  private final ArrayDeque<CompletableFuture<byte[]>> pendingBlocks;
+  /** The maximum number of blocks being decompressed at once. */
+  private final int maximumPendingBlocks;
+
+  /** The block being read (empty until the first block is decompressed). */
+  private byte[] block;
+  /** The position of the next byte to read in the block being read. */
+  private int blockPosition;
+
+  /** The number of blocks read from the underlying stream. */
+  private long blockCount;
+  /** Whether the block that ends the stream has been read. */
+  private boolean isEndRead;
+
+  /**
+   * Constructor that takes the stream to read from (this reads the header).
+   * @param in the stream of compressed blocks.
+   * @throws IOException if the header cannot be read or the stream is not block compressed.
+   */
+  public BlockInflaterInputStream(InputStream in) throws IOException {
+
+    this.in = new DataInputStream(in);
+
+    if (this.in.readInt() != BlockDeflaterOutputStream.MAGIC) {
+      throw new IOException("the stream is not block compressed");
+    }
+
+    blockSize = this.in.readInt();
+    if (blockSize <= 0) {
+      throw new IOException("illegal block size: " + blockSize);
+    }
+
+    pendingBlocks = new ArrayDeque<CompletableFuture<byte[]>>();
+    maximumPendingBlocks = 2 * Math.max(ForkJoinPool.getCommonPoolParallelism(), 1);
+    block = new byte[0];
+  }
+
+  /**
+   * Open a stream that may be block compressed (such as a save state written before compression was introduced), decompressing it if it is.
+   * @param in the stream.
+   * @return the stream to read from (a BlockInflaterInputStream if the stream is block compressed or a buffered stream of the original otherwise).
+   * @throws IOException if the stream cannot be read.
+   */
+  public static InputStream decompressIfCompressed(InputStream in) throws IOException {
+
+    // Check the first four bytes for the magic value
+    BufferedInputStream bufferedIn = new BufferedInputStream(in);
+    bufferedIn.mark(4);
+    byte[] start = bufferedIn.readNBytes(4);
+    bufferedIn.reset();
+
+    boolean isCompressed = start.length == 4 && ((start[0] & 0xFF) << 24 | (start[1] & 0xFF) << 16 | (start[2] & 0xFF) << 8 | (start[3] & 0xFF)) == BlockDeflaterOutputStream.MAGIC;
+    return isCompressed ? new BlockInflaterInputStream(bufferedIn) : bufferedIn;
+  }
+
+  /**
+   * Helper method that reads compressed blocks and starts decompressing them (until enough are being decompressed or the stream ends).
+   * @throws IOException if a block cannot be read.
+   */
+  private void readAhead() throws IOException {
+
+    while (!isEndRead && pendingBlocks.size() < maximumPendingBlocks) {
+
+      int length;
+      int compressedLength;
+      long checksum;
+      try {
+        length = in.readInt();
+        compressedLength = in.readInt();
+        checksum = in.readLong();
+      } catch (EOFException e) {
+        throw new IOException("the compressed stream ends before its last block", e);
+      }
+
+      if (length == 0) {
+        isEndRead = true;
+        return;
+      }
+
+      if (length < 0 || length > blockSize || compressedLength < 0) {
+        throw new IOException("block " + blockCount + " of the compressed stream has an illegal length");
+      }
+
+      byte[] compressedBlock = new byte[compressedLength];
+      try {
+        in.readFully(compressedBlock);
+      } catch (EOFException e) {
+        throw new IOException("the compressed stream ends in block " + blockCount, e);
+      }
+
+      long blockNumber = blockCount++;
+      pendingBlocks.add(CompletableFuture.supplyAsync(() -> decompressBlock(compressedBlock, length, checksum, blockNumber)));
+    }
+  }
+
+  /**
+   * Helper method that decompresses a block and checks its checksum.
+   * @param compressedBlock the compressed bytes.
+   * @param length the number of uncompressed bytes.
+   * @param checksum the checksum of the uncompressed bytes.
+   * @param blockNumber the position of the block in the stream (for reporting errors).
+   * @return the uncompressed bytes.
+   * @throws IllegalStateException if the block is damaged.
+   */
+  private static byte[] decompressBlock(byte[] compressedBlock, int length, long checksum, long blockNumber) {
+
+    byte[] bytes = new byte[length];
+    Inflater inflater = new Inflater();
+
+    try {
+      inflater.setInput(compressedBlock);
+      int inflatedLength = 0;
+
+      while (!inflater.finished()) {
+
+        // Check that a full block ends where its recorded length does
+        if (inflatedLength == length) {
+          if (inflater.inflate(new byte[1]) > 0 || !inflater.finished()) {
+            throw new IllegalStateException("block " + blockNumber + " of the compressed stream is longer than its recorded length");
+          }
+          break;
+        }
+
+        int chunkLength = inflater.inflate(bytes, inflatedLength, length - inflatedLength);
+        if (chunkLength == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        inflatedLength += chunkLength;
+      }
+
+      if (inflatedLength != length) {
+        throw new IllegalStateException("block " + blockNumber + " of the compressed stream is shorter than its recorded length");
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("block " + blockNumber + " of the compressed stream cannot be decompressed", e);
+    } finally {
+      inflater.end();
+    }
+
+    CRC32 blockChecksum = new CRC32();
+    blockChecksum.update(bytes);
+    if (blockChecksum.getValue() != checksum) {
+      throw new IllegalStateException("block " + blockNumber + " of the compressed stream is damaged");
+    }
+
+    return bytes;
+  }
+
+  /**
+   * Helper method that moves to the next decompressed block if the current one has been read.
+   * @return whether there are bytes left to read.
+   * @throws IOException if a block cannot be read or is damaged.
+   */
+  private boolean ensureBlock() throws IOException {
+
+    while (blockPosition == block.length) {
+
+      readAhead();
+      if (pendingBlocks.isEmpty()) {
+        return false;
+      }
+
+      try {
+        block = pendingBlocks.remove().get();
+        blockPosition = 0;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("interrupted while decompressing", e);
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause().getMessage(), e.getCause());
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return ensureBlock() ? block[blockPosition++] & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+
+    if (length == 0) {
+      return 0;
+    } else if (!ensureBlock()) {
+      return -1;
+    }
+
+    int readLength = Math.min(length, block.length - blockPosition);
+    System.arraycopy(block, blockPosition, bytes, offset, readLength);
+    blockPosition += readLength;
+    return readLength;
+  }
+
+  @Override
+  public int available() {
+    return block.length - blockPosition;
+  }
+
+  @Override
+  public void close() throws IOException {
+    pendingBlocks.clear();
+    in.close();
+  }
+}
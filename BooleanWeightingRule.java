@@ -0,0 +1,37 @@
+import java.io.Serializable;
+
+/**
+ * A rule that awards points when a patient gives a specific response to a yes-or-no question.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class BooleanWeightingRule extends WeightingRule implements Serializable {
+
+  /** The serial version used when decoding. */
+  private static final long serialVersionUID = 3100L;
+
+  /** The response that is awarded the points. */
+  private boolean awardingResponse;
+
+  /**
+   * Constructor that takes the points, questionnaire key, and the awarded response.
+   * @param points the weighting points awarded when the rule applies.
+   * @param key the questionnaire key of the question.
+   * @param awardingResponse the response that is awarded the points.
+   */
+  public BooleanWeightingRule(int points, String key, boolean awardingResponse) {
+    super(points, key);
+    this.awardingResponse = awardingResponse;
+  }
+
+  @Override
+  public int weightForPatient(Patient patient) {
+    Boolean patientBoolean = patient.getMedicalBoolean(key);
+    return (patientBoolean != null && patientBoolean == awardingResponse) ? points : 0;
+  }
+
+  @Override
+  public void compileInto(PriorityScorer.Builder builder) {
+    builder.addResponseWeight(key, awardingResponse, points);
+  }
+}
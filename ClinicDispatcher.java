@@ -0,0 +1,229 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ClinicDispatcher class dispenses patients live on a clinic day, as an alternative to following a precomputed schedule. Each doctor's station calls for the next patient and is given the highest priority patient still waiting, so stations that finish early are not held to a fixed list and capacity left by no-shows is used.
+ * Waiting patients are kept in a concurrent skip list ordered by priority, so several stations can take patients at the same time without a shared lock. Taking a patient removes them from the skip list atomically (so no two stations can be given the same patient), and a no-show is put back in O(log N) time. The dispatcher works from a copy of the patients' priority order when it was created, so the register should not be changed while the dispatcher is in use.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class ClinicDispatcher {
+
+  /** The waiting patients, ordered by their dispatch keys (the highest priority patient has the lowest key). */
+  private final ConcurrentSkipListMap<Long, Patient> waitingPatients;
+
+  /** The mapping of the IDs of patients who have been called (and not yet vaccinated or returned) to their claims. */
+  private final ConcurrentHashMap<Integer, Claim> claims;
+
+  /** The mapping of doctor IDs to the number of patients that doctor can still be given today. */
+  private final Map<Integer, AtomicInteger> remainingDoctorDoses;
+
+  /** The number of doses that can still be given today (across all doctors). */
+  private final AtomicInteger remainingDoses;
+
+  /** The patients who have been vaccinated (in the order they were marked). */
+  private final ConcurrentLinkedQueue<Patient> vaccinatedPatients;
+
+  /** The index of the day of the week being dispatched (where 1 is Sunday and 7 is Saturday). */
+  private final int dayIndex;
+
+  /**
+   * Constructor that takes the register to dispatch patients from and the day of the week (only patients available on that day are dispatched).
+   * @param register the register.
+   * @param dayIndex the index of the day of the week (where 1 is Sunday and 7 is Saturday).
+   */
+  public ClinicDispatcher(Register register, int dayIndex) {
+
+    this.dayIndex = dayIndex;
+
+    // Add each patient available on the day to the waiting patients (they are ordered by their keys, so the register's listing is not sorted for this)
+    waitingPatients = new ConcurrentSkipListMap<Long, Patient>();
+    for (Patient patient : register.getSnapshot().getPatients()) {
+      if (patient.isAvailableOn(dayIndex)) {
+        waitingPatients.put(getDispatchKey(patient), patient);
+      }
+    }
+
+    claims = new ConcurrentHashMap<Integer, Claim>();
+    vaccinatedPatients = new ConcurrentLinkedQueue<Patient>();
+
+    // Set the capacity of each doctor and of the day
+    HashMap<Integer, AtomicInteger> doctorDoses = new HashMap<Integer, AtomicInteger>();
+    for (Doctor doctor : register.getDoctorsList()) {
+      doctorDoses.put(doctor.getDoctorID(), new AtomicInteger(doctor.getDosesAdministeredPerDay(dayIndex)));
+    }
+    remainingDoctorDoses = doctorDoses;
+    remainingDoses = new AtomicInteger(register.maximumDosesForDay(dayIndex));
+  }
+
+  /**
+   * Get the key that orders a patient in the waiting patients (the key is lower for a higher priority weight, and then for a lower ID, which matches the order of the register's listing).
+   * @param patient the patient.
+   * @return the dispatch key.
+   */
+  private static long getDispatchKey(Patient patient) {
+    return (-(long) patient.getPriorityWeight() << 32) | (patient.getPatientID() & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Getter for the day index.
+   * @return the index of the day of the week being dispatched (where 1 is Sunday and 7 is Saturday).
+   */
+  public int getDayIndex() {
+    return dayIndex;
+  }
+
+  /**
+   * Helper method that takes a dose from a counter if any are left.
+   * @param counter the counter.
+   * @return whether a dose was taken.
+   */
+  private static boolean takeDose(AtomicInteger counter) {
+    int remaining;
+    do {
+      remaining = counter.get();
+      if (remaining <= 0) {
+        return false;
+      }
+    } while (!counter.compareAndSet(remaining, remaining - 1));
+    return true;
+  }
+
+  /**
+   * Give the highest priority waiting patient to a doctor's station (this can be called by several stations at the same time).
+   * @param doctorID the ID of the doctor calling for a patient.
+   * @return the patient to vaccinate, or null if there are no waiting patients or the doctor or the day has no doses left.
+   * @throws IllegalArgumentException if no doctor in the register has the ID.
+   */
+  public Patient callNextPatient(int doctorID) {
+
+    AtomicInteger doctorDoses = remainingDoctorDoses.get(doctorID);
+    if (doctorDoses == null) {
+      throw new IllegalArgumentException("no doctor with ID " + doctorID + " to dispatch a patient to");
+    }
+
+    // Reserve a dose from the doctor and then from the day
+    if (!takeDose(doctorDoses)) {
+      return null;
+    } else if (!takeDose(remainingDoses)) {
+      doctorDoses.incrementAndGet();
+      return null;
+    }
+
+    // Take the highest priority patient (removing the first entry is atomic, so only one station can be given each patient)
+    Map.Entry<Long, Patient> entry = waitingPatients.pollFirstEntry();
+
+    if (entry == null) {
+      // There is no one waiting (return the reserved doses)
+      remainingDoses.incrementAndGet();
+      doctorDoses.incrementAndGet();
+      return null;
+    }
+
+    claims.put(entry.getValue().getPatientID(), new Claim(entry.getKey(), entry.getValue(), doctorID));
+    return entry.getValue();
+  }
+
+  /**
+   * Return a called patient who did not show up to the waiting patients (at their original priority), and return the doses reserved for them.
+   * @param patientID the ID of the patient.
+   * @return whether the patient had been called and not yet returned or vaccinated.
+   */
+  public boolean returnNoShow(int patientID) {
+
+    // Remove the claim (removal is atomic, so the patient can only be returned once)
+    Claim claim = claims.remove(patientID);
+    if (claim == null) {
+      return false;
+    }
+
+    remainingDoctorDoses.get(claim.doctorID).incrementAndGet();
+    remainingDoses.incrementAndGet();
+
+    waitingPatients.put(claim.key, claim.patient);
+    return true;
+  }
+
+  /**
+   * Mark a called patient as vaccinated.
+   * @param patientID the ID of the patient.
+   * @return whether the patient had been called and not yet returned or vaccinated.
+   */
+  public boolean markVaccinated(int patientID) {
+
+    Claim claim = claims.remove(patientID);
+    if (claim == null) {
+      return false;
+    }
+
+    vaccinatedPatients.add(claim.patient);
+    return true;
+  }
+
+  /**
+   * Get the ID of the doctor a called patient was given to.
+   * @param patientID the ID of the patient.
+   * @return the ID of the doctor the patient was given to, or -1 if the patient is not claimed.
+   */
+  public int getClaimingDoctorID(int patientID) {
+    Claim claim = claims.get(patientID);
+    return claim == null ? -1 : claim.doctorID;
+  }
+
+  /**
+   * Get the number of patients waiting.
+   * @return the number of waiting patients (this is approximate while stations are calling patients).
+   */
+  public int getWaitingCount() {
+    return waitingPatients.size();
+  }
+
+  /**
+   * Get the number of doses that can still be given today.
+   * @return the remaining doses.
+   */
+  public int getRemainingDoses() {
+    return remainingDoses.get();
+  }
+
+  /**
+   * Get the patients who have been marked as vaccinated.
+   * @return the vaccinated patients in the order they were marked.
+   */
+  public List<Patient> getVaccinatedPatients() {
+    return new ArrayList<Patient>(vaccinatedPatients);
+  }
+
+  /**
+   * The Claim class records a patient given to a doctor's station (with their dispatch key, so they can be returned at their original priority).
+   */
+  private static final class Claim {
+
+    /** The dispatch key the patient had while waiting. */
+    private final long key;
+
+    /** The patient. */
+    private final Patient patient;
+
+    /** The ID of the doctor the patient was given to. */
+    private final int doctorID;
+
+    /**
+     * The sole constructor.
+     * @param key the dispatch key the patient had while waiting.
+     * @param patient the patient.
+     * @param doctorID the ID of the doctor the patient was given to.
+     */
+    public Claim(long key, Patient patient, int doctorID) {
+      this.key = key;
+      this.patient = patient;
+      this.doctorID = doctorID;
+    }
+  }
+}
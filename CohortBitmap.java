@@ -0,0 +1,688 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The CohortBitmap class is a compressed set of patient IDs laid out as a roaring bitmap: the IDs are split into chunks by their high 16 bits, and the low 16 bits of each chunk are kept in a container that is a sorted array while the chunk is sparse (up to 4096 IDs) and a 65536-bit bitmap once it is dense. This keeps both rare and common cohorts small, and intersections, unions, and differences are worked out a chunk (and, for dense chunks, a 64-bit word) at a time.
+ * The results of and, or, and andNot are new bitmaps (the bitmaps combined are not changed).
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class CohortBitmap {
+
+  /** The most IDs an array container holds (where an array takes the same space as a bitmap). */
+  private static final int ARRAY_LIMIT = 4096;
+
+  /** The number of 64-bit words in a bitmap container. */
+  private static final int BITMAP_WORDS = 1024;
+
+  /** The high 16 bits of the IDs in each chunk (in increasing order). */
+  private char[] chunkKeys;
+
+  /** The containers of the low 16 bits of the IDs in each chunk. */
+  private Container[] containers;
+
+  /** The number of chunks. */
+  private int chunkCount;
+
+  /**
+   * The default constructor (for an empty bitmap).
+   */
+  public CohortBitmap() {
+    chunkKeys = new char[4];
+    containers = new Container[4];
+  }
+
+  /**
+   * Copy constructor (the copy can be changed without changing the original).
+   * @param other the bitmap to copy.
+   */
+  public CohortBitmap(CohortBitmap other) {
+    chunkKeys = Arrays.copyOf(other.chunkKeys, Math.max(other.chunkCount, 4));
+    containers = new Container[chunkKeys.length];
+    chunkCount = other.chunkCount;
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      containers[chunk] = other.containers[chunk].copy();
+    }
+  }
+
+  /**
+   * Add an ID to the bitmap.
+   * @param id the ID.
+   */
+  public void add(int id) {
+
+    char key = (char) (id >>> 16);
+    int chunk = Arrays.binarySearch(chunkKeys, 0, chunkCount, key);
+
+    // Start a new chunk if the ID is the first with its high bits
+    if (chunk < 0) {
+      chunk = -chunk - 1;
+      insertChunk(chunk, key, new ArrayContainer());
+    }
+
+    containers[chunk] = containers[chunk].add((char) id);
+  }
+
+  /**
+   * Remove an ID from the bitmap.
+   * @param id the ID.
+   * @return whether the ID was in the bitmap.
+   */
+  public boolean remove(int id) {
+
+    int chunk = Arrays.binarySearch(chunkKeys, 0, chunkCount, (char) (id >>> 16));
+    if (chunk < 0 || !containers[chunk].contains((char) id)) {
+      return false;
+    }
+
+    // Remove the chunk once it is empty
+    containers[chunk] = containers[chunk].remove((char) id);
+    if (containers[chunk].getCardinality() == 0) {
+      System.arraycopy(chunkKeys, chunk + 1, chunkKeys, chunk, chunkCount - chunk - 1);
+      System.arraycopy(containers, chunk + 1, containers, chunk, chunkCount - chunk - 1);
+      chunkCount--;
+      containers[chunkCount] = null;
+    }
+
+    return true;
+  }
+
+  /**
+   * Check if an ID is in the bitmap.
+   * @param id the ID.
+   * @return whether the ID is in the bitmap.
+   */
+  public boolean contains(int id) {
+    int chunk = Arrays.binarySearch(chunkKeys, 0, chunkCount, (char) (id >>> 16));
+    return chunk >= 0 && containers[chunk].contains((char) id);
+  }
+
+  /**
+   * Get the number of IDs in the bitmap.
+   * @return the number of IDs.
+   */
+  public int getCardinality() {
+    int cardinality = 0;
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      cardinality += containers[chunk].getCardinality();
+    }
+    return cardinality;
+  }
+
+  /**
+   * Check if the bitmap has no IDs.
+   * @return whether the bitmap is empty.
+   */
+  public boolean isEmpty() {
+    return chunkCount == 0;
+  }
+
+  /**
+   * Get the intersection of this bitmap and another (the IDs in both).
+   * @param other the other bitmap.
+   * @return the new bitmap.
+   */
+  public CohortBitmap and(CohortBitmap other) {
+
+    CohortBitmap result = new CohortBitmap();
+
+    // Only the chunks in both bitmaps can have IDs in both
+    int chunk = 0;
+    int otherChunk = 0;
+    while (chunk < chunkCount && otherChunk < other.chunkCount) {
+      if (chunkKeys[chunk] < other.chunkKeys[otherChunk]) {
+        chunk++;
+      } else if (chunkKeys[chunk] > other.chunkKeys[otherChunk]) {
+        otherChunk++;
+      } else {
+        result.appendChunk(chunkKeys[chunk], containers[chunk].and(other.containers[otherChunk]));
+        chunk++;
+        otherChunk++;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the union of this bitmap and another (the IDs in either).
+   * @param other the other bitmap.
+   * @return the new bitmap.
+   */
+  public CohortBitmap or(CohortBitmap other) {
+
+    CohortBitmap result = new CohortBitmap();
+
+    // Copy the chunks in only one bitmap, and combine the chunks in both
+    int chunk = 0;
+    int otherChunk = 0;
+    while (chunk < chunkCount || otherChunk < other.chunkCount) {
+      if (otherChunk == other.chunkCount || (chunk < chunkCount && chunkKeys[chunk] < other.chunkKeys[otherChunk])) {
+        result.appendChunk(chunkKeys[chunk], containers[chunk].copy());
+        chunk++;
+      } else if (chunk == chunkCount || chunkKeys[chunk] > other.chunkKeys[otherChunk]) {
+        result.appendChunk(other.chunkKeys[otherChunk], other.containers[otherChunk].copy());
+        otherChunk++;
+      } else {
+        result.appendChunk(chunkKeys[chunk], containers[chunk].or(other.containers[otherChunk]));
+        chunk++;
+        otherChunk++;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the difference of this bitmap and another (the IDs in this bitmap but not the other).
+   * @param other the other bitmap.
+   * @return the new bitmap.
+   */
+  public CohortBitmap andNot(CohortBitmap other) {
+
+    CohortBitmap result = new CohortBitmap();
+
+    // Copy the chunks not in the other bitmap, and subtract the chunks in both
+    int otherChunk = 0;
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      while (otherChunk < other.chunkCount && other.chunkKeys[otherChunk] < chunkKeys[chunk]) {
+        otherChunk++;
+      }
+      if (otherChunk < other.chunkCount && other.chunkKeys[otherChunk] == chunkKeys[chunk]) {
+        result.appendChunk(chunkKeys[chunk], containers[chunk].andNot(other.containers[otherChunk]));
+      } else {
+        result.appendChunk(chunkKeys[chunk], containers[chunk].copy());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Perform an action for each ID in the bitmap (in increasing order).
+   * @param action the action.
+   */
+  public void forEach(IntConsumer action) {
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      containers[chunk].forEach(chunkKeys[chunk] << 16, action);
+    }
+  }
+
+  /**
+   * Get the IDs in the bitmap.
+   * @return the IDs in increasing order.
+   */
+  public int[] toArray() {
+    int[] ids = new int[getCardinality()];
+    int[] idCount = {0};
+    forEach(id -> ids[idCount[0]++] = id);
+    return ids;
+  }
+
+  /**
+   * Get the approximate number of bytes the containers of the bitmap take up.
+   * @return the number of bytes.
+   */
+  public long getSizeInBytes() {
+    long sizeInBytes = 0;
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      sizeInBytes += Character.BYTES + containers[chunk].getSizeInBytes();
+    }
+    return sizeInBytes;
+  }
+
+  /**
+   * Helper method that inserts a chunk.
+   * @param chunk the position of the chunk.
+   * @param key the high 16 bits of the chunk's IDs.
+   * @param container the chunk's container.
+   */
+  private void insertChunk(int chunk, char key, Container container) {
+
+    if (chunkCount == chunkKeys.length) {
+      chunkKeys = Arrays.copyOf(chunkKeys, 2 * chunkCount);
+      containers = Arrays.copyOf(containers, 2 * chunkCount);
+    }
+
+    System.arraycopy(chunkKeys, chunk, chunkKeys, chunk + 1, chunkCount - chunk);
+    System.arraycopy(containers, chunk, containers, chunk + 1, chunkCount - chunk);
+    chunkKeys[chunk] = key;
+    containers[chunk] = container;
+    chunkCount++;
+  }
+
+  /**
+   * Helper method that adds a chunk after the others (leaving it out if it is empty).
+   * @param key the high 16 bits of the chunk's IDs (which must be after those of the other chunks).
+   * @param container the chunk's container.
+   */
+  private void appendChunk(char key, Container container) {
+    if (container.getCardinality() != 0) {
+      insertChunk(chunkCount, key, container);
+    }
+  }
+
+  /**
+   * The Container class holds the low 16 bits of the IDs in a chunk. Changes return the container to use from then on (which is a new container when an array becomes too large or a bitmap becomes small).
+   */
+  private abstract static class Container {
+
+    /**
+     * Check if the container has a value.
+     * @param value the low 16 bits of an ID.
+     * @return whether the value is in the container.
+     */
+    abstract boolean contains(char value);
+
+    /**
+     * Add a value to the container.
+     * @param value the low 16 bits of an ID.
+     * @return the container holding the values.
+     */
+    abstract Container add(char value);
+
+    /**
+     * Remove a value that is in the container.
+     * @param value the low 16 bits of an ID.
+     * @return the container holding the values.
+     */
+    abstract Container remove(char value);
+
+    /**
+     * Get the number of values in the container.
+     * @return the number of values.
+     */
+    abstract int getCardinality();
+
+    /**
+     * Get the intersection of this container and another.
+     * @param other the other container.
+     * @return the new container.
+     */
+    abstract Container and(Container other);
+
+    /**
+     * Get the union of this container and another.
+     * @param other the other container.
+     * @return the new container.
+     */
+    abstract Container or(Container other);
+
+    /**
+     * Get the difference of this container and another.
+     * @param other the other container.
+     * @return the new container.
+     */
+    abstract Container andNot(Container other);
+
+    /**
+     * Perform an action for each ID in the container (in increasing order).
+     * @param high the high 16 bits of the IDs (already shifted into place).
+     * @param action the action.
+     */
+    abstract void forEach(int high, IntConsumer action);
+
+    /**
+     * Copy the container.
+     * @return the copy.
+     */
+    abstract Container copy();
+
+    /**
+     * Get the number of bytes the container's values take up.
+     * @return the number of bytes.
+     */
+    abstract long getSizeInBytes();
+  }
+
+  /**
+   * The ArrayContainer class holds a sparse chunk's values as a sorted array.
+   */
+  private static final class ArrayContainer extends Container {
+
+    /** The values (in increasing order). */
+    private char[] values;
+
+    /** The number of values. */
+    private int cardinality;
+
+    /**
+     * The default constructor (for an empty container).
+     */
+    ArrayContainer() {
+      values = new char[4];
+    }
+
+    /**
+     * Constructor that takes values in increasing order.
+     * @param values the values (this is used directly).
+     * @param cardinality the number of values.
+     */
+    ArrayContainer(char[] values, int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    Container add(char value) {
+
+      int index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index >= 0) {
+        return this;
+      }
+
+      // Become a bitmap once the array is full
+      if (cardinality == ARRAY_LIMIT) {
+        return toBitmap().add(value);
+      }
+
+      index = -index - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(2 * cardinality, ARRAY_LIMIT));
+      }
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, value);
+      System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+      cardinality--;
+      return this;
+    }
+
+    @Override
+    int getCardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Container and(Container other) {
+
+      char[] result = new char[cardinality];
+      int resultCount = 0;
+
+      if (other instanceof ArrayContainer) {
+        // Merge the two sorted arrays, keeping the values in both
+        ArrayContainer otherArray = (ArrayContainer) other;
+        int index = 0;
+        int otherIndex = 0;
+        while (index < cardinality && otherIndex < otherArray.cardinality) {
+          if (values[index] < otherArray.values[otherIndex]) {
+            index++;
+          } else if (values[index] > otherArray.values[otherIndex]) {
+            otherIndex++;
+          } else {
+            result[resultCount++] = values[index];
+            index++;
+            otherIndex++;
+          }
+        }
+      } else {
+        // Keep the values set in the bitmap
+        for (int index = 0; index < cardinality; index++) {
+          if (other.contains(values[index])) {
+            result[resultCount++] = values[index];
+          }
+        }
+      }
+
+      return new ArrayContainer(result, resultCount);
+    }
+
+    @Override
+    Container or(Container other) {
+
+      if (other instanceof BitmapContainer) {
+        return other.or(this);
+      }
+
+      // Merge the two sorted arrays, keeping the values in either
+      ArrayContainer otherArray = (ArrayContainer) other;
+      char[] result = new char[cardinality + otherArray.cardinality];
+      int resultCount = 0;
+      int index = 0;
+      int otherIndex = 0;
+      while (index < cardinality || otherIndex < otherArray.cardinality) {
+        if (otherIndex == otherArray.cardinality || (index < cardinality && values[index] < otherArray.values[otherIndex])) {
+          result[resultCount++] = values[index++];
+        } else if (index == cardinality || values[index] > otherArray.values[otherIndex]) {
+          result[resultCount++] = otherArray.values[otherIndex++];
+        } else {
+          result[resultCount++] = values[index];
+          index++;
+          otherIndex++;
+        }
+      }
+
+      ArrayContainer union = new ArrayContainer(result, resultCount);
+      return (resultCount > ARRAY_LIMIT) ? union.toBitmap() : union;
+    }
+
+    @Override
+    Container andNot(Container other) {
+
+      char[] result = new char[cardinality];
+      int resultCount = 0;
+
+      if (other instanceof ArrayContainer) {
+        // Merge the two sorted arrays, keeping the values only in this one
+        ArrayContainer otherArray = (ArrayContainer) other;
+        int otherIndex = 0;
+        for (int index = 0; index < cardinality; index++) {
+          while (otherIndex < otherArray.cardinality && otherArray.values[otherIndex] < values[index]) {
+            otherIndex++;
+          }
+          if (otherIndex == otherArray.cardinality || otherArray.values[otherIndex] != values[index]) {
+            result[resultCount++] = values[index];
+          }
+        }
+      } else {
+        // Keep the values not set in the bitmap
+        for (int index = 0; index < cardinality; index++) {
+          if (!other.contains(values[index])) {
+            result[resultCount++] = values[index];
+          }
+        }
+      }
+
+      return new ArrayContainer(result, resultCount);
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+      for (int index = 0; index < cardinality; index++) {
+        action.accept(high | values[index]);
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 4)), cardinality);
+    }
+
+    @Override
+    long getSizeInBytes() {
+      return (long) values.length * Character.BYTES;
+    }
+
+    /**
+     * Helper method that converts the container to a bitmap.
+     * @return the bitmap container with the same values.
+     */
+    private BitmapContainer toBitmap() {
+      long[] words = new long[BITMAP_WORDS];
+      for (int index = 0; index < cardinality; index++) {
+        words[values[index] >>> 6] |= 1L << values[index];
+      }
+      return new BitmapContainer(words, cardinality);
+    }
+  }
+
+  /**
+   * The BitmapContainer class holds a dense chunk's values as a bitmap (one bit for each of the 65536 values).
+   */
+  private static final class BitmapContainer extends Container {
+
+    /** The bits of the values (where the value v is bit v % 64 of word v / 64). */
+    private final long[] words;
+
+    /** The number of values. */
+    private int cardinality;
+
+    /**
+     * Constructor that takes the bits of the values.
+     * @param words the bits (this is used directly).
+     * @param cardinality the number of bits set.
+     */
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(char value) {
+      if (!contains(value)) {
+        words[value >>> 6] |= 1L << value;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+
+      words[value >>> 6] &= ~(1L << value);
+      cardinality--;
+
+      // Become an array again once the chunk is well below the limit (so adding and removing near the limit does not convert back and forth)
+      return (cardinality <= ARRAY_LIMIT / 2) ? toArray() : this;
+    }
+
+    @Override
+    int getCardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Container and(Container other) {
+
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[BITMAP_WORDS];
+      for (int word = 0; word < BITMAP_WORDS; word++) {
+        result[word] = words[word] & otherWords[word];
+      }
+      return fromWords(result);
+    }
+
+    @Override
+    Container or(Container other) {
+
+      long[] result = words.clone();
+      int resultCardinality = cardinality;
+
+      if (other instanceof ArrayContainer) {
+        // Set the bits of the array's values
+        ArrayContainer otherArray = (ArrayContainer) other;
+        for (int index = 0; index < otherArray.cardinality; index++) {
+          char value = otherArray.values[index];
+          long bit = 1L << value;
+          if ((result[value >>> 6] & bit) == 0) {
+            result[value >>> 6] |= bit;
+            resultCardinality++;
+          }
+        }
+        return new BitmapContainer(result, resultCardinality);
+      }
+
+      long[] otherWords = ((BitmapContainer) other).words;
+      for (int word = 0; word < BITMAP_WORDS; word++) {
+        result[word] |= otherWords[word];
+      }
+      return fromWords(result);
+    }
+
+    @Override
+    Container andNot(Container other) {
+
+      long[] result = words.clone();
+
+      if (other instanceof ArrayContainer) {
+        // Clear the bits of the array's values
+        ArrayContainer otherArray = (ArrayContainer) other;
+        for (int index = 0; index < otherArray.cardinality; index++) {
+          result[otherArray.values[index] >>> 6] &= ~(1L << otherArray.values[index]);
+        }
+      } else {
+        long[] otherWords = ((BitmapContainer) other).words;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+          result[word] &= ~otherWords[word];
+        }
+      }
+
+      return fromWords(result);
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+      for (int word = 0; word < BITMAP_WORDS; word++) {
+        // Visit the set bits of the word from lowest to highest
+        for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+          action.accept(high | (word << 6) | Long.numberOfTrailingZeros(bits));
+        }
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    long getSizeInBytes() {
+      return (long) BITMAP_WORDS * Long.BYTES;
+    }
+
+    /**
+     * Helper method that makes a container from bits, which is an array if few bits are set.
+     * @param words the bits (this is used directly if the container is a bitmap).
+     * @return the container.
+     */
+    private static Container fromWords(long[] words) {
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+      return (cardinality <= ARRAY_LIMIT) ? bitmap.toArray() : bitmap;
+    }
+
+    /**
+     * Helper method that converts the container to an array.
+     * @return the array container with the same values.
+     */
+    private ArrayContainer toArray() {
+      char[] values = new char[Math.max(cardinality, 4)];
+      int[] valueCount = {0};
+      forEach(0, value -> values[valueCount[0]++] = (char) value);
+      return new ArrayContainer(values, cardinality);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+
+/**
+ * The CohortIndex class keeps a register's waiting patients as CohortBitmaps of their IDs: one of every patient, one for each questionnaire key of the patients who responded yes (and of those who responded at all), and one for each age decade. Cohorts such as "waiting smokers in their 70s and up" are then found by combining bitmaps rather than scanning the patients.
+ * The index is updated as patients are added, removed, and move into a new age decade. The returned bitmaps are those of the index, so it is not recommended that they be modified (combining them makes new bitmaps).
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class CohortIndex {
+
+  /** The IDs of every patient. */
+  private final CohortBitmap patients;
+
+  /** The mapping of key ordinals to the IDs of the patients who responded yes to the key. */
+  private final ArrayList<CohortBitmap> positiveRespondentsByKey;
+
+  /** The mapping of key ordinals to the IDs of the patients who responded to the key. */
+  private final ArrayList<CohortBitmap> respondentsByKey;
+
+  /** The mapping of age decades (0 through PriorityScorer.MAXIMUM_DECADE) to the IDs of the patients in them. */
+  private final CohortBitmap[] patientsByDecade;
+
+  /**
+   * The default constructor (for an index with no patients).
+   */
+  public CohortIndex() {
+
+    patients = new CohortBitmap();
+    positiveRespondentsByKey = new ArrayList<CohortBitmap>();
+    respondentsByKey = new ArrayList<CohortBitmap>();
+
+    patientsByDecade = new CohortBitmap[PriorityScorer.MAXIMUM_DECADE + 1];
+    for (int decade = 0; decade <= PriorityScorer.MAXIMUM_DECADE; decade++) {
+      patientsByDecade[decade] = new CohortBitmap();
+    }
+  }
+
+  /**
+   * Add a patient to the index.
+   * @param patient the patient (with their responses bound to the register's key ordinals).
+   * @param decade the patient's age in decades (from 0 through PriorityScorer.MAXIMUM_DECADE).
+   */
+  public void add(Patient patient, int decade) {
+
+    int patientID = patient.getPatientID();
+    patients.add(patientID);
+    patientsByDecade[decade].add(patientID);
+
+    // Add the patient to the bitmap of each key they responded to (visiting only the set bits of their mask)
+    for (long answeredMask = patient.getAnsweredResponseMask(); answeredMask != 0; answeredMask &= answeredMask - 1) {
+
+      int keyOrdinal = Long.numberOfTrailingZeros(answeredMask);
+      while (respondentsByKey.size() <= keyOrdinal) {
+        respondentsByKey.add(new CohortBitmap());
+        positiveRespondentsByKey.add(new CohortBitmap());
+      }
+
+      respondentsByKey.get(keyOrdinal).add(patientID);
+      if ((patient.getPositiveResponseMask() & (1L << keyOrdinal)) != 0) {
+        positiveRespondentsByKey.get(keyOrdinal).add(patientID);
+      }
+    }
+  }
+
+  /**
+   * Remove a patient from the index.
+   * @param patient the patient (with the responses they were added with).
+   * @return whether the patient was in the index.
+   */
+  public boolean remove(Patient patient) {
+
+    int patientID = patient.getPatientID();
+    if (!patients.remove(patientID)) {
+      return false;
+    }
+
+    for (CohortBitmap decadePatients : patientsByDecade) {
+      decadePatients.remove(patientID);
+    }
+
+    for (long answeredMask = patient.getAnsweredResponseMask(); answeredMask != 0; answeredMask &= answeredMask - 1) {
+      int keyOrdinal = Long.numberOfTrailingZeros(answeredMask);
+      respondentsByKey.get(keyOrdinal).remove(patientID);
+      positiveRespondentsByKey.get(keyOrdinal).remove(patientID);
+    }
+
+    return true;
+  }
+
+  /**
+   * Move a patient in the index into a new age decade (such as on their decade birthday).
+   * @param patient the patient.
+   * @param decade the patient's new age in decades (from 0 through PriorityScorer.MAXIMUM_DECADE).
+   */
+  public void setDecade(Patient patient, int decade) {
+    for (CohortBitmap decadePatients : patientsByDecade) {
+      decadePatients.remove(patient.getPatientID());
+    }
+    patientsByDecade[decade].add(patient.getPatientID());
+  }
+
+  /**
+   * Get every patient in the index.
+   * @return the bitmap of the patients' IDs.
+   */
+  public CohortBitmap getPatients() {
+    return patients;
+  }
+
+  /**
+   * Get the patients who gave a response to a questionnaire key.
+   * @param keyOrdinal the ordinal of the key.
+   * @param response the response (patients who did not respond to the key are in neither cohort).
+   * @return the bitmap of the patients' IDs.
+   */
+  public CohortBitmap getRespondents(int keyOrdinal, boolean response) {
+
+    if (keyOrdinal >= respondentsByKey.size()) {
+      return new CohortBitmap();
+    }
+
+    return response ? positiveRespondentsByKey.get(keyOrdinal) : respondentsByKey.get(keyOrdinal).andNot(positiveRespondentsByKey.get(keyOrdinal));
+  }
+
+  /**
+   * Get the patients in an age decade.
+   * @param decade the age in decades (from 0 through PriorityScorer.MAXIMUM_DECADE, which includes everyone older).
+   * @return the bitmap of the patients' IDs.
+   */
+  public CohortBitmap getPatientsInDecade(int decade) {
+    return patientsByDecade[decade];
+  }
+}
@@ -0,0 +1,239 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The ColumnarPatientStore class keeps the primitive data the register scores patients with (the ID, birthdate as an epoch day, priority weight, response masks, and available days) off the heap in direct ByteBuffer columns, one record per patient. A register keeps its store in step with its listing, and bulk paths (re-scoring every patient, and taking a weighting simulator's copy) read the columns rather than visiting every Patient object.
+ * Records are numbered by ordinals from 0 to size() - 1. Removing a record moves the last record into its place, so ordinals are not kept in priority or ID order (the register records each patient's ordinal on the patient).
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/19/26).
+ */
+public class ColumnarPatientStore {
+
+  /** The number of records the columns initially have room for. */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /** The column of patient IDs (ints). */
+  private ByteBuffer patientIDs;
+
+  /** The column of birthdates (int epoch days). */
+  private ByteBuffer birthEpochDays;
+
+  /** The column of priority weights (ints). */
+  private ByteBuffer priorityWeights;
+
+  /** The column of available days bitmasks (ints). */
+  private ByteBuffer availableDays;
+
+  /** The column of positive response masks (longs). */
+  private ByteBuffer positiveResponseMasks;
+
+  /** The column of answered response masks (longs). */
+  private ByteBuffer answeredResponseMasks;
+
+  /** The number of records in the store. */
+  private int size;
+
+  /** The number of records the columns have room for. */
+  private int capacity;
+
+  /**
+   * The default constructor (for a store with no records).
+   */
+  public ColumnarPatientStore() {
+
+    size = 0;
+    capacity = INITIAL_CAPACITY;
+
+    patientIDs = ByteBuffer.allocateDirect(capacity * Integer.BYTES);
+    birthEpochDays = ByteBuffer.allocateDirect(capacity * Integer.BYTES);
+    priorityWeights = ByteBuffer.allocateDirect(capacity * Integer.BYTES);
+    availableDays = ByteBuffer.allocateDirect(capacity * Integer.BYTES);
+    positiveResponseMasks = ByteBuffer.allocateDirect(capacity * Long.BYTES);
+    answeredResponseMasks = ByteBuffer.allocateDirect(capacity * Long.BYTES);
+  }
+
+  /**
+   * Helper method that copies a column into a new column with room for the new capacity.
+   * @param column the column to copy.
+   * @param width the number of bytes per record.
+   * @param newCapacity the number of records the new column will have room for.
+   * @return the new column.
+   */
+  private ByteBuffer grow(ByteBuffer column, int width, int newCapacity) {
+    ByteBuffer newColumn = ByteBuffer.allocateDirect(newCapacity * width);
+    newColumn.put(column.duplicate().position(0).limit(size * width));
+    return newColumn;
+  }
+
+  /**
+   * Helper method that ensures the columns have room for one more record (doubling the capacity if needed).
+   * @throws IllegalStateException if the columns cannot grow any further.
+   */
+  private void ensureCapacity() {
+
+    if (size < capacity) {
+      return;
+    }
+
+    // Ensure the widest column can still be indexed by an int
+    if (capacity > Integer.MAX_VALUE / (2 * Long.BYTES)) {
+      throw new IllegalStateException("the columnar patient store is full (" + size + " records)");
+    }
+
+    int newCapacity = capacity * 2;
+
+    patientIDs = grow(patientIDs, Integer.BYTES, newCapacity);
+    birthEpochDays = grow(birthEpochDays, Integer.BYTES, newCapacity);
+    priorityWeights = grow(priorityWeights, Integer.BYTES, newCapacity);
+    availableDays = grow(availableDays, Integer.BYTES, newCapacity);
+    positiveResponseMasks = grow(positiveResponseMasks, Long.BYTES, newCapacity);
+    answeredResponseMasks = grow(answeredResponseMasks, Long.BYTES, newCapacity);
+
+    capacity = newCapacity;
+  }
+
+  /**
+   * Add a record for a patient (the patient's ID, weight, and response masks must already be set by the register).
+   * @param patient the patient to add.
+   * @return the ordinal of the new record.
+   */
+  public int add(Patient patient) {
+
+    ensureCapacity();
+    int ordinal = size;
+
+    patientIDs.putInt(ordinal * Integer.BYTES, patient.getPatientID());
+    birthEpochDays.putInt(ordinal * Integer.BYTES, Math.toIntExact(patient.getBirthdate().toEpochDay()));
+    priorityWeights.putInt(ordinal * Integer.BYTES, patient.getPriorityWeight());
+    availableDays.putInt(ordinal * Integer.BYTES, patient.getAvailableDays());
+    positiveResponseMasks.putLong(ordinal * Long.BYTES, patient.getPositiveResponseMask());
+    answeredResponseMasks.putLong(ordinal * Long.BYTES, patient.getAnsweredResponseMask());
+
+    size++;
+    return ordinal;
+  }
+
+  /**
+   * Remove a record by moving the last record into its place.
+   * @param ordinal the ordinal of the record to remove.
+   * @return the patient ID of the record that now has the ordinal, or -1 if the removed record was the last one.
+   * @throws IndexOutOfBoundsException if there is no record with the ordinal.
+   */
+  public int remove(int ordinal) {
+
+    if (ordinal < 0 || ordinal >= size) {
+      throw new IndexOutOfBoundsException("record " + ordinal + " is out of bounds for " + size + " records");
+    }
+
+    int last = --size;
+    if (ordinal == last) {
+      return -1;
+    }
+
+    patientIDs.putInt(ordinal * Integer.BYTES, patientIDs.getInt(last * Integer.BYTES));
+    birthEpochDays.putInt(ordinal * Integer.BYTES, birthEpochDays.getInt(last * Integer.BYTES));
+    priorityWeights.putInt(ordinal * Integer.BYTES, priorityWeights.getInt(last * Integer.BYTES));
+    availableDays.putInt(ordinal * Integer.BYTES, availableDays.getInt(last * Integer.BYTES));
+    positiveResponseMasks.putLong(ordinal * Long.BYTES, positiveResponseMasks.getLong(last * Long.BYTES));
+    answeredResponseMasks.putLong(ordinal * Long.BYTES, answeredResponseMasks.getLong(last * Long.BYTES));
+
+    return getPatientID(ordinal);
+  }
+
+  /**
+   * Get the number of records in the store.
+   * @return the number of records.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the patient ID of a record.
+   * @param ordinal the ordinal of the record.
+   * @return the patient ID.
+   */
+  public int getPatientID(int ordinal) {
+    return patientIDs.getInt(ordinal * Integer.BYTES);
+  }
+
+  /**
+   * Get the birthdate of a record as an epoch day.
+   * @param ordinal the ordinal of the record.
+   * @return the birthdate as an epoch day.
+   */
+  public long getBirthEpochDay(int ordinal) {
+    return birthEpochDays.getInt(ordinal * Integer.BYTES);
+  }
+
+  /**
+   * Get the priority weight of a record.
+   * @param ordinal the ordinal of the record.
+   * @return the priority weight.
+   */
+  public int getPriorityWeight(int ordinal) {
+    return priorityWeights.getInt(ordinal * Integer.BYTES);
+  }
+
+  /**
+   * Set the priority weight of a record.
+   * @param ordinal the ordinal of the record.
+   * @param priorityWeight the new priority weight.
+   */
+  public void setPriorityWeight(int ordinal, int priorityWeight) {
+    priorityWeights.putInt(ordinal * Integer.BYTES, priorityWeight);
+  }
+
+  /**
+   * Get the available days of a record.
+   * @param ordinal the ordinal of the record.
+   * @return the bitmask of the days of the week the patient is available (or 0 if they are available every day).
+   */
+  public int getAvailableDays(int ordinal) {
+    return availableDays.getInt(ordinal * Integer.BYTES);
+  }
+
+  /**
+   * Set the available days of a record.
+   * @param ordinal the ordinal of the record.
+   * @param days the new bitmask of the days of the week the patient is available.
+   */
+  public void setAvailableDays(int ordinal, int days) {
+    availableDays.putInt(ordinal * Integer.BYTES, days);
+  }
+
+  /**
+   * Get the positive response mask of a record.
+   * @param ordinal the ordinal of the record.
+   * @return the bitmask of key ordinals responded yes to.
+   */
+  public long getPositiveResponseMask(int ordinal) {
+    return positiveResponseMasks.getLong(ordinal * Long.BYTES);
+  }
+
+  /**
+   * Get the answered response mask of a record.
+   * @param ordinal the ordinal of the record.
+   * @return the bitmask of key ordinals responded to.
+   */
+  public long getAnsweredResponseMask(int ordinal) {
+    return answeredResponseMasks.getLong(ordinal * Long.BYTES);
+  }
+
+  /**
+   * Re-score every record in place (no objects are created).
+   * @param scorer the scorer to use (compiled for the key ordinals of the register the records are from).
+   */
+  public void rescore(PriorityScorer scorer) {
+    for (int ordinal = 0; ordinal < size; ordinal++) {
+      priorityWeights.putInt(ordinal * Integer.BYTES, scorer.score(getBirthEpochDay(ordinal), getPositiveResponseMask(ordinal), getAnsweredResponseMask(ordinal)));
+    }
+  }
+
+  /**
+   * Get the number of bytes of off-heap memory the store is using.
+   * @return the number of bytes allocated for the columns.
+   */
+  public long getAllocatedBytes() {
+    return (long) capacity * (4 * Integer.BYTES + 2 * Long.BYTES);
+  }
+}
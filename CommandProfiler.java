@@ -0,0 +1,346 @@
+import java.util.function.LongSupplier;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import java.time.Instant;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The CommandProfiler class measures each command the driver runs: the bytes allocated, the CPU time, and the wall time (leaving out time spent waiting for the user to type). The last SAMPLE_COUNT runs of each command are kept in ring buffers for a summary, and every run can also be written to a CSV trace file.
+ * Allocations and CPU time are only counted on the thread running the command (work a command hands to other threads, such as compressing a save state, is only seen in its wall time). A measure the JVM does not support is recorded as -1.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class CommandProfiler {
+
+  /** The number of runs kept for each command. */
+  static final int SAMPLE_COUNT = 64;
+
+  /** The first line of a trace file. */
+  private static final String TRACE_HEADER = "time,command,name,wall_ns,cpu_ns,allocated_bytes";
+
+  /** The names of the commands (where the command numbered n is at index n - 1). */
+  private final String[] commandNames;
+
+  /** The source of the total time spent waiting for input (in nanoseconds). */
+  private final LongSupplier inputWaitClock;
+
+  /** The thread bean that measures CPU time (or null if CPU time cannot be measured). */
+  private final ThreadMXBean cpuBean;
+
+  /** The thread bean that measures allocations (or null if allocations cannot be measured). */
+  private final com.sun.management.ThreadMXBean allocationBean;
+
+  /** The ring buffers of each command's wall times less input waits, in nanoseconds (indexed by command index and then by run number modulo SAMPLE_COUNT). */
+  private final long[][] wallNanos;
+
+  /** The ring buffers of each command's CPU times of the driver thread, in nanoseconds (indexed in the same way as wallNanos). */
+  private final long[][] cpuNanos;
+
+  /** The ring buffers of the bytes each command allocated on the driver thread (indexed in the same way as wallNanos). */
+  private final long[][] allocatedBytes;
+
+  /** The number of times each command has been run. */
+  private final long[] runCounts;
+
+  /** The value of System.nanoTime when the current command started. */
+  private long startWallNanos;
+
+  /** The total time spent waiting for input when the current command started (in nanoseconds). */
+  private long startInputWaitNanos;
+
+  /** The CPU time of the driver thread when the current command started (in nanoseconds, or 0 if it cannot be measured). */
+  private long startCPUNanos;
+
+  /** The bytes allocated by the driver thread when the current command started (or 0 if allocations cannot be measured). */
+  private long startAllocatedBytes;
+
+  /** The writer of the trace file (or null if no trace is being written). */
+  private BufferedWriter traceWriter;
+
+  /** The name of the trace file (or null if no trace is being written). */
+  private String traceFileName;
+
+  /**
+   * Constructor that takes the names of the commands and the source of the time spent waiting for input.
+   * @param commandNames the names of the commands (where the command numbered n is at index n - 1).
+   * @param inputWaitClock the source of the total time spent waiting for input in nanoseconds (this is subtracted from wall times).
+   */
+  public CommandProfiler(String[] commandNames, LongSupplier inputWaitClock) {
+
+    this.commandNames = commandNames.clone();
+    this.inputWaitClock = inputWaitClock;
+
+    // Turn on the measures the JVM supports (they may be off by default)
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    if (threadBean.isCurrentThreadCpuTimeSupported()) {
+      if (!threadBean.isThreadCpuTimeEnabled()) {
+        threadBean.setThreadCpuTimeEnabled(true);
+      }
+      cpuBean = threadBean;
+    } else {
+      cpuBean = null;
+    }
+
+    if (threadBean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+      com.sun.management.ThreadMXBean extendedBean = (com.sun.management.ThreadMXBean) threadBean;
+      if (!extendedBean.isThreadAllocatedMemoryEnabled()) {
+        extendedBean.setThreadAllocatedMemoryEnabled(true);
+      }
+      allocationBean = extendedBean;
+    } else {
+      allocationBean = null;
+    }
+
+    wallNanos = new long[commandNames.length][SAMPLE_COUNT];
+    cpuNanos = new long[commandNames.length][SAMPLE_COUNT];
+    allocatedBytes = new long[commandNames.length][SAMPLE_COUNT];
+    runCounts = new long[commandNames.length];
+  }
+
+  /**
+   * Take the measures for the start of a command (this must be called on the thread that runs the command).
+   */
+  public void start() {
+    startAllocatedBytes = getAllocatedBytes();
+    startCPUNanos = getCPUNanos();
+    startInputWaitNanos = inputWaitClock.getAsLong();
+    startWallNanos = System.nanoTime();
+  }
+
+  /**
+   * Take the measures for the end of a command and record the run (writing it to the trace if one is being written).
+   * @param command the number of the command (from 1).
+   * @throws IllegalArgumentException if there is no command with the number.
+   * @throws UncheckedIOException if the run cannot be written to the trace (the trace is closed in this case).
+   */
+  public void stop(int command) {
+
+    long endWallNanos = System.nanoTime();
+    long endInputWaitNanos = inputWaitClock.getAsLong();
+    long endCPUNanos = getCPUNanos();
+    long endAllocatedBytes = getAllocatedBytes();
+
+    if (command < 1 || command > commandNames.length) {
+      throw new IllegalArgumentException("illegal command: " + command);
+    }
+
+    // Work out the measures of the run (leaving out the time spent waiting for input)
+    long wall = Math.max((endWallNanos - startWallNanos) - (endInputWaitNanos - startInputWaitNanos), 0);
+    long cpu = (cpuBean == null) ? -1 : endCPUNanos - startCPUNanos;
+    long allocated = (allocationBean == null) ? -1 : endAllocatedBytes - startAllocatedBytes;
+
+    // Record the run over the oldest one kept
+    int commandIndex = command - 1;
+    int sampleIndex = (int) (runCounts[commandIndex] % SAMPLE_COUNT);
+    wallNanos[commandIndex][sampleIndex] = wall;
+    cpuNanos[commandIndex][sampleIndex] = cpu;
+    allocatedBytes[commandIndex][sampleIndex] = allocated;
+    runCounts[commandIndex]++;
+
+    if (traceWriter != null) {
+      writeTraceLine(command, wall, cpu, allocated);
+    }
+  }
+
+  /**
+   * Helper method that gets the CPU time of the current thread.
+   * @return the CPU time in nanoseconds (or 0 if it cannot be measured).
+   */
+  private long getCPUNanos() {
+    return (cpuBean == null) ? 0 : cpuBean.getCurrentThreadCpuTime();
+  }
+
+  /**
+   * Helper method that gets the bytes allocated by the current thread.
+   * @return the number of bytes allocated (or 0 if it cannot be measured).
+   */
+  private long getAllocatedBytes() {
+    return (allocationBean == null) ? 0 : allocationBean.getCurrentThreadAllocatedBytes();
+  }
+
+  /**
+   * Helper method that writes a run to the trace (closing the trace if it cannot be written).
+   * @param command the number of the command.
+   * @param wall the wall time in nanoseconds.
+   * @param cpu the CPU time in nanoseconds (or -1).
+   * @param allocated the number of bytes allocated (or -1).
+   * @throws UncheckedIOException if the run cannot be written.
+   */
+  private void writeTraceLine(int command, long wall, long cpu, long allocated) {
+
+    try {
+      // Quote the name (doubling any quotes in it), and flush so the trace is complete if the program stops
+      traceWriter.write(Instant.now() + "," + command + ",\"" + commandNames[command - 1].replace("\"", "\"\"") + "\"," + wall + "," + cpu + "," + allocated + "\n");
+      traceWriter.flush();
+
+    } catch (IOException e) {
+      stopTrace();
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Start writing every run to a CSV trace file (appending to the file if it exists, and stopping any trace already being written).
+   * @param fileName the name of the trace file.
+   * @throws IOException if the file cannot be opened.
+   */
+  public void startTrace(String fileName) throws IOException {
+
+    stopTrace();
+
+    // Write the header only when starting a new file
+    File traceFile = new File(fileName);
+    boolean isNewFile = !traceFile.exists() || traceFile.length() == 0;
+
+    BufferedWriter writer = new BufferedWriter(new FileWriter(traceFile, true));
+    try {
+      if (isNewFile) {
+        writer.write(TRACE_HEADER + "\n");
+        writer.flush();
+      }
+    } catch (IOException e) {
+      writer.close();
+      throw e;
+    }
+
+    traceWriter = writer;
+    traceFileName = fileName;
+  }
+
+  /**
+   * Stop writing the trace (this does nothing if no trace is being written).
+   */
+  public void stopTrace() {
+
+    if (traceWriter != null) {
+      try {
+        traceWriter.close();
+      } catch (IOException e) {
+        // Every line was already flushed (ignore this)
+      }
+      traceWriter = null;
+      traceFileName = null;
+    }
+  }
+
+  /**
+   * Getter for the name of the trace file.
+   * @return the name of the trace file (or null if no trace is being written).
+   */
+  public String getTraceFileName() {
+    return traceFileName;
+  }
+
+  /**
+   * Get the number of times a command has been run.
+   * @param command the number of the command (from 1).
+   * @return the number of runs.
+   */
+  public long getRunCount(int command) {
+    return runCounts[command - 1];
+  }
+
+  /**
+   * Get the kept wall times of a command (oldest first).
+   * @param command the number of the command (from 1).
+   * @return the wall times in nanoseconds.
+   */
+  public long[] getWallNanos(int command) {
+    return getSamples(wallNanos, command);
+  }
+
+  /**
+   * Get the kept CPU times of a command (oldest first).
+   * @param command the number of the command (from 1).
+   * @return the CPU times in nanoseconds (each -1 if CPU time cannot be measured).
+   */
+  public long[] getCPUNanos(int command) {
+    return getSamples(cpuNanos, command);
+  }
+
+  /**
+   * Get the kept allocations of a command (oldest first).
+   * @param command the number of the command (from 1).
+   * @return the numbers of bytes allocated (each -1 if allocations cannot be measured).
+   */
+  public long[] getAllocatedBytes(int command) {
+    return getSamples(allocatedBytes, command);
+  }
+
+  /**
+   * Helper method that copies the kept runs of a command out of a ring buffer (oldest first).
+   * @param buffers the ring buffers of a measure.
+   * @param command the number of the command (from 1).
+   * @return the kept runs.
+   */
+  private long[] getSamples(long[][] buffers, int command) {
+
+    long runCount = runCounts[command - 1];
+    int keptCount = (int) Math.min(runCount, SAMPLE_COUNT);
+    long[] samples = new long[keptCount];
+
+    // The oldest kept run is the one that will be written over next (once the buffer is full)
+    int oldestIndex = (runCount > SAMPLE_COUNT) ? (int) (runCount % SAMPLE_COUNT) : 0;
+    for (int sample = 0; sample < keptCount; sample++) {
+      samples[sample] = buffers[command - 1][(oldestIndex + sample) % SAMPLE_COUNT];
+    }
+
+    return samples;
+  }
+
+  /**
+   * Get a table summarizing the kept runs of every command that has been run (the last, mean, and largest wall time, CPU time, and allocation).
+   * @return the summary.
+   */
+  public String getSummary() {
+
+    StringBuilder summary = new StringBuilder();
+    summary.append(String.format("%7s %6s %25s %25s %25s  %s%n", "Command", "Runs", "Wall ms (last/mean/max)", "CPU ms (last/mean/max)", "Alloc KB (last/mean/max)", "Name"));
+
+    boolean hasRuns = false;
+
+    for (int command = 1; command <= commandNames.length; command++) {
+      if (runCounts[command - 1] > 0) {
+        hasRuns = true;
+        summary.append(String.format("%7d %6d %25s %25s %25s  %s%n", command, runCounts[command - 1],
+            formatStatistics(getWallNanos(command), 1e6), formatStatistics(getCPUNanos(command), 1e6), formatStatistics(getAllocatedBytes(command), 1024), commandNames[command - 1]));
+      }
+    }
+
+    if (!hasRuns) {
+      summary.append("No commands have been run.\n");
+    }
+
+    return summary.toString();
+  }
+
+  /**
+   * Helper method that formats the last, mean, and largest of some kept runs.
+   * @param samples the kept runs (oldest first).
+   * @param unit the amount each shown unit is worth.
+   * @return the formatted statistics (or "n/a" if the measure is not supported).
+   */
+  private static String formatStatistics(long[] samples, double unit) {
+
+    if (samples.length == 0 || samples[0] < 0) {
+      return "n/a";
+    }
+
+    long total = 0;
+    long maximum = 0;
+    for (long sample : samples) {
+      total += sample;
+      maximum = Math.max(maximum, sample);
+    }
+
+    return String.format("%.1f/%.1f/%.1f", samples[samples.length - 1] / unit, total / unit / samples.length, maximum / unit);
+  }
+}
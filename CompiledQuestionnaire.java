@@ -0,0 +1,173 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * The CompiledQuestionnaire class is the immutable, parsed form of a questionnaire file. Each question is assigned an ordinal (its position in the file) and stores its key (the response key or asserted answer) and its prompt. Questionnaire files are validated as they are compiled, so a malformed file is reported once rather than part way through a form.
+ * @author Thomas Merino, Nam Luu, Austin Lee.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public final class CompiledQuestionnaire {
+
+  /** The filename the questionnaire was compiled from. */
+  private final String fileName;
+
+  /** The modification time of the file when it was compiled (used to determine when the questionnaire is stale). */
+  private final long lastModified;
+
+  /** The mapping of question ordinals to the keys of the questions. */
+  private final String[] keys;
+
+  /** The mapping of question ordinals to the prompts of the questions. */
+  private final String[] prompts;
+
+  /** The mapping of keys to their question ordinals (this is only populated when the keys are unique). */
+  private final HashMap<String, Integer> keyToOrdinal;
+
+  /**
+   * Private constructor (instances are made through compile).
+   * @param fileName the filename the questionnaire was compiled from.
+   * @param lastModified the modification time of the file when it was compiled.
+   * @param keys the keys of the questions in order.
+   * @param prompts the prompts of the questions in order.
+   * @param keyToOrdinal the mapping of keys to ordinals.
+   */
+  private CompiledQuestionnaire(String fileName, long lastModified, String[] keys, String[] prompts, HashMap<String, Integer> keyToOrdinal) {
+    this.fileName = fileName;
+    this.lastModified = lastModified;
+    this.keys = keys;
+    this.prompts = prompts;
+    this.keyToOrdinal = keyToOrdinal;
+  }
+
+  /**
+   * Read and validate a questionnaire file, which must alternate lines with a key and the coordinating question prompt.
+   * @param fileName the questionnaire file to compile.
+   * @param requireUniqueKeys whether every key must be unique and non-blank (true for response keys and false for asserted answers).
+   * @return the compiled questionnaire.
+   * @throws FatalError if the file cannot be read or is not formatted correctly.
+   */
+  public static CompiledQuestionnaire compile(String fileName, boolean requireUniqueKeys) {
+
+    // Get the modification time before reading, so that an edit made while reading will cause a later reload
+    File file = new File(fileName);
+    long lastModified = file.lastModified();
+
+    // Create working lists for the keys and prompts
+    ArrayList<String> keyList = new ArrayList<String>();
+    ArrayList<String> promptList = new ArrayList<String>();
+    HashMap<String, Integer> keyToOrdinal = new HashMap<String, Integer>();
+
+    // Create a reader to parse the questionnaire
+    BufferedReader questionReader = null;
+
+    try {
+      // Set up the reader
+      questionReader = new BufferedReader(new FileReader(file));
+      // Create a variable to track the key of the current question
+      String key = null;
+
+      // Continue to get the next key if not at the end of the file
+      while ( (key = questionReader.readLine()) != null) {
+
+        // Get the prompt coordinating with the key
+        String prompt = questionReader.readLine();
+
+        // Ensure the question is complete
+        if (prompt == null) {
+          throw new FatalError("questionnaire \"" + fileName + "\" has a key with no prompt (line " + (keyList.size() * 2 + 1) + ")");
+        }
+
+        // Ensure the key is usable if it must be unique
+        if (requireUniqueKeys) {
+          if (key.trim().isEmpty()) {
+            throw new FatalError("questionnaire \"" + fileName + "\" has a blank key (line " + (keyList.size() * 2 + 1) + ")");
+          } else if (keyToOrdinal.containsKey(key)) {
+            throw new FatalError("questionnaire \"" + fileName + "\" has a duplicate key \"" + key + "\"");
+          }
+          // Canonicalize the key, so every patient's responses share the same key instances
+          key = StringPool.canonicalize(key);
+          keyToOrdinal.put(key, keyList.size());
+        }
+
+        // Add the question
+        keyList.add(key);
+        promptList.add(prompt);
+      }
+
+    } catch (IOException e) {
+      // A fatal error was thrown (so throw a FatalError)
+      throw new FatalError("IOException: " + e.getMessage());
+
+    } finally {
+      if (questionReader != null) {
+        try {
+          // Attempt to close the reader
+          questionReader.close();
+
+        } catch (IOException e) {
+          // A fatal error was thrown (so throw a FatalError)
+          throw new FatalError("IOException: " + e.getMessage());
+        }
+      }
+    }
+
+    return new CompiledQuestionnaire(fileName, lastModified, keyList.toArray(new String[0]), promptList.toArray(new String[0]), keyToOrdinal);
+  }
+
+  /**
+   * Check whether the file this questionnaire was compiled from has been modified since compiling.
+   * @return whether the questionnaire should be recompiled.
+   */
+  public boolean isStale() {
+    return new File(fileName).lastModified() != lastModified;
+  }
+
+  /**
+   * Get the number of questions in the questionnaire.
+   * @return the number of questions.
+   */
+  public int size() {
+    return keys.length;
+  }
+
+  /**
+   * Get the key of a question.
+   * @param ordinal the ordinal of the question (must be 0 through size() - 1 inclusive).
+   * @return the key of the question.
+   */
+  public String getKey(int ordinal) {
+    return keys[ordinal];
+  }
+
+  /**
+   * Get the prompt of a question.
+   * @param ordinal the ordinal of the question (must be 0 through size() - 1 inclusive).
+   * @return the prompt of the question.
+   */
+  public String getPrompt(int ordinal) {
+    return prompts[ordinal];
+  }
+
+  /**
+   * Get the ordinal of the question with the given key (only available if compiled with unique keys).
+   * @param key the key to search for.
+   * @return the ordinal of the question or -1 if no question has the key.
+   */
+  public int getOrdinal(String key) {
+    Integer ordinal = keyToOrdinal.get(key);
+    return ordinal == null ? -1 : ordinal;
+  }
+
+  /**
+   * Getter for the filename the questionnaire was compiled from.
+   * @return the filename.
+   */
+  public String getFileName() {
+    return fileName;
+  }
+}
@@ -1,5 +1,6 @@
 import java.util.TreeMap;
 import java.io.Serializable;
+import java.io.IOException;
 
 /**
  * This Doctor class provides a model for Doctor objects that can then by utlized by the Register class. A Doctor in this program is the sole entity that administers vaccinations to Patients.
@@ -73,19 +74,22 @@ public class Doctor extends Person implements Serializable {
   }
 
   /**
-   * Get a string representation of the instance.
-   * @return the string representation. 
+   * Append a string representation of the instance.
+   * @param out the Appendable to append to.
+   * @throws IOException if the Appendable throws one.
    */
   @Override
-  public String toString() {
-    String result = name + " (doctor)\n\tPhone: " + phone + "\n\tEmail: " + email + "\n\tDoctor ID: " + doctorID + "\n\tVaccinations per day:";
+  public void appendTo(Appendable out) throws IOException {
 
-    // Append the number of doses per day of the week to the result
+    out.append(name).append(" (doctor)\n\tPhone: ").append(phone).append("\n\tEmail: ").append(email).append("\n\tDoctor ID: ");
+    BasicFormatter.appendNumber(out, doctorID);
+    out.append("\n\tVaccinations per day:");
+
+    // Append the number of doses per day of the week
     for (int dayIndex = 1; dayIndex <= 7; dayIndex++) {
-      result += "\n\t\t" + BasicFormatter.getDayOfWeekName(dayIndex) + ": " + dosesAdministeredPerDay[dayIndex - 1];
+      out.append("\n\t\t").append(BasicFormatter.getDayOfWeekName(dayIndex)).append(": ");
+      BasicFormatter.appendNumber(out, dosesAdministeredPerDay[dayIndex - 1]);
     }
-
-    return result;
   }
 
 }
\ No newline at end of file
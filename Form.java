@@ -1,10 +1,5 @@
-import java.util.Scanner;
 import java.util.TreeMap;
 
-import java.io.FileReader;
-import java.io.BufferedReader;
-import java.io.IOException;
-
 /**
  * This class provides static methods for processing form responses. Specifically, the Form class allows the administrator and patient to interface with their relevant forms. Note that the qualification questionnaire and the weighting questionnaire must be in the same directory and named "QualificationQuestionnaire.txt" and "Questionnaire.txt" respectively. The qualification questionnaire must alternate lines with the asserted answer ("NO" or assumedly "YES") and the coordinating question prompt, and the questionnaire must alternate lines with the response key and the coordinating question prompt.
  * @author Thomas Merino, Nam Luu, Austin Lee.
@@ -19,76 +14,99 @@ public class Form {
   /** The filename of the questionnaire. */
   private static final String QUESTIONNAIRE_FILE_NAME = "Questionnaire.txt";
 
+  /** The compiled qualification questionnaire (or null if it has not been compiled yet). */
+  private static CompiledQuestionnaire qualificationQuestionnaire = null;
+
+  /** The compiled questionnaire (or null if it has not been compiled yet). */
+  private static CompiledQuestionnaire questionnaire = null;
+
   /** Overridden  default constructon, so Form cannot be instantiated */
   private Form() {}
 
   /**
-   * Helper method for closing a buffered reader.
-   * @param reader the reader to close.
+   * Load (or reload) and validate both questionnaires, so that formatting problems are found at startup rather than during intake.
+   * @throws FatalError if either questionnaire cannot be read or is not formatted correctly.
    */
-  private static void closeReader(BufferedReader reader) {
+  public static void loadQuestionnaires() {
+    qualificationQuestionnaire = CompiledQuestionnaire.compile(QUALIFICATION_QUESTIONNAIRE_FILE_NAME, false);
+    questionnaire = CompiledQuestionnaire.compile(QUESTIONNAIRE_FILE_NAME, true);
+  }
 
-    if (reader != null) {
-        try {
-          // Attempt to close the reader
-          reader.close();
+  /**
+   * Helper method that returns a compiled questionnaire, recompiling it only if it has not been compiled or its file has been modified since. If a modified file cannot be compiled, the last valid questionnaire continues to be used.
+   * @param current the currently compiled questionnaire (or null).
+   * @param fileName the filename of the questionnaire.
+   * @param requireUniqueKeys whether the keys of the questionnaire must be unique.
+   * @return the up-to-date compiled questionnaire.
+   * @throws FatalError if the questionnaire has never been compiled and cannot be compiled.
+   */
+  private static CompiledQuestionnaire refresh(CompiledQuestionnaire current, String fileName, boolean requireUniqueKeys) {
 
-        } catch (IOException e) {
-          // A fatal error was thrown (so throw a FatalError)
-          System.out.println("Error: a problem was encountered while closing questionnaire data.");
-          throw new FatalError("IOException: " + e.getMessage());
-        }
+    // Return the current questionnaire if it is still valid
+    if (current != null && !current.isStale()) {
+      return current;
+    }
+
+    try {
+      return CompiledQuestionnaire.compile(fileName, requireUniqueKeys);
+
+    } catch (FatalError e) {
+      // Report the problem and fall back on the last valid questionnaire (if there is one)
+      System.out.println("Error: there is a problem with the questionnaire formatting. There may have been a lost question.");
+      if (current == null) {
+        throw e;
       }
+      return current;
+    }
+  }
+
+  /**
+   * Get the compiled qualification questionnaire.
+   * @return the up-to-date qualification questionnaire.
+   * @throws FatalError if the questionnaire cannot be read or is not formatted correctly.
+   */
+  public static CompiledQuestionnaire getQualificationQuestionnaire() {
+    qualificationQuestionnaire = refresh(qualificationQuestionnaire, QUALIFICATION_QUESTIONNAIRE_FILE_NAME, false);
+    return qualificationQuestionnaire;
+  }
+
+  /**
+   * Get the compiled (weighting) questionnaire.
+   * @return the up-to-date questionnaire.
+   * @throws FatalError if the questionnaire cannot be read or is not formatted correctly.
+   */
+  public static CompiledQuestionnaire getQuestionnaire() {
+    questionnaire = refresh(questionnaire, QUESTIONNAIRE_FILE_NAME, true);
+    return questionnaire;
   }
 
   /**
    * Present a qualification questionnaire to ensure the patient can be registered.
    * @param scanner the InputScanner to receive user responses from.
    * @returns whether the user is qualified to join the register.
-   * @throws FatalError if there is an IOException throw while reading questionnaire data.
+   * @throws FatalError if the questionnaire cannot be read or is not formatted correctly.
    */
   public static boolean ensureQualificationByForm(InputScanner scanner) {
 
-    // Create a reader to parse the questionnaire
-    BufferedReader questionReader = null;
-
-    try {
-      // Set up the reader
-      questionReader = new BufferedReader(new FileReader(QUALIFICATION_QUESTIONNAIRE_FILE_NAME));
-      // Create a variable to track the qualifying user response
-      String assertedStringInput = null;
-
-      // Continue to get the next asserted input if not at the end of the file
-      while ( (assertedStringInput = questionReader.readLine()) != null) {
-
-        // Present the prompt
-        String description = questionReader.readLine();
-        System.out.println(description);
+    // Get the compiled questionnaire
+    CompiledQuestionnaire qualification = getQualificationQuestionnaire();
 
-        // Get the user response
-        boolean responseTruthValue = scanner.getBoolean();
+    // Iterate over each question
+    for (int ordinal = 0; ordinal < qualification.size(); ordinal++) {
 
-        // Ensure the user response matches the expected response
-        if (assertedStringInput.equals("NO") == responseTruthValue ) {
-          // The user does not qualify (return false)
-          return false;
-        }
+      // Present the prompt
+      System.out.println(qualification.getPrompt(ordinal));
 
-        System.out.println(); // Spacer
+      // Get the user response
+      boolean responseTruthValue = scanner.getBoolean();
 
+      // Ensure the user response matches the expected response
+      if (qualification.getKey(ordinal).equals("NO") == responseTruthValue ) {
+        // The user does not qualify (return false)
+        return false;
       }
 
-    } catch (IOException e) {
-      // A fatal error was thrown (so throw a FatalError)
-      System.out.println("Error: a problem was encountered while reading questionnaire data.");
-      throw new FatalError("IOException: " + e.getMessage());
-
-    } catch (NullPointerException e) {
-      // Note: this catch block will be executed when there are an odd number of lines in the questionnaire file
-      System.out.println("Error: there is a problem with the questionnaire formatting. There may have been a lost question.");
-
-    } finally {
-      closeReader(questionReader);
+      System.out.println(); // Spacer
     }
 
     // The user did not enter an invalid response (return true)
@@ -99,7 +117,7 @@ public class Form {
    * Present a questionnaire to generate a new patient from user input.
    * @param scanner the InputScanner to receive user responses from.
    * @returns the new patient from the form information or null if the patient does not qualify.
-   * @throws FatalError if there is an IOException throw while reading questionnaire data.
+   * @throws FatalError if the questionnaire cannot be read or is not formatted correctly.
    */
   public static Patient getPatientByForm(InputScanner scanner) {
 
@@ -122,43 +140,50 @@ public class Form {
 
     System.out.println(); // Spacer
 
-    // Create a reader to parse the questionnaire
-    BufferedReader questionReader = null;
+    // Get the compiled questionnaire
+    CompiledQuestionnaire weightingQuestionnaire = getQuestionnaire();
 
-    try {
-      // Set up the reader
-      questionReader = new BufferedReader(new FileReader(QUESTIONNAIRE_FILE_NAME));
-      // Create a variable to track the key for storing the user's response
-      String responseKey = null;
+    // Iterate over each question
+    for (int ordinal = 0; ordinal < weightingQuestionnaire.size(); ordinal++) {
 
-      // Continue to get the next key if not at the end of the file
-      while ( (responseKey = questionReader.readLine()) != null) {
+      // Present the prompt
+      System.out.println(weightingQuestionnaire.getPrompt(ordinal));
 
-        // Present the prompt
-        String description = questionReader.readLine();
-        System.out.println(description);
+      // Get and process the user response
+      boolean responseTruthValue = scanner.getBoolean();
+      newPatient.appendMedicalBoolean(weightingQuestionnaire.getKey(ordinal), responseTruthValue);
 
-        // Get and process the user response
-        boolean responseTruthValue = scanner.getBoolean();
-        newPatient.appendMedicalBoolean(responseKey, responseTruthValue);
+      System.out.println(); // Spacer
+    }
 
-        System.out.println(); // Spacer
+    // Collect the days of the week the patient is available
+    System.out.println("Are you available to be vaccinated on every day of the week?");
+    if (!scanner.getBoolean()) {
 
-      }
+      System.out.println(); // Spacer
 
-    } catch (IOException e) {
-      // A fatal error was thrown (so throw a FatalError)
-      System.out.println("Error: a problem was encountered while reading questionnaire data.");
-      throw new FatalError("IOException: " + e.getMessage());
+      // Create a variable to build the bitmask of available days (bit 0 is Sunday and bit 6 is Saturday)
+      int availableDays = 0;
 
-    } catch (NullPointerException e) {
-      // This catch block will be executed when there are an odd number of lines in the questionnaire file
-      System.out.println("Error: there is a problem with the questionnaire formatting. There may have been a lost question.");
+      // Ask about each day until at least one day is chosen
+      while (availableDays == 0) {
+        for (int dayIndex = 1; dayIndex <= 7; dayIndex++) {
+          System.out.println("Are you available on " + BasicFormatter.getDayOfWeekName(dayIndex) + "?");
+          if (scanner.getBoolean()) {
+            availableDays |= 1 << (dayIndex - 1);
+          }
+        }
 
-    } finally {
-      closeReader(questionReader);
+        if (availableDays == 0) {
+          System.out.println("Please choose at least one day.\n");
+        }
+      }
+
+      newPatient.setAvailableDays(availableDays);
     }
 
+    System.out.println(); // Spacer
+
     // Return the new patient
     return newPatient;
   }
@@ -226,69 +251,50 @@ public class Form {
     // Create a working mapping to modify as input is collected (to be returned)
     TreeMap<String, Integer> newWeighting = new TreeMap<String, Integer>();
 
-    // Create a reader to parse the questionnaire
-    BufferedReader questionReader = null;
+    // Get the compiled questionnaire
+    CompiledQuestionnaire weightingQuestionnaire = getQuestionnaire();
 
-    
-    try {
-      // Set up the reader
-      questionReader = new BufferedReader(new FileReader(QUESTIONNAIRE_FILE_NAME));
-      // Create a variable to track the key used for mapping weights
-      String responseKey = null;
-
-      // Continue to get the next key if not at the end of the file
-      while ( (responseKey = questionReader.readLine()) != null) {
-        
-        // Present the prompt as seen by patients
-        String description = questionReader.readLine();
-        System.out.println("\"" + description + "\"");
-
-        // Attempt to get the old weight (if it exists)
-        Integer oldWeight = oldWeighting.get(responseKey);
-
-        // If there is no weight for the current key, assign the old weight to be 0 (which is how the key is treated during actual sorting)
-        if (oldWeight == null) {
-          oldWeight = 0;
-        }
-        
-        // Print the affect the current weight has
-        if (0 <= oldWeight) {
-          System.out.println("\nCurrently, the patient receives " + oldWeight + " weighting points when they response is yes");
-        } else {
-          System.out.println("\nCurrently, the patient receives " + (-oldWeight) + " weighting points when they response is no");
-        }
-        
-        // Get and set the new weight
-        System.out.println("What is the new number of points for this question?");
-        int newWeight = scanner.getIntWithMinimum(0);
-        
-        // Create a variable to track the associated (rewarding) response 
-        boolean forResponse = true;
-
-        // If the weight is not 0 (is relevant), get the associated (rewarding) response
-        if (newWeight != 0) {
-          System.out.println("What is the rewarding reponse?");
-          forResponse = scanner.getBoolean(); 
-        }
+    // Iterate over each question
+    for (int ordinal = 0; ordinal < weightingQuestionnaire.size(); ordinal++) {
 
-        // Add the weight to the mapping
-        newWeighting.put(responseKey, newWeight * (forResponse ? 1 : -1));
+      // Get the key used for mapping weights
+      String responseKey = weightingQuestionnaire.getKey(ordinal);
 
-        System.out.println(); // Spacer
+      // Present the prompt as seen by patients
+      System.out.println("\"" + weightingQuestionnaire.getPrompt(ordinal) + "\"");
 
-      }
+      // Attempt to get the old weight (if it exists)
+      Integer oldWeight = oldWeighting.get(responseKey);
 
-    } catch (IOException e) {
-      // A fatal error was thrown (so throw a FatalError)
-      System.out.println("Error: a problem was encountered while reading questionnaire data.");
-      throw new FatalError("IOException: " + e.getMessage());
+      // If there is no weight for the current key, assign the old weight to be 0 (which is how the key is treated during actual sorting)
+      if (oldWeight == null) {
+        oldWeight = 0;
+      }
+      
+      // Print the affect the current weight has
+      if (0 <= oldWeight) {
+        System.out.println("\nCurrently, the patient receives " + oldWeight + " weighting points when they response is yes");
+      } else {
+        System.out.println("\nCurrently, the patient receives " + (-oldWeight) + " weighting points when they response is no");
+      }
+      
+      // Get and set the new weight
+      System.out.println("What is the new number of points for this question?");
+      int newWeight = scanner.getIntWithMinimum(0);
+      
+      // Create a variable to track the associated (rewarding) response 
+      boolean forResponse = true;
+
+      // If the weight is not 0 (is relevant), get the associated (rewarding) response
+      if (newWeight != 0) {
+        System.out.println("What is the rewarding reponse?");
+        forResponse = scanner.getBoolean(); 
+      }
 
-    } catch (NullPointerException e) {
-      // This catch block will be executed when there are an odd number of lines in the questionnaire file
-      System.out.println("Error: there is a problem with the questionnaire formatting. There may have been a lost question.");
+      // Add the weight to the mapping
+      newWeighting.put(responseKey, newWeight * (forResponse ? 1 : -1));
 
-    } finally {
-      closeReader(questionReader);
+      System.out.println(); // Spacer
     }
 
     // Return the new mapping
@@ -0,0 +1,514 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The IdentityIndex class indexes a register's patients by normalized identity (their case-folded name, birthdate, and the digits of their phone number) and by normalized email address, so a likely duplicate of a new patient can be found with two hash lookups instead of comparing against every patient.
+ * Patients are stored in open-addressing tables of 64-bit hashes of their normalized details, so the index adds no objects per patient and is quick to rebuild when a register is loaded. The details of two patients are only compared in full when their hashes match. A patient's details must not change while they are indexed.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class IdentityIndex {
+
+  /** The multiplier used to combine characters into a hash. */
+  private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  /** The hash no key has (which marks empty slots, and patients who have not provided an email address). */
+  private static final long NO_HASH = 0;
+
+  /** The table of patients by identity. */
+  private final HashTable identities;
+
+  /** The table of patients by email address. */
+  private final HashTable emails;
+
+  /**
+   * The default constructor (for an empty index).
+   */
+  public IdentityIndex() {
+    identities = new HashTable(false);
+    emails = new HashTable(true);
+  }
+
+  /**
+   * Create an index of patients.
+   * @param listing the patients to index.
+   * @return the new index.
+   */
+  public static IdentityIndex build(List<Patient> listing) {
+    IdentityIndex index = new IdentityIndex();
+    for (Patient patient : listing) {
+      index.add(patient);
+    }
+    return index;
+  }
+
+  /**
+   * Get the identity key of a patient (their case-folded name with whitespace collapsed, their birthdate, and the digits of their phone number).
+   * @param patient the patient.
+   * @return the identity key.
+   */
+  public static String getIdentityKey(Patient patient) {
+    StringBuilder key = new StringBuilder();
+    foldIdentity(patient, key);
+    return key.toString();
+  }
+
+  /**
+   * Get the normalized email address of a patient.
+   * @param patient the patient.
+   * @return the trimmed, case-folded email address, or null if the patient has not provided one.
+   */
+  public static String getEmailKey(Patient patient) {
+    StringBuilder key = new StringBuilder();
+    return foldEmail(patient, key) == NO_HASH ? null : key.toString();
+  }
+
+  /**
+   * Helper method that folds a character into a hash.
+   * @param hash the hash so far.
+   * @param character the character.
+   * @return the new hash.
+   */
+  private static long mix(long hash, int character) {
+    return (hash + character) * HASH_MULTIPLIER;
+  }
+
+  /**
+   * Helper method that finishes a hash (spreading every bit of it over the low bits, which pick the table slot).
+   * @param hash the hash.
+   * @return the finished hash (which is never NO_HASH).
+   */
+  private static long finish(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    return hash == NO_HASH ? 1 : hash;
+  }
+
+  /**
+   * Helper method that case-folds a character (upper-casing first folds characters such as the final sigma the same way as their upper-case forms).
+   * @param character the character.
+   * @return the folded character.
+   */
+  private static char fold(char character) {
+    if (character < 0x80) {
+      return (character >= 'A' && character <= 'Z') ? (char) (character + ('a' - 'A')) : character;
+    }
+    return Character.toLowerCase(Character.toUpperCase(character));
+  }
+
+  /**
+   * Helper method that hashes the normalized identity of a patient, optionally writing the normalized identity as well.
+   * @param patient the patient.
+   * @param key the builder to append the identity key to (or null to only hash it).
+   * @return the hash.
+   */
+  private static long foldIdentity(Patient patient, StringBuilder key) {
+
+    long hash = 0;
+
+    // Fold the name with runs of whitespace collapsed to single spaces (and none at either end)
+    String name = patient.getName();
+    boolean hasCharacters = false;
+    boolean isSpacePending = false;
+    for (int index = 0; index < name.length(); index++) {
+      char character = name.charAt(index);
+      if (Character.isWhitespace(character)) {
+        isSpacePending = hasCharacters;
+        continue;
+      }
+      hasCharacters = true;
+      if (isSpacePending) {
+        hash = mix(hash, ' ');
+        if (key != null) {
+          key.append(' ');
+        }
+        isSpacePending = false;
+      }
+      character = fold(character);
+      hash = mix(hash, character);
+      if (key != null) {
+        key.append(character);
+      }
+    }
+
+    // Add the birthdate
+    long birthEpochDay = (patient.getBirthdate() == null) ? Long.MIN_VALUE : patient.getBirthdate().toEpochDay();
+    hash = mix(mix(hash, 0), (int) (birthEpochDay ^ (birthEpochDay >>> 32)));
+    if (key != null) {
+      key.append('\u0000').append(birthEpochDay).append('\u0000');
+    }
+
+    // Add only the digits of the phone number (so formatting does not matter)
+    String phone = patient.getPhone();
+    for (int index = 0; phone != null && index < phone.length(); index++) {
+      char character = phone.charAt(index);
+      if (character >= '0' && character <= '9') {
+        hash = mix(hash, character);
+        if (key != null) {
+          key.append(character);
+        }
+      }
+    }
+
+    return finish(hash);
+  }
+
+  /**
+   * Helper method that hashes the normalized email address of a patient, optionally writing the normalized address as well.
+   * @param patient the patient.
+   * @param key the builder to append the address to (or null to only hash it).
+   * @return the hash or NO_HASH if the patient has not provided an email address.
+   */
+  private static long foldEmail(Patient patient, StringBuilder key) {
+
+    String email = patient.getEmail();
+    if (email == null || StringPool.NOT_AVAILABLE.equals(email)) {
+      return NO_HASH;
+    }
+
+    // Trim the address
+    int start = 0;
+    int end = email.length();
+    while (start < end && Character.isWhitespace(email.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(email.charAt(end - 1))) {
+      end--;
+    }
+
+    if (start == end) {
+      return NO_HASH;
+    }
+
+    long hash = 0;
+    for (int index = start; index < end; index++) {
+      char character = fold(email.charAt(index));
+      hash = mix(hash, character);
+      if (key != null) {
+        key.append(character);
+      }
+    }
+
+    return finish(hash);
+  }
+
+  /**
+   * Add a patient to the index.
+   * @param patient the patient to add.
+   */
+  public void add(Patient patient) {
+
+    identities.add(foldIdentity(patient, null), patient);
+
+    long emailHash = foldEmail(patient, null);
+    if (emailHash != NO_HASH) {
+      emails.add(emailHash, patient);
+    }
+  }
+
+  /**
+   * Remove a patient from the index (if present).
+   * @param patient the patient to remove.
+   */
+  public void remove(Patient patient) {
+
+    identities.remove(foldIdentity(patient, null), patient);
+
+    long emailHash = foldEmail(patient, null);
+    if (emailHash != NO_HASH) {
+      emails.remove(emailHash, patient);
+    }
+  }
+
+  /**
+   * Find a likely duplicate of a patient (a different patient with the same identity or email address).
+   * @param patient the patient to check (who need not be indexed).
+   * @return the first registered patient who is a likely duplicate, or null if there is none.
+   */
+  public Patient findDuplicate(Patient patient) {
+    return findDuplicate(patient, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Find every indexed patient who is a later registration of someone registered earlier (another patient with the same identity or email address has a lower ID). This reads the tables in order rather than looking up each patient, since patients with the same key are always next to each other in a table.
+   * @return the later duplicates in the order of their IDs.
+   */
+  public ArrayList<Patient> findLaterDuplicates() {
+
+    Set<Patient> duplicates = Collections.newSetFromMap(new IdentityHashMap<Patient, Boolean>());
+    identities.addLaterDuplicates(duplicates);
+    emails.addLaterDuplicates(duplicates);
+
+    ArrayList<Patient> sortedDuplicates = new ArrayList<Patient>(duplicates);
+    sortedDuplicates.sort(Comparator.comparingInt(Patient::getPatientID));
+    return sortedDuplicates;
+  }
+
+  /**
+   * Helper method that finds the first registered patient with the same identity or email address as a patient.
+   * @param patient the patient to check.
+   * @param belowID the ID the duplicate's ID must be less than.
+   * @return the duplicate with the lowest ID, or null if there is none.
+   */
+  private Patient findDuplicate(Patient patient, int belowID) {
+
+    Patient duplicate = identities.findFirst(foldIdentity(patient, null), patient, belowID);
+
+    long emailHash = foldEmail(patient, null);
+    if (emailHash != NO_HASH) {
+      Patient emailDuplicate = emails.findFirst(emailHash, patient, belowID);
+      if (duplicate == null || (emailDuplicate != null && emailDuplicate.getPatientID() < duplicate.getPatientID())) {
+        duplicate = emailDuplicate;
+      }
+    }
+
+    return duplicate;
+  }
+
+  /**
+   * The HashTable class is an open-addressing (linear probing) multimap of hashes to patients.
+   */
+  private static final class HashTable {
+
+    /** Whether the table is keyed by email address (or by identity otherwise). */
+    private final boolean isEmail;
+
+    /** The hash of the patient in each slot (or NO_HASH if the slot is empty, so probing only reads this array until a hash matches). */
+    private long[] hashes;
+
+    /** The patient in each slot. */
+    private Patient[] patients;
+
+    /** The number of patients in the table. */
+    private int size;
+
+    /**
+     * Constructor that takes what the table is keyed by.
+     * @param isEmail whether the table is keyed by email address (or by identity otherwise).
+     */
+    public HashTable(boolean isEmail) {
+      this.isEmail = isEmail;
+      hashes = new long[16];
+      patients = new Patient[16];
+      size = 0;
+    }
+
+    /**
+     * Helper method that gets the slot a hash starts probing from.
+     * @param hash the hash.
+     * @return the slot.
+     */
+    private int getHomeSlot(long hash) {
+      return (int) hash & (patients.length - 1);
+    }
+
+    /**
+     * Add a patient.
+     * @param hash the hash of the patient's key.
+     * @param patient the patient.
+     */
+    public void add(long hash, Patient patient) {
+
+      // Keep the table at most half full
+      if (2 * (size + 1) > patients.length) {
+        resize(2 * patients.length);
+      }
+
+      int slot = getHomeSlot(hash);
+      while (hashes[slot] != NO_HASH) {
+        slot = (slot + 1) & (patients.length - 1);
+      }
+
+      hashes[slot] = hash;
+      patients[slot] = patient;
+      size++;
+    }
+
+    /**
+     * Helper method that moves the patients to a table with a new number of slots.
+     * @param slotCount the number of slots (a power of two).
+     */
+    private void resize(int slotCount) {
+
+      long[] oldHashes = hashes;
+      Patient[] oldPatients = patients;
+
+      hashes = new long[slotCount];
+      patients = new Patient[slotCount];
+      size = 0;
+
+      for (int slot = 0; slot < oldPatients.length; slot++) {
+        if (oldHashes[slot] != NO_HASH) {
+          add(oldHashes[slot], oldPatients[slot]);
+        }
+      }
+    }
+
+    /**
+     * Remove a patient (if present).
+     * @param hash the hash of the patient's key.
+     * @param patient the patient.
+     */
+    public void remove(long hash, Patient patient) {
+
+      int mask = patients.length - 1;
+
+      // Find the patient's slot
+      int hole = getHomeSlot(hash);
+      while (hashes[hole] != hash || patients[hole] != patient) {
+        if (hashes[hole] == NO_HASH) {
+          return;
+        }
+        hole = (hole + 1) & mask;
+      }
+
+      // Shift back the following patients that would no longer be reachable across the hole
+      for (int slot = (hole + 1) & mask; hashes[slot] != NO_HASH; slot = (slot + 1) & mask) {
+        int homeSlot = getHomeSlot(hashes[slot]);
+        if (((slot - homeSlot) & mask) >= ((slot - hole) & mask)) {
+          hashes[hole] = hashes[slot];
+          patients[hole] = patients[slot];
+          hole = slot;
+        }
+      }
+
+      hashes[hole] = NO_HASH;
+      patients[hole] = null;
+      size--;
+    }
+
+    /**
+     * Helper method that gets the full key of a patient.
+     * @param patient the patient.
+     * @return the normalized email address or identity key.
+     */
+    private String getKey(Patient patient) {
+      return isEmail ? getEmailKey(patient) : getIdentityKey(patient);
+    }
+
+    /**
+     * Add every patient whose key matches that of a patient with a lower ID to a set.
+     * @param duplicates the set to add the later duplicates to.
+     */
+    public void addLaterDuplicates(Set<Patient> duplicates) {
+
+      int mask = hashes.length - 1;
+
+      // Start from an empty slot (the table is at most half full), so no run of occupied slots wraps around the start
+      int emptySlot = 0;
+      while (hashes[emptySlot] != NO_HASH) {
+        emptySlot++;
+      }
+
+      // Check each run of occupied slots (patients with the same hash are always in the same run)
+      int offset = 1;
+      while (offset < hashes.length) {
+
+        if (hashes[(emptySlot + offset) & mask] == NO_HASH) {
+          offset++;
+          continue;
+        }
+
+        int runStart = offset;
+        while (hashes[(emptySlot + offset) & mask] != NO_HASH) {
+          offset++;
+        }
+
+        addLaterDuplicatesInRun(emptySlot + runStart, offset - runStart, duplicates);
+      }
+    }
+
+    /**
+     * Helper method that adds the later duplicates in a run of occupied slots to a set.
+     * @param startSlot the first slot of the run (which may be past the end of the table, wrapping around to the start).
+     * @param length the number of slots in the run.
+     * @param duplicates the set to add the later duplicates to.
+     */
+    private void addLaterDuplicatesInRun(int startSlot, int length, Set<Patient> duplicates) {
+
+      int mask = hashes.length - 1;
+
+      for (int index = 0; index < length; index++) {
+
+        long hash = hashes[(startSlot + index) & mask];
+
+        // Only check each hash from its first slot in the run, and only if another slot has it
+        boolean isFirst = true;
+        for (int otherIndex = 0; otherIndex < index && isFirst; otherIndex++) {
+          isFirst = hashes[(startSlot + otherIndex) & mask] != hash;
+        }
+
+        int matchCount = 0;
+        for (int otherIndex = index; otherIndex < length && isFirst; otherIndex++) {
+          if (hashes[(startSlot + otherIndex) & mask] == hash) {
+            matchCount++;
+          }
+        }
+
+        if (!isFirst || matchCount < 2) {
+          continue;
+        }
+
+        // Find the patient with the lowest ID for each key (the hashes of different keys can match)
+        HashMap<String, Patient> firstPatients = new HashMap<String, Patient>();
+        for (int otherIndex = index; otherIndex < length; otherIndex++) {
+          int slot = (startSlot + otherIndex) & mask;
+          if (hashes[slot] == hash) {
+            Patient first = firstPatients.get(getKey(patients[slot]));
+            if (first == null || patients[slot].getPatientID() < first.getPatientID()) {
+              firstPatients.put(getKey(patients[slot]), patients[slot]);
+            }
+          }
+        }
+
+        for (int otherIndex = index; otherIndex < length; otherIndex++) {
+          int slot = (startSlot + otherIndex) & mask;
+          if (hashes[slot] == hash && firstPatients.get(getKey(patients[slot])) != patients[slot]) {
+            duplicates.add(patients[slot]);
+          }
+        }
+      }
+    }
+
+    /**
+     * Find the patient with the lowest ID whose key matches a patient's (other than the patient).
+     * @param hash the hash of the patient's key.
+     * @param patient the patient.
+     * @param belowID the ID the match's ID must be less than.
+     * @return the match or null if there is none.
+     */
+    public Patient findFirst(long hash, Patient patient, int belowID) {
+
+      Patient first = null;
+      String key = null;
+
+      for (int slot = getHomeSlot(hash); hashes[slot] != NO_HASH; slot = (slot + 1) & (patients.length - 1)) {
+
+        if (hashes[slot] != hash) {
+          continue;
+        }
+
+        Patient candidate = patients[slot];
+        if (candidate == patient || candidate.getPatientID() >= belowID || (first != null && candidate.getPatientID() >= first.getPatientID())) {
+          continue;
+        }
+
+        // Compare the keys in full (only when the hashes match)
+        if (key == null) {
+          key = getKey(patient);
+        }
+        if (key.equals(getKey(candidate))) {
+          first = candidate;
+        }
+      }
+
+      return first;
+    }
+  }
+}
@@ -1,27 +1,307 @@
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.IOException;
 
 import java.time.LocalDate;
 import java.time.DateTimeException;
 
-// Note that InputScanner cannot (though, should) be a subclass of the final class Scanner.
-
 /**
  * This class prompts the user for input and processes the user's responses. Moreover, the InputScanner class ensures that the user enters the correct data type/format and continually prompts the user until correct data is entered. 
+ * Input is read in large blocks into a reused line buffer, and numbers, dates, days of the week, and yes-or-no responses are parsed straight from that buffer without creating strings. The input prompts (such as "Enter a command: ") can be turned off, such as when answers are piped in from a file.
  * @author Thomas Merino, Nam Luu.
  * @version 1.0 (last modified 5/1/21).
  */
 public class InputScanner {
 
-  /** The scanner that performs getting raw input. */
-  private Scanner scanner;
+  /** The number of characters read from the source at a time. */
+  private static final int READ_BUFFER_SIZE = 1 << 16;
+
+  /** The accepted days of the week (in lowercase, in order of day index). */
+  private static final String[] DAY_OF_WEEK_RESPONSES = {"sunday", "monday", "tuesday", "wednesday", "thursday", "friday", "saturday"};
+
+  /** The accepted yes-or-no responses (in lowercase, with the responses meaning yes first). */
+  private static final String[] BOOLEAN_RESPONSES = {"y", "y.", "yes", "yes.", "t", "n", "n.", "no", "no.", "f"};
+
+  /** The number of responses at the start of BOOLEAN_RESPONSES that mean yes. */
+  private static final int TRUE_RESPONSE_COUNT = 5;
+
+  /** The value parseNumber returns for text that is not a valid int. */
+  private static final long INVALID_NUMBER = Long.MIN_VALUE;
+
+  /** The reader that performs getting raw input. */
+  private Reader reader;
+
+  /** Whether input prompts are printed. */
+  private boolean isInteractive;
+
+  /** The characters read from the source (those from readPosition up to readLimit have not been processed yet). */
+  private char[] readBuffer;
+
+  /** The index of the next character of the read buffer to process. */
+  private int readPosition;
+
+  /** The index after the last character read into the read buffer. */
+  private int readLimit;
+
+  /** Whether a line feed should be skipped (since the last line ended with a carriage return). */
+  private boolean isSkippingLineFeed;
+
+  /** The current line (the first lineLength characters, without the line separator). */
+  private char[] line;
+
+  /** The number of characters in the current line. */
+  private int lineLength;
+
+  /** The total time spent waiting for the source to supply input (in nanoseconds). */
+  private long inputWaitNanos;
 
   /**
-   * Constructor that takes an InputStream.
+   * Constructor that takes an InputStream (input prompts are printed).
    * @param source the InputStream the scanner will take input from.
    */
   public InputScanner(InputStream source) {
-    this.scanner = new Scanner(source);
+    this(source, true);
+  }
+
+  /**
+   * Constructor that takes an InputStream and whether to print input prompts.
+   * @param source the InputStream the scanner will take input from.
+   * @param isInteractive whether input prompts are printed.
+   */
+  public InputScanner(InputStream source, boolean isInteractive) {
+    this.reader = new InputStreamReader(source);
+    this.isInteractive = isInteractive;
+    readBuffer = new char[READ_BUFFER_SIZE];
+    readPosition = 0;
+    readLimit = 0;
+    isSkippingLineFeed = false;
+    line = new char[256];
+    lineLength = 0;
+  }
+
+  /**
+   * Getter for whether input prompts are printed.
+   * @return whether the input is interactive.
+   */
+  public boolean isInteractive() {
+    return isInteractive;
+  }
+
+  /**
+   * Getter for the time spent waiting for input (such as for the user to type a response), so it can be left out of timings.
+   * @return the total time spent waiting for the source to supply input (in nanoseconds).
+   */
+  public long getInputWaitNanos() {
+    return inputWaitNanos;
+  }
+
+  /**
+   * Helper method that prints an input prompt (if the input is interactive).
+   * @param prompt the prompt.
+   */
+  private void prompt(String prompt) {
+    if (isInteractive) {
+      System.out.print(prompt);
+    }
+  }
+
+  /**
+   * Helper method that reads more characters from the source into the read buffer.
+   * @return whether any characters were read (false at the end of the input).
+   */
+  private boolean fillReadBuffer() {
+
+    long readStart = System.nanoTime();
+
+    try {
+      int count = reader.read(readBuffer, 0, readBuffer.length);
+      readPosition = 0;
+      readLimit = Math.max(count, 0);
+      return count > 0;
+
+    } catch (IOException e) {
+      // Treat a failed read as the end of the input
+      readPosition = 0;
+      readLimit = 0;
+      return false;
+
+    } finally {
+      inputWaitNanos += System.nanoTime() - readStart;
+    }
+  }
+
+  /**
+   * Helper method that reads the next line into the line buffer (a line ends with a line feed, a carriage return, or both).
+   * @throws NoSuchElementException if there is no more input.
+   */
+  private void readLine() {
+
+    lineLength = 0;
+    boolean hasReadAny = false;
+
+    while (true) {
+
+      // Get more characters if all have been processed
+      if (readPosition == readLimit && !fillReadBuffer()) {
+        if (!hasReadAny) {
+          throw new NoSuchElementException("No line found");
+        }
+        return;
+      }
+
+      // Skip the line feed of a carriage return and line feed pair
+      if (isSkippingLineFeed) {
+        isSkippingLineFeed = false;
+        if (readBuffer[readPosition] == '\n') {
+          readPosition++;
+          continue;
+        }
+      }
+
+      hasReadAny = true;
+
+      // Copy characters into the line until a line separator is found
+      int start = readPosition;
+      while (readPosition < readLimit && readBuffer[readPosition] != '\n' && readBuffer[readPosition] != '\r') {
+        readPosition++;
+      }
+      appendToLine(start, readPosition);
+
+      // Check if the line ended (or more characters need to be read)
+      if (readPosition < readLimit) {
+        isSkippingLineFeed = readBuffer[readPosition] == '\r';
+        readPosition++;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Helper method that copies characters from the read buffer to the end of the line buffer (growing the line buffer if needed).
+   * @param start the index of the first character in the read buffer.
+   * @param end the index after the last character in the read buffer.
+   */
+  private void appendToLine(int start, int end) {
+
+    int count = end - start;
+
+    if (lineLength + count > line.length) {
+      char[] newLine = new char[Math.max(lineLength + count, 2 * line.length)];
+      System.arraycopy(line, 0, newLine, 0, lineLength);
+      line = newLine;
+    }
+
+    System.arraycopy(readBuffer, start, line, lineLength, count);
+    lineLength += count;
+  }
+
+  /**
+   * Helper method that gets the index of the first character of the line that is not whitespace (as defined by String.trim).
+   * @return the start of the trimmed line.
+   */
+  private int getTrimmedStart() {
+    int start = 0;
+    while (start < lineLength && line[start] <= ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  /**
+   * Helper method that gets the index after the last character of the line that is not whitespace (as defined by String.trim).
+   * @return the end of the trimmed line.
+   */
+  private int getTrimmedEnd() {
+    int end = lineLength;
+    while (end > 0 && line[end - 1] <= ' ') {
+      end--;
+    }
+    return end;
+  }
+
+  /**
+   * Helper method that parses part of the line as an int (accepting the same text as Integer.parseInt).
+   * @param start the index of the first character.
+   * @param end the index after the last character.
+   * @return the number or INVALID_NUMBER if the text is not a valid int.
+   */
+  private long parseNumber(int start, int end) {
+
+    boolean isNegative = false;
+
+    // Read an optional sign
+    if (start < end && (line[start] == '-' || line[start] == '+')) {
+      isNegative = line[start] == '-';
+      start++;
+    }
+
+    // Ensure there is at least one digit
+    if (start == end) {
+      return INVALID_NUMBER;
+    }
+
+    long number = 0;
+    for (int index = start; index < end; index++) {
+
+      int digit = Character.digit(line[index], 10);
+      if (digit == -1) {
+        return INVALID_NUMBER;
+      }
+
+      number = number * 10 + digit;
+
+      // Check for a number too large for an int
+      if (number > (long) Integer.MAX_VALUE + 1) {
+        return INVALID_NUMBER;
+      }
+    }
+
+    number = isNegative ? -number : number;
+    return number > Integer.MAX_VALUE ? INVALID_NUMBER : number;
+  }
+
+  /**
+   * Helper method that checks if part of the line matches a lowercase response, ignoring case.
+   * @param start the index of the first character.
+   * @param end the index after the last character.
+   * @param response the response to check for (in lowercase).
+   * @return whether the part of the line matches the response.
+   */
+  private boolean matchesIgnoringCase(int start, int end, String response) {
+
+    if (end - start != response.length()) {
+      return false;
+    }
+
+    for (int index = start; index < end; index++) {
+      if (Character.toLowerCase(line[index]) != response.charAt(index - start)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Helper method that checks if the trimmed line matches any of the given lowercase responses, ignoring case.
+   * @param responses the responses to check for (in lowercase).
+   * @return the index of the matching response or -1 if none match.
+   */
+  private int matchTrimmedLine(String[] responses) {
+
+    int start = getTrimmedStart();
+    int end = getTrimmedEnd();
+
+    for (int index = 0; index < responses.length; index++) {
+      if (matchesIgnoringCase(start, end, responses[index])) {
+        return index;
+      }
+    }
+
+    return -1;
   }
 
   /**
@@ -35,19 +315,17 @@ public class InputScanner {
     while (true) {
 
       // Prompt and get an input
-      System.out.print("Enter a command: ");
-      String userInput = scanner.nextLine();
+      prompt("Enter a command: ");
+      readLine();
 
-      try {
-        // Attempt to convert the line into an integer
-        int userIntInput = Integer.parseInt(userInput);
+      // Attempt to convert the line into an integer
+      long userIntInput = parseNumber(0, lineLength);
         
-        // Ensure the integer is within the proper interval
-        if (1 <= userIntInput && userIntInput <= numberOfCommands) {
-          // The input is valid (return it)
-          return userIntInput;
-        } 
-      } catch (NumberFormatException e) { /* The integer conversion failed */ }
+      // Ensure the integer is within the proper interval
+      if (userIntInput != INVALID_NUMBER && 1 <= userIntInput && userIntInput <= numberOfCommands) {
+        // The input is valid (return it)
+        return (int) userIntInput;
+      }
 
       // The input was not valid (report to the user)
       System.out.println("That is not a valid command.");
@@ -60,8 +338,9 @@ public class InputScanner {
    * @return the valid user-entered string.
    */
   public String getLine() {
-    System.out.print("Enter here: ");
-    return scanner.nextLine();
+    prompt("Enter here: ");
+    readLine();
+    return new String(line, 0, lineLength);
   }
 
   /**
@@ -75,20 +354,19 @@ public class InputScanner {
     while (true) {
 
       // Prompt and get an input
-      System.out.print("Enter a whole number no less than " + minimum + ": ");
-      String input = scanner.nextLine();
+      if (isInteractive) {
+        System.out.print("Enter a whole number no less than " + minimum + ": ");
+      }
+      readLine();
 
-      try {
-        // Attempt to convert the line into an integer
-        int intInput = Integer.parseInt(input);
+      // Attempt to convert the line into an integer
+      long intInput = parseNumber(0, lineLength);
         
-        // Ensure the integer is above the minimum
-        if (minimum <= intInput) {
-          // The input is valid (return it)
-          return intInput;
-        }
-
-      } catch (NumberFormatException e) { /* The integer conversion failed */ }
+      // Ensure the integer is above the minimum
+      if (intInput != INVALID_NUMBER && minimum <= intInput) {
+        // The input is valid (return it)
+        return (int) intInput;
+      }
 
       // The input was not valid (report to the user)
       System.out.println("Sorry, that is not a valid number.");
@@ -113,19 +391,19 @@ public class InputScanner {
     while (true) {
 
       // Prompt and get an input
-      System.out.print("Enter a whole number from " + minimum + " to " + maximum + ": ");
-      String input = scanner.nextLine();
+      if (isInteractive) {
+        System.out.print("Enter a whole number from " + minimum + " to " + maximum + ": ");
+      }
+      readLine();
 
-      try {
-        // Attempt to convert the line into an integer
-        int intInput = Integer.parseInt(input);
+      // Attempt to convert the line into an integer
+      long intInput = parseNumber(0, lineLength);
         
-        // Ensure the integer is within the proper interval
-        if (minimum <= intInput && intInput <= maximum) {
-          // The input is valid (return it)
-          return intInput;
-        }
-      } catch (NumberFormatException e) { /* The integer conversion failed */ }
+      // Ensure the integer is within the proper interval
+      if (intInput != INVALID_NUMBER && minimum <= intInput && intInput <= maximum) {
+        // The input is valid (return it)
+        return (int) intInput;
+      }
 
       // The input was not valid (report to the user)
       System.out.println("Sorry, that is not a valid number.");
@@ -133,6 +411,59 @@ public class InputScanner {
     }
   }
 
+  /**
+   * Get a list of integers greater than or equal to a specified minimum (separated by spaces or commas) from the user.
+   * @param minimum the minimum value for accepted numbers.
+   * @return the valid user-entered ints in the order they were entered.
+   */
+  public int[] getIntsWithMinimum(int minimum) {
+
+    // Iterate until a valid input is returned
+    while (true) {
+
+      // Prompt and get an input
+      if (isInteractive) {
+        System.out.print("Enter whole numbers no less than " + minimum + " (separated by spaces or commas): ");
+      }
+      readLine();
+
+      int[] numbers = new int[16];
+      int count = 0;
+      boolean isValid = true;
+
+      // Parse each run of characters between separators
+      int start = 0;
+      while (start < lineLength && isValid) {
+
+        int end = start;
+        while (end < lineLength && line[end] != ',' && !Character.isWhitespace(line[end])) {
+          end++;
+        }
+
+        if (end > start) {
+          long number = parseNumber(start, end);
+          isValid = number != INVALID_NUMBER && minimum <= number;
+
+          if (count == numbers.length) {
+            numbers = Arrays.copyOf(numbers, 2 * count);
+          }
+          numbers[count++] = (int) number;
+        }
+
+        start = end + 1;
+      }
+
+      if (isValid && count > 0) {
+        // The input is valid (return it)
+        return Arrays.copyOf(numbers, count);
+      }
+
+      // The input was not valid (report to the user)
+      System.out.println("Sorry, that is not a valid list of numbers.");
+
+    }
+  }
+
   /**
    * Input method that gets a date in the form mm/dd/yyyy or mm.dd.yyyy.
    * @return the valid user-entered date.
@@ -143,20 +474,23 @@ public class InputScanner {
     while (true) {
 
       // Prompt and get an input
-      System.out.print("Enter a date (MM/DD/YYYY): ");
-      String input = scanner.nextLine().trim();
+      prompt("Enter a date (MM/DD/YYYY): ");
+      readLine();
+      int start = getTrimmedStart();
+      int end = getTrimmedEnd();
 
       try {
 
         // Attempt to convert the line into a date
-        if (input.length() == 10 && (input.charAt(2) == '/' || input.charAt(2) == '.') && (input.charAt(5) == '/' || input.charAt(5) == '.')) {
-          int month = Integer.parseInt(input.substring(0, 2));
-          int day = Integer.parseInt(input.substring(3, 5));
-          int year = Integer.parseInt(input.substring(6));
-          return LocalDate.of(year, month, day);
+        if (end - start == 10 && (line[start + 2] == '/' || line[start + 2] == '.') && (line[start + 5] == '/' || line[start + 5] == '.')) {
+          long month = parseNumber(start, start + 2);
+          long day = parseNumber(start + 3, start + 5);
+          long year = parseNumber(start + 6, end);
+          if (month != INVALID_NUMBER && day != INVALID_NUMBER && year != INVALID_NUMBER) {
+            return LocalDate.of((int) year, (int) month, (int) day);
+          }
         }
 
-      } catch (NumberFormatException e) { // The date conversion failed
       } catch (DateTimeException e) { /* The date conversion failed */ }
 
       // The input was not valid (report to the user)
@@ -174,24 +508,13 @@ public class InputScanner {
     while(true) {
 
       // Prompt and get an input
-      System.out.print("Enter a day of the week: ");
-      String input = scanner.nextLine().trim().toLowerCase();
+      prompt("Enter a day of the week: ");
+      readLine();
 
       // Check for a valid responses (a day of the week) and return the appropriate value if the input matches
-      if (input.equals("sunday")) {
-        return 1;
-      } else if (input.equals("monday")) {
-        return 2;
-      } else if (input.equals("tuesday")) {
-        return 3;
-      } else if (input.equals("wednesday")) {
-        return 4;
-      } else if (input.equals("thursday")) {
-        return 5;
-      } else if (input.equals("friday")) {
-        return 6;
-      } else if (input.equals("saturday")) {
-        return 7;
+      int dayIndex = matchTrimmedLine(DAY_OF_WEEK_RESPONSES);
+      if (dayIndex != -1) {
+        return dayIndex + 1;
       }
 
       // The input was not valid (report to the user)
@@ -212,12 +535,13 @@ public class InputScanner {
     while (true) {
 
       // Prompt and get an input
-      System.out.print("Enter a phone number: ");
-      String input = scanner.nextLine().trim();
+      prompt("Enter a phone number: ");
+      readLine();
+      String input = new String(line, 0, lineLength).trim();
 
       // Check if the input is equivalent to "N/A" or is long enough
       if (input.toUpperCase().equals("N/A")) {
-        return "N/A";
+        return StringPool.NOT_AVAILABLE;
       } else if (input.length() >= 7) {
         // Return the input if a digit character is found
         for (int index = 0; index < input.length(); index++) {
@@ -241,8 +565,9 @@ public class InputScanner {
     while (true) {
 
       // Prompt and get an input
-      System.out.print("Enter an email address: ");
-      String input = scanner.nextLine().trim();
+      prompt("Enter an email address: ");
+      readLine();
+      String input = new String(line, 0, lineLength).trim();
 
       // Get the indices of '@' and '.' in the input (if present)
       int atSymbolIndex = input.indexOf('@');
@@ -250,7 +575,7 @@ public class InputScanner {
 
       // Check if the input is equivalent to "N/A" or is a probable email address
       if (input.toUpperCase().equals("N/A")) {
-        return "N/A";
+        return StringPool.NOT_AVAILABLE;
 
       } else if (input.length() >= 7 && atSymbolIndex != -1 && dotSymbolIndex != -1 && atSymbolIndex < dotSymbolIndex) {
         return input;
@@ -272,14 +597,13 @@ public class InputScanner {
     while (true) {
 
       // Prompt and get an input
-      System.out.print("Enter \"y\" or \"n\": ");
-      String input = scanner.nextLine().trim().toLowerCase();
+      prompt("Enter \"y\" or \"n\": ");
+      readLine();
 
       // Check for some basic responses and return the appropriate value if the input matches
-      if (input.equals("y") || input.equals("y.") || input.equals("yes") || input.equals("yes.") || input.equals("t")) {
-        return true;
-      } else if (input.equals("n") || input.equals("n.") || input.equals("no") || input.equals("no.") || input.equals("f")) {
-        return false;
+      int responseIndex = matchTrimmedLine(BOOLEAN_RESPONSES);
+      if (responseIndex != -1) {
+        return responseIndex < TRUE_RESPONSE_COUNT;
       }
 
       // The input was not valid (report to the user)
@@ -1,6 +1,9 @@
 import java.util.TreeMap;
 import java.time.LocalDate;
 import java.io.Serializable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
 
 /**
  * The Patient class provides a model for the creation of Patient objects. Patients are the sole recipients of vaccine doses in our program. 
@@ -12,6 +15,9 @@ public class Patient extends Person implements Serializable, Comparable<Patient>
   /** The serial version used when decoding. */
   private static final long serialVersionUID = 1100L;
 
+  /** The bitmask of every day of the week. */
+  public static final int ALL_DAYS = (1 << 7) - 1;
+
   /** A unique identifying number used by the Register. */
   private int patientID;
 
@@ -24,6 +30,18 @@ public class Patient extends Person implements Serializable, Comparable<Patient>
   /** The mapping of question keys to the patient's responses to the questions. */
   private TreeMap<String, Boolean> medicalResponses;
 
+  /** The bitmask of the key ordinals (as assigned by the Register) the patient responded yes to. */
+  private long positiveResponseMask;
+
+  /** The bitmask of the key ordinals (as assigned by the Register) the patient responded to. */
+  private long answeredResponseMask;
+
+  /** The bitmask of the days of the week the patient is available (where bit 0 is Sunday and bit 6 is Saturday), or 0 if the patient is available every day. */
+  private int availableDays;
+
+  /** The ordinal of the patient's record in their register's columnar store (set by the Register, and restored when the register is loaded). */
+  private transient int columnOrdinal;
+
   /**
    * Constructor that takes the name, phone number, and email address.
    * @param name the initial name.
@@ -52,6 +70,23 @@ public class Patient extends Person implements Serializable, Comparable<Patient>
     medicalResponses = new TreeMap<String, Boolean>();
   }
 
+  /**
+   * Restore the fields after the patient is read from a save state, replacing the questionnaire keys with their canonical instances (a save state shares one instance of each key, but not with the keys already in the pool).
+   * @param stream the stream the patient is being read from.
+   * @throws IOException if the stream cannot be read.
+   * @throws ClassNotFoundException if a class of a serialized object cannot be found.
+   */
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+
+    stream.defaultReadObject();
+
+    TreeMap<String, Boolean> canonicalResponses = new TreeMap<String, Boolean>();
+    for (var pairing : medicalResponses.entrySet()) {
+      canonicalResponses.put(StringPool.canonicalize(pairing.getKey()), pairing.getValue());
+    }
+    medicalResponses = canonicalResponses;
+  }
+
   /**
    * Setter for the patient ID.
    * @param patientID the new ID.
@@ -68,6 +103,22 @@ public class Patient extends Person implements Serializable, Comparable<Patient>
     return patientID;
   }
 
+  /**
+   * Setter for the column ordinal (this is only used by the Register).
+   * @param columnOrdinal the ordinal of the patient's record in the register's columnar store.
+   */
+  void setColumnOrdinal(int columnOrdinal) {
+    this.columnOrdinal = columnOrdinal;
+  }
+
+  /**
+   * Getter for the column ordinal.
+   * @return the ordinal of the patient's record in the register's columnar store.
+   */
+  int getColumnOrdinal() {
+    return columnOrdinal;
+  }
+
   /**
    * Setter for the birthdate.
    * @param birthdate the new birthdate.
@@ -106,7 +157,7 @@ public class Patient extends Person implements Serializable, Comparable<Patient>
    * @param truthValue the response of the new pairing.
    */
   public void appendMedicalBoolean(String key, boolean truthValue) {
-    medicalResponses.put(key, truthValue);
+    medicalResponses.put(StringPool.canonicalize(key), truthValue);
   }
 
   /**
@@ -118,12 +169,106 @@ public class Patient extends Person implements Serializable, Comparable<Patient>
     return medicalResponses.get(key);
   }
 
+  /**
+   * Set the days of the week the patient is available (this must be set before the patient is added to a Register, and Register.setAvailableDays is used after).
+   * @param availableDays the bitmask of the days of the week the patient is available (where bit 0 is Sunday and bit 6 is Saturday).
+   * @throws IllegalArgumentException if the bitmask has no days or has bits for other days.
+   */
+  public void setAvailableDays(int availableDays) {
+
+    if (availableDays <= 0 || availableDays > ALL_DAYS) {
+      throw new IllegalArgumentException("illegal available days bitmask: " + availableDays);
+    }
+
+    this.availableDays = (availableDays == ALL_DAYS) ? 0 : availableDays;
+  }
+
+  /**
+   * Getter for the days of the week the patient is available.
+   * @return the bitmask of the days of the week the patient is available (where bit 0 is Sunday and bit 6 is Saturday).
+   */
+  public int getAvailableDays() {
+    return availableDays == 0 ? ALL_DAYS : availableDays;
+  }
+
+  /**
+   * Check whether the patient is only available on some days of the week.
+   * @return whether the patient's availability is restricted.
+   */
+  public boolean hasRestrictedAvailability() {
+    return availableDays != 0;
+  }
+
+  /**
+   * Check whether the patient is available on a day of the week.
+   * @param dayIndex the day of the week (where 1 is Sunday and 7 is Saturday).
+   * @return whether the patient is available.
+   */
+  public boolean isAvailableOn(int dayIndex) {
+    return (getAvailableDays() & (1 << (dayIndex - 1))) != 0;
+  }
+
+  /**
+   * Set the response bitmasks (these are computed by the Register from the medical responses).
+   * @param positiveResponseMask the bitmask of the key ordinals responded yes to.
+   * @param answeredResponseMask the bitmask of the key ordinals responded to.
+   */
+  public void setResponseMasks(long positiveResponseMask, long answeredResponseMask) {
+    this.positiveResponseMask = positiveResponseMask;
+    this.answeredResponseMask = answeredResponseMask;
+  }
+
+  /**
+   * Getter for the bitmask of the key ordinals responded yes to.
+   * @return the positive response bitmask.
+   */
+  public long getPositiveResponseMask() {
+    return positiveResponseMask;
+  }
+
+  /**
+   * Getter for the bitmask of the key ordinals responded to.
+   * @return the answered response bitmask.
+   */
+  public long getAnsweredResponseMask() {
+    return answeredResponseMask;
+  }
+
+  /**
+   * Get the mapping of question keys to responses (it is not recommended that the returned mapping be modified).
+   * @return the medical responses.
+   */
+  public TreeMap<String, Boolean> getMedicalResponses() {
+    return medicalResponses;
+  }
+
   /**
    * Get a string of the form "*name*:   ID: *ID*, phone: *phone number*, email: *email address*".
    * @return the basic contact information string.
    */
   public String getContactDetails() {
-    return name + "   ID: " + patientID + ", phone: " + phone + ", email: " + email;
+
+    StringBuilder result = new StringBuilder();
+
+    try {
+      appendContactDetailsTo(result);
+    } catch (IOException e) {
+      // A StringBuilder does not throw IOExceptions (this will not happen)
+      throw new UncheckedIOException(e);
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Append the contact details (as returned by getContactDetails) without building intermediate strings.
+   * @param out the Appendable to append to.
+   * @throws IOException if the Appendable throws one.
+   */
+  public void appendContactDetailsTo(Appendable out) throws IOException {
+    out.append(name).append("   ID: ");
+    BasicFormatter.appendNumber(out, patientID);
+    out.append(", phone: ").append(phone).append(", email: ").append(email);
   }
 
   /**
@@ -143,18 +288,31 @@ public class Patient extends Person implements Serializable, Comparable<Patient>
   }
 
   /**
-   * Get a string representation of the instance.
-   * @return the string representation. 
+   * Append a string representation of the instance.
+   * @param out the Appendable to append to.
+   * @throws IOException if the Appendable throws one.
    */
   @Override
-  public String toString() {
-    String result = name + " (patient)\n\tPhone: " + phone + "\n\tEmail: " + email + "\n\tBirthdate: " + BasicFormatter.getDateString(birthdate) + "\n\tPatient ID: " + patientID;
+  public void appendTo(Appendable out) throws IOException {
 
-    // Append the questionnaire responses to the result
-    for (var pairing : medicalResponses.entrySet()) {
-      result += "\n\t" + pairing.getKey() + ": " + (pairing.getValue() ? "yes" : "no");
+    out.append(name).append(" (patient)\n\tPhone: ").append(phone).append("\n\tEmail: ").append(email).append("\n\tBirthdate: ");
+    BasicFormatter.appendDate(out, birthdate);
+    out.append("\n\tPatient ID: ");
+    BasicFormatter.appendNumber(out, patientID);
+
+    // Append the available days (if the patient is not available every day)
+    if (hasRestrictedAvailability()) {
+      out.append("\n\tAvailable:");
+      for (int dayIndex = 1; dayIndex <= 7; dayIndex++) {
+        if (isAvailableOn(dayIndex)) {
+          out.append(' ').append(BasicFormatter.getDayOfWeekName(dayIndex));
+        }
+      }
     }
 
-    return result;
+    // Append the questionnaire responses
+    for (var pairing : medicalResponses.entrySet()) {
+      out.append("\n\t").append(pairing.getKey()).append(": ").append(pairing.getValue() ? "yes" : "no");
+    }
   }
 }
\ No newline at end of file
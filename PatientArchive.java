@@ -0,0 +1,637 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.time.LocalDate;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The PatientArchive class is the cold store for patients who have left a register (because they were vaccinated or removed), so their records are kept without the register (and its save state) growing with them.
+ * The archive is an append-only file of segments. Each segment holds up to SEGMENT_SIZE patients archived together, with a checksummed section of their IDs (delta encoded) followed by a checksummed, compressed section of their records (each field written in turn, with the questionnaire keys written once per segment). Opening the archive reads only the ID sections to build the ID index, and a lookup decompresses the one segment holding the patient (the last segment read is kept). A segment left incomplete by an interrupted append is cut off when the archive is next opened.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class PatientArchive {
+
+  /** The value that starts an archive file. */
+  private static final int FILE_MAGIC = 0x50415243;
+  /** The version of the archive format. */
+  private static final int FORMAT_VERSION = 1;
+  /** The length of the file header (the magic value and the format version). */
+  private static final int FILE_HEADER_LENGTH = 8;
+
+  /** The value that starts each segment. */
+  private static final int SEGMENT_MAGIC = 0x5345474D;
+  /** The length of a segment header (the magic value, patient count, archive date, reason, section lengths, and section checksums). */
+  private static final int SEGMENT_HEADER_LENGTH = 41;
+
+  /** The maximum number of patients in a segment. */
+  static final int SEGMENT_SIZE = 1024;
+
+  /** The name of the archive file. */
+  private final String fileName;
+  /** The length of the archive file (the end of the last complete segment). */
+  private long fileLength;
+
+  /** The mapping of segment numbers to their positions in the file. */
+  private long[] segmentOffsets;
+  /** The mapping of segment numbers to the dates their patients were archived (as epoch days). */
+  private long[] segmentArchiveDays;
+  /** The mapping of segment numbers to whether their patients were vaccinated (rather than removed). */
+  private boolean[] segmentVaccinations;
+  /** The number of segments. */
+  private int segmentCount;
+  /** The number of segments skipped when the archive was opened because their ID sections were damaged. */
+  private int damagedSegmentCount;
+
+  /** The ID index, where each entry is a patient ID (in the upper 32 bits) and the number of the segment holding them (in the lower 32 bits). */
+  private long[] entries;
+  /** The number of entries in the ID index. */
+  private int entryCount;
+  /** Whether the ID index is sorted (it is sorted before the next lookup after patients with lower IDs are archived). */
+  private boolean isIndexSorted;
+  /** The largest archived patient ID (or -1 if none have been archived). */
+  private int maximumPatientID;
+
+  /** The number of the segment whose patients were last decompressed (or -1 if none have been). */
+  private int cachedSegment;
+  /** The patients of the cached segment in the order of their IDs. */
+  private Patient[] cachedPatients;
+
+  /**
+   * Helper constructor for an empty archive file.
+   * @param fileName the name of the archive file.
+   */
+  private PatientArchive(String fileName) {
+    this.fileName = fileName;
+    segmentOffsets = new long[16];
+    segmentArchiveDays = new long[16];
+    segmentVaccinations = new boolean[16];
+    entries = new long[1024];
+    isIndexSorted = true;
+    maximumPatientID = -1;
+    cachedSegment = -1;
+  }
+
+  /**
+   * Open an archive file (creating it if it does not exist) and build its ID index.
+   * @param fileName the name of the archive file.
+   * @return the archive.
+   * @throws IOException if the file cannot be read or created, or it is not an archive.
+   */
+  public static PatientArchive open(String fileName) throws IOException {
+
+    PatientArchive archive = new PatientArchive(fileName);
+
+    try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+
+      // Write the header of a new archive
+      if (file.length() == 0) {
+        file.writeInt(FILE_MAGIC);
+        file.writeInt(FORMAT_VERSION);
+        archive.fileLength = FILE_HEADER_LENGTH;
+        return archive;
+      }
+
+      if (file.length() < FILE_HEADER_LENGTH || file.readInt() != FILE_MAGIC || file.readInt() != FORMAT_VERSION) {
+        throw new IOException(fileName + " is not a patient archive");
+      }
+
+      // Read the ID section of each complete segment
+      long length = file.length();
+      long offset = FILE_HEADER_LENGTH;
+      byte[] header = new byte[SEGMENT_HEADER_LENGTH];
+
+      while (offset + SEGMENT_HEADER_LENGTH <= length) {
+
+        file.seek(offset);
+        file.readFully(header);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+
+        if (headerBuffer.getInt() != SEGMENT_MAGIC) {
+          break;
+        }
+
+        int count = headerBuffer.getInt();
+        long archiveDay = headerBuffer.getLong();
+        boolean wereVaccinated = headerBuffer.get() != 0;
+        int idLength = headerBuffer.getInt();
+        int recordLength = headerBuffer.getInt();
+        long idChecksum = headerBuffer.getLong();
+
+        long segmentEnd = offset + SEGMENT_HEADER_LENGTH + idLength + (long) recordLength;
+        if (count < 0 || idLength < count || recordLength < 0 || segmentEnd > length) {
+          break;
+        }
+
+        byte[] idSection = new byte[idLength];
+        file.readFully(idSection);
+
+        int[] patientIDs = checksum(idSection) == idChecksum ? decodeIDs(idSection, count) : null;
+        int segment = archive.addSegment(offset, archiveDay, wereVaccinated);
+
+        if (patientIDs == null) {
+          archive.damagedSegmentCount++;
+        } else {
+          archive.addEntries(patientIDs, segment);
+        }
+
+        offset = segmentEnd;
+      }
+
+      // Cut off anything after the last complete segment (left by an interrupted append)
+      if (offset < length) {
+        file.setLength(offset);
+      }
+      archive.fileLength = offset;
+    }
+
+    return archive;
+  }
+
+  /**
+   * Helper method that computes the checksum of a section.
+   * @param section the section.
+   * @return the CRC32 checksum of the section.
+   */
+  private static long checksum(byte[] section) {
+    CRC32 checksum = new CRC32();
+    checksum.update(section);
+    return checksum.getValue();
+  }
+
+  /**
+   * Helper method that encodes sorted IDs as variable-length gaps (seven bits per byte, with the high bit set on all but the last byte of each gap).
+   * @param patients the patients in the order of their IDs.
+   * @return the encoded IDs.
+   */
+  private static byte[] encodeIDs(Patient[] patients) {
+
+    ByteArrayOutputStream section = new ByteArrayOutputStream(patients.length * 2);
+    long previousID = -1;
+
+    for (Patient patient : patients) {
+      long gap = patient.getPatientID() - previousID;
+      while (gap >= 0x80) {
+        section.write((int) (gap & 0x7F) | 0x80);
+        gap >>>= 7;
+      }
+      section.write((int) gap);
+      previousID = patient.getPatientID();
+    }
+
+    return section.toByteArray();
+  }
+
+  /**
+   * Helper method that decodes the IDs of a segment.
+   * @param section the encoded IDs.
+   * @param count the number of IDs.
+   * @return the IDs in ascending order or null if the section does not hold count IDs.
+   */
+  private static int[] decodeIDs(byte[] section, int count) {
+
+    int[] patientIDs = new int[count];
+    long previousID = -1;
+    int position = 0;
+
+    for (int index = 0; index < count; index++) {
+
+      long gap = 0;
+      int shift = 0;
+      int value;
+      do {
+        if (position == section.length || shift > 28) {
+          return null;
+        }
+        value = section[position++];
+        gap |= (long) (value & 0x7F) << shift;
+        shift += 7;
+      } while ((value & 0x80) != 0);
+
+      previousID += gap;
+      if (previousID > Integer.MAX_VALUE) {
+        return null;
+      }
+      patientIDs[index] = (int) previousID;
+    }
+
+    return position == section.length ? patientIDs : null;
+  }
+
+  /**
+   * Helper method that records a segment.
+   * @param offset the position of the segment in the file.
+   * @param archiveDay the date the segment's patients were archived (as an epoch day).
+   * @param wereVaccinated whether the segment's patients were vaccinated.
+   * @return the number of the segment.
+   */
+  private int addSegment(long offset, long archiveDay, boolean wereVaccinated) {
+
+    if (segmentCount == segmentOffsets.length) {
+      segmentOffsets = Arrays.copyOf(segmentOffsets, 2 * segmentCount);
+      segmentArchiveDays = Arrays.copyOf(segmentArchiveDays, 2 * segmentCount);
+      segmentVaccinations = Arrays.copyOf(segmentVaccinations, 2 * segmentCount);
+    }
+
+    segmentOffsets[segmentCount] = offset;
+    segmentArchiveDays[segmentCount] = archiveDay;
+    segmentVaccinations[segmentCount] = wereVaccinated;
+    return segmentCount++;
+  }
+
+  /**
+   * Helper method that adds a segment's patients to the ID index.
+   * @param patientIDs the IDs of the segment's patients.
+   * @param segment the number of the segment.
+   */
+  private void addEntries(int[] patientIDs, int segment) {
+
+    if (entryCount + patientIDs.length > entries.length) {
+      entries = Arrays.copyOf(entries, Math.max(entryCount + patientIDs.length, 2 * entries.length));
+    }
+
+    for (int patientID : patientIDs) {
+      long entry = ((long) patientID << 32) | segment;
+      if (entryCount > 0 && entries[entryCount - 1] > entry) {
+        isIndexSorted = false;
+      }
+      entries[entryCount++] = entry;
+      maximumPatientID = Math.max(maximumPatientID, patientID);
+    }
+  }
+
+  /**
+   * Move patients into the archive (appending them as new segments, which are forced to the disk before this returns).
+   * @param patients the patients to archive.
+   * @param archiveDate the date the patients are archived.
+   * @param wereVaccinated whether the patients were vaccinated (rather than removed).
+   * @throws IOException if the archive file cannot be written to (the archive is then unchanged, though the file may end in an incomplete segment that is cut off when it is next opened).
+   */
+  public void append(Collection<Patient> patients, LocalDate archiveDate, boolean wereVaccinated) throws IOException {
+
+    if (patients.isEmpty()) {
+      return;
+    }
+
+    // Sort the patients by ID (sorting packed IDs and positions, which is much faster than comparing the patients)
+    Patient[] unsortedPatients = patients.toArray(new Patient[0]);
+    long[] sortKeys = new long[unsortedPatients.length];
+    for (int index = 0; index < unsortedPatients.length; index++) {
+      sortKeys[index] = ((long) unsortedPatients[index].getPatientID() << 32) | index;
+    }
+    Arrays.sort(sortKeys);
+
+    Patient[] sortedPatients = new Patient[unsortedPatients.length];
+    for (int index = 0; index < sortKeys.length; index++) {
+      sortedPatients[index] = unsortedPatients[(int) sortKeys[index]];
+    }
+
+    // Encode every segment first, so the file is written in one piece
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    ArrayList<Long> offsets = new ArrayList<Long>();
+
+    for (int start = 0; start < sortedPatients.length; start += SEGMENT_SIZE) {
+      offsets.add(fileLength + buffer.size());
+      writeSegment(new DataOutputStream(buffer), Arrays.copyOfRange(sortedPatients, start, Math.min(start + SEGMENT_SIZE, sortedPatients.length)), archiveDate.toEpochDay(), wereVaccinated);
+    }
+
+    try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+      file.seek(fileLength);
+      file.write(buffer.toByteArray());
+      file.getFD().sync();
+    }
+
+    // Index the new segments
+    fileLength += buffer.size();
+    for (int index = 0; index < offsets.size(); index++) {
+      int start = index * SEGMENT_SIZE;
+      int[] patientIDs = new int[Math.min(SEGMENT_SIZE, sortedPatients.length - start)];
+      for (int position = 0; position < patientIDs.length; position++) {
+        patientIDs[position] = sortedPatients[start + position].getPatientID();
+      }
+      addEntries(patientIDs, addSegment(offsets.get(index), archiveDate.toEpochDay(), wereVaccinated));
+    }
+  }
+
+  /**
+   * Helper method that writes a segment.
+   * @param output the stream to write to.
+   * @param patients the segment's patients in the order of their IDs.
+   * @param archiveDay the date the patients are archived (as an epoch day).
+   * @param wereVaccinated whether the patients were vaccinated.
+   * @throws IOException if the stream cannot be written to.
+   */
+  private static void writeSegment(DataOutputStream output, Patient[] patients, long archiveDay, boolean wereVaccinated) throws IOException {
+
+    byte[] idSection = encodeIDs(patients);
+
+    // Compress the records
+    ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DataOutputStream recordWriter = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(recordBuffer, deflater)))) {
+      writeRecords(recordWriter, patients);
+    } finally {
+      deflater.end();
+    }
+    byte[] recordSection = recordBuffer.toByteArray();
+
+    output.writeInt(SEGMENT_MAGIC);
+    output.writeInt(patients.length);
+    output.writeLong(archiveDay);
+    output.writeByte(wereVaccinated ? 1 : 0);
+    output.writeInt(idSection.length);
+    output.writeInt(recordSection.length);
+    output.writeLong(checksum(idSection));
+    output.writeLong(checksum(recordSection));
+    output.write(idSection);
+    output.write(recordSection);
+  }
+
+  /**
+   * Helper method that writes the records of a segment's patients (other than their IDs, which are in the ID section). The questionnaire keys the patients answered are written once, and each response refers to its key by position.
+   * @param output the stream to write to.
+   * @param patients the patients in the order of their IDs.
+   * @throws IOException if the stream cannot be written to.
+   */
+  private static void writeRecords(DataOutputStream output, Patient[] patients) throws IOException {
+
+    // Write the questionnaire keys
+    HashMap<String, Integer> keyPositions = new HashMap<String, Integer>();
+    for (Patient patient : patients) {
+      for (String key : patient.getMedicalResponses().keySet()) {
+        keyPositions.putIfAbsent(key, keyPositions.size());
+      }
+    }
+
+    String[] keys = new String[keyPositions.size()];
+    for (Map.Entry<String, Integer> keyPosition : keyPositions.entrySet()) {
+      keys[keyPosition.getValue()] = keyPosition.getKey();
+    }
+
+    output.writeInt(keys.length);
+    for (String key : keys) {
+      output.writeUTF(key);
+    }
+
+    // Write each patient's fields (a birthdate of Long.MIN_VALUE means none was given)
+    for (Patient patient : patients) {
+      output.writeUTF(patient.getName());
+      output.writeUTF(patient.getPhone());
+      output.writeUTF(patient.getEmail());
+      output.writeLong(patient.getBirthdate() == null ? Long.MIN_VALUE : patient.getBirthdate().toEpochDay());
+      output.writeInt(patient.getPriorityWeight());
+      output.writeByte(patient.getAvailableDays());
+      output.writeLong(patient.getPositiveResponseMask());
+      output.writeLong(patient.getAnsweredResponseMask());
+
+      // Write each response as its key's position and its truth value (in the lowest bit)
+      output.writeInt(patient.getMedicalResponses().size());
+      for (Map.Entry<String, Boolean> response : patient.getMedicalResponses().entrySet()) {
+        output.writeInt(keyPositions.get(response.getKey()) << 1 | (response.getValue() ? 1 : 0));
+      }
+    }
+  }
+
+  /**
+   * Helper method that reads the records of a segment's patients.
+   * @param input the stream to read from.
+   * @param patientIDs the IDs of the segment's patients.
+   * @return the patients in the order of their IDs.
+   * @throws IOException if the stream cannot be read or the records are not valid.
+   */
+  private static Patient[] readRecords(DataInputStream input, int[] patientIDs) throws IOException {
+
+    String[] keys = new String[input.readInt()];
+    for (int position = 0; position < keys.length; position++) {
+      keys[position] = input.readUTF();
+    }
+
+    Patient[] patients = new Patient[patientIDs.length];
+
+    for (int index = 0; index < patients.length; index++) {
+
+      Patient patient = new Patient(input.readUTF(), input.readUTF(), input.readUTF());
+      patient.setPatientID(patientIDs[index]);
+
+      long birthEpochDay = input.readLong();
+      if (birthEpochDay != Long.MIN_VALUE) {
+        patient.setBirthdate(LocalDate.ofEpochDay(birthEpochDay));
+      }
+
+      patient.setPriorityWeight(input.readInt());
+      patient.setAvailableDays(input.readByte());
+      patient.setResponseMasks(input.readLong(), input.readLong());
+
+      int responseCount = input.readInt();
+      for (int response = 0; response < responseCount; response++) {
+        int keyAndValue = input.readInt();
+        patient.appendMedicalBoolean(keys[keyAndValue >>> 1], (keyAndValue & 1) != 0);
+      }
+
+      patients[index] = patient;
+    }
+
+    return patients;
+  }
+
+  /**
+   * Helper method that finds the segment holding a patient (the most recently archived one if the patient was archived more than once).
+   * @param patientID the ID of the patient.
+   * @return the number of the segment or -1 if the patient is not archived.
+   */
+  private int findSegment(int patientID) {
+
+    if (!isIndexSorted) {
+      Arrays.sort(entries, 0, entryCount);
+      isIndexSorted = true;
+    }
+
+    // Find the last entry for the ID
+    int position = Arrays.binarySearch(entries, 0, entryCount, ((long) patientID + 1) << 32);
+    position = (position >= 0 ? position : -position - 1) - 1;
+
+    if (position < 0 || (int) (entries[position] >>> 32) != patientID) {
+      return -1;
+    }
+    return (int) entries[position];
+  }
+
+  /**
+   * Helper method that reads and decompresses the patients of a segment (keeping them for the next lookup).
+   * @param segment the number of the segment.
+   * @return the segment's patients in the order of their IDs.
+   * @throws IOException if the segment cannot be read or is damaged.
+   */
+  private Patient[] readSegment(int segment) throws IOException {
+
+    if (segment == cachedSegment) {
+      return cachedPatients;
+    }
+
+    byte[] idSection;
+    byte[] recordSection;
+    int[] patientIDs;
+
+    try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+
+      byte[] header = new byte[SEGMENT_HEADER_LENGTH];
+      file.seek(segmentOffsets[segment]);
+      file.readFully(header);
+
+      ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+      int count = headerBuffer.getInt(4);
+      idSection = new byte[headerBuffer.getInt(17)];
+      recordSection = new byte[headerBuffer.getInt(21)];
+      long recordChecksum = headerBuffer.getLong(33);
+
+      // The ID section was checked when the archive was opened
+      file.readFully(idSection);
+      file.readFully(recordSection);
+      patientIDs = decodeIDs(idSection, count);
+
+      if (checksum(recordSection) != recordChecksum) {
+        throw new IOException("the archived records at offset " + segmentOffsets[segment] + " of " + fileName + " are damaged");
+      }
+    }
+
+    try (DataInputStream recordReader = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(recordSection))))) {
+      cachedPatients = readRecords(recordReader, patientIDs);
+      cachedSegment = segment;
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      throw new IOException("the archived records at offset " + segmentOffsets[segment] + " of " + fileName + " cannot be decoded", e);
+    }
+
+    return cachedPatients;
+  }
+
+  /**
+   * Find an archived patient by ID.
+   * @param patientID the ID of the patient.
+   * @return the archived record of the patient (the most recent one if the patient was archived more than once) or null if the patient is not archived.
+   * @throws IOException if the archive file cannot be read or the patient's segment is damaged.
+   */
+  public Record find(int patientID) throws IOException {
+
+    int segment = findSegment(patientID);
+    if (segment == -1) {
+      return null;
+    }
+
+    // Find the patient in their segment (the segment is sorted by ID)
+    Patient[] patients = readSegment(segment);
+    int low = 0;
+    int high = patients.length - 1;
+
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int middleID = patients[middle].getPatientID();
+
+      if (middleID < patientID) {
+        low = middle + 1;
+      } else if (middleID > patientID) {
+        high = middle - 1;
+      } else {
+        return new Record(patients[middle], LocalDate.ofEpochDay(segmentArchiveDays[segment]), segmentVaccinations[segment]);
+      }
+    }
+
+    throw new IOException("the archived records at offset " + segmentOffsets[segment] + " of " + fileName + " do not match their ID section");
+  }
+
+  /**
+   * Get the number of archived records (a patient archived more than once has a record each time).
+   * @return the number of records that can be found.
+   */
+  public int size() {
+    return entryCount;
+  }
+
+  /**
+   * Get the largest archived patient ID (so a new register can continue numbering after it).
+   * @return the largest ID or -1 if no patients have been archived.
+   */
+  public int getMaximumPatientID() {
+    return maximumPatientID;
+  }
+
+  /**
+   * Get the number of segments skipped when the archive was opened because their ID sections were damaged (their patients cannot be found).
+   * @return the number of damaged segments.
+   */
+  public int getDamagedSegmentCount() {
+    return damagedSegmentCount;
+  }
+
+  /**
+   * Get the name of the archive file.
+   * @return the file name.
+   */
+  public String getFileName() {
+    return fileName;
+  }
+
+  /**
+   * The Record class is an archived patient with the date and reason they were archived.
+   */
+  public static final class Record {
+
+    /** The patient as they were when archived. */
+    private final Patient patient;
+
+    /** The date the patient was archived. */
+    private final LocalDate archiveDate;
+
+    /** Whether the patient was vaccinated (rather than removed). */
+    private final boolean wasVaccinated;
+
+    /**
+     * The sole constructor.
+     * @param patient the patient as they were when archived.
+     * @param archiveDate the date the patient was archived.
+     * @param wasVaccinated whether the patient was vaccinated.
+     */
+    public Record(Patient patient, LocalDate archiveDate, boolean wasVaccinated) {
+      this.patient = patient;
+      this.archiveDate = archiveDate;
+      this.wasVaccinated = wasVaccinated;
+    }
+
+    /**
+     * Getter for the patient.
+     * @return the patient as they were when archived.
+     */
+    public Patient getPatient() {
+      return patient;
+    }
+
+    /**
+     * Getter for the archive date.
+     * @return the date the patient was archived.
+     */
+    public LocalDate getArchiveDate() {
+      return archiveDate;
+    }
+
+    /**
+     * Check whether the patient was vaccinated.
+     * @return whether the patient was vaccinated (rather than removed).
+     */
+    public boolean wasVaccinated() {
+      return wasVaccinated;
+    }
+  }
+}
@@ -0,0 +1,508 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The PatientIndex class indexes a register's patients by ID (a sorted table of IDs) and by name (postings of patient IDs for each three-character substring of the names), so patients can be found without scanning the listing. Both indexes can be encoded as sections of a save state, so that loading a register reuses them instead of rebuilding them.
+ * Postings refer to patients by ID, so the indexes do not change when the listing is reordered. A patient's name must not change while they are indexed.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class PatientIndex {
+
+  /** The length of the substrings names are indexed by. */
+  private static final int GRAM_LENGTH = 3;
+
+  /** The patient IDs in ascending order (the first size are used). */
+  private int[] ids;
+
+  /** The patients in the order of their IDs. */
+  private Patient[] patients;
+
+  /** The number of patients indexed. */
+  private int size;
+
+  /** The mapping of name substrings (as packed by getGram) to the IDs of the patients whose names contain them. */
+  private HashMap<Long, Postings> namePostings;
+
+  /**
+   * The default constructor (for an empty index).
+   */
+  public PatientIndex() {
+    clearIDs();
+    namePostings = new HashMap<Long, Postings>();
+  }
+
+  /**
+   * Create an index of patients.
+   * @param listing the patients to index.
+   * @return the new index.
+   */
+  public static PatientIndex build(List<Patient> listing) {
+    PatientIndex index = new PatientIndex();
+    index.rebuildIDs(listing);
+    index.rebuildNames();
+    return index;
+  }
+
+  /**
+   * Helper method that empties the ID table.
+   */
+  private void clearIDs() {
+    ids = new int[16];
+    patients = new Patient[16];
+    size = 0;
+  }
+
+  /**
+   * Rebuild the ID table from a listing.
+   * @param listing the patients to index.
+   */
+  public void rebuildIDs(List<Patient> listing) {
+
+    // Sort the patients by ID in one pass (adding them one at a time in priority order would shift the table for each)
+    patients = listing.toArray(new Patient[Math.max(listing.size(), 16)]);
+    size = listing.size();
+    Arrays.sort(patients, 0, size, Comparator.comparingInt(Patient::getPatientID));
+
+    ids = new int[patients.length];
+    for (int index = 0; index < size; index++) {
+      ids[index] = patients[index].getPatientID();
+    }
+  }
+
+  /**
+   * Rebuild the name postings from the patients in the ID table.
+   */
+  public void rebuildNames() {
+
+    // Add the patients in the order of their IDs (so each ID is appended to the end of its postings)
+    namePostings = new HashMap<Long, Postings>();
+    for (int index = 0; index < size; index++) {
+      addName(patients[index]);
+    }
+  }
+
+  /**
+   * Get the number of patients indexed.
+   * @return the number of patients.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Add a patient to the index.
+   * @param patient the patient to add (their ID must not already be indexed).
+   */
+  public void add(Patient patient) {
+    addID(patient);
+    addName(patient);
+  }
+
+  /**
+   * Remove a patient from the index (if present).
+   * @param patient the patient to remove.
+   * @return whether the patient was indexed.
+   */
+  public boolean remove(Patient patient) {
+
+    int position = Arrays.binarySearch(ids, 0, size, patient.getPatientID());
+    if (position < 0 || patients[position] != patient) {
+      return false;
+    }
+
+    // Close the gap in the ID table
+    System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+    System.arraycopy(patients, position + 1, patients, position, size - position - 1);
+    size--;
+    patients[size] = null;
+
+    // Remove the patient's ID from the postings of each substring of their name
+    String name = patient.getName();
+    for (int start = 0; start + GRAM_LENGTH <= name.length(); start++) {
+      Long gram = getGram(name, start);
+      Postings postings = namePostings.get(gram);
+      if (postings != null && postings.remove(patient.getPatientID()) && postings.size == 0) {
+        namePostings.remove(gram);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Remove several patients from the index in one pass over the ID table and over the postings of each substring of their names (removing them one at a time would close a gap in the table for each).
+   * @param removedPatients the patients to remove (those not indexed are ignored).
+   */
+  public void removeAll(Collection<Patient> removedPatients) {
+
+    // Find the IDs of the indexed patients to remove, and the substrings of their names
+    int[] removedIDs = new int[removedPatients.size()];
+    int removedCount = 0;
+    HashSet<Long> grams = new HashSet<Long>();
+
+    for (Patient patient : removedPatients) {
+      if (getPatient(patient.getPatientID()) == patient) {
+        removedIDs[removedCount++] = patient.getPatientID();
+        String name = patient.getName();
+        for (int start = 0; start + GRAM_LENGTH <= name.length(); start++) {
+          grams.add(getGram(name, start));
+        }
+      }
+    }
+
+    Arrays.sort(removedIDs, 0, removedCount);
+
+    // Close the gaps in the ID table (walking the sorted removed IDs alongside it)
+    int keptCount = 0;
+    int removedIndex = 0;
+    for (int index = 0; index < size; index++) {
+      while (removedIndex < removedCount && removedIDs[removedIndex] < ids[index]) {
+        removedIndex++;
+      }
+      if (removedIndex == removedCount || removedIDs[removedIndex] != ids[index]) {
+        ids[keptCount] = ids[index];
+        patients[keptCount] = patients[index];
+        keptCount++;
+      }
+    }
+    Arrays.fill(patients, keptCount, size, null);
+    size = keptCount;
+
+    // Remove the IDs from the postings of each substring
+    for (Long gram : grams) {
+      Postings postings = namePostings.get(gram);
+      if (postings != null) {
+        postings.removeAll(removedIDs, removedCount);
+        if (postings.size == 0) {
+          namePostings.remove(gram);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get a patient by ID.
+   * @param patientID the ID of the patient.
+   * @return the patient or null if no patient has the ID.
+   */
+  public Patient getPatient(int patientID) {
+    int position = Arrays.binarySearch(ids, 0, size, patientID);
+    return position >= 0 ? patients[position] : null;
+  }
+
+  /**
+   * Find the patients whose names contain some text.
+   * @param name the text to search for.
+   * @return the matching patients in the order of their IDs, or null if the text is too short to be searched for with the index (in which case the listing must be scanned).
+   */
+  public ArrayList<Patient> findByName(String name) {
+
+    if (name.length() < GRAM_LENGTH) {
+      return null;
+    }
+
+    // Find the substring of the text with the fewest postings (every match must be in them)
+    Postings fewestPostings = null;
+    for (int start = 0; start + GRAM_LENGTH <= name.length(); start++) {
+      Postings postings = namePostings.get(getGram(name, start));
+      if (postings == null) {
+        return new ArrayList<Patient>();
+      } else if (fewestPostings == null || postings.size < fewestPostings.size) {
+        fewestPostings = postings;
+      }
+    }
+
+    // Check the name of each candidate
+    ArrayList<Patient> searchResult = new ArrayList<Patient>();
+    for (int index = 0; index < fewestPostings.size; index++) {
+      Patient candidate = getPatient(fewestPostings.ids[index]);
+      if (candidate != null && candidate.getName().contains(name)) {
+        searchResult.add(candidate);
+      }
+    }
+
+    return searchResult;
+  }
+
+  /**
+   * Helper method that adds a patient to the ID table.
+   * @param patient the patient to add.
+   */
+  private void addID(Patient patient) {
+
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, 2 * size);
+      patients = Arrays.copyOf(patients, 2 * size);
+    }
+
+    // New IDs are usually the largest, so check the end first
+    int position = size;
+    if (size > 0 && ids[size - 1] > patient.getPatientID()) {
+      position = -Arrays.binarySearch(ids, 0, size, patient.getPatientID()) - 1;
+      System.arraycopy(ids, position, ids, position + 1, size - position);
+      System.arraycopy(patients, position, patients, position + 1, size - position);
+    }
+
+    ids[position] = patient.getPatientID();
+    patients[position] = patient;
+    size++;
+  }
+
+  /**
+   * Helper method that adds a patient's ID to the postings of each substring of their name.
+   * @param patient the patient to add.
+   */
+  private void addName(Patient patient) {
+
+    String name = patient.getName();
+
+    for (int start = 0; start + GRAM_LENGTH <= name.length(); start++) {
+      Long gram = getGram(name, start);
+      Postings postings = namePostings.get(gram);
+      if (postings == null) {
+        postings = new Postings(1);
+        namePostings.put(gram, postings);
+      }
+      postings.add(patient.getPatientID());
+    }
+  }
+
+  /**
+   * Helper method that packs a substring of GRAM_LENGTH characters into a long (16 bits per character).
+   * @param text the text the substring is in.
+   * @param start the index of the first character.
+   * @return the packed substring.
+   */
+  private static long getGram(String text, int start) {
+    return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+  }
+
+  /**
+   * Encode the ID table as a save state section (the position in the listing of each patient, in the order of their IDs).
+   * @param listing the listing as it is saved.
+   * @return the section.
+   */
+  public byte[] encodeIDSection(List<Patient> listing) {
+
+    ByteBuffer section = ByteBuffer.allocate(Integer.BYTES * (1 + size));
+    section.putInt(size);
+
+    int[] positions = new int[size];
+    for (int position = 0; position < listing.size(); position++) {
+      positions[Arrays.binarySearch(ids, 0, size, listing.get(position).getPatientID())] = position;
+    }
+
+    for (int position : positions) {
+      section.putInt(position);
+    }
+
+    return section.array();
+  }
+
+  /**
+   * Decode the ID table from a save state section, replacing the current table (the table is left empty if the section does not match the listing).
+   * @param section the section.
+   * @param listing the listing as it was loaded.
+   * @return whether the section was decoded.
+   */
+  public boolean decodeIDSection(ByteBuffer section, List<Patient> listing) {
+
+    clearIDs();
+
+    int count = section.getInt();
+    if (count != listing.size() || section.remaining() != Integer.BYTES * count) {
+      return false;
+    }
+
+    ids = new int[Math.max(count, 16)];
+    patients = new Patient[ids.length];
+
+    // Look up each patient by their position, ensuring the IDs are in ascending order
+    for (int index = 0; index < count; index++) {
+
+      int position = section.getInt();
+      if (position < 0 || position >= count) {
+        clearIDs();
+        return false;
+      }
+
+      Patient patient = listing.get(position);
+      if (index > 0 && ids[index - 1] >= patient.getPatientID()) {
+        clearIDs();
+        return false;
+      }
+
+      ids[index] = patient.getPatientID();
+      patients[index] = patient;
+    }
+
+    size = count;
+    return true;
+  }
+
+  /**
+   * Encode the name postings as a save state section.
+   * @return the section.
+   */
+  public byte[] encodeNameSection() {
+
+    // Find the size of the section
+    int byteCount = Integer.BYTES * 2;
+    for (Postings postings : namePostings.values()) {
+      byteCount += Long.BYTES + Integer.BYTES * (1 + postings.size);
+    }
+
+    ByteBuffer section = ByteBuffer.allocate(byteCount);
+    section.putInt(size);
+    section.putInt(namePostings.size());
+
+    for (Map.Entry<Long, Postings> entry : namePostings.entrySet()) {
+      Postings postings = entry.getValue();
+      section.putLong(entry.getKey());
+      section.putInt(postings.size);
+      for (int index = 0; index < postings.size; index++) {
+        section.putInt(postings.ids[index]);
+      }
+    }
+
+    return section.array();
+  }
+
+  /**
+   * Decode the name postings from a save state section, replacing the current postings (the postings are left empty if the section is not valid).
+   * @param section the section.
+   * @return whether the section was decoded.
+   */
+  public boolean decodeNameSection(ByteBuffer section) {
+
+    namePostings = new HashMap<Long, Postings>();
+
+    // Ensure the postings were saved for the same patients as the ID table
+    if (section.getInt() != size) {
+      return false;
+    }
+
+    int gramCount = section.getInt();
+    HashMap<Long, Postings> newPostings = new HashMap<Long, Postings>(Math.max(16, 2 * gramCount));
+
+    for (int gramIndex = 0; gramIndex < gramCount; gramIndex++) {
+
+      if (section.remaining() < Long.BYTES + Integer.BYTES) {
+        return false;
+      }
+
+      long gram = section.getLong();
+      int count = section.getInt();
+      if (count <= 0 || section.remaining() < Integer.BYTES * (long) count) {
+        return false;
+      }
+
+      Postings postings = new Postings(count);
+      section.asIntBuffer().get(postings.ids, 0, count);
+      section.position(section.position() + Integer.BYTES * count);
+      postings.size = count;
+      newPostings.put(gram, postings);
+    }
+
+    if (section.hasRemaining()) {
+      return false;
+    }
+
+    namePostings = newPostings;
+    return true;
+  }
+
+  /**
+   * The Postings class is a growable, sorted array of patient IDs.
+   */
+  private static final class Postings {
+
+    /** The IDs in ascending order (the first size are used). */
+    private int[] ids;
+
+    /** The number of IDs. */
+    private int size;
+
+    /**
+     * Constructor that takes the initial capacity.
+     * @param capacity the number of IDs there is initially room for.
+     */
+    public Postings(int capacity) {
+      ids = new int[capacity];
+      size = 0;
+    }
+
+    /**
+     * Add an ID (if it is not already present).
+     * @param id the ID to add.
+     */
+    public void add(int id) {
+
+      // New IDs are usually the largest, so check the end first
+      int position = size;
+      if (size > 0 && ids[size - 1] >= id) {
+        position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+          return; // The name has the substring more than once
+        }
+        position = -position - 1;
+      }
+
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, Math.max(2 * size, 4));
+      }
+
+      System.arraycopy(ids, position, ids, position + 1, size - position);
+      ids[position] = id;
+      size++;
+    }
+
+    /**
+     * Remove an ID (if present).
+     * @param id the ID to remove.
+     * @return whether the ID was present.
+     */
+    public boolean remove(int id) {
+
+      int position = Arrays.binarySearch(ids, 0, size, id);
+      if (position < 0) {
+        return false;
+      }
+
+      System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+      size--;
+      return true;
+    }
+
+    /**
+     * Remove several IDs (if present) in one pass.
+     * @param removedIDs the IDs to remove in ascending order (the first removedCount are used).
+     * @param removedCount the number of IDs to remove.
+     */
+    public void removeAll(int[] removedIDs, int removedCount) {
+
+      // Walk the sorted removed IDs alongside the sorted postings
+      int keptCount = 0;
+      int removedIndex = 0;
+      for (int index = 0; index < size; index++) {
+        while (removedIndex < removedCount && removedIDs[removedIndex] < ids[index]) {
+          removedIndex++;
+        }
+        if (removedIndex == removedCount || removedIDs[removedIndex] != ids[index]) {
+          ids[keptCount++] = ids[index];
+        }
+      }
+
+      size = keptCount;
+    }
+  }
+}
@@ -1,4 +1,7 @@
 import java.io.Serializable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
 /**
  * This abstract Person class serves as a simple model to create Person objects to be stored in the Register. Primarily stores name and contact information. Serves as the parent class of both the Patient and Doctor subclasses.
  * @author Thomas Merion, Nam Luu, Austin Lee.
@@ -22,9 +25,9 @@ public abstract class Person implements Serializable {
    * No-argument constructor that sets all fields to "N/A".
    */
   public Person(){
-    name = "N/A";
-    phone = "N/A";
-    email = "N/A";
+    name = StringPool.NOT_AVAILABLE;
+    phone = StringPool.NOT_AVAILABLE;
+    email = StringPool.NOT_AVAILABLE;
   }
 
   /**
@@ -34,9 +37,22 @@ public abstract class Person implements Serializable {
    * @param email the initial email address.
    */
   public Person(String name, String phone, String email){
-    this.name = name;
-    this.phone = phone;
-    this.email = email;
+    this.name = StringPool.canonicalizeValue(name);
+    this.phone = StringPool.canonicalizeValue(phone);
+    this.email = StringPool.canonicalizeValue(email);
+  }
+
+  /**
+   * Restore the fields after the person is read from a save state, replacing pooled values (such as "N/A") with their canonical instances.
+   * @param stream the stream the person is being read from.
+   * @throws IOException if the stream cannot be read.
+   * @throws ClassNotFoundException if a class of a serialized object cannot be found.
+   */
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    name = StringPool.canonicalizeValue(name);
+    phone = StringPool.canonicalizeValue(phone);
+    email = StringPool.canonicalizeValue(email);
   }
 
   /**
@@ -44,7 +60,7 @@ public abstract class Person implements Serializable {
    * @param name the new name.
    */
   public void setName(String name){
-    this.name = name;
+    this.name = StringPool.canonicalizeValue(name);
   }
 
   /**
@@ -60,7 +76,7 @@ public abstract class Person implements Serializable {
    * @param phone the new phone number.
    */
   public void setPhone(String phone){
-    this.phone = phone;
+    this.phone = StringPool.canonicalizeValue(phone);
   }
 
   /**
@@ -76,7 +92,7 @@ public abstract class Person implements Serializable {
    * @param email the new email.
    */
   public void setEmail(String email){
-    this.email = email;
+    this.email = StringPool.canonicalizeValue(email);
   }
 
   /**
@@ -87,5 +103,30 @@ public abstract class Person implements Serializable {
     return email;
   }
 
+  /**
+   * Append a representation of the instance (as returned by toString) without building intermediate strings.
+   * @param out the Appendable to append to.
+   * @throws IOException if the Appendable throws one.
+   */
+  public abstract void appendTo(Appendable out) throws IOException;
+
+  /**
+   * Get a string representation of the instance.
+   * @return the string representation.
+   */
+  @Override
+  public String toString() {
+
+    StringBuilder result = new StringBuilder();
+
+    try {
+      appendTo(result);
+    } catch (IOException e) {
+      // A StringBuilder does not throw IOExceptions (this will not happen)
+      throw new UncheckedIOException(e);
+    }
+
+    return result.toString();
+  }
   
 }
\ No newline at end of file
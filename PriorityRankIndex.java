@@ -0,0 +1,272 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * The PriorityRankIndex class finds a patient's rank in priority order (the number of patients before them) in logarithmic time, without the patient listing having to be sorted.
+ * Patients are kept as keys that sort in priority order (higher weights first, and then lower IDs). The keys present when the index was last rebuilt are kept in a sorted array with a Fenwick tree counting the ones still present, and keys added since are kept in a small sorted buffer. The buffer is merged into the array once it grows past about the square root of the number of patients, so adding and removing patients stays cheap.
+ * Note that a patient must be removed from the index before their priority weight is changed (and added back after), since they are found by their weight and ID.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class PriorityRankIndex {
+
+  /** The smallest number of keys the buffer holds before it is merged into the array. */
+  private static final int MINIMUM_BUFFER_LIMIT = 64;
+
+  /** The keys present when the index was last rebuilt (in priority order). */
+  private long[] baseKeys;
+  /** The number of keys in baseKeys. */
+  private int baseSize;
+  /** Which of the keys in baseKeys have been removed since. */
+  private BitSet removedBaseKeys;
+  /** The number of keys in baseKeys that have been removed. */
+  private int removedCount;
+  /** The Fenwick tree over baseKeys, where each position counts 1 if its key is still present (1-based). */
+  private int[] tree;
+
+  /** The keys added since the index was last rebuilt (in priority order). */
+  private long[] bufferKeys;
+  /** The number of keys in bufferKeys. */
+  private int bufferSize;
+
+  /**
+   * Constructor that indexes some patients.
+   * @param patients the patients to index (in any order).
+   */
+  public PriorityRankIndex(Collection<Patient> patients) {
+
+    long[] keys = new long[patients.size()];
+    int keyCount = 0;
+    for (Patient patient : patients) {
+      keys[keyCount++] = getKey(patient);
+    }
+    Arrays.sort(keys);
+
+    bufferKeys = new long[MINIMUM_BUFFER_LIMIT];
+    rebuild(keys, keys.length);
+  }
+
+  /**
+   * Get the key of a patient, which sorts in priority order (a higher weight first, and then a lower ID).
+   * @param patient the patient.
+   * @return the key.
+   */
+  static long getKey(Patient patient) {
+    // Flipping the weight's bits puts higher weights first, and flipping the ID's sign bit keeps IDs in order as an unsigned low half
+    return ((long) ~patient.getPriorityWeight() << 32) | ((patient.getPatientID() ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Helper method that replaces the array of keys (clearing the buffer and building the Fenwick tree in linear time).
+   * @param keys the keys in priority order.
+   * @param keyCount the number of keys to use.
+   */
+  private void rebuild(long[] keys, int keyCount) {
+
+    baseKeys = keys;
+    baseSize = keyCount;
+    removedBaseKeys = new BitSet();
+    removedCount = 0;
+    bufferSize = 0;
+
+    // Start every position at 1 and pass each partial sum up to its parent
+    tree = new int[keyCount + 1];
+    for (int position = 1; position <= keyCount; position++) {
+      tree[position] += 1;
+      int parent = position + (position & -position);
+      if (parent <= keyCount) {
+        tree[parent] += tree[position];
+      }
+    }
+  }
+
+  /**
+   * Helper method that merges the buffer and the keys still present into a new array.
+   */
+  private void mergeBuffer() {
+
+    long[] keys = new long[size()];
+    int keyCount = 0;
+    int bufferIndex = 0;
+
+    for (int baseIndex = 0; baseIndex < baseSize; baseIndex++) {
+      if (!removedBaseKeys.get(baseIndex)) {
+        while (bufferIndex < bufferSize && bufferKeys[bufferIndex] < baseKeys[baseIndex]) {
+          keys[keyCount++] = bufferKeys[bufferIndex++];
+        }
+        keys[keyCount++] = baseKeys[baseIndex];
+      }
+    }
+    while (bufferIndex < bufferSize) {
+      keys[keyCount++] = bufferKeys[bufferIndex++];
+    }
+
+    rebuild(keys, keyCount);
+  }
+
+  /**
+   * Helper method that gets the number of keys before a position of the array that are still present.
+   * @param position the position (from 0 to baseSize).
+   * @return the number of present keys before the position.
+   */
+  private int countPresentBefore(int position) {
+    int count = 0;
+    for (; position > 0; position -= position & -position) {
+      count += tree[position];
+    }
+    return count;
+  }
+
+  /**
+   * Helper method that gets the position of the first key in a sorted range of an array that is not before a key.
+   * @param keys the keys.
+   * @param keyCount the number of keys in the range.
+   * @param key the key to find.
+   * @return the position of the key, or where it would be inserted.
+   */
+  private static int lowerBound(long[] keys, int keyCount, long key) {
+    int index = Arrays.binarySearch(keys, 0, keyCount, key);
+    return (index >= 0) ? index : -index - 1;
+  }
+
+  /**
+   * Add a patient to the index.
+   * @param patient the patient (with the weight they are listed with).
+   */
+  public void add(Patient patient) {
+
+    long key = getKey(patient);
+
+    // Merge the buffer first if it is full
+    if (bufferSize >= Math.max(MINIMUM_BUFFER_LIMIT, 2 * (int) Math.sqrt(size()))) {
+      mergeBuffer();
+    }
+    if (bufferSize == bufferKeys.length) {
+      bufferKeys = Arrays.copyOf(bufferKeys, 2 * bufferKeys.length);
+    }
+
+    // Insert the key into the buffer in order
+    int index = lowerBound(bufferKeys, bufferSize, key);
+    System.arraycopy(bufferKeys, index, bufferKeys, index + 1, bufferSize - index);
+    bufferKeys[index] = key;
+    bufferSize++;
+  }
+
+  /**
+   * Remove a patient from the index.
+   * @param patient the patient (with the weight they were added with).
+   * @return whether the patient was in the index.
+   */
+  public boolean remove(Patient patient) {
+
+    long key = getKey(patient);
+
+    // Check the buffer first (it holds the most recent patients)
+    int bufferIndex = Arrays.binarySearch(bufferKeys, 0, bufferSize, key);
+    if (bufferIndex >= 0) {
+      System.arraycopy(bufferKeys, bufferIndex + 1, bufferKeys, bufferIndex, bufferSize - bufferIndex - 1);
+      bufferSize--;
+      return true;
+    }
+
+    int baseIndex = Arrays.binarySearch(baseKeys, 0, baseSize, key);
+    if (baseIndex < 0 || removedBaseKeys.get(baseIndex)) {
+      return false;
+    }
+
+    // Stop counting the key in the Fenwick tree
+    removedBaseKeys.set(baseIndex);
+    removedCount++;
+    for (int position = baseIndex + 1; position <= baseSize; position += position & -position) {
+      tree[position] -= 1;
+    }
+
+    // Compact the array once most of it has been removed
+    if (removedCount > baseSize / 2 && baseSize > MINIMUM_BUFFER_LIMIT) {
+      mergeBuffer();
+    }
+
+    return true;
+  }
+
+  /**
+   * Get a patient's rank in priority order: the number of indexed patients before them (so the first patient has rank 0).
+   * @param patient the patient (who does not have to be indexed).
+   * @return the rank.
+   */
+  public int getRank(Patient patient) {
+    long key = getKey(patient);
+    return countPresentBefore(lowerBound(baseKeys, baseSize, key)) + lowerBound(bufferKeys, bufferSize, key);
+  }
+
+  /**
+   * Get the IDs of the patients at a range of ranks in priority order (such as the patients of one day of a schedule), without sorting the others.
+   * @param firstRank the rank of the first patient (from 0).
+   * @param count the maximum number of patients.
+   * @return the IDs of up to count patients from the rank in priority order (fewer if the index runs out).
+   */
+  public int[] getPatientIDs(int firstRank, int count) {
+
+    int[] patientIDs = new int[Math.max(0, Math.min(count, size() - firstRank))];
+    if (patientIDs.length == 0) {
+      return patientIDs;
+    }
+
+    // Find the number of buffer keys before the first rank (a buffer key's rank is its position in the buffer plus the present keys of the array before it)
+    int bufferIndex = 0;
+    int bufferEnd = bufferSize;
+    while (bufferIndex < bufferEnd) {
+      int middle = (bufferIndex + bufferEnd) >>> 1;
+      if (middle + countPresentBefore(lowerBound(baseKeys, baseSize, bufferKeys[middle])) < firstRank) {
+        bufferIndex = middle + 1;
+      } else {
+        bufferEnd = middle;
+      }
+    }
+
+    // The rest of the patients before the first rank are in the array, so merge the two from there
+    int baseIndex = findPresentPosition(firstRank - bufferIndex);
+    for (int patientCount = 0; patientCount < patientIDs.length; patientCount++) {
+
+      long key;
+      if (baseIndex >= baseSize || (bufferIndex < bufferSize && bufferKeys[bufferIndex] < baseKeys[baseIndex])) {
+        key = bufferKeys[bufferIndex++];
+      } else {
+        key = baseKeys[baseIndex];
+        baseIndex = removedBaseKeys.nextClearBit(baseIndex + 1);
+      }
+
+      // The low half of the key is the ID with its sign bit flipped
+      patientIDs[patientCount] = (int) key ^ Integer.MIN_VALUE;
+    }
+
+    return patientIDs;
+  }
+
+  /**
+   * Helper method that finds the position in the array of a key still present by the number of present keys before it (descending the Fenwick tree).
+   * @param presentCount the number of present keys before the key.
+   * @return the position of the key, or baseSize if there are not that many present keys.
+   */
+  private int findPresentPosition(int presentCount) {
+
+    int position = 0;
+    for (int step = Integer.highestOneBit(Math.max(baseSize, 1)); step > 0; step >>= 1) {
+      if (position + step <= baseSize && tree[position + step] <= presentCount) {
+        position += step;
+        presentCount -= tree[position];
+      }
+    }
+
+    return position;
+  }
+
+  /**
+   * Get the number of indexed patients.
+   * @return the number of patients.
+   */
+  public int size() {
+    return baseSize - removedCount + bufferSize;
+  }
+}
@@ -0,0 +1,212 @@
+import java.util.Map;
+import java.time.LocalDate;
+
+/**
+ * The PriorityScorer class is a compiled set of weighting rules. Patients are scored from primitive data only (their birthdate as an epoch day and bitmasks of their questionnaire responses by key ordinal), so scoring does not allocate or look anything up by key. A scorer is immutable and is only valid for the reference date it was compiled for.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public final class PriorityScorer {
+
+  /** The last decade partition (everyone at or above this number of decades old is in it). */
+  public static final int MAXIMUM_DECADE = 8;
+
+  /** The maximum number of questionnaire keys a scorer can handle (one bit per key). */
+  public static final int MAXIMUM_KEYS = 64;
+
+  /** The date ages are calculated against. */
+  private final LocalDate referenceDate;
+
+  /** The mapping of decades (0 through MAXIMUM_DECADE) to the points for that age range. */
+  private final int[] ageWeights;
+
+  /** The mapping of decades to the latest birthdate (as an epoch day) that is at least that many decades old on the reference date. */
+  private final long[] decadeCutoffs;
+
+  /** The mapping of key ordinals to the points awarded for a yes response. */
+  private final int[] yesWeights;
+
+  /** The mapping of key ordinals to the points awarded for a no response. */
+  private final int[] noWeights;
+
+  /**
+   * Private constructor (instances are made through a Builder).
+   * @param builder the builder to take the weights from.
+   * @param referenceDate the date ages are calculated against.
+   */
+  private PriorityScorer(Builder builder, LocalDate referenceDate) {
+
+    this.referenceDate = referenceDate;
+    this.ageWeights = builder.ageWeights.clone();
+    this.yesWeights = builder.yesWeights.clone();
+    this.noWeights = builder.noWeights.clone();
+
+    // Find the cutoff birthdate for each decade
+    decadeCutoffs = new long[MAXIMUM_DECADE + 1];
+    for (int decade = 0; decade <= MAXIMUM_DECADE; decade++) {
+      decadeCutoffs[decade] = referenceDate.minusYears(10 * decade).toEpochDay();
+    }
+  }
+
+  /**
+   * Getter for the reference date.
+   * @return the date ages are calculated against.
+   */
+  public LocalDate getReferenceDate() {
+    return referenceDate;
+  }
+
+  /**
+   * Get the age of someone in whole decades (capped between 0 and MAXIMUM_DECADE) on the reference date.
+   * @param birthEpochDay the birthdate as an epoch day.
+   * @return the age in decades.
+   */
+  public int ageInDecades(long birthEpochDay) {
+
+    // Count the cutoffs the birthdate is at or before (the sign bit of the difference is set when the birthdate is after the cutoff)
+    int decades = 0;
+    for (int decade = 1; decade <= MAXIMUM_DECADE; decade++) {
+      decades += 1 - (int) ((decadeCutoffs[decade] - birthEpochDay) >>> 63);
+    }
+    return decades;
+  }
+
+  /**
+   * Get the birthdate (as an epoch day) at which someone moves into the given decade on the reference date, which is when their decade birthday falls.
+   * @param decade the decade (must be 0 through MAXIMUM_DECADE inclusive).
+   * @return the latest birthdate in the given decade.
+   */
+  public long getDecadeCutoff(int decade) {
+    return decadeCutoffs[decade];
+  }
+
+  /**
+   * Get the first date on which someone born on the given birthdate is the given number of decades old (this is their decade birthday, or the following day for a birthdate of February 29th that falls on a common year).
+   * @param birthdate the birthdate.
+   * @param decade the number of decades.
+   * @return the first date they are that many decades old.
+   */
+  public static LocalDate getDecadeBirthday(LocalDate birthdate, int decade) {
+
+    LocalDate birthday = birthdate.plusYears(10 * decade);
+
+    // Adjust for a birthday moved back to February 28th (which is still one day too young)
+    if (birthday.minusYears(10 * decade).isBefore(birthdate)) {
+      birthday = birthday.plusDays(1);
+    }
+
+    return birthday;
+  }
+
+  /**
+   * Get the priority weight for a patient's primitive data.
+   * @param birthEpochDay the birthdate as an epoch day.
+   * @param positiveMask the bitmask of key ordinals the patient answered yes to.
+   * @param answeredMask the bitmask of key ordinals the patient answered.
+   * @return the priority weight.
+   */
+  public int score(long birthEpochDay, long positiveMask, long answeredMask) {
+
+    // Start with the points awarded for age
+    int weight = ageWeights[ageInDecades(birthEpochDay)];
+
+    // Add the points for each yes response
+    for (long bits = positiveMask; bits != 0; bits &= bits - 1) {
+      weight += yesWeights[Long.numberOfTrailingZeros(bits)];
+    }
+
+    // Add the points for each no response
+    for (long bits = answeredMask & ~positiveMask; bits != 0; bits &= bits - 1) {
+      weight += noWeights[Long.numberOfTrailingZeros(bits)];
+    }
+
+    return weight;
+  }
+
+  /**
+   * Get the priority weight for a patient (the patient must have been bound to the key ordinals of the register the scorer was compiled for).
+   * @param patient the patient to score.
+   * @return the priority weight.
+   */
+  public int scorePatient(Patient patient) {
+    return score(patient.getBirthdate().toEpochDay(), patient.getPositiveResponseMask(), patient.getAnsweredResponseMask());
+  }
+
+  /**
+   * Score many patients at once from parallel arrays of primitive data.
+   * @param birthEpochDays the birthdates as epoch days.
+   * @param positiveMasks the bitmasks of key ordinals answered yes to.
+   * @param answeredMasks the bitmasks of key ordinals answered.
+   * @param weights the array to write the priority weights to.
+   * @param count the number of patients to score (from index 0).
+   */
+  public void scoreAll(long[] birthEpochDays, long[] positiveMasks, long[] answeredMasks, int[] weights, int count) {
+    for (int index = 0; index < count; index++) {
+      weights[index] = score(birthEpochDays[index], positiveMasks[index], answeredMasks[index]);
+    }
+  }
+
+  /**
+   * The Builder class collects compiled weighting rules before producing a PriorityScorer.
+   */
+  public static final class Builder {
+
+    /** The mapping of questionnaire keys to key ordinals. */
+    private final Map<String, Integer> keyOrdinals;
+
+    /** The working age weights. */
+    private final int[] ageWeights;
+
+    /** The working yes-response weights. */
+    private final int[] yesWeights;
+
+    /** The working no-response weights. */
+    private final int[] noWeights;
+
+    /**
+     * Constructor that takes the key ordinals rules will be compiled against.
+     * @param keyOrdinals the mapping of questionnaire keys to key ordinals (all ordinals must be less than MAXIMUM_KEYS).
+     */
+    public Builder(Map<String, Integer> keyOrdinals) {
+      this.keyOrdinals = keyOrdinals;
+      ageWeights = new int[MAXIMUM_DECADE + 1];
+      yesWeights = new int[MAXIMUM_KEYS];
+      noWeights = new int[MAXIMUM_KEYS];
+    }
+
+    /**
+     * Add points for an age range.
+     * @param decade the decade (must be 0 through MAXIMUM_DECADE inclusive).
+     * @param points the points to add.
+     */
+    public void addAgeWeight(int decade, int points) {
+      ageWeights[decade] += points;
+    }
+
+    /**
+     * Add points for a response to a question (a key without an ordinal has no responses, so it is ignored).
+     * @param key the questionnaire key.
+     * @param response the response that is awarded.
+     * @param points the points to add.
+     */
+    public void addResponseWeight(String key, boolean response, int points) {
+      Integer ordinal = keyOrdinals.get(key);
+      if (ordinal != null) {
+        (response ? yesWeights : noWeights)[ordinal] += points;
+      }
+    }
+
+    /**
+     * Compile the rules into a scorer.
+     * @param rules the rules to compile.
+     * @param referenceDate the date ages are calculated against.
+     * @return the compiled scorer.
+     */
+    public PriorityScorer build(Iterable<WeightingRule> rules, LocalDate referenceDate) {
+      for (WeightingRule rule : rules) {
+        rule.compileInto(this);
+      }
+      return new PriorityScorer(this, referenceDate);
+    }
+  }
+}
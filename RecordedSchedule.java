@@ -0,0 +1,314 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * The RecordedSchedule class is a ScheduleSink that keeps a generated schedule (its days and appointments), so the schedule can be passed to other sinks later without being generated again.
+ * A recorded schedule can also be inspected day by day (as doctor IDs mapped to patient IDs), written as a compact outline of names for tests (such as "Friday: d001 p007, d002 p008 p009; Sunday: d001 p006"), and compared with another schedule to find the first difference.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class RecordedSchedule implements ScheduleSink {
+
+  /** The days of the schedule, each as its active day number, its day of the week, and the index of its first appointment. */
+  private final ArrayList<int[]> days;
+
+  /** The doctors of the appointments (in the order they were appended). */
+  private final ArrayList<Doctor> appointmentDoctors;
+
+  /** The patients of the appointments (in the order they were appended). */
+  private final ArrayList<Patient> appointmentPatients;
+
+  /** The mapping of patients to the indices of their appointments (or null until a patient is first looked up). */
+  private IdentityHashMap<Patient, Integer> appointmentIndices;
+
+  /**
+   * The default constructor (for an empty schedule).
+   */
+  public RecordedSchedule() {
+    days = new ArrayList<int[]>();
+    appointmentDoctors = new ArrayList<Doctor>();
+    appointmentPatients = new ArrayList<Patient>();
+  }
+
+  /**
+   * Copy constructor (the copy can be appended to without changing the original).
+   * @param other the schedule to copy.
+   */
+  public RecordedSchedule(RecordedSchedule other) {
+    days = new ArrayList<int[]>(other.days);
+    appointmentDoctors = new ArrayList<Doctor>(other.appointmentDoctors);
+    appointmentPatients = new ArrayList<Patient>(other.appointmentPatients);
+  }
+
+  @Override
+  public void appendDay(int dayNumber, int dayOfWeek) {
+    days.add(new int[]{dayNumber, dayOfWeek, appointmentPatients.size()});
+  }
+
+  @Override
+  public void appendAppointment(Doctor doctor, Patient patient) {
+    appointmentDoctors.add(doctor);
+    appointmentPatients.add(patient);
+    appointmentIndices = null;
+  }
+
+  /**
+   * Get the number of active days in the schedule.
+   * @return the number of days.
+   */
+  public int getDayCount() {
+    return days.size();
+  }
+
+  /**
+   * Get the number of appointments in the schedule.
+   * @return the number of appointments.
+   */
+  public int getAppointmentCount() {
+    return appointmentPatients.size();
+  }
+
+  /**
+   * Get the active day number of a day.
+   * @param dayIndex the position of the day in the schedule (from 0).
+   * @return the day number.
+   */
+  public int getDayNumber(int dayIndex) {
+    return days.get(dayIndex)[0];
+  }
+
+  /**
+   * Get the day of the week of a day.
+   * @param dayIndex the position of the day in the schedule (from 0).
+   * @return the index for the day of the week (where 1 is Sunday and 7 is Saturday).
+   */
+  public int getDayOfWeek(int dayIndex) {
+    return days.get(dayIndex)[1];
+  }
+
+  /**
+   * Get the appointments of a day as the IDs of the patients each doctor sees.
+   * @param dayIndex the position of the day in the schedule (from 0).
+   * @return the mapping of doctor IDs to the IDs of their patients (in the order the doctors and patients were scheduled).
+   */
+  public LinkedHashMap<Integer, ArrayList<Integer>> getPatientIDsByDoctorID(int dayIndex) {
+
+    LinkedHashMap<Integer, ArrayList<Integer>> patientIDsByDoctorID = new LinkedHashMap<Integer, ArrayList<Integer>>();
+
+    for (int appointment = getFirstAppointment(dayIndex); appointment < getEndAppointment(dayIndex); appointment++) {
+      patientIDsByDoctorID.computeIfAbsent(appointmentDoctors.get(appointment).getDoctorID(), doctorID -> new ArrayList<Integer>()).add(appointmentPatients.get(appointment).getPatientID());
+    }
+
+    return patientIDsByDoctorID;
+  }
+
+  /**
+   * Find a patient's appointment (the patients are mapped to their appointments the first time this is called).
+   * @param patient the patient.
+   * @return the index of the patient's appointment, or -1 if the patient is not in the schedule.
+   */
+  public int findAppointment(Patient patient) {
+
+    if (appointmentIndices == null) {
+      appointmentIndices = new IdentityHashMap<Patient, Integer>(2 * appointmentPatients.size());
+      for (int appointment = 0; appointment < appointmentPatients.size(); appointment++) {
+        appointmentIndices.put(appointmentPatients.get(appointment), appointment);
+      }
+    }
+
+    Integer appointment = appointmentIndices.get(patient);
+    return (appointment == null) ? -1 : appointment;
+  }
+
+  /**
+   * Get the day of an appointment.
+   * @param appointment the index of the appointment.
+   * @return the position of the appointment's day in the schedule (from 0).
+   */
+  public int getAppointmentDayIndex(int appointment) {
+
+    // Find the last day starting at or before the appointment
+    int low = 0;
+    int high = days.size() - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (getFirstAppointment(middle) <= appointment) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Get the doctor of an appointment.
+   * @param appointment the index of the appointment.
+   * @return the doctor.
+   */
+  public Doctor getAppointmentDoctor(int appointment) {
+    return appointmentDoctors.get(appointment);
+  }
+
+  /**
+   * Get the patient of an appointment.
+   * @param appointment the index of the appointment.
+   * @return the patient.
+   */
+  public Patient getAppointmentPatient(int appointment) {
+    return appointmentPatients.get(appointment);
+  }
+
+  /**
+   * Helper method that gets the index of the first appointment of a day.
+   * @param dayIndex the position of the day in the schedule (from 0).
+   * @return the index of the first appointment.
+   */
+  private int getFirstAppointment(int dayIndex) {
+    return days.get(dayIndex)[2];
+  }
+
+  /**
+   * Helper method that gets the index after the last appointment of a day.
+   * @param dayIndex the position of the day in the schedule (from 0).
+   * @return the index after the last appointment.
+   */
+  private int getEndAppointment(int dayIndex) {
+    return (dayIndex + 1 < days.size()) ? days.get(dayIndex + 1)[2] : appointmentPatients.size();
+  }
+
+  /**
+   * Get the outline of a day: the day of the week, and then each doctor's name followed by the names of their patients (such as "Friday: d001 p007, d002 p008 p009").
+   * @param dayIndex the position of the day in the schedule (from 0).
+   * @return the outline of the day.
+   */
+  public String getDayOutline(int dayIndex) {
+
+    StringBuilder outline = new StringBuilder(BasicFormatter.getDayOfWeekName(getDayOfWeek(dayIndex))).append(':');
+    Doctor currentDoctor = null;
+
+    for (int appointment = getFirstAppointment(dayIndex); appointment < getEndAppointment(dayIndex); appointment++) {
+
+      // Start a new group when the doctor changes
+      Doctor doctor = appointmentDoctors.get(appointment);
+      if (doctor != currentDoctor) {
+        outline.append(currentDoctor == null ? " " : ", ").append(doctor.getName());
+        currentDoctor = doctor;
+      }
+
+      outline.append(' ').append(appointmentPatients.get(appointment).getName());
+    }
+
+    return outline.toString();
+  }
+
+  /**
+   * Get the outline of the schedule: the outline of each day, separated by "; ".
+   * @return the outline of the schedule.
+   */
+  public String getOutline() {
+
+    StringBuilder outline = new StringBuilder();
+    for (int dayIndex = 0; dayIndex < days.size(); dayIndex++) {
+      if (dayIndex != 0) {
+        outline.append("; ");
+      }
+      outline.append(getDayOutline(dayIndex));
+    }
+
+    return outline.toString();
+  }
+
+  /**
+   * Find the first difference between this schedule and another, comparing day numbers, days of the week, and doctor and patient IDs (so schedules of different copies of a register can be compared).
+   * @param other the schedule to compare with (the expected schedule).
+   * @return a description of the first difference, or null if the schedules are the same.
+   */
+  public String findDifference(RecordedSchedule other) {
+
+    for (int dayIndex = 0; dayIndex < Math.min(days.size(), other.days.size()); dayIndex++) {
+
+      // Compare the days
+      if (getDayNumber(dayIndex) != other.getDayNumber(dayIndex) || getDayOfWeek(dayIndex) != other.getDayOfWeek(dayIndex)) {
+        return "day " + (dayIndex + 1) + ": expected day " + other.getDayNumber(dayIndex) + " (" + BasicFormatter.getDayOfWeekName(other.getDayOfWeek(dayIndex)) + ") but got day " + getDayNumber(dayIndex) + " (" + BasicFormatter.getDayOfWeekName(getDayOfWeek(dayIndex)) + ")";
+      }
+
+      // Compare the day's appointments
+      int first = getFirstAppointment(dayIndex);
+      int otherFirst = other.getFirstAppointment(dayIndex);
+      int count = getEndAppointment(dayIndex) - first;
+      int otherCount = other.getEndAppointment(dayIndex) - otherFirst;
+
+      for (int offset = 0; offset < Math.min(count, otherCount); offset++) {
+        if (appointmentDoctors.get(first + offset).getDoctorID() != other.appointmentDoctors.get(otherFirst + offset).getDoctorID() || appointmentPatients.get(first + offset).getPatientID() != other.appointmentPatients.get(otherFirst + offset).getPatientID()) {
+          return "day " + getDayNumber(dayIndex) + ", appointment " + (offset + 1) + ": expected " + describeAppointment(other, otherFirst + offset) + " but got " + describeAppointment(this, first + offset)
+              + "\n  expected day: " + other.getDayOutline(dayIndex) + "\n  got day:      " + getDayOutline(dayIndex);
+        }
+      }
+
+      if (count != otherCount) {
+        return "day " + getDayNumber(dayIndex) + ": expected " + otherCount + " appointments but got " + count
+            + "\n  expected day: " + other.getDayOutline(dayIndex) + "\n  got day:      " + getDayOutline(dayIndex);
+      }
+    }
+
+    if (days.size() != other.days.size()) {
+      return "expected " + other.days.size() + " days but got " + days.size();
+    }
+
+    return null;
+  }
+
+  /**
+   * Helper method that describes an appointment by IDs and names.
+   * @param schedule the schedule of the appointment.
+   * @param appointment the index of the appointment.
+   * @return the description.
+   */
+  private static String describeAppointment(RecordedSchedule schedule, int appointment) {
+    Doctor doctor = schedule.appointmentDoctors.get(appointment);
+    Patient patient = schedule.appointmentPatients.get(appointment);
+    return "doctor " + doctor.getDoctorID() + " (" + doctor.getName() + ") with patient " + patient.getPatientID() + " (" + patient.getName() + ")";
+  }
+
+  /**
+   * Pass the schedule to a sink (in the order it was recorded).
+   * @param sink the sink.
+   */
+  public void writeTo(ScheduleSink sink) {
+    writeDaysTo(sink, 1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Pass a range of the schedule's days to a sink (in the order they were recorded).
+   * @param sink the sink.
+   * @param firstDayNumber the active day number of the first day to pass.
+   * @param lastDayNumber the active day number of the last day to pass.
+   */
+  public void writeDaysTo(ScheduleSink sink, int firstDayNumber, int lastDayNumber) {
+
+    for (int dayIndex = 0; dayIndex < days.size(); dayIndex++) {
+
+      // Skip the days outside of the range
+      if (getDayNumber(dayIndex) < firstDayNumber || getDayNumber(dayIndex) > lastDayNumber) {
+        continue;
+      }
+
+      sink.appendDay(getDayNumber(dayIndex), getDayOfWeek(dayIndex));
+      writeAppointmentsTo(sink, dayIndex);
+    }
+  }
+
+  /**
+   * Pass the appointments of a day to a sink without the day itself (such as to merge the days of several schedules).
+   * @param sink the sink.
+   * @param dayIndex the position of the day in the schedule (from 0).
+   */
+  public void writeAppointmentsTo(ScheduleSink sink, int dayIndex) {
+    for (int appointment = getFirstAppointment(dayIndex); appointment < getEndAppointment(dayIndex); appointment++) {
+      sink.appendAppointment(appointmentDoctors.get(appointment), appointmentPatients.get(appointment));
+    }
+  }
+}
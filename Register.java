@@ -1,8 +1,29 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.io.Serializable;
+import java.io.ObjectInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.BufferedOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.OptionalDataException;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.util.zip.CRC32;
+import java.io.UncheckedIOException;
 
 /**
  * The Register class serves as the data model for this program and takes/stores the inputs Patients, Doctors, vaccine doses, response weighting, and other relevant information to produce a schedule. 
@@ -14,17 +35,36 @@ public class Register implements Serializable {
   /** The serial version used when decoding. */
   private static final long serialVersionUID = 2000L;
 
+  /** The value that starts the index sections of a save state (save states written before index sections were introduced do not have it). */
+  private static final int INDEX_SECTIONS_MAGIC = 0x49445853;
+  /** The type of the save state section that stores the patient ID table. */
+  private static final int ID_SECTION = 1;
+  /** The type of the save state section that stores the patient name postings. */
+  private static final int NAME_SECTION = 2;
+  /** The type of the save state section that stores the decade birthday index. */
+  private static final int BIRTHDAY_SECTION = 3;
+  /** The most bytes of a save state section that are read at a time (so a damaged length cannot allocate more than the save state holds). */
+  private static final int SECTION_CHUNK_SIZE = 1 << 16;
+
   
   /** The next patient ID to assign. */
   private int currentPatientID;
   /** The next doctor ID to assign. */
   private int currentDoctorID;
+  /** The last patient ID that can be assigned (or 0 if there is no limit, as in save states written before limits were introduced). */
+  private int lastPatientID;
+  /** The last doctor ID that can be assigned (or 0 if there is no limit). */
+  private int lastDoctorID;
 
 
   // Note the listings are stored as ordered lists, meaning that manual patient and doctor ordering can be implemented later
 
-  /** The ordered listing of all patients in the system. */
+  /** The ordered listing of all patients in the system (in lazy ordering mode, this is in insertion order until it is next sorted). */
   private ArrayList<Patient> patientListing;
+  /** Whether patients are appended without sorting (the listing is then sorted only when an ordered listing is requested, and schedules select only the patients they need). */
+  private boolean isLazyOrdering;
+  /** Whether the patient listing may be out of priority order (this can only be true in lazy ordering mode). */
+  private boolean isListingDirty;
   /** The ordered listing of all doctors in the system. */
   private ArrayList<Doctor> doctorListing;
 
@@ -35,29 +75,111 @@ public class Register implements Serializable {
   private int[] ageRangeWeights;
   /** The mapping of the keys (questionnaire keys) to the weights for a positive response (a negative weight functionally means additional weighting points for a negative response). */
   private TreeMap<String, Integer> positiveResponseWeights;
-  
+
+  /** The mapping of key ordinals to questionnaire keys (the ordinals are the bit positions used in patients' response bitmasks). */
+  private ArrayList<String> responseKeys;
+  /** The mapping of questionnaire keys to key ordinals (rebuilt from responseKeys when loaded). */
+  private transient HashMap<String, Integer> responseKeyOrdinals;
+  /** The compiled weighting rules (or null if the weighting has changed since it was last compiled). */
+  private transient PriorityScorer priorityScorer;
+
+  /** The date the patients' age weighting was last brought up to date (every decade birthday in the birthday index is after this date). */
+  private LocalDate birthdayIndexDate;
+  /** The mapping of upcoming decade birthdays (as epoch days) to the patients who will move into a new age range on that day (rebuilt when loaded). */
+  private transient TreeMap<Long, ArrayList<Patient>> decadeBirthdayIndex;
+  /** The index of patients by ID and name (stored in its own sections of a save state). */
+  private transient PatientIndex patientIndex;
+  /** The index of patients by normalized identity and email address, for finding likely duplicates (rebuilt when loaded). */
+  private transient IdentityIndex identityIndex;
+  /** The number of changes made to the register since it was created or loaded (the version snapshots are taken at). */
+  private transient long version;
+  /** The first position of the patient listing that may have changed since the last snapshot was taken. */
+  private transient int firstChangedIndex;
+  /** The last snapshot taken (or null if none has been). */
+  private transient RegisterSnapshot snapshot;
+  /** The archive removed patients are moved into (or null if removed patients are not kept). */
+  private transient PatientArchive archive;
+  /** The schedules most recently generated, keyed by version (or null if none have been). */
+  private transient ScheduleCache scheduleCache;
+  /** The index of patients' ranks in priority order (or null until the first appointment is projected). */
+  private transient PriorityRankIndex rankIndex;
+  /** The index of cohorts of patients by response and age decade (or null if it has not been built). */
+  private transient CohortIndex cohortIndex;
+  /** The projector used for the last appointment projected (or null if none has been). */
+  private transient AppointmentProjector appointmentProjector;
+  /** The mapping of availability bitmasks to the number of patients in the listing available on exactly those days (indexed from 0 through Patient.ALL_DAYS). */
+  private transient int[] patientCountByAvailability;
+  /** The last schedule given out by generateScheduleString (or null if none has been since the register was created or loaded), which vaccinated patients are cleared from. */
+  private transient RecordedSchedule issuedSchedule;
+  /** The version of the register the issued schedule was generated at (clearing its patients keeps it current). */
+  private transient long issuedScheduleVersion;
+  /** The off-heap columns of the patients' scoring data, kept in step with the listing (rebuilt when loaded). */
+  private transient ColumnarPatientStore patientColumns;
+  /** The number of index sections of the save state the register was loaded from that were reused rather than rebuilt (0 if it was not loaded). */
+  private transient int reusedIndexSectionCount;
   
 
   /** The string that contains the last schedule generated. */
   private String currentSchedule;
 
+  /** The level the save state is compressed with (from 1 to 9), or 0 if it is not compressed (as in save states written before compression was introduced). */
+  private int saveCompressionLevel;
+
   /**
-   * The sole constructor, which also provides default values for the weighting system.
+   * The default constructor, which also provides default values for the weighting system.
    */
   public Register() {
+    this(1000, 9000); // All patient IDs will be larger than or equal to 1000 and all doctor IDs will be larger than or equal to 9000 (at least four digits)
+  }
+
+  /**
+   * Constructor that takes the first IDs to assign, which also provides default values for the weighting system.
+   * @param firstPatientID the first patient ID to assign.
+   * @param firstDoctorID the first doctor ID to assign.
+   */
+  public Register(int firstPatientID, int firstDoctorID) {
+    this(firstPatientID, firstDoctorID, 0);
+  }
+
+  /**
+   * Constructor that takes the ranges of IDs to assign (used to keep IDs unique across the shards of a ShardCoordinator), which also provides default values for the weighting system.
+   * @param firstPatientID the first patient ID to assign.
+   * @param firstDoctorID the first doctor ID to assign.
+   * @param idSpan the number of patient IDs and of doctor IDs that can be assigned (or 0 for no limit).
+   * @throws IllegalArgumentException if the number of IDs is negative.
+   */
+  public Register(int firstPatientID, int firstDoctorID, int idSpan) {
+
+    if (idSpan < 0) {
+      throw new IllegalArgumentException("illegal ID span: " + idSpan);
+    }
 
     // Initialize all fields
 
-    currentPatientID = 1000; // All patient IDs will be larger than or equal to 1000 (at least four digits)
-    currentDoctorID = 9000; // All doctor IDs will be larger than or equal to 9000 (at least four digits)
+    currentPatientID = firstPatientID;
+    currentDoctorID = firstDoctorID;
+    if (idSpan != 0) {
+      lastPatientID = (int) Math.min((long) firstPatientID + idSpan - 1, Integer.MAX_VALUE);
+      lastDoctorID = (int) Math.min((long) firstDoctorID + idSpan - 1, Integer.MAX_VALUE);
+    }
 
     patientListing = new ArrayList<Patient>();
     doctorListing = new ArrayList<Doctor>();
+    patientCountByAvailability = new int[Patient.ALL_DAYS + 1];
+    patientColumns = new ColumnarPatientStore();
 
     dosesPerDay = new int[7];
 
     ageRangeWeights = new int[]{0, 0, 0, 0, 5, 10, 30, 55, 60}; // Provide default weighting
     positiveResponseWeights = new TreeMap<String, Integer>();
+
+    responseKeys = new ArrayList<String>();
+    responseKeyOrdinals = new HashMap<String, Integer>();
+
+    birthdayIndexDate = LocalDate.now();
+    decadeBirthdayIndex = new TreeMap<Long, ArrayList<Patient>>();
+    patientIndex = new PatientIndex();
+    identityIndex = new IdentityIndex();
     
     currentSchedule = "--No Schedule--\n";
 
@@ -71,6 +193,265 @@ public class Register implements Serializable {
 
   }
 
+  /**
+   * Restore the transient fields after the register is read from a save state (registers saved before response bitmasks were introduced have their patients bound to key ordinals here).
+   * @param stream the stream the register is being read from.
+   * @throws IOException if the stream cannot be read.
+   * @throws ClassNotFoundException if a class of a serialized object cannot be found.
+   */
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+
+    stream.defaultReadObject();
+
+    // Check if this register was saved before key ordinals were assigned
+    if (responseKeys == null) {
+      responseKeys = new ArrayList<String>();
+      responseKeyOrdinals = new HashMap<String, Integer>();
+      for (Patient patient : patientListing) {
+        bindResponses(patient);
+      }
+
+    } else {
+      // Rebuild the key to ordinal mapping (with the keys' canonical instances)
+      responseKeyOrdinals = new HashMap<String, Integer>();
+      for (int ordinal = 0; ordinal < responseKeys.size(); ordinal++) {
+        responseKeys.set(ordinal, StringPool.canonicalize(responseKeys.get(ordinal)));
+        responseKeyOrdinals.put(responseKeys.get(ordinal), ordinal);
+      }
+    }
+
+    // Use the canonical instances of the weighted keys
+    TreeMap<String, Integer> canonicalWeights = new TreeMap<String, Integer>();
+    for (var weighting : positiveResponseWeights.entrySet()) {
+      canonicalWeights.put(StringPool.canonicalize(weighting.getKey()), weighting.getValue());
+    }
+    positiveResponseWeights = canonicalWeights;
+
+    // Rebuild the columns of the patients' scoring data
+    patientColumns = new ColumnarPatientStore();
+    for (Patient patient : patientListing) {
+      patient.setColumnOrdinal(patientColumns.add(patient));
+    }
+
+    // Check if this register was saved before the birthday index was introduced (its weights may be stale, so recompile them for today)
+    if (birthdayIndexDate == null) {
+      birthdayIndexDate = LocalDate.now();
+      recompilePatients();
+    }
+
+    // Reuse the saved indexes that are present and valid (patients with birthdays since the register was saved are rescored on the next call to rescoreBirthdays)
+    patientIndex = new PatientIndex();
+    decadeBirthdayIndex = null;
+    reusedIndexSectionCount = 0;
+
+    try {
+      readIndexSections(stream);
+    } catch (OptionalDataException | EOFException e) { /* The save state has no index sections */ }
+
+    // Rebuild the indexes that could not be reused
+    if (patientIndex.size() != patientListing.size()) {
+      patientIndex = PatientIndex.build(patientListing);
+      decadeBirthdayIndex = null;
+      reusedIndexSectionCount = 0;
+    }
+
+    if (decadeBirthdayIndex == null) {
+      decadeBirthdayIndex = new TreeMap<Long, ArrayList<Patient>>();
+      for (Patient patient : patientListing) {
+        indexDecadeBirthday(patient);
+      }
+    }
+
+    identityIndex = IdentityIndex.build(patientListing);
+
+    patientCountByAvailability = new int[Patient.ALL_DAYS + 1];
+    for (Patient patient : patientListing) {
+      patientCountByAvailability[patient.getAvailableDays()]++;
+    }
+  }
+
+  /**
+   * Write the register to a save state, followed by the index sections (each with a CRC-32 checksum), so the indexes do not need to be rebuilt when the register is loaded.
+   * @param stream the stream the register is being written to.
+   * @throws IOException if the stream cannot be written to.
+   */
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+
+    stream.defaultWriteObject();
+
+    stream.writeInt(INDEX_SECTIONS_MAGIC);
+    stream.writeInt(3);
+    writeIndexSection(stream, ID_SECTION, patientIndex.encodeIDSection(patientListing));
+    writeIndexSection(stream, NAME_SECTION, patientIndex.encodeNameSection());
+    writeIndexSection(stream, BIRTHDAY_SECTION, encodeBirthdaySection());
+  }
+
+  /**
+   * Helper method that writes a section of a save state.
+   * @param stream the stream to write to.
+   * @param type the type of the section.
+   * @param section the contents of the section.
+   * @throws IOException if the stream cannot be written to.
+   */
+  private static void writeIndexSection(ObjectOutputStream stream, int type, byte[] section) throws IOException {
+
+    CRC32 checksum = new CRC32();
+    checksum.update(section);
+
+    stream.writeInt(type);
+    stream.writeInt(section.length);
+    stream.write(section);
+    stream.writeLong(checksum.getValue());
+  }
+
+  /**
+   * Helper method that reads the index sections of a save state, reusing each section that is valid (a section with a bad checksum, or one that does not match the loaded listing, is skipped, and a section with a bad length stops the reading).
+   * @param stream the stream to read from.
+   * @throws IOException if the stream cannot be read (an OptionalDataException or EOFException if there are no index sections).
+   */
+  private void readIndexSections(ObjectInputStream stream) throws IOException {
+
+    if (stream.readInt() != INDEX_SECTIONS_MAGIC) {
+      return;
+    }
+
+    int sectionCount = stream.readInt();
+    boolean hasIDIndex = false;
+    boolean hasNameIndex = false;
+
+    for (int sectionIndex = 0; sectionIndex < sectionCount; sectionIndex++) {
+
+      // Read the section (a damaged length leaves the rest of the sections unreadable, so they are rebuilt) and check its checksum
+      int type = stream.readInt();
+      byte[] section = readIndexSection(stream, stream.readInt());
+      if (section == null) {
+        break;
+      }
+
+      CRC32 checksum = new CRC32();
+      checksum.update(section);
+      if (checksum.getValue() != stream.readLong()) {
+        continue;
+      }
+
+      // Decode the section (the ID table must be valid for the other sections to be used, since they refer to patients by ID)
+      ByteBuffer contents = ByteBuffer.wrap(section);
+      try {
+        if (type == ID_SECTION) {
+          hasIDIndex = patientIndex.decodeIDSection(contents, patientListing);
+          reusedIndexSectionCount += hasIDIndex ? 1 : 0;
+        } else if (type == NAME_SECTION && hasIDIndex) {
+          hasNameIndex = patientIndex.decodeNameSection(contents);
+          reusedIndexSectionCount += hasNameIndex ? 1 : 0;
+        } else if (type == BIRTHDAY_SECTION && hasIDIndex) {
+          decodeBirthdaySection(contents);
+          reusedIndexSectionCount += decadeBirthdayIndex != null ? 1 : 0;
+        }
+      } catch (BufferUnderflowException e) { /* The section is too short (it is skipped) */ }
+    }
+
+    // Rebuild the name postings if only the ID table was reused
+    if (hasIDIndex && !hasNameIndex) {
+      patientIndex.rebuildNames();
+    }
+  }
+
+  /**
+   * Helper method that reads the contents of a save state section, a chunk at a time so the buffer only grows as far as the save state actually holds.
+   * @param stream the stream to read from.
+   * @param length the length of the section written before it.
+   * @return the contents of the section, or null if the length is negative or longer than the rest of the save state.
+   * @throws IOException if the stream cannot be read.
+   */
+  private static byte[] readIndexSection(ObjectInputStream stream, int length) throws IOException {
+
+    if (length < 0) {
+      return null;
+    }
+
+    byte[] section = new byte[Math.min(length, SECTION_CHUNK_SIZE)];
+    int readCount = 0;
+
+    while (readCount < length) {
+
+      // Grow the buffer once it is full (the stream has had that much data so far)
+      if (readCount == section.length) {
+        section = Arrays.copyOf(section, (int) Math.min(length, 2L * section.length));
+      }
+
+      int chunkCount = stream.read(section, readCount, section.length - readCount);
+      if (chunkCount < 0) {
+        return null;
+      }
+      readCount += chunkCount;
+    }
+
+    return section;
+  }
+
+  /**
+   * Helper method that encodes the decade birthday index as a save state section (patients are referred to by ID).
+   * @return the section.
+   */
+  private byte[] encodeBirthdaySection() {
+
+    // Find the size of the section
+    int byteCount = Long.BYTES + Integer.BYTES;
+    for (ArrayList<Patient> patientsOnDay : decadeBirthdayIndex.values()) {
+      byteCount += Long.BYTES + Integer.BYTES * (1 + patientsOnDay.size());
+    }
+
+    ByteBuffer section = ByteBuffer.allocate(byteCount);
+    section.putLong(birthdayIndexDate.toEpochDay());
+    section.putInt(decadeBirthdayIndex.size());
+
+    for (var entry : decadeBirthdayIndex.entrySet()) {
+      section.putLong(entry.getKey());
+      section.putInt(entry.getValue().size());
+      for (Patient patient : entry.getValue()) {
+        section.putInt(patient.getPatientID());
+      }
+    }
+
+    return section.array();
+  }
+
+  /**
+   * Helper method that decodes the decade birthday index from a save state section (the index is left null if the section is not valid).
+   * @param section the section.
+   */
+  private void decodeBirthdaySection(ByteBuffer section) {
+
+    // Ensure the index was saved for the same index date
+    if (section.getLong() != birthdayIndexDate.toEpochDay()) {
+      return;
+    }
+
+    TreeMap<Long, ArrayList<Patient>> newIndex = new TreeMap<Long, ArrayList<Patient>>();
+    int dayCount = section.getInt();
+
+    for (int dayIndex = 0; dayIndex < dayCount; dayIndex++) {
+
+      long birthday = section.getLong();
+      int count = section.getInt();
+      ArrayList<Patient> patientsOnDay = new ArrayList<Patient>(count);
+
+      for (int index = 0; index < count; index++) {
+        Patient patient = patientIndex.getPatient(section.getInt());
+        if (patient == null) {
+          return;
+        }
+        patientsOnDay.add(patient);
+      }
+
+      newIndex.put(birthday, patientsOnDay);
+    }
+
+    if (!section.hasRemaining()) {
+      decadeBirthdayIndex = newIndex;
+    }
+  }
+
   /**
    * Static method for quickly generating low-detail Register instances for testing.
    * Note that ageWeighting, dosesPerDay, and the second level of doctorParameters must have a certain length. Meanwhile, weighting and the second level of patientParameters must be as long as the questionnaire. patientAges and patientParameters must have the same number of elements (to be the number of patients), and the length of doctorParameters will determine the number of doctors.
@@ -96,6 +477,7 @@ public class Register implements Serializable {
     for (int weightIndex = 0; weightIndex < weighting.length; weightIndex++) {
       testRegister.positiveResponseWeights.put("w" + weightIndex, weighting[weightIndex]);
     }
+    testRegister.priorityScorer = null;
 
     // Set the available doses per day
     for (int dosesPerDayIndex = 0; dosesPerDayIndex < 7; dosesPerDayIndex++) {
@@ -141,93 +523,681 @@ public class Register implements Serializable {
   }
 
   /**
-   * Generate a register schedule with given parameters and assert that it coordinates with the provided regular expression. Please note that this method uses assert statements for testing.
+   * Generate a register schedule with given parameters and assert that it has the expected outline (reporting the first day that differs). Please note that this method uses assert statements for testing.
    * @param testName the name of the test and what will be reported if the assertion is not satified.
    * @param testRegister the register to generate the schedule from.
    * @param startingDayIndex the day-of-the-week index to start the schedule from.
    * @param numberOfDays the number of days to generate the schedule for.
-   * @param expectedRegularExpression the regular expression to assert matches up with the schedule.
+   * @param expectedOutline the outline the schedule must have: each day's day of the week followed by each doctor's name and the names of their patients, with days separated by semicolons (such as "Friday: d001 p007, d002 p008 p009; Sunday: d001 p006").
    */
-  public static void testRegisterSchedule(String testName, Register testRegister, int startingDayIndex, int numberOfDays, String expectedRegularExpression) {
+  public static void testRegisterSchedule(String testName, Register testRegister, int startingDayIndex, int numberOfDays, String expectedOutline) {
 
     // Get the schedule to compare
-    String testSchedule = testRegister.generateScheduleString(startingDayIndex, numberOfDays);
-    // Check the schedule with newlines removed against the passed regular expression
-    assert testSchedule.replace('\n', ' ').matches(expectedRegularExpression) : "Error in test " + testName + ": expected to match with:\n" + expectedRegularExpression + "\nGot schedule:\n" + testSchedule;
+    RecordedSchedule testSchedule = new RecordedSchedule();
+    testRegister.writeSchedule(startingDayIndex, numberOfDays, testSchedule);
 
+    testScheduleOutline(testName, testSchedule, expectedOutline);
+  }
+
+  /**
+   * Assert that a schedule has the expected outline (reporting the first day that differs, with both outlines). Please note that this method uses assert statements for testing.
+   * @param testName the name of the test and what will be reported if the assertion is not satified.
+   * @param testSchedule the schedule to check.
+   * @param expectedOutline the outline the schedule must have (see testRegisterSchedule, where spacing is not significant).
+   */
+  public static void testScheduleOutline(String testName, RecordedSchedule testSchedule, String expectedOutline) {
+
+    // Split the expected outline into days (with the spacing made the same as in generated outlines)
+    String[] expectedDays = expectedOutline.isBlank() ? new String[0] : expectedOutline.split(";");
+    for (int dayIndex = 0; dayIndex < expectedDays.length; dayIndex++) {
+      expectedDays[dayIndex] = expectedDays[dayIndex].trim().replaceAll("\\s+", " ").replace(" ,", ",").replace(" :", ":");
+    }
+
+    // Find the first day that differs
+    String difference = null;
+    for (int dayIndex = 0; dayIndex < Math.min(expectedDays.length, testSchedule.getDayCount()) && difference == null; dayIndex++) {
+      String dayOutline = testSchedule.getDayOutline(dayIndex);
+      if (!dayOutline.equals(expectedDays[dayIndex])) {
+        difference = "day " + (dayIndex + 1) + " differs\n  expected: " + expectedDays[dayIndex] + "\n  got:      " + dayOutline;
+      }
+    }
+    if (difference == null && expectedDays.length != testSchedule.getDayCount()) {
+      difference = "expected " + expectedDays.length + " days but got " + testSchedule.getDayCount();
+    }
+
+    assert difference == null : "Error in test " + testName + ": " + difference + "\nExpected schedule:\n" + String.join("\n", expectedDays) + "\nGot schedule:\n" + testSchedule.getOutline().replace("; ", "\n");
   }
 
   /**
    * Get the next available patient ID, which also increases the next available patient ID for the next call.
    * @return the available patient ID.
+   * @throws FatalError if every patient ID in the register's range has been assigned (another register may be assigning the IDs after it).
    */
   private int getAndUpdatePatientID() {
+    if (lastPatientID != 0 && currentPatientID > lastPatientID) {
+      throw new FatalError("No patient IDs left in the register's range (the last is " + lastPatientID + ") at patient addition");
+    }
     return currentPatientID++;
   }
 
   /**
    * Get the next available doctor ID, which also increases the next available doctor ID for the next call.
    * @return the available doctor ID.
+   * @throws FatalError if every doctor ID in the register's range has been assigned (another register may be assigning the IDs after it).
    */
   private int getAndUpdateDoctorID() {
+    if (lastDoctorID != 0 && currentDoctorID > lastDoctorID) {
+      throw new FatalError("No doctor IDs left in the register's range (the last is " + lastDoctorID + ") at doctor addition");
+    }
     return currentDoctorID++;
   }
 
   
   /**
-   * Add a patient to the listing, ensuring the higher priority patients are listed first (and those who entered first come before those with equal priority).
-   * @param newPatient the new patient to append.
+   * Get the ordinal of a questionnaire key, assigning the next ordinal if the key has not been seen before.
+   * @param key the questionnaire key.
+   * @return the ordinal of the key.
+   * @throws IllegalArgumentException if the key would exceed the maximum number of keys a scorer can handle.
    */
-  public void addPatient(Patient newPatient) {
-    
-    // Get the age of the new patient in whole decades (for example, a nine year old is 0 decades old)
-    int patientAgeInDecades = (int) newPatient.getBirthdate().until(LocalDate.now(), ChronoUnit.DECADES);
+  private int getResponseKeyOrdinal(String key) {
+
+    // Return the existing ordinal if there is one
+    Integer ordinal = responseKeyOrdinals.get(key);
+    if (ordinal != null) {
+      return ordinal;
+    }
+
+    // Ensure there is room for another key
+    if (responseKeys.size() == PriorityScorer.MAXIMUM_KEYS) {
+      throw new IllegalArgumentException("attempt to register more than " + PriorityScorer.MAXIMUM_KEYS + " questionnaire keys (\"" + key + "\")");
+    }
+
+    // Assign the next ordinal (the scorer must be recompiled to include it)
+    key = StringPool.canonicalize(key);
+    responseKeyOrdinals.put(key, responseKeys.size());
+    responseKeys.add(key);
+    priorityScorer = null;
+    return responseKeys.size() - 1;
+  }
+
+  /**
+   * Compute and set a patient's response bitmasks from their medical responses.
+   * @param patient the patient to bind to this register's key ordinals.
+   */
+  private void bindResponses(Patient patient) {
+
+    long positiveMask = 0;
+    long answeredMask = 0;
+
+    // Set the bit for each response
+    for (var pairing : patient.getMedicalResponses().entrySet()) {
+      long bit = 1L << getResponseKeyOrdinal(pairing.getKey());
+      answeredMask |= bit;
+      if (pairing.getValue()) {
+        positiveMask |= bit;
+      }
+    }
+
+    patient.setResponseMasks(positiveMask, answeredMask);
+  }
 
-    // Create a variable to track the running weight (set initially to the weighting points awarded based on age)
-    int calculatedWeight = ageRangeWeights[Math.max(0, Math.min(patientAgeInDecades, 8))];
+  /**
+   * Get the weighting rules described by the age range weights and the questionnaire-response weights.
+   * @return the list of weighting rules.
+   */
+  public ArrayList<WeightingRule> getWeightingRules() {
+    return getWeightingRules(ageRangeWeights, positiveResponseWeights);
+  }
+
+  /**
+   * Get the weighting rules described by a set of age range weights and questionnaire-response weights (which need not be the register's own).
+   * @param ageRangeWeights the mapping of decades (0 through 8 inclusive) to the points for that age range.
+   * @param positiveResponseWeights the mapping of questionnaire keys to the points for a yes response (a negative weight awards a no response).
+   * @return the list of weighting rules.
+   */
+  public static ArrayList<WeightingRule> getWeightingRules(int[] ageRangeWeights, Map<String, Integer> positiveResponseWeights) {
 
-    // Add weighting points for the questionnaire responses
+    ArrayList<WeightingRule> rules = new ArrayList<WeightingRule>();
+
+    // Add the age range rules
+    for (int decade = 0; decade <= PriorityScorer.MAXIMUM_DECADE; decade++) {
+      rules.add(new AgeWeightingRule(ageRangeWeights[decade], decade));
+    }
+
+    // Add the questionnaire rules (the points are awarded for a yes response, so a negative weight functionally awards a no response)
     for (var pairing : positiveResponseWeights.entrySet()) {
+      rules.add(new BooleanWeightingRule(pairing.getValue(), pairing.getKey(), true));
+    }
+
+    return rules;
+  }
+
+  /**
+   * Get the scorer compiled from the current weighting rules for today, compiling it if the weighting has changed or the day has.
+   * @return the compiled scorer.
+   */
+  public PriorityScorer getPriorityScorer() {
+    return getPriorityScorer(LocalDate.now());
+  }
+
+  /**
+   * Get the scorer compiled from the current weighting rules for a given date, compiling it if the weighting or the date has changed.
+   * @param referenceDate the date ages are calculated against.
+   * @return the compiled scorer.
+   */
+  private PriorityScorer getPriorityScorer(LocalDate referenceDate) {
 
-      Boolean patientBoolean = newPatient.getMedicalBoolean(pairing.getKey());
+    if (priorityScorer == null || !priorityScorer.getReferenceDate().equals(referenceDate)) {
+      priorityScorer = new PriorityScorer.Builder(responseKeyOrdinals).build(getWeightingRules(), referenceDate);
+    }
+
+    return priorityScorer;
+  }
+
+  /**
+   * Get a patient's age in whole decades on the birthday index date (the age range they are scored and indexed in).
+   * @param patient the patient to check.
+   * @return the age in decades (from 0 through PriorityScorer.MAXIMUM_DECADE).
+   */
+  private int getAgeInDecades(Patient patient) {
+    return getPriorityScorer(birthdayIndexDate).ageInDecades(patient.getBirthdate().toEpochDay());
+  }
+
+  /**
+   * Get the epoch day of a patient's next decade birthday after the birthday index date (the day they move into the next age range).
+   * @param patient the patient to check.
+   * @return the epoch day of the next decade birthday or -1 if the patient is already in the last age range.
+   */
+  private long getNextDecadeBirthday(Patient patient) {
+
+    // Get the age of the patient in whole decades on the index date
+    int patientAgeInDecades = (int) patient.getBirthdate().until(birthdayIndexDate, ChronoUnit.DECADES);
+
+    if (patientAgeInDecades >= PriorityScorer.MAXIMUM_DECADE) {
+      return -1;
+    }
 
-      // Add points to the weight if the patient answered yes (questions that award upon answering no simply assign negative points for yes responses)
-      if (patientBoolean != null && patientBoolean == true) {
-        calculatedWeight += pairing.getValue();
+    return PriorityScorer.getDecadeBirthday(patient.getBirthdate(), Math.max(patientAgeInDecades + 1, 1)).toEpochDay();
+  }
+
+  /**
+   * Add a patient to the birthday index (unless they are already in the last age range).
+   * @param patient the patient to index.
+   */
+  private void indexDecadeBirthday(Patient patient) {
+
+    long birthday = getNextDecadeBirthday(patient);
+
+    if (birthday != -1) {
+      ArrayList<Patient> patientsOnDay = decadeBirthdayIndex.get(birthday);
+      if (patientsOnDay == null) {
+        patientsOnDay = new ArrayList<Patient>();
+        decadeBirthdayIndex.put(birthday, patientsOnDay);
       }
+      patientsOnDay.add(patient);
     }
+  }
 
-    // Set the patients priority weight and unique ID for this register
-    newPatient.setPriorityWeight(calculatedWeight);
-    newPatient.setPatientID(getAndUpdatePatientID());
-    
+  /**
+   * Remove a patient from the birthday index (if present).
+   * @param patient the patient to remove.
+   */
+  private void unindexDecadeBirthday(Patient patient) {
 
-    // Use a simple linear search to determine the new index of the new patient (so that it is sorted)
-    // Note that the a binary search could also be implemented here if desired and if manual ordering (with flagged patients) is not implemented
-    int index;
+    long birthday = getNextDecadeBirthday(patient);
+    ArrayList<Patient> patientsOnDay = decadeBirthdayIndex.get(birthday);
 
-    // Iterate until the proper insertion index is found
-    for (index = 0; index < patientListing.size(); index++) {
+    if (patientsOnDay != null) {
+      patientsOnDay.remove(patient);
+      if (patientsOnDay.isEmpty()) {
+        decadeBirthdayIndex.remove(birthday);
+      }
+    }
+  }
 
-      Patient comparisonPatient = patientListing.get(index);
+  /**
+   * Move a patient in the listing to the position for a new priority weight.
+   * @param patient the patient to move (it must be in the listing).
+   * @param newWeight the patient's new priority weight.
+   */
+  private void repositionPatient(Patient patient, int newWeight) {
 
-      // Leave the index search when the patient lies at the correct index
-      if (newPatient.compareTo(comparisonPatient) < 0) {
-        break;
+    // Take the patient out of the rank index while their weight changes (the index finds patients by their weight)
+    if (rankIndex != null) {
+      rankIndex.remove(patient);
+    }
+
+    patientColumns.setPriorityWeight(patient.getColumnOrdinal(), newWeight);
+
+    if (isLazyOrdering) {
+      // Simply update the weight if the listing is not kept sorted
+      patient.setPriorityWeight(newWeight);
+      isListingDirty = true;
+      markListingChanged(0); // The patient's position is not known, so no snapshot chunk can be assumed to hold their old weight
+
+    } else {
+      // Find the patient by their current weight (the listing is sorted, and IDs make every position unique)
+      int index = Collections.binarySearch(patientListing, patient);
+      if (index >= 0) {
+        patientListing.remove(index);
+        markListingChanged(index);
       }
+
+      // Re-insert the patient with their new weight
+      patient.setPriorityWeight(newWeight);
+      int newIndex = -Collections.binarySearch(patientListing, patient) - 1;
+      patientListing.add(newIndex, patient);
+      markListingChanged(newIndex);
     }
 
-    // Append the patient at the proper index
-    patientListing.add(index, newPatient);
+    if (rankIndex != null) {
+      rankIndex.add(patient);
+    }
   }
 
   /**
-   * Remove the passed patient from the listing if present (return false if not present).
+   * Rescore and reposition the patients who have moved into a new age range since this was last called (this is cheap when no one has, so it can be called daily or before every command).
+   * @param today the current date.
+   * @return the number of patients rescored.
+   */
+  public int rescoreBirthdays(LocalDate today) {
+
+    // Do nothing if the day has not changed
+    if (!today.isAfter(birthdayIndexDate)) {
+      return 0;
+    }
+
+    // Advance the index date (so that rescored patients are re-indexed by their following decade birthday)
+    birthdayIndexDate = today;
+    PriorityScorer scorer = getPriorityScorer(today);
+    int rescoredCount = 0;
+
+    // Rescore the patients for each decade birthday that has been reached
+    while (!decadeBirthdayIndex.isEmpty() && decadeBirthdayIndex.firstKey() <= today.toEpochDay()) {
+      for (Patient patient : decadeBirthdayIndex.pollFirstEntry().getValue()) {
+        repositionPatient(patient, scorer.scorePatient(patient));
+        indexDecadeBirthday(patient);
+        if (cohortIndex != null) {
+          cohortIndex.setDecade(patient, scorer.ageInDecades(patient.getBirthdate().toEpochDay()));
+        }
+        rescoredCount++;
+      }
+    }
+
+    return rescoredCount;
+  }
+
+  /**
+   * Add a patient to the listing, ensuring the higher priority patients are listed first (and those who entered first come before those with equal priority).
+   * @param newPatient the new patient to append.
+   * @throws FatalError if every patient ID in the register's range has been assigned.
+   */
+  public void addPatient(Patient newPatient) {
+
+    // Bring the existing patients' age weighting up to date (so that all weights are for the same day)
+    rescoreBirthdays(LocalDate.now());
+
+    // Set the patient's unique ID for this register
+    newPatient.setPatientID(getAndUpdatePatientID());
+
+    // Bind the patient's responses to this register's key ordinals, and then set the patient's priority weight for this register
+    bindResponses(newPatient);
+    newPatient.setPriorityWeight(getPriorityScorer(birthdayIndexDate).scorePatient(newPatient));
+
+    // Index the patient's ID, name, identity, and next decade birthday
+    patientIndex.add(newPatient);
+    identityIndex.add(newPatient);
+    indexDecadeBirthday(newPatient);
+    if (rankIndex != null) {
+      rankIndex.add(newPatient);
+    }
+    if (cohortIndex != null) {
+      cohortIndex.add(newPatient, getAgeInDecades(newPatient));
+    }
+    patientCountByAvailability[newPatient.getAvailableDays()]++;
+    newPatient.setColumnOrdinal(patientColumns.add(newPatient));
+
+    // Simply append the patient if the listing is not kept sorted
+    if (isLazyOrdering) {
+      patientListing.add(newPatient);
+      isListingDirty = true;
+      markListingChanged(patientListing.size() - 1);
+    } else {
+      // Use a binary search to determine the index of the new patient (so that it is sorted)
+      // Note that this must return to a linear search if manual ordering (with flagged patients) is implemented
+      int index = -Collections.binarySearch(patientListing, newPatient) - 1;
+
+      // Append the patient at the proper index
+      patientListing.add(index, newPatient);
+      markListingChanged(index);
+    }
+  }
+
+  /**
+   * Set the level the register's save state is compressed with. Compressed save states are written in independent blocks with their own checksums, which are compressed and decompressed on several threads.
+   * @param saveCompressionLevel the compression level from 1 (the fastest) to 9 (the smallest), or 0 to save without compression.
+   * @throws IllegalArgumentException if the level is not from 0 to 9.
+   */
+  public void setSaveCompressionLevel(int saveCompressionLevel) {
+
+    if (saveCompressionLevel < 0 || saveCompressionLevel > 9) {
+      throw new IllegalArgumentException("illegal save state compression level: " + saveCompressionLevel);
+    }
+
+    this.saveCompressionLevel = saveCompressionLevel;
+  }
+
+  /**
+   * Getter for the save state compression level.
+   * @return the compression level from 1 (the fastest) to 9 (the smallest), or 0 if the save state is not compressed.
+   */
+  public int getSaveCompressionLevel() {
+    return saveCompressionLevel;
+  }
+
+  /**
+   * Write the register to a save state stream (compressed if a compression level is set).
+   * @param out the stream to write to (it is closed once the register is written).
+   * @throws IOException if the stream cannot be written to.
+   */
+  public void writeSaveState(OutputStream out) throws IOException {
+
+    OutputStream saveStateOut = saveCompressionLevel == 0 ? new BufferedOutputStream(out) : new BlockDeflaterOutputStream(out, saveCompressionLevel);
+
+    try (ObjectOutputStream writer = new ObjectOutputStream(saveStateOut)) {
+      writer.writeObject(this);
+    }
+  }
+
+  /**
+   * Get the off-heap columns of the patients' scoring data (they are kept in step with the listing, so they should not be modified).
+   * @return the columnar store.
+   */
+  ColumnarPatientStore getPatientColumns() {
+    return patientColumns;
+  }
+
+  /**
+   * Get the number of index sections (of the ID table, name postings, and birthday index) that were reused from the save state the register was loaded from. Sections that were missing, damaged, or out of date were rebuilt instead.
+   * @return the number of reused sections (0 if the register was not loaded from a save state).
+   */
+  int getReusedIndexSectionCount() {
+    return reusedIndexSectionCount;
+  }
+
+  /**
+   * Read a register from a save state stream (which may or may not be compressed).
+   * @param in the stream to read from (it is closed once the register is read).
+   * @return the register.
+   * @throws IOException if the stream cannot be read or is damaged (an EOFException if it is empty).
+   * @throws ClassNotFoundException if the stream refers to a class that cannot be found.
+   */
+  public static Register readSaveState(InputStream in) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream reader = new ObjectInputStream(BlockInflaterInputStream.decompressIfCompressed(in))) {
+      return (Register) reader.readObject();
+    }
+  }
+
+  /**
+   * Set the archive removed patients are moved into. Patient IDs continue after the largest archived ID, so archived patients keep unique IDs (such as after the register is reset).
+   * @param archive the archive or null to stop keeping removed patients.
+   */
+  public void setArchive(PatientArchive archive) {
+    this.archive = archive;
+    if (archive != null) {
+      currentPatientID = Math.max(currentPatientID, archive.getMaximumPatientID() + 1);
+    }
+  }
+
+  /**
+   * Getter for the archive.
+   * @return the archive removed patients are moved into (or null if removed patients are not kept).
+   */
+  public PatientArchive getArchive() {
+    return archive;
+  }
+
+  /**
+   * Helper method that moves patients into the archive (if there is one) before they are removed.
+   * @param patients the patients being removed.
+   * @param wereVaccinated whether the patients were vaccinated (rather than removed for another reason).
+   * @throws UncheckedIOException if the archive cannot be written to.
+   */
+  private void archivePatients(Collection<Patient> patients, boolean wereVaccinated) {
+    if (archive != null) {
+      try {
+        archive.append(patients, LocalDate.now(), wereVaccinated);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Remove the passed patient from the listing if present (return false if not present), moving them into the archive if there is one.
    * @param patient the patient to remove.
    * @return true if the patient was found and removed or false otherwise.
+   * @throws UncheckedIOException if the archive cannot be written to (the patient is then not removed).
    */
   public boolean removePatient(Patient patient) {
-    return patientListing.remove(patient);
+
+    // Remove the patient and, if they were present, remove their entry in the birthday index
+    int index = patientListing.indexOf(patient);
+    if (index >= 0) {
+      archivePatients(List.of(patient), false);
+      patientListing.remove(index);
+      markListingChanged(index);
+      patientIndex.remove(patient);
+      identityIndex.remove(patient);
+      unindexDecadeBirthday(patient);
+      if (rankIndex != null) {
+        rankIndex.remove(patient);
+      }
+      if (cohortIndex != null) {
+        cohortIndex.remove(patient);
+      }
+      patientCountByAvailability[patient.getAvailableDays()]--;
+      removeFromColumns(patient);
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Remove several patients from the listing in one pass over it (which is much faster than removing them one at a time from a large listing), moving them into the archive if there is one.
+   * @param patients the patients to remove (those not in the listing are ignored).
+   * @return the number of patients removed.
+   * @throws UncheckedIOException if the archive cannot be written to (the patients are then not removed).
+   */
+  public int removePatients(Collection<Patient> patients) {
+    return removePatients(patients, false);
+  }
+
+  /**
+   * Remove several patients from the listing in one pass over it, moving them into the archive if there is one.
+   * @param patients the patients to remove (those not in the listing are ignored).
+   * @param wereVaccinated whether the patients were vaccinated (rather than removed for another reason).
+   * @return the number of patients removed.
+   * @throws UncheckedIOException if the archive cannot be written to (the patients are then not removed).
+   */
+  public int removePatients(Collection<Patient> patients, boolean wereVaccinated) {
+
+    // Keep only the patients in the listing (the ID index holds exactly the listed patients)
+    Set<Patient> patientsToRemove = Collections.newSetFromMap(new IdentityHashMap<Patient, Boolean>());
+    for (Patient patient : patients) {
+      if (patientIndex.getPatient(patient.getPatientID()) == patient) {
+        patientsToRemove.add(patient);
+      }
+    }
+
+    if (patientsToRemove.isEmpty()) {
+      return 0;
+    }
+
+    archivePatients(patientsToRemove, wereVaccinated);
+
+    // Find the first position that will change
+    int firstIndex = 0;
+    while (firstIndex < patientListing.size() && !patientsToRemove.contains(patientListing.get(firstIndex))) {
+      firstIndex++;
+    }
+
+    // Find where the run of patients to remove starting there ends
+    int runEnd = firstIndex;
+    while (runEnd < patientListing.size() && patientsToRemove.contains(patientListing.get(runEnd))) {
+      runEnd++;
+    }
+
+    if (runEnd - firstIndex == patientsToRemove.size()) {
+      // Cut out the run with one copy (such as the scheduled patients at the front of a sorted listing, where only the run is visited)
+      patientListing.subList(firstIndex, runEnd).clear();
+
+    } else {
+      // Close every gap in one pass
+      patientListing.removeIf(patientsToRemove::contains);
+    }
+
+    markListingChanged(firstIndex);
+
+    // Remove the patients from the indexes (the ID and name index removes them all in one pass)
+    for (Patient patient : patientsToRemove) {
+      identityIndex.remove(patient);
+      unindexDecadeBirthday(patient);
+      if (rankIndex != null) {
+        rankIndex.remove(patient);
+      }
+      if (cohortIndex != null) {
+        cohortIndex.remove(patient);
+      }
+      patientCountByAvailability[patient.getAvailableDays()]--;
+      removeFromColumns(patient);
+    }
+    patientIndex.removeAll(patientsToRemove);
+
+    return patientsToRemove.size();
+  }
+
+  /**
+   * Helper method that removes a patient's record from the columns (the patient whose record takes its place must still be in the ID index).
+   * @param patient the patient.
+   */
+  private void removeFromColumns(Patient patient) {
+    int movedPatientID = patientColumns.remove(patient.getColumnOrdinal());
+    if (movedPatientID != -1) {
+      patientIndex.getPatient(movedPatientID).setColumnOrdinal(patient.getColumnOrdinal());
+    }
+  }
+
+  /**
+   * Remove the patients with the given IDs in one pass over the listing (such as those marked as vaccinated after a clinic day), moving them into the archive if there is one.
+   * @param patientIDs the IDs of the patients to remove (IDs no patient has are ignored).
+   * @param wereVaccinated whether the patients were vaccinated (rather than removed for another reason).
+   * @return the number of patients removed.
+   * @throws UncheckedIOException if the archive cannot be written to (the patients are then not removed).
+   */
+  public int removePatientsByID(int[] patientIDs, boolean wereVaccinated) {
+
+    ArrayList<Patient> patientsToRemove = new ArrayList<Patient>(patientIDs.length);
+    for (int patientID : patientIDs) {
+      Patient patient = patientIndex.getPatient(patientID);
+      if (patient != null) {
+        patientsToRemove.add(patient);
+      }
+    }
+
+    return removePatients(patientsToRemove, wereVaccinated);
+  }
+
+  /**
+   * Remove the patients on a range of active days of the last schedule given out by generateScheduleString (such as after those days' clinics), moving them into the archive as vaccinated if there is one. The patients are taken from the schedule as it was given out rather than from a new schedule, so the register must not have changed since (apart from clearing patients of the same schedule). When patients' availability is not restricted, the scheduled patients are at the front of the listing, so they are cut out in one copy.
+   * @param firstDayNumber the first active day of the schedule to clear (starting from 1).
+   * @param lastDayNumber the last active day of the schedule to clear.
+   * @return the number of patients removed (patients already cleared are not counted).
+   * @throws IllegalArgumentException if the range of days is not valid.
+   * @throws IllegalStateException if no schedule has been given out, or the register has changed since it was.
+   * @throws UncheckedIOException if the archive cannot be written to (the patients are then not removed).
+   */
+  public int removeScheduledPatients(int firstDayNumber, int lastDayNumber) {
+
+    if (firstDayNumber < 1 || lastDayNumber < firstDayNumber) {
+      throw new IllegalArgumentException("illegal range of schedule days to clear: [" + firstDayNumber + ", " + lastDayNumber + "]");
+    }
+
+    // Refuse to clear patients if the schedule that was given out is not known or may differ from the register
+    if (issuedSchedule == null) {
+      throw new IllegalStateException("no schedule has been generated since the register was opened");
+    } else if (issuedScheduleVersion != version) {
+      throw new IllegalStateException("the register has changed since the schedule was generated");
+    }
+
+    // Collect the patients on the days in the range
+    ArrayList<Patient> scheduledPatients = new ArrayList<Patient>();
+    issuedSchedule.writeDaysTo(new ScheduleSink() {
+
+      @Override
+      public void appendDay(int dayNumber, int dayOfWeek) {}
+
+      @Override
+      public void appendAppointment(Doctor doctor, Patient patient) {
+        scheduledPatients.add(patient);
+      }
+    }, firstDayNumber, lastDayNumber);
+
+    // Keep the schedule current (clearing its own patients does not change who was given the other days)
+    int removedCount = removePatients(scheduledPatients, true);
+    issuedScheduleVersion = version;
+    return removedCount;
+  }
+
+  /**
+   * Find a likely duplicate of a patient in the listing (someone else with the same case-folded name, birthdate, and phone number digits, or the same email address), such as before a new patient is added.
+   * @param patient the patient to check.
+   * @return the first registered patient who is a likely duplicate, or null if there is none.
+   */
+  public Patient findDuplicatePatient(Patient patient) {
+    return identityIndex.findDuplicate(patient);
+  }
+
+  /**
+   * Find every patient who is a likely duplicate of someone who registered before them.
+   * @return the later registrations of duplicated patients in the order of their IDs.
+   */
+  public ArrayList<Patient> findDuplicatePatients() {
+
+    return identityIndex.findLaterDuplicates();
+  }
+
+  /**
+   * Check if any patients in the listing are only available on some days of the week (schedules then match patients to the days they are available).
+   * @return whether any patient's availability is restricted.
+   */
+  public boolean hasAvailabilityRestrictions() {
+    return patientCountByAvailability[Patient.ALL_DAYS] != patientListing.size();
+  }
+
+  /**
+   * Set the days of the week a patient in the listing is available (so that schedules generated since are not used).
+   * @param patient the patient.
+   * @param availableDays the bitmask of the days of the week the patient is available (where bit 0 is Sunday and bit 6 is Saturday).
+   * @return true if the patient was found and updated or false otherwise.
+   * @throws IllegalArgumentException if the bitmask has no days or has bits for other days.
+   */
+  public boolean setAvailableDays(Patient patient, int availableDays) {
+
+    if (patientIndex.getPatient(patient.getPatientID()) != patient) {
+      return false;
+    }
+
+    int previousAvailableDays = patient.getAvailableDays();
+    patient.setAvailableDays(availableDays);
+    patientCountByAvailability[previousAvailableDays]--;
+    patientCountByAvailability[patient.getAvailableDays()]++;
+    patientColumns.setAvailableDays(patient.getColumnOrdinal(), patient.getAvailableDays());
+
+    // The listing's order is unchanged, but its schedules are not
+    version++;
+    return true;
   }
 
   /**
@@ -245,6 +1215,13 @@ public class Register implements Serializable {
    */
   public ArrayList<Patient> getPatientsByName(String name) {
 
+    // Use the name index if the name is long enough to be searched for with it (sorting the results into priority order)
+    ArrayList<Patient> indexedResult = patientIndex.findByName(name);
+    if (indexedResult != null) {
+      Collections.sort(indexedResult);
+      return indexedResult;
+    }
+
     // Create a working result list
     ArrayList<Patient> searchResult = new ArrayList<Patient>();
 
@@ -264,42 +1241,125 @@ public class Register implements Serializable {
    * @return the patient with the specified patient ID or null.
    */
   public Patient getPatientByID(int patientID) {
-
-    // Search for and return the patient with the matching ID
-    for (Patient patient : patientListing) {
-      if (patient.getPatientID() == patientID) {
-        return patient;
-      }
-    }
-
-    // No match was found (return null)
-    return null;
+    return patientIndex.getPatient(patientID);
   }
 
   /**
-   * Get the entire patient listing (it is not recommended that the returned list be modified).
+   * Get the entire patient listing in priority order, sorting it first if needed (it is not recommended that the returned list be modified).
+   * The returned list is the register's own listing, so when lazy ordering has left it out of order it is sorted in place: this costs O(n log n), and since every position may change, the next snapshot copies the whole listing. Readers that do not need priority order can use getSnapshot().getPatients() instead.
    * @return the patient listing.
    */
   public ArrayList<Patient> getPatientsList() {
+    ensurePatientsOrdered();
     return patientListing;
   }
 
   /**
-   * Re-sort the patient listing by re-adding each patient back into the listing.
+   * Get the questionnaire keys by key ordinal (the bit positions of patients' response masks).
+   * @return the unmodifiable list of keys.
    */
-  public void recompilePatients() {
+  public List<String> getResponseKeys() {
+    return Collections.unmodifiableList(responseKeys);
+  }
+
+  /**
+   * Sort the patient listing if it may be out of priority order.
+   */
+  private void ensurePatientsOrdered() {
+    if (isListingDirty) {
+      patientListing.sort(null);
+      isListingDirty = false;
+      firstChangedIndex = 0; // The register's contents are unchanged, but positions are not (so the next snapshot cannot share chunks)
+    }
+  }
 
-    // Make a reference to the old listing
-    ArrayList<Patient> oldPatientListing = patientListing;
+  /**
+   * Helper method that records a change to the patient listing at a position.
+   * @param index the first position of the listing that changed.
+   */
+  private void markListingChanged(int index) {
+    version++;
+    firstChangedIndex = Math.min(firstChangedIndex, index);
+  }
 
-    // Clear the current listing
-    patientListing = new ArrayList<Patient>();
+  /**
+   * Get the version of the register, which increases with every change made through the register (to the listings, doses, or weighting). Changes made directly to a patient or doctor are not counted.
+   * @return the version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Get an immutable snapshot of the register's listings and dose capacity at the current version. Snapshots are shared between readers until the register changes, and a new snapshot shares the chunks of the listing before the first change with the last one, so taking snapshots does not copy the whole listing after each change.
+   * @return the snapshot.
+   */
+  public RegisterSnapshot getSnapshot() {
 
-    // Re-add each patient from the old listing
-    for (Patient patient : oldPatientListing) {
-      addPatient(patient);
+    // Take a new snapshot if the register has changed (or the listing has been sorted since an unordered snapshot)
+    if (snapshot == null || snapshot.getVersion() != version || (!snapshot.isOrdered() && !isListingDirty)) {
+      snapshot = new RegisterSnapshot(version, patientListing, !isListingDirty, hasAvailabilityRestrictions(), doctorListing, getMaximumDosesPerDay(), snapshot, firstChangedIndex);
+      firstChangedIndex = Integer.MAX_VALUE;
     }
 
+    return snapshot;
+  }
+
+  /**
+   * Set whether patients are appended without sorting. Lazy ordering makes adding a patient O(1), and schedules then select only the highest priority patients they need rather than keeping the whole listing sorted.
+   * @param isLazyOrdering whether to use lazy ordering.
+   */
+  public void setLazyOrdering(boolean isLazyOrdering) {
+    this.isLazyOrdering = isLazyOrdering;
+    ensurePatientsOrdered();
+  }
+
+  /**
+   * Check whether patients are appended without sorting.
+   * @return whether lazy ordering is used.
+   */
+  public boolean isLazyOrdering() {
+    return isLazyOrdering;
+  }
+
+  /**
+   * Get the highest priority patients in priority order. If the listing may be out of order, only the requested patients are selected (by the current snapshot, with a bounded heap) and sorted, unless they make up most of the listing.
+   * @param count the maximum number of patients to get.
+   * @return the list of up to count patients in priority order (it is not recommended that the returned list be modified).
+   */
+  public List<Patient> getTopPatients(int count) {
+
+    // Sort the whole listing if it is in order already or nearly the whole listing is needed
+    if (!isListingDirty || Math.min(count, patientListing.size()) * 2 >= patientListing.size()) {
+      ensurePatientsOrdered();
+      return patientListing.subList(0, Math.min(count, patientListing.size()));
+    }
+
+    return getSnapshot().getTopPatients(count);
+  }
+
+  /**
+   * Re-score every patient with the current weighting rules and re-sort the patient listing (patients keep their IDs, so ties are still broken first come, first serve).
+   */
+  public void recompilePatients() {
+
+    PriorityScorer scorer = getPriorityScorer(birthdayIndexDate);
+
+    // Re-score every record of the columns in one pass, and then copy the weights to the patients (the rank index is rebuilt when next needed, since every weight may change)
+    patientColumns.rescore(scorer);
+    for (Patient patient : patientListing) {
+      patient.setPriorityWeight(patientColumns.getPriorityWeight(patient.getColumnOrdinal()));
+    }
+    version++;
+    rankIndex = null;
+
+    // Re-sort the listing (or leave it to be sorted when needed), and stop snapshots reusing chunks with the old weights
+    firstChangedIndex = 0;
+    if (isLazyOrdering) {
+      isListingDirty = true;
+    } else {
+      patientListing.sort(null);
+    }
   }
 
 
@@ -307,10 +1367,12 @@ public class Register implements Serializable {
   /**
    * Add a doctor to the listing, where the newest doctor is stored at the end of the list.
    * @param newDoctor the new doctor to append.
+   * @throws FatalError if every doctor ID in the register's range has been assigned.
    */
   public void addDoctor(Doctor newDoctor) {
     newDoctor.setDoctorID(getAndUpdateDoctorID());
     doctorListing.add(newDoctor);
+    version++;
   }
 
   /**
@@ -319,7 +1381,13 @@ public class Register implements Serializable {
    * @return true if the doctor was found and removed or false otherwise.
    */
   public boolean removeDoctor(Doctor doctor) {
-    return doctorListing.remove(doctor);
+
+    if (doctorListing.remove(doctor)) {
+      version++;
+      return true;
+    }
+
+    return false;
   }
 
   /**
@@ -385,6 +1453,7 @@ public class Register implements Serializable {
    */
   public void setDailyDoses(int dayNumber, int numberOfDoses) {
     dosesPerDay[dayNumber - 1] = numberOfDoses;
+    version++;
   }
 
   /**
@@ -403,6 +1472,8 @@ public class Register implements Serializable {
    */
   public void setAgeRangeWeight(int decade, int newWeight) {
     ageRangeWeights[decade] = newWeight;
+    priorityScorer = null;
+    version++;
   }
 
   /**
@@ -420,6 +1491,8 @@ public class Register implements Serializable {
    */
   public void setPositiveResponseWeights(TreeMap<String, Integer> newWeighting) {
     positiveResponseWeights = newWeighting;
+    priorityScorer = null;
+    version++;
   }
 
   /**
@@ -469,38 +1542,45 @@ public class Register implements Serializable {
   }
 
   /**
-   * Helper method for generating a schedule that performs the buffer writing for each day.
-   * @param workingSchedule the buffer to append to.
-   * @doctorIndexToPatientsList the mapping from doctor indices to the list of patients that doctor will vaccinate.
+   * Helper method for generating a schedule that passes each day's appointments to the sink.
+   * @param sink the sink to pass the appointments to.
+   * @param doctors the doctors in the schedule.
+   * @param doctorIndexToPatientsList the mapping from doctor indices to the list of patients that doctor will vaccinate.
    */
-  private void appendDayToSchedule(StringBuffer workingSchedule, ArrayList<ArrayList<Patient>> doctorIndexToPatientsList) {
+  private static void appendDayToSchedule(ScheduleSink sink, List<Doctor> doctors, ArrayList<ArrayList<Patient>> doctorIndexToPatientsList) {
     
     // Iterate over each doctor index (alike each doctor)
-    for (int doctorIndex = 0; doctorIndex < doctorListing.size(); doctorIndex++) {
+    for (int doctorIndex = 0; doctorIndex < doctors.size(); doctorIndex++) {
 
-      // Check if the current doctor has been scheduled to vaccinate anyone
-      if (doctorIndexToPatientsList.get(doctorIndex).size() != 0) {
+      // Get the list of all the patients the current doctor is scheduled to vaccinate on the current day
+      ArrayList<Patient> patientsToVaccinate = doctorIndexToPatientsList.get(doctorIndex);
 
-        // Append a head to the buffer
-        workingSchedule.append(doctorListing.get(doctorIndex).getName() + " will vaccinate:\n");
-        
-        // Get the list of all the patients the current doctor is scheduled to vaccinate on the current day
-        ArrayList<Patient> patientsToVaccinate = doctorIndexToPatientsList.get(doctorIndex);
+      // Pass each patient the doctor is now scheduled to vaccinate to the sink
+      for (Patient patient : patientsToVaccinate) {
+        sink.appendAppointment(doctors.get(doctorIndex), patient);
+      }
 
-        // Append each patient the doctor is now scheduled to vaccinate to the buffer
-        for (Patient patient : patientsToVaccinate) {
-          workingSchedule.append("\t" + patient.getContactDetails() +  "\n");
-        }
+      // Remove the passed patients
+      patientsToVaccinate.clear();
+    }
+  }
 
-        // Remove the appended patients
-        doctorIndexToPatientsList.get(doctorIndex).clear();
-      }
-      
+  /**
+   * Get the maximum doses that can be administered for each day of the week.
+   * @return the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   */
+  public int[] getMaximumDosesPerDay() {
+
+    int[] maximumDosesPerDay = new int[7];
+    for (int dayIndex = 1; dayIndex <= 7; dayIndex++) {
+      maximumDosesPerDay[dayIndex - 1] = maximumDosesForDay(dayIndex);
     }
+
+    return maximumDosesPerDay;
   }
 
   /**
-   * Generate the schedule for the current state, save the schedule in the currentSchedule field, and return the new schedule.
+   * Generate the schedule for the current state, save the schedule in the currentSchedule field (and keep it as the schedule vaccinated patients are cleared from), and return the new schedule.
    * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
    * @param numberOfDays the number of active days to schedule out to.
    * @return the new schedule.
@@ -508,67 +1588,584 @@ public class Register implements Serializable {
    */
   public String generateScheduleString(int startingDayIndex, int numberOfDays) {
 
-    // Create a working string to present as the schedule, and set it initially to the schedule's header
-    StringBuffer workingSchedule = new StringBuffer("Schedule as of " + BasicFormatter.getDateString(LocalDate.now()) + ":\n");
+    // Write the schedule as text, keeping the schedule that was given out (so its patients can be cleared)
+    TextScheduleSink workingSchedule = new TextScheduleSink();
+    issuedSchedule = getRecordedSchedule(startingDayIndex, numberOfDays);
+    issuedScheduleVersion = version;
+    issuedSchedule.writeTo(workingSchedule);
+
+    // Save and return the resulting schedule
+    currentSchedule = workingSchedule.toString();
+    return currentSchedule;
+  }
+
+  /**
+   * Generate the schedule for the current state and pass it to a sink (this does not change the current schedule).
+   * A schedule that is already cached is passed from the cache; otherwise the schedule is passed straight from the generator without being recorded or cached (so a one-off sink, such as an export of a very large schedule, does not hold the whole schedule in memory).
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @param sink the sink to pass the schedule to.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  public void writeSchedule(int startingDayIndex, int numberOfDays, ScheduleSink sink) {
+
+    // Use the schedule if it was generated since the last change
+    ScheduleCache.Entry cachedEntry = scheduleCache == null ? null : scheduleCache.get(version, startingDayIndex, numberOfDays);
+    if (cachedEntry != null) {
+      cachedEntry.getSchedule().writeTo(sink);
+      return;
+    }
+
+    // Sort the listing first if every patient may need to be considered (so the snapshot is in order)
+    if (isListingDirty && hasAvailabilityRestrictions()) {
+      ensurePatientsOrdered();
+    }
+
+    writeSchedule(getSnapshot(), startingDayIndex, numberOfDays, sink);
+  }
+
+  /**
+   * Get the number of schedules in the register's schedule cache.
+   * @return the number of cached schedules.
+   */
+  int getCachedScheduleCount() {
+    return scheduleCache == null ? 0 : scheduleCache.size();
+  }
+
+  /**
+   * Helper method that gets the schedule for the current state from the schedule cache, generating it (or continuing a shorter cached schedule) if it is not cached.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @return the schedule (which should not be appended to).
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  private RecordedSchedule getRecordedSchedule(int startingDayIndex, int numberOfDays) {
+
+    if (scheduleCache == null) {
+      scheduleCache = new ScheduleCache();
+    }
+
+    // Use the schedule if it was generated since the last change
+    ScheduleCache.Entry cachedEntry = scheduleCache.get(version, startingDayIndex, numberOfDays);
+    if (cachedEntry != null) {
+      return cachedEntry.getSchedule();
+    }
+
+    // Sort the listing first if every patient may need to be considered (so the snapshot is in order)
+    if (isListingDirty && hasAvailabilityRestrictions()) {
+      ensurePatientsOrdered();
+    }
+
+    RegisterSnapshot currentSnapshot = getSnapshot();
+    RecordedSchedule schedule;
+    ScheduleProgress progress;
+
+    ScheduleCache.Entry shorterEntry = scheduleCache.findShorter(version, startingDayIndex, numberOfDays);
+    if (shorterEntry != null) {
+
+      // Continue the shorter schedule from where it stopped (its days are the start of the longer schedule, since patients are taken in priority order)
+      schedule = new RecordedSchedule(shorterEntry.getSchedule());
+      progress = new ScheduleProgress(shorterEntry.getProgress());
+
+      int[] maximumDosesPerDay = currentSnapshot.getMaximumDosesPerDay();
+      List<Patient> patientsToSchedule = currentSnapshot.getTopPatients(getScheduleCapacity(maximumDosesPerDay, startingDayIndex, numberOfDays));
+      List<Patient> remainingPatients = patientsToSchedule.subList(Math.min(progress.scheduledCount, patientsToSchedule.size()), patientsToSchedule.size());
+      generateSchedule(remainingPatients.iterator(), null, currentSnapshot.getDoctors(), maximumDosesPerDay, progress, numberOfDays, schedule);
+
+    } else {
+      schedule = new RecordedSchedule();
+      progress = writeSchedule(currentSnapshot, startingDayIndex, numberOfDays, schedule, true);
+    }
+
+    scheduleCache.put(version, startingDayIndex, numberOfDays, schedule, progress);
+    return schedule;
+  }
+
+  /**
+   * Get the number of active days a schedule needs to include every patient who can be scheduled (those available on at least one day doses are administered). Pages of the schedule, projected appointments, and scheduled cohorts are all from the schedule out to this many days.
+   * When some patients are only available on certain days, a day may be left with open places while patients wait for a later day they are available, so the days are found from how many patients are only available on each set of days (see AvailabilityMatcher.getDaysNeeded) rather than from the number of patients.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @return the number of active days.
+   * @throws FatalError if no doses can be administered (there is no way of scheduling patients).
+   */
+  public int getDaysNeeded(int startingDayIndex) {
+
+    AppointmentProjector projector = getAppointmentProjector(startingDayIndex);
+
+    if (!hasAvailabilityRestrictions()) {
+      return projector.getDaysNeeded(patientListing.size());
+    }
+
+    return AvailabilityMatcher.getDaysNeeded(patientCountByAvailability, getMaximumDosesPerDay(), startingDayIndex);
+  }
+
+  /**
+   * Project when a patient will be vaccinated (their rank in priority order, and the day and doctor of their appointment) without generating the schedule. The rank comes from a rank index kept alongside the listing, and the day and doctor from an AppointmentProjector, so projections take logarithmic time.
+   * When some patients are only available on certain days, patients may be moved to later days, so the appointment is found in the full schedule instead (which is generated once and reused until the register changes).
+   * @param patientID the ID of the patient.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @return the projected appointment, or null if no patient has the ID.
+   * @throws FatalError if no doses can be administered (there is no way of scheduling patients).
+   */
+  public AppointmentProjector.Projection projectAppointment(int patientID, int startingDayIndex) {
+
+    Patient patient = patientIndex.getPatient(patientID);
+    if (patient == null) {
+      return null;
+    }
+
+    int rank = getRankIndex().getRank(patient);
+    AppointmentProjector projector = getAppointmentProjector(startingDayIndex);
+
+    if (!hasAvailabilityRestrictions()) {
+      return projector.project(patient, rank);
+    }
+
+    // Find the appointment in a schedule long enough for every patient
+    RecordedSchedule schedule = getRecordedSchedule(startingDayIndex, getDaysNeeded(startingDayIndex));
+    int appointment = schedule.findAppointment(patient);
+    if (appointment == -1) {
+      return new AppointmentProjector.Projection(patient, rank, -1, -1, null);
+    }
+
+    int dayIndex = schedule.getAppointmentDayIndex(appointment);
+    return new AppointmentProjector.Projection(patient, rank, schedule.getDayNumber(dayIndex), schedule.getDayOfWeek(dayIndex), schedule.getAppointmentDoctor(appointment));
+  }
+
+  /**
+   * Generate a range of active days of the schedule as text, without generating the days before them (this does not change the current schedule).
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param firstDayNumber the active day number of the first day (from 1).
+   * @param lastDayNumber the active day number of the last day.
+   * @return the days of the schedule.
+   * @throws IllegalArgumentException if the range of days is empty or does not start from a positive day number.
+   * @throws FatalError if no doses can be administered (there is no way of scheduling patients).
+   */
+  public String generateScheduleDaysString(int startingDayIndex, int firstDayNumber, int lastDayNumber) {
+    TextScheduleSink workingSchedule = new TextScheduleSink();
+    writeScheduleDays(startingDayIndex, firstDayNumber, lastDayNumber, workingSchedule);
+    return workingSchedule.toString();
+  }
+
+  /**
+   * Pass a range of active days of the schedule to a sink, without generating the days before them (such as to show a schedule one day at a time). Every active day is filled to its maximum doses when patients are taken in priority order, so the rank of the first patient on a day and where the rotation across doctors starts follow from the doses of each day (worked out by an AppointmentProjector), and only the patients of the requested days are taken from the rank index.
+   * When some patients are only available on certain days, patients may be moved to later days, so the days are taken from the full schedule instead (which is generated once and reused until the register changes). Since which patients are matched to a day depends on how many days are scheduled, the full schedule is scheduled out to every patient (as with projected appointments), so every page is from the same schedule.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param firstDayNumber the active day number of the first day (from 1).
+   * @param lastDayNumber the active day number of the last day.
+   * @param sink the sink to pass the days to.
+   * @throws IllegalArgumentException if the range of days is empty or does not start from a positive day number.
+   * @throws FatalError if no doses can be administered (there is no way of scheduling patients).
+   */
+  public void writeScheduleDays(int startingDayIndex, int firstDayNumber, int lastDayNumber, ScheduleSink sink) {
+
+    if (firstDayNumber < 1 || lastDayNumber < firstDayNumber) {
+      throw new IllegalArgumentException("illegal range of schedule days: " + firstDayNumber + " to " + lastDayNumber);
+    }
+
+    AppointmentProjector projector = getAppointmentProjector(startingDayIndex);
+
+    if (hasAvailabilityRestrictions()) {
+      getRecordedSchedule(startingDayIndex, getDaysNeeded(startingDayIndex)).writeDaysTo(sink, firstDayNumber, lastDayNumber);
+      return;
+    }
+
+    // Find the ranks of the days' patients from the doses before them (the days are left out if no patients reach them)
+    long firstRank = projector.getDosesBefore(firstDayNumber);
+    if (firstRank >= patientListing.size()) {
+      return;
+    }
+    int lastNeededDayNumber = Math.min(lastDayNumber, projector.getDaysNeeded(patientListing.size()));
+    int patientCount = (int) Math.min(projector.getDosesBefore(lastNeededDayNumber + 1) - firstRank, patientListing.size() - firstRank);
+
+    // Generate the days from where the rotation across doctors starts on the first day
+    ScheduleProgress progress = new ScheduleProgress(firstDayNumber, projector.getDayOfWeek(firstDayNumber), projector.getStartingDoctorIndex(firstDayNumber), (int) firstRank);
+    generateSchedule(getPatientsByRank((int) firstRank, patientCount).iterator(), null, doctorListing, getMaximumDosesPerDay(), progress, lastDayNumber, sink);
+  }
+
+  /**
+   * Get the patients waiting in the register as a cohort (to be combined with other cohorts).
+   * @return the bitmap of the patients' IDs (it is not recommended that this be modified).
+   */
+  public CohortBitmap getWaitingCohort() {
+    return getCohortIndex().getPatients();
+  }
+
+  /**
+   * Get the waiting patients who gave a response to a questionnaire key as a cohort (patients who did not respond to the key are in neither cohort).
+   * @param key the questionnaire key.
+   * @param response the response.
+   * @return the bitmap of the patients' IDs (it is not recommended that this be modified).
+   */
+  public CohortBitmap getResponseCohort(String key, boolean response) {
+    Integer keyOrdinal = responseKeyOrdinals.get(key);
+    return (keyOrdinal == null) ? new CohortBitmap() : getCohortIndex().getRespondents(keyOrdinal, response);
+  }
+
+  /**
+   * Get the waiting patients in a range of age decades as a cohort (such as decades 7 through 8 for everyone 70 and up). Ages are as of when birthdays were last rescored.
+   * @param firstDecade the first age decade (from 0 through PriorityScorer.MAXIMUM_DECADE).
+   * @param lastDecade the last age decade (from firstDecade through PriorityScorer.MAXIMUM_DECADE, which includes everyone older).
+   * @return the bitmap of the patients' IDs (it is not recommended that this be modified).
+   * @throws IllegalArgumentException if the range of decades is empty or outside of 0 through PriorityScorer.MAXIMUM_DECADE.
+   */
+  public CohortBitmap getDecadeCohort(int firstDecade, int lastDecade) {
+
+    if (firstDecade < 0 || lastDecade > PriorityScorer.MAXIMUM_DECADE || lastDecade < firstDecade) {
+      throw new IllegalArgumentException("illegal range of age decades: " + firstDecade + " to " + lastDecade);
+    }
+
+    CohortBitmap cohort = getCohortIndex().getPatientsInDecade(firstDecade);
+    for (int decade = firstDecade + 1; decade <= lastDecade; decade++) {
+      cohort = cohort.or(getCohortIndex().getPatientsInDecade(decade));
+    }
+    return cohort;
+  }
+
+  /**
+   * Get the patients scheduled within a number of active days as a cohort (the same patients as the first days of the schedule, found without generating it unless some patients' availability is restricted).
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days.
+   * @return the bitmap of the patients' IDs.
+   * @throws IllegalArgumentException if the number of days is negative.
+   * @throws FatalError if no doses can be administered (there is no way of scheduling patients).
+   */
+  public CohortBitmap getScheduledCohort(int startingDayIndex, int numberOfDays) {
+
+    if (numberOfDays < 0) {
+      throw new IllegalArgumentException("illegal number of schedule days: " + numberOfDays);
+    }
+
+    AppointmentProjector projector = getAppointmentProjector(startingDayIndex);
+    int daysNeeded = getDaysNeeded(startingDayIndex);
+    CohortBitmap cohort = new CohortBitmap();
+
+    if (hasAvailabilityRestrictions()) {
+      // Take the patients of the first days of the schedule out to every patient (as pages and projected appointments are)
+      RecordedSchedule schedule = getRecordedSchedule(startingDayIndex, daysNeeded);
+      for (int appointment = 0; appointment < schedule.getAppointmentCount() && schedule.getDayNumber(schedule.getAppointmentDayIndex(appointment)) <= numberOfDays; appointment++) {
+        cohort.add(schedule.getAppointmentPatient(appointment).getPatientID());
+      }
+
+    } else {
+      // Take the patients with ranks within the doses of the days
+      long patientCount = Math.min(projector.getDosesBefore(Math.min(numberOfDays, daysNeeded) + 1), patientListing.size());
+      for (Patient patient : getPatientsByRank(0, (int) patientCount)) {
+        cohort.add(patient.getPatientID());
+      }
+    }
+
+    return cohort;
+  }
+
+  /**
+   * Get the waiting patients in a cohort.
+   * @param cohort the bitmap of the patients' IDs (IDs of patients no longer waiting are skipped).
+   * @return the list of patients in order of ID.
+   */
+  public ArrayList<Patient> getCohortPatients(CohortBitmap cohort) {
+
+    ArrayList<Patient> patients = new ArrayList<Patient>(cohort.getCardinality());
+    cohort.forEach(patientID -> {
+      Patient patient = patientIndex.getPatient(patientID);
+      if (patient != null) {
+        patients.add(patient);
+      }
+    });
+
+    return patients;
+  }
+
+  /**
+   * Helper method that gets the patients at a range of ranks in priority order, from the listing if it is in order, and otherwise from the rank index (so the listing is not sorted for a few patients).
+   * @param firstRank the rank of the first patient (from 0).
+   * @param patientCount the number of patients (which must all be in the listing).
+   * @return the patients in priority order.
+   */
+  private List<Patient> getPatientsByRank(int firstRank, int patientCount) {
+
+    if (!isListingDirty) {
+      return patientListing.subList(firstRank, firstRank + patientCount);
+    }
+
+    ArrayList<Patient> patients = new ArrayList<Patient>(patientCount);
+    for (int patientID : getRankIndex().getPatientIDs(firstRank, patientCount)) {
+      patients.add(patientIndex.getPatient(patientID));
+    }
+    return patients;
+  }
+
+  /**
+   * Helper method that gets the cohort index of the patients, building it if it has not been built since the register was loaded.
+   * @return the cohort index.
+   */
+  private CohortIndex getCohortIndex() {
+    if (cohortIndex == null) {
+      cohortIndex = new CohortIndex();
+      for (Patient patient : patientListing) {
+        cohortIndex.add(patient, getAgeInDecades(patient));
+      }
+    }
+    return cohortIndex;
+  }
+
+  /**
+   * Helper method that gets the rank index of the patients, building it if it has not been built since the patients were last recompiled.
+   * @return the rank index.
+   */
+  private PriorityRankIndex getRankIndex() {
+    if (rankIndex == null) {
+      rankIndex = new PriorityRankIndex(patientListing);
+    }
+    return rankIndex;
+  }
+
+  /**
+   * Helper method that gets an AppointmentProjector for the current doctors and doses, reusing the last one unless the doctors, doses, or starting day have changed.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @return the projector.
+   * @throws FatalError if no doses can be administered (there is no way of scheduling patients).
+   */
+  private AppointmentProjector getAppointmentProjector(int startingDayIndex) {
+    int[] maximumDosesPerDay = getMaximumDosesPerDay();
+    if (appointmentProjector == null || !appointmentProjector.isFor(doctorListing, maximumDosesPerDay, startingDayIndex)) {
+      appointmentProjector = new AppointmentProjector(doctorListing, maximumDosesPerDay, startingDayIndex);
+    }
+    return appointmentProjector;
+  }
+
+  /**
+   * Generate the schedule for a snapshot of a register and pass it to a sink (this can be done while the register changes, such as on another thread).
+   * @param snapshot the snapshot.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @param sink the sink to pass the schedule to.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  public static void writeSchedule(RegisterSnapshot snapshot, int startingDayIndex, int numberOfDays, ScheduleSink sink) {
+    writeSchedule(snapshot, startingDayIndex, numberOfDays, sink, false);
+  }
+
+  /**
+   * Helper method that generates the schedule for a snapshot of a register and passes it to a sink.
+   * @param snapshot the snapshot.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @param sink the sink to pass the schedule to.
+   * @param isProgressNeeded whether the progress of the schedule should be returned (so the schedule can be continued).
+   * @return how far generation got, or null if the schedule cannot be continued (patients were matched to the days they are available) or the progress is not needed.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  private static ScheduleProgress writeSchedule(RegisterSnapshot snapshot, int startingDayIndex, int numberOfDays, ScheduleSink sink, boolean isProgressNeeded) {
+
+    int[] maximumDosesPerDay = snapshot.getMaximumDosesPerDay();
+
+    if (snapshot.hasAvailabilityRestrictions()) {
+      // Match patients to the days they are available (patients who cannot be matched are passed over, so every patient may need to be considered)
+      generateAvailabilitySchedule(snapshot.getOrderedPatients().iterator(), snapshot.getDoctors(), maximumDosesPerDay, startingDayIndex, numberOfDays, sink);
+      return null;
+
+    } else {
+      List<Patient> patientsToSchedule = snapshot.getTopPatients(getScheduleCapacity(maximumDosesPerDay, startingDayIndex, numberOfDays));
+      ScheduleProgress progress = new ScheduleProgress(startingDayIndex);
+      generateSchedule(patientsToSchedule.iterator(), null, snapshot.getDoctors(), maximumDosesPerDay, progress, numberOfDays, sink);
+      return isProgressNeeded ? progress : null;
+    }
+  }
+
+  /**
+   * Generate the schedule for a snapshot of a register as text (this does not change the register's current schedule).
+   * @param snapshot the snapshot.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @return the schedule.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  public static String generateScheduleString(RegisterSnapshot snapshot, int startingDayIndex, int numberOfDays) {
+    TextScheduleSink workingSchedule = new TextScheduleSink();
+    writeSchedule(snapshot, startingDayIndex, numberOfDays, workingSchedule);
+    return workingSchedule.toString();
+  }
+
+  /**
+   * Get the total number of doses that can be administered over a schedule (the most patients a schedule can take).
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days in the schedule.
+   * @return the total capacity of the schedule (capped at Integer.MAX_VALUE), or 0 if no doses can be administered on any day.
+   */
+  static int getScheduleCapacity(int[] maximumDosesPerDay, int startingDayIndex, int numberOfDays) {
+
+    // Count the active days of the week and the doses in a full week
+    int activeDaysPerWeek = 0;
+    long dosesPerWeek = 0;
+    for (int doses : maximumDosesPerDay) {
+      if (doses != 0) {
+        activeDaysPerWeek++;
+        dosesPerWeek += doses;
+      }
+    }
+
+    if (activeDaysPerWeek == 0) {
+      return 0;
+    }
+
+    // Add the full weeks, and then the remaining active days from the starting day
+    long capacity = (numberOfDays / activeDaysPerWeek) * dosesPerWeek;
+    int remainingDays = numberOfDays % activeDaysPerWeek;
+
+    for (int dayOfWeek = startingDayIndex; remainingDays > 0; dayOfWeek = (dayOfWeek % 7) + 1) {
+      if (maximumDosesPerDay[dayOfWeek - 1] != 0) {
+        capacity += maximumDosesPerDay[dayOfWeek - 1];
+        remainingDays--;
+      }
+    }
+
+    return (int) Math.min(capacity, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Generate a schedule from patients in priority order, a list of doctors, and the maximum doses that can be administered on each day of the week.
+   * @param patients the patients to schedule in priority order (only as many as are scheduled are taken from the iterator).
+   * @param doctors the doctors to schedule patients with.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @return the new schedule.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  static String generateScheduleString(Iterator<Patient> patients, List<Doctor> doctors, int[] maximumDosesPerDay, int startingDayIndex, int numberOfDays) {
+    TextScheduleSink workingSchedule = new TextScheduleSink();
+    generateSchedule(patients, doctors, maximumDosesPerDay, startingDayIndex, numberOfDays, workingSchedule);
+    return workingSchedule.toString();
+  }
+
+  /**
+   * Generate a schedule that respects the days of the week patients are available, where patients are matched to days by an AvailabilityMatcher.
+   * @param patients the patients to schedule in priority order (patients are taken from the iterator until every dose is assigned).
+   * @param doctors the doctors to schedule patients with.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @return the new schedule.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  static String generateAvailabilityScheduleString(Iterator<Patient> patients, List<Doctor> doctors, int[] maximumDosesPerDay, int startingDayIndex, int numberOfDays) {
+    TextScheduleSink workingSchedule = new TextScheduleSink();
+    generateAvailabilitySchedule(patients, doctors, maximumDosesPerDay, startingDayIndex, numberOfDays, workingSchedule);
+    return workingSchedule.toString();
+  }
+
+  /**
+   * Generate a schedule from patients in priority order, a list of doctors, and the maximum doses that can be administered on each day of the week, and pass it to a sink.
+   * @param patients the patients to schedule in priority order (only as many as are scheduled are taken from the iterator).
+   * @param doctors the doctors to schedule patients with.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @param sink the sink to pass the schedule to.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  static void generateSchedule(Iterator<Patient> patients, List<Doctor> doctors, int[] maximumDosesPerDay, int startingDayIndex, int numberOfDays, ScheduleSink sink) {
+    generateSchedule(patients, null, doctors, maximumDosesPerDay, new ScheduleProgress(startingDayIndex), numberOfDays, sink);
+  }
+
+  /**
+   * Generate a schedule that respects the days of the week patients are available, and pass it to a sink.
+   * @param patients the patients to schedule in priority order (patients are taken from the iterator until every dose is assigned).
+   * @param doctors the doctors to schedule patients with.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @param sink the sink to pass the schedule to.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  static void generateAvailabilitySchedule(Iterator<Patient> patients, List<Doctor> doctors, int[] maximumDosesPerDay, int startingDayIndex, int numberOfDays, ScheduleSink sink) {
+    ArrayList<ArrayList<Patient>> patientsForDay = AvailabilityMatcher.assignDays(patients, maximumDosesPerDay, startingDayIndex, numberOfDays);
+    generateSchedule(null, patientsForDay, doctors, maximumDosesPerDay, new ScheduleProgress(startingDayIndex), numberOfDays, sink);
+  }
+
+  /**
+   * Helper method that generates a schedule either from patients in priority order or from patients already assigned to each active day.
+   * @param patients the patients to schedule in priority order (or null if patientsForDay is used).
+   * @param patientsForDay the mapping of active day numbers minus one to the patients assigned to that day (or null if patients is used).
+   * @param doctors the doctors to schedule patients with.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @param progress where to start generating the schedule from (this is updated to where generation stopped, so the schedule can be continued).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @param sink the sink to pass the schedule to.
+   * @throws FatalError if the call will result in an infinite loop (there is no way of administering doses).
+   */
+  private static void generateSchedule(Iterator<Patient> patients, ArrayList<ArrayList<Patient>> patientsForDay, List<Doctor> doctors, int[] maximumDosesPerDay, ScheduleProgress progress, int numberOfDays, ScheduleSink sink) {
 
     // Ensure there will be infinite looping upon a call
-    if (!hasDoctors()) {
+    if (doctors.isEmpty()) {
       throw new FatalError("No doctors in the register at schedule generation");
-    } else if (!canAdminister()) {
+    } else if (Arrays.stream(maximumDosesPerDay).allMatch(doses -> doses == 0)) {
       throw new FatalError("No scheduling alignments in the register at schedule generation");
     }
 
+    // When patients are assigned to days, only schedule out to the last day with patients
+    if (patientsForDay != null) {
+      while (!patientsForDay.isEmpty() && patientsForDay.get(patientsForDay.size() - 1).isEmpty()) {
+        patientsForDay.remove(patientsForDay.size() - 1);
+      }
+      numberOfDays = Math.min(numberOfDays, patientsForDay.size());
+    }
+
     // Create variable to track the active day number (this is not incremented for idle days)
-    int dayNumber = 1;
-    // Create a variable to track at which index the next patient to process should be pulled from
-    int currentPatientToProcessIndex = 0;
+    int dayNumber = progress.dayNumber;
     // Create a variable to track at which index the next doctor to perform a vaccination should be pulled from (this will rotate across all available indices)
-    int currentDoctorToAdminIndex = 0;
+    int currentDoctorToAdminIndex = progress.doctorIndex;
+    // Create a variable to track the number of patients taken from the patients in priority order
+    int scheduledCount = progress.scheduledCount;
 
     // Create a mapping from a doctor's index in the listing to the list of patients that doctor will vaccinate, which will be set intially to empty lists
     ArrayList<ArrayList<Patient>> doctorIndexToPatientsList = new ArrayList<ArrayList<Patient>>();
-    for (int doctorIndex = 0; doctorIndex < doctorListing.size(); doctorIndex++) {
+    for (int doctorIndex = 0; doctorIndex < doctors.size(); doctorIndex++) {
       doctorIndexToPatientsList.add(new ArrayList<Patient>());
     }
 
     // Create a variable to track the running day of the week
-    int dayOfWeek = startingDayIndex;
+    int dayOfWeek = progress.dayOfWeek;
 
     // Iterate while there are days to schedule and there are patients to process for those days
-    while (dayNumber <= numberOfDays && currentPatientToProcessIndex < patientListing.size()) {
+    while (dayNumber <= numberOfDays && (patients == null || patients.hasNext())) {
 
       // Set the number of vaccines to administer in the day to the maximum number that can be administered on the (dayNumber)th day of the week
-      int maximumDosesLeft = maximumDosesForDay(dayOfWeek);
+      int maximumDosesLeft = maximumDosesPerDay[dayOfWeek - 1];
       
       // Check if any doses can be administered on the day of the week
       if (maximumDosesLeft != 0) {
 
         // Doses can be administered (append this day to the schedule)
 
-        workingSchedule.append("Day " + dayNumber + " (" + BasicFormatter.getDayOfWeekName(dayOfWeek) + "):\n");
+        sink.appendDay(dayNumber, dayOfWeek);
+
+        // Get the patients to process for the day
+        Iterator<Patient> dayPatients = (patients != null) ? patients : patientsForDay.get(dayNumber - 1).iterator();
 
         // Iterate while there vaccinations due and there are still patients to process
-        while(maximumDosesLeft > 0 && currentPatientToProcessIndex < patientListing.size()) {
+        while(maximumDosesLeft > 0 && dayPatients.hasNext()) {
 
           // Get information about the next up doctor
-          Doctor doctorToAdmin = doctorListing.get(currentDoctorToAdminIndex);
+          Doctor doctorToAdmin = doctors.get(currentDoctorToAdminIndex);
           int patientsHandledByDoctor = doctorIndexToPatientsList.get(currentDoctorToAdminIndex).size();
 
           // Check if the doctor has room to add another patient to their list of those to vaccinate
           if (patientsHandledByDoctor < doctorToAdmin.getDosesAdministeredPerDay(dayOfWeek)) {
             // Add the patient to the doctor's list
-            Patient patientToProcess = patientListing.get(currentPatientToProcessIndex);
-            doctorIndexToPatientsList.get(currentDoctorToAdminIndex).add(patientToProcess);
-            currentPatientToProcessIndex += 1;
+            doctorIndexToPatientsList.get(currentDoctorToAdminIndex).add(dayPatients.next());
             maximumDosesLeft -= 1;
+            scheduledCount += 1;
           }
 
           // Cycle to the next doctor to administer doses
-          currentDoctorToAdminIndex = (currentDoctorToAdminIndex + 1) % doctorListing.size();
+          currentDoctorToAdminIndex = (currentDoctorToAdminIndex + 1) % doctors.size();
         }
 
-        // Append the doctors' patients to the schedule buffer and clear doctorIndexToPatientsList for the next iteration 
-        appendDayToSchedule(workingSchedule, doctorIndexToPatientsList);
+        // Pass the doctors' patients to the sink and clear doctorIndexToPatientsList for the next iteration 
+        appendDayToSchedule(sink, doctors, doctorIndexToPatientsList);
         
         // Increase the active day index
         dayNumber += 1;
@@ -580,9 +2177,11 @@ public class Register implements Serializable {
       
     }
 
-    // Save and return the resulting schedule
-    currentSchedule = new String(workingSchedule);
-    return currentSchedule;
+    // Record where generation stopped
+    progress.dayNumber = dayNumber;
+    progress.dayOfWeek = dayOfWeek;
+    progress.doctorIndex = currentDoctorToAdminIndex;
+    progress.scheduledCount = scheduledCount;
 
   }
 
@@ -593,5 +2192,107 @@ public class Register implements Serializable {
   public String getCurrentScheduleString() {
     return currentSchedule;
   }
+
+  /**
+   * The ScheduleProgress class records where generation of a schedule stopped, so the schedule can be continued to more days.
+   */
+  static final class ScheduleProgress {
+
+    /** The number of the next active day. */
+    private int dayNumber;
+    /** The index for the next day of the week (where 1 is Sunday and 7 is Saturday). */
+    private int dayOfWeek;
+    /** The index of the next doctor to be given a patient. */
+    private int doctorIndex;
+    /** The number of patients taken from the patients in priority order. */
+    private int scheduledCount;
+
+    /**
+     * Constructor for the start of a schedule.
+     * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+     */
+    ScheduleProgress(int startingDayIndex) {
+      dayNumber = 1;
+      dayOfWeek = startingDayIndex;
+    }
+
+    /**
+     * Constructor for the start of an active day part way through a schedule.
+     * @param dayNumber the active day number of the day.
+     * @param dayOfWeek the index for the day of the week of the day (where 1 is Sunday and 7 is Saturday).
+     * @param doctorIndex the index of the doctor the day starts with.
+     * @param scheduledCount the number of patients scheduled before the day.
+     */
+    ScheduleProgress(int dayNumber, int dayOfWeek, int doctorIndex, int scheduledCount) {
+      this.dayNumber = dayNumber;
+      this.dayOfWeek = dayOfWeek;
+      this.doctorIndex = doctorIndex;
+      this.scheduledCount = scheduledCount;
+    }
+
+    /**
+     * Copy constructor.
+     * @param other the progress to copy.
+     */
+    ScheduleProgress(ScheduleProgress other) {
+      dayNumber = other.dayNumber;
+      dayOfWeek = other.dayOfWeek;
+      doctorIndex = other.doctorIndex;
+      scheduledCount = other.scheduledCount;
+    }
+  }
+
+  /**
+   * The TextScheduleSink class writes a schedule as the text presented to users.
+   */
+  static class TextScheduleSink implements ScheduleSink {
+
+    /** The buffer the schedule is written to (starting with the schedule's header). */
+    private StringBuilder workingSchedule;
+
+    /** The doctor of the last appointment on the current day (or null if there has not been one). */
+    private Doctor currentDoctor;
+
+    /**
+     * The sole constructor.
+     */
+    public TextScheduleSink() {
+      workingSchedule = new StringBuilder("Schedule as of ").append(BasicFormatter.getDateString(LocalDate.now())).append(":\n");
+    }
+
+    @Override
+    public void appendDay(int dayNumber, int dayOfWeek) {
+      workingSchedule.append("Day ").append(dayNumber).append(" (").append(BasicFormatter.getDayOfWeekName(dayOfWeek)).append("):\n");
+      currentDoctor = null;
+    }
+
+    @Override
+    public void appendAppointment(Doctor doctor, Patient patient) {
+
+      // Append a head to the buffer for each doctor's first appointment of the day
+      if (doctor != currentDoctor) {
+        workingSchedule.append(doctor.getName()).append(" will vaccinate:\n");
+        currentDoctor = doctor;
+      }
+
+      workingSchedule.append('\t');
+      try {
+        patient.appendContactDetailsTo(workingSchedule);
+      } catch (IOException e) {
+        // A StringBuilder does not throw IOExceptions (this will not happen)
+        throw new UncheckedIOException(e);
+      }
+      workingSchedule.append('\n');
+    }
+
+    /**
+     * Get the schedule written so far.
+     * @return the schedule.
+     */
+    @Override
+    public String toString() {
+      return new String(workingSchedule);
+    }
+  }
   
 }
\ No newline at end of file
@@ -0,0 +1,328 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The RegisterSnapshot class is an immutable view of a register's patient listing, doctor listing, and dose capacity at one version of the register. Readers (such as schedule generation and exports) can work from a snapshot while the register keeps changing, and every reader of the same version shares one snapshot.
+ * The patient listing is stored in fixed-size chunks that are never modified once a snapshot is published, so the next snapshot reuses every chunk before the first position the register changed (adding patients while ordering lazily only replaces the last chunk). The patients and doctors themselves are shared with the register, so changes to their details (rather than to the listings) are seen by the snapshot. The exception is the patients' priority weights, which the register changes in place when it rescores patients: the snapshot records each patient's weight with the listing and orders patients by those weights, so an ordered snapshot stays in the order of its version.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public final class RegisterSnapshot {
+
+  /** The number of patients in each chunk (every chunk but the last is full). */
+  static final int CHUNK_SIZE = 1024;
+
+  /** The version of the register the snapshot was taken at. */
+  private final long version;
+
+  /** The chunks of the patient listing. */
+  private final Patient[][] chunks;
+
+  /** The chunks of the patients' priority weights when the snapshot was taken (in the same positions as the patients). */
+  private final int[][] weightChunks;
+
+  /** The number of patients. */
+  private final int size;
+
+  /** Whether the patients are in priority order (they may not be when the register orders lazily). */
+  private final boolean isOrdered;
+
+  /** Whether any patient was only available on some days of the week when the snapshot was taken. */
+  private final boolean hasAvailabilityRestrictions;
+
+  /** The doctors in the order they were added. */
+  private final List<Doctor> doctors;
+
+  /** The mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day. */
+  private final int[] maximumDosesPerDay;
+
+  /**
+   * Constructor that takes a register's listings, reusing the chunks of a previous snapshot before the first changed position.
+   * @param version the version of the register.
+   * @param patientListing the patient listing.
+   * @param isOrdered whether the patient listing is in priority order.
+   * @param hasAvailabilityRestrictions whether any patient's availability is restricted.
+   * @param doctorListing the doctor listing.
+   * @param maximumDosesPerDay the mapping of day indices minus one to the maximum doses for that day (this is not copied).
+   * @param previous the previous snapshot of the register or null.
+   * @param firstChangedIndex the first position of the patient listing that may have changed since the previous snapshot.
+   */
+  RegisterSnapshot(long version, List<Patient> patientListing, boolean isOrdered, boolean hasAvailabilityRestrictions, List<Doctor> doctorListing, int[] maximumDosesPerDay, RegisterSnapshot previous, int firstChangedIndex) {
+
+    this.version = version;
+    this.isOrdered = isOrdered;
+    this.hasAvailabilityRestrictions = hasAvailabilityRestrictions;
+    this.maximumDosesPerDay = maximumDosesPerDay;
+    doctors = Collections.unmodifiableList(new ArrayList<Doctor>(doctorListing));
+
+    size = patientListing.size();
+    chunks = new Patient[(size + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+    weightChunks = new int[chunks.length][];
+
+    // Reuse the previous snapshot's full chunks that are entirely before the first change (the register counts a rescored patient as a change)
+    int reusedChunks = 0;
+    if (previous != null) {
+      reusedChunks = Math.min(Math.min(firstChangedIndex, size), previous.size) / CHUNK_SIZE;
+      System.arraycopy(previous.chunks, 0, chunks, 0, reusedChunks);
+      System.arraycopy(previous.weightChunks, 0, weightChunks, 0, reusedChunks);
+    }
+
+    // Copy the rest of the listing (and the patients' current weights) into new chunks
+    for (int chunkIndex = reusedChunks; chunkIndex < chunks.length; chunkIndex++) {
+      int start = chunkIndex * CHUNK_SIZE;
+      Patient[] chunk = patientListing.subList(start, Math.min(start + CHUNK_SIZE, size)).toArray(new Patient[0]);
+      int[] weightChunk = new int[chunk.length];
+      for (int offset = 0; offset < chunk.length; offset++) {
+        weightChunk[offset] = chunk[offset].getPriorityWeight();
+      }
+      chunks[chunkIndex] = chunk;
+      weightChunks[chunkIndex] = weightChunk;
+    }
+  }
+
+  /**
+   * Getter for the version.
+   * @return the version of the register the snapshot was taken at.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Get the number of patients.
+   * @return the number of patients.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the patient at a position of the listing.
+   * @param index the position.
+   * @return the patient.
+   * @throws IndexOutOfBoundsException if the position is not in the listing.
+   */
+  public Patient getPatient(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("patient index " + index + " is out of bounds for " + size + " patients");
+    }
+    return chunks[index / CHUNK_SIZE][index % CHUNK_SIZE];
+  }
+
+  /**
+   * Get the priority weight a patient at a position of the listing had when the snapshot was taken (the patient's current weight may differ).
+   * @param index the position.
+   * @return the priority weight.
+   * @throws IndexOutOfBoundsException if the position is not in the listing.
+   */
+  public int getPriorityWeight(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("patient index " + index + " is out of bounds for " + size + " patients");
+    }
+    return weightChunks[index / CHUNK_SIZE][index % CHUNK_SIZE];
+  }
+
+  /**
+   * Get the patient listing as a list (the list cannot be modified).
+   * @return the patients in the order of the listing.
+   */
+  public List<Patient> getPatients() {
+    return new PatientList();
+  }
+
+  /**
+   * Check whether the patients are in priority order.
+   * @return whether the patients are in priority order.
+   */
+  public boolean isOrdered() {
+    return isOrdered;
+  }
+
+  /**
+   * Get the patients in priority order by their weights in the snapshot (sorting a copy of the listing if it is not ordered).
+   * @return the patients in priority order (the list should not be modified).
+   */
+  public List<Patient> getOrderedPatients() {
+
+    if (isOrdered) {
+      return getPatients();
+    }
+
+    int[] orderedIndices = new int[size];
+    for (int index = 0; index < size; index++) {
+      orderedIndices[index] = index;
+    }
+    heapify(orderedIndices, size);
+    sortHeap(orderedIndices, size);
+
+    return getPatientsAt(orderedIndices);
+  }
+
+  /**
+   * Get the highest priority patients in priority order by their weights in the snapshot. If the listing is not ordered, only the requested patients are selected (with a bounded heap) and sorted, unless they make up most of the listing.
+   * @param count the maximum number of patients to get.
+   * @return the list of up to count patients in priority order (the list should not be modified).
+   */
+  public List<Patient> getTopPatients(int count) {
+
+    int resultSize = Math.min(count, size);
+
+    if (isOrdered) {
+      return getPatients().subList(0, resultSize);
+    } else if (resultSize * 2 >= size) {
+      return getOrderedPatients().subList(0, resultSize);
+    }
+
+    // Keep the positions of the best patients seen so far in a heap with the lowest priority of them on top
+    int[] bestIndices = new int[resultSize];
+    for (int index = 0; index < resultSize; index++) {
+      bestIndices[index] = index;
+    }
+    heapify(bestIndices, resultSize);
+
+    for (int index = resultSize; index < size; index++) {
+      if (resultSize != 0 && compareAt(index, bestIndices[0]) < 0) {
+        bestIndices[0] = index;
+        siftDown(bestIndices, 0, resultSize);
+      }
+    }
+
+    // Sort only the selected patients
+    sortHeap(bestIndices, resultSize);
+
+    return getPatientsAt(bestIndices);
+  }
+
+  /**
+   * Helper method that compares the patients at two positions of the listing in the same way as Patient.compareTo, but with their weights in the snapshot.
+   * @param first the position of the first patient.
+   * @param second the position of the second patient.
+   * @return a negative number if the first patient comes first, zero if they are the same patient, and a positive number otherwise.
+   */
+  private int compareAt(int first, int second) {
+
+    int firstWeight = weightChunks[first / CHUNK_SIZE][first % CHUNK_SIZE];
+    int secondWeight = weightChunks[second / CHUNK_SIZE][second % CHUNK_SIZE];
+
+    if (firstWeight == secondWeight) {
+      // Use the IDs to break the tie (resulting in a first come, first serve ordering)
+      return getPatient(first).getPatientID() - getPatient(second).getPatientID();
+    } else {
+      return secondWeight - firstWeight;
+    }
+  }
+
+  /**
+   * Helper method that arranges positions of the listing into a heap with the lowest priority patient on top.
+   * @param heap the positions.
+   * @param heapSize the number of positions (from the start of the array) in the heap.
+   */
+  private void heapify(int[] heap, int heapSize) {
+    for (int position = heapSize / 2 - 1; position >= 0; position--) {
+      siftDown(heap, position, heapSize);
+    }
+  }
+
+  /**
+   * Helper method that sorts a heap of positions (made by heapify) into priority order, in place.
+   * @param heap the heap.
+   * @param heapSize the number of positions in the heap.
+   */
+  private void sortHeap(int[] heap, int heapSize) {
+
+    // Move the lowest priority patient left in the heap to the end of the heap, and then restore the heap without it
+    for (int end = heapSize - 1; end > 0; end--) {
+      int lowest = heap[0];
+      heap[0] = heap[end];
+      heap[end] = lowest;
+      siftDown(heap, 0, end);
+    }
+  }
+
+  /**
+   * Helper method that moves a position down a heap until no position below it has a lower priority patient.
+   * @param heap the heap.
+   * @param position the place in the heap of the position to move.
+   * @param heapSize the number of positions in the heap.
+   */
+  private void siftDown(int[] heap, int position, int heapSize) {
+
+    int index = heap[position];
+
+    while (2 * position + 1 < heapSize) {
+
+      // Find the child with the lower priority patient
+      int child = 2 * position + 1;
+      if (child + 1 < heapSize && compareAt(heap[child + 1], heap[child]) > 0) {
+        child++;
+      }
+
+      if (compareAt(heap[child], index) <= 0) {
+        break;
+      }
+
+      heap[position] = heap[child];
+      position = child;
+    }
+
+    heap[position] = index;
+  }
+
+  /**
+   * Helper method that gets the patients at positions of the listing.
+   * @param indices the positions.
+   * @return the list of the patients in the order of the positions.
+   */
+  private List<Patient> getPatientsAt(int[] indices) {
+
+    ArrayList<Patient> patients = new ArrayList<Patient>(indices.length);
+    for (int index : indices) {
+      patients.add(getPatient(index));
+    }
+
+    return patients;
+  }
+
+  /**
+   * Check if any patients are only available on some days of the week.
+   * @return whether any patient's availability is restricted.
+   */
+  public boolean hasAvailabilityRestrictions() {
+    return hasAvailabilityRestrictions;
+  }
+
+  /**
+   * Getter for the doctors.
+   * @return the doctors in the order they were added (the list cannot be modified).
+   */
+  public List<Doctor> getDoctors() {
+    return doctors;
+  }
+
+  /**
+   * Get the maximum doses that can be administered on each day of the week.
+   * @return a copy of the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   */
+  public int[] getMaximumDosesPerDay() {
+    return maximumDosesPerDay.clone();
+  }
+
+  /**
+   * The PatientList class is an unmodifiable list view of a snapshot's patients.
+   */
+  private final class PatientList extends AbstractList<Patient> implements RandomAccess {
+
+    @Override
+    public Patient get(int index) {
+      return getPatient(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ScheduleCache class keeps the schedules most recently generated for a register, keyed by the register's version, the starting day, and the number of days, so asking for the same schedule again (when nothing has changed) does not generate it again. The least recently used schedule is dropped when the cache is full.
+ * Schedules with more than MAXIMUM_APPOINTMENTS appointments are not kept (a schedule that large is cheaper to generate again than to hold in memory, along with the patients it refers to, until it is dropped).
+ * A schedule generated from patients in priority order (rather than matched to the days they are available) is kept with how far its generation got, so a longer schedule for the same version and starting day can continue from it rather than starting over.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class ScheduleCache {
+
+  /** The number of schedules kept. */
+  static final int CAPACITY = 8;
+
+  /** The most appointments a schedule can have to be kept. */
+  static final int MAXIMUM_APPOINTMENTS = 1 << 18;
+
+  /** The schedules in order of use (the least recently used first). */
+  private final LinkedHashMap<Key, Entry> entries;
+
+  /**
+   * The default constructor (for an empty cache).
+   */
+  public ScheduleCache() {
+    entries = new LinkedHashMap<Key, Entry>(2 * CAPACITY, 0.75f, true) {
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > CAPACITY;
+      }
+    };
+  }
+
+  /**
+   * Get a cached schedule.
+   * @param version the version of the register.
+   * @param startingDayIndex the index for the day of the week the schedule starts from.
+   * @param numberOfDays the number of active days of the schedule.
+   * @return the schedule's entry or null if it is not cached.
+   */
+  public Entry get(long version, int startingDayIndex, int numberOfDays) {
+    return entries.get(new Key(version, startingDayIndex, numberOfDays));
+  }
+
+  /**
+   * Find the longest cached schedule that a schedule can be continued from (one for the same version and starting day with fewer days that records its progress).
+   * @param version the version of the register.
+   * @param startingDayIndex the index for the day of the week the schedule starts from.
+   * @param numberOfDays the number of active days of the schedule.
+   * @return the entry of the schedule to continue from or null if there is none.
+   */
+  public Entry findShorter(long version, int startingDayIndex, int numberOfDays) {
+
+    Key bestKey = null;
+
+    for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+      Key key = entry.getKey();
+      if (key.version == version && key.startingDayIndex == startingDayIndex && key.numberOfDays < numberOfDays && entry.getValue().progress != null && (bestKey == null || key.numberOfDays > bestKey.numberOfDays)) {
+        bestKey = key;
+      }
+    }
+
+    // Look the entry up again (so it is marked as used)
+    return bestKey == null ? null : entries.get(bestKey);
+  }
+
+  /**
+   * Add a schedule to the cache (dropping the schedules of other versions, and the least recently used one if the cache is full). A schedule with more than MAXIMUM_APPOINTMENTS appointments is not kept.
+   * @param version the version of the register.
+   * @param startingDayIndex the index for the day of the week the schedule starts from.
+   * @param numberOfDays the number of active days of the schedule.
+   * @param schedule the schedule.
+   * @param progress how far generation of the schedule got (or null if the schedule cannot be continued).
+   * @return the new entry (which is not kept if the schedule is too large).
+   */
+  public Entry put(long version, int startingDayIndex, int numberOfDays, RecordedSchedule schedule, Register.ScheduleProgress progress) {
+
+    // Drop the schedules of earlier versions (they can no longer be asked for, and keep removed patients in memory)
+    entries.keySet().removeIf(key -> key.version != version);
+
+    Entry entry = new Entry(schedule, progress);
+    if (schedule.getAppointmentCount() > MAXIMUM_APPOINTMENTS) {
+      return entry;
+    }
+
+    entries.put(new Key(version, startingDayIndex, numberOfDays), entry);
+    return entry;
+  }
+
+  /**
+   * Drop every cached schedule.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Get the number of cached schedules.
+   * @return the number of schedules.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * The Entry class is a cached schedule with how far its generation got.
+   */
+  public static final class Entry {
+
+    /** The schedule. */
+    private final RecordedSchedule schedule;
+
+    /** How far generation of the schedule got (or null if the schedule cannot be continued). */
+    private final Register.ScheduleProgress progress;
+
+    /**
+     * The sole constructor.
+     * @param schedule the schedule.
+     * @param progress how far generation of the schedule got (or null if the schedule cannot be continued).
+     */
+    private Entry(RecordedSchedule schedule, Register.ScheduleProgress progress) {
+      this.schedule = schedule;
+      this.progress = progress;
+    }
+
+    /**
+     * Getter for the schedule.
+     * @return the schedule (which should not be appended to).
+     */
+    public RecordedSchedule getSchedule() {
+      return schedule;
+    }
+
+    /**
+     * Getter for the progress.
+     * @return how far generation of the schedule got (which should not be changed), or null if the schedule cannot be continued.
+     */
+    public Register.ScheduleProgress getProgress() {
+      return progress;
+    }
+  }
+
+  /**
+   * The Key class identifies a schedule by the register version and the schedule's parameters.
+   */
+  private static final class Key {
+
+    /** The version of the register. */
+    private final long version;
+
+    /** The index for the day of the week the schedule starts from. */
+    private final int startingDayIndex;
+
+    /** The number of active days of the schedule. */
+    private final int numberOfDays;
+
+    /**
+     * The sole constructor.
+     * @param version the version of the register.
+     * @param startingDayIndex the index for the day of the week the schedule starts from.
+     * @param numberOfDays the number of active days of the schedule.
+     */
+    private Key(long version, int startingDayIndex, int numberOfDays) {
+      this.version = version;
+      this.startingDayIndex = startingDayIndex;
+      this.numberOfDays = numberOfDays;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key otherKey = (Key) other;
+      return version == otherKey.version && startingDayIndex == otherKey.startingDayIndex && numberOfDays == otherKey.numberOfDays;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(version) * 31 * 31 + startingDayIndex * 31 + numberOfDays;
+    }
+  }
+}
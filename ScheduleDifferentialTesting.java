@@ -0,0 +1,387 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.time.LocalDate;
+
+/**
+ * This ScheduleDifferentialTesting class checks a scheduler against the reference scheduling algorithm (every patient fully sorted by priority and then scheduled greedily, or matched to the days they are available) on many seeded random registers. Each register is also changed between schedules (patients are added and removed, and doses and weights change), so caching and lazy ordering are checked as well.
+ * Since the reference matches patients to the days they are available with the same AvailabilityMatcher, those reference schedules are also checked on their own for patients who could have had an earlier day (see findEarlierDay).
+ * A failure reports the seed of the register, so it can be reproduced with runTrials(scheduler, seed, 1).
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class ScheduleDifferentialTesting {
+
+  /** The number of registers checked when no count is passed to main. */
+  private static final int DEFAULT_TRIAL_COUNT = 5000;
+
+  /** The number of schedules compared for each register (with a change between each). */
+  private static final int SCHEDULES_PER_TRIAL = 6;
+
+  /**
+   * The Scheduler interface is a way of generating a register's schedule that is checked against the reference algorithm.
+   */
+  public interface Scheduler {
+
+    /**
+     * Generate the schedule of a register and pass it to a sink.
+     * @param register the register.
+     * @param startingDayIndex the index for the day of the week to start the schedule from (where 1 is Sunday and 7 is Saturday).
+     * @param numberOfDays the number of active days to schedule out to.
+     * @param sink the sink to pass the schedule to.
+     */
+    void writeSchedule(Register register, int startingDayIndex, int numberOfDays, ScheduleSink sink);
+
+    /**
+     * Get the number of active days the schedule asked for actually goes out to (the reference schedule is generated out to the same number of days).
+     * @param register the register.
+     * @param startingDayIndex the index for the day of the week to start the schedule from (where 1 is Sunday and 7 is Saturday).
+     * @param numberOfDays the number of active days asked for.
+     * @return the number of active days.
+     * @throws FatalError if the register has no way of administering doses.
+     */
+    default int getNumberOfDays(Register register, int startingDayIndex, int numberOfDays) {
+      return numberOfDays;
+    }
+  }
+
+  /** The scheduler that generates a register's schedule one day at a time (each day generated without the days before it). Registers with availability restrictions are paged from the schedule out to every patient, so they are scheduled out to every patient (the fewest days the reference schedule needs to include everyone who can be scheduled). */
+  public static final Scheduler PAGED_SCHEDULER = new Scheduler() {
+
+    @Override
+    public void writeSchedule(Register register, int startingDayIndex, int numberOfDays, ScheduleSink sink) {
+      for (int dayNumber = 1; dayNumber <= getNumberOfDays(register, startingDayIndex, numberOfDays); dayNumber++) {
+        register.writeScheduleDays(startingDayIndex, dayNumber, dayNumber, sink);
+      }
+    }
+
+    @Override
+    public int getNumberOfDays(Register register, int startingDayIndex, int numberOfDays) {
+      return register.hasAvailabilityRestrictions() ? getReferenceDaysNeeded(register, startingDayIndex) : numberOfDays;
+    }
+  };
+
+  /**
+   * Find the fewest active days the reference schedule needs to include every patient available on a day doses are administered, by generating it out to more and more days (doubling, and then a binary search).
+   * @param register the register.
+   * @param startingDayIndex the index for the day of the week to start the schedule from (where 1 is Sunday and 7 is Saturday).
+   * @return the number of active days.
+   * @throws FatalError if the register has no way of administering doses.
+   */
+  public static int getReferenceDaysNeeded(Register register, int startingDayIndex) {
+
+    int[] maximumDosesPerDay = register.getMaximumDosesPerDay();
+    int activeDayMask = 0;
+    for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+      if (maximumDosesPerDay[dayIndex] != 0) {
+        activeDayMask |= 1 << dayIndex;
+      }
+    }
+
+    int schedulableCount = 0;
+    for (Patient patient : register.getPatientsList()) {
+      if ((patient.getAvailableDays() & activeDayMask) != 0) {
+        schedulableCount++;
+      }
+    }
+
+    // Generate an empty schedule when no one can be scheduled (so a register with no way of administering doses fails here as the reference does)
+    if (schedulableCount == 0) {
+      return getReferenceAppointmentCount(register, startingDayIndex, 0);
+    }
+
+    int mostDays = 1;
+    while (getReferenceAppointmentCount(register, startingDayIndex, mostDays) < schedulableCount) {
+      mostDays *= 2;
+    }
+
+    int fewestDays = mostDays / 2 + 1;
+    while (fewestDays < mostDays) {
+      int days = (fewestDays + mostDays) >>> 1;
+      if (getReferenceAppointmentCount(register, startingDayIndex, days) < schedulableCount) {
+        fewestDays = days + 1;
+      } else {
+        mostDays = days;
+      }
+    }
+
+    return mostDays;
+  }
+
+  /**
+   * Helper method that counts the appointments of the reference schedule.
+   * @param register the register.
+   * @param startingDayIndex the index for the day of the week to start the schedule from (where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @return the number of appointments.
+   * @throws FatalError if the register has no way of administering doses.
+   */
+  private static int getReferenceAppointmentCount(Register register, int startingDayIndex, int numberOfDays) {
+    RecordedSchedule schedule = new RecordedSchedule();
+    writeReferenceSchedule(register, startingDayIndex, numberOfDays, schedule);
+    return schedule.getAppointmentCount();
+  }
+
+  /**
+   * Run the differential test on the register's own schedulers (the register's cached schedule, a snapshot's schedule, and the schedule generated one day at a time).
+   * @param args either nothing or the number of registers to check followed optionally by the first seed.
+   */
+  public static void main(String[] args) {
+
+    System.out.println("Test started.");
+
+    int trialCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_TRIAL_COUNT;
+    long firstSeed = (args.length > 1) ? Long.parseLong(args[1]) : 0;
+
+    assertSameSchedules("register", (register, startingDayIndex, numberOfDays, sink) -> register.writeSchedule(startingDayIndex, numberOfDays, sink), firstSeed, trialCount);
+    assertSameSchedules("snapshot", (register, startingDayIndex, numberOfDays, sink) -> Register.writeSchedule(register.getSnapshot(), startingDayIndex, numberOfDays, sink), firstSeed, trialCount);
+    assertSameSchedules("pages", PAGED_SCHEDULER, firstSeed, trialCount);
+
+    System.out.println("Test completed.");
+  }
+
+  /**
+   * Assert that a scheduler produces the same schedules as the reference algorithm on seeded random registers. Please note that this method uses assert statements for testing.
+   * @param testName the name of the test and what will be reported if the assertion is not satified.
+   * @param scheduler the scheduler to check.
+   * @param firstSeed the seed of the first register.
+   * @param trialCount the number of registers to check (with consecutive seeds).
+   */
+  public static void assertSameSchedules(String testName, Scheduler scheduler, long firstSeed, int trialCount) {
+    String difference = runTrials(scheduler, firstSeed, trialCount);
+    assert difference == null : "Error in test " + testName + ": " + difference;
+  }
+
+  /**
+   * Check a scheduler against the reference algorithm on seeded random registers.
+   * @param scheduler the scheduler to check.
+   * @param firstSeed the seed of the first register.
+   * @param trialCount the number of registers to check (with consecutive seeds).
+   * @return a description of the first difference (with the seed of its register), or null if every schedule was the same.
+   */
+  public static String runTrials(Scheduler scheduler, long firstSeed, int trialCount) {
+
+    for (long seed = firstSeed; seed < firstSeed + trialCount; seed++) {
+      String difference = runTrial(scheduler, seed);
+      if (difference != null) {
+        return "register with seed " + seed + ", " + difference;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Helper method that checks a scheduler on one random register (changing the register between schedules).
+   * @param scheduler the scheduler to check.
+   * @param seed the seed of the register.
+   * @return a description of the first difference, or null if every schedule was the same.
+   */
+  private static String runTrial(Scheduler scheduler, long seed) {
+
+    Random random = new Random(seed);
+    Register register = generateRandomRegister(random);
+
+    for (int scheduleIndex = 0; scheduleIndex < SCHEDULES_PER_TRIAL; scheduleIndex++) {
+
+      // Ask for a schedule (often the same starting day as the last, so shorter schedules are continued)
+      int startingDayIndex = 1 + random.nextInt(random.nextBoolean() ? 2 : 7);
+      int numberOfDays = 1 + random.nextInt(12);
+
+      RecordedSchedule expectedSchedule = new RecordedSchedule();
+      RecordedSchedule testSchedule = new RecordedSchedule();
+      String expectedError = null;
+      String testError = null;
+
+      try {
+        writeReferenceSchedule(register, startingDayIndex, scheduler.getNumberOfDays(register, startingDayIndex, numberOfDays), expectedSchedule);
+      } catch (FatalError e) {
+        expectedError = e.getMessage();
+      }
+
+      // Check the days patients were matched to without the matcher (since the reference uses it too)
+      if (expectedError == null && register.hasAvailabilityRestrictions()) {
+        String earlierDay = findEarlierDay(expectedSchedule, register.getMaximumDosesPerDay());
+        if (earlierDay != null) {
+          return "schedule " + (scheduleIndex + 1) + " (starting on " + BasicFormatter.getDayOfWeekName(startingDayIndex) + " for " + numberOfDays + " days): the reference gave " + earlierDay;
+        }
+      }
+      try {
+        scheduler.writeSchedule(register, startingDayIndex, numberOfDays, testSchedule);
+      } catch (FatalError e) {
+        testError = e.getMessage();
+      }
+
+      // Compare the schedules (or that both failed)
+      String difference;
+      if (expectedError != null || testError != null) {
+        difference = (expectedError != null && testError != null) ? null : "expected " + (expectedError != null ? "the error \"" + expectedError + "\"" : "a schedule") + " but got " + (testError != null ? "the error \"" + testError + "\"" : "a schedule");
+      } else {
+        difference = testSchedule.findDifference(expectedSchedule);
+      }
+
+      if (difference != null) {
+        return "schedule " + (scheduleIndex + 1) + " (starting on " + BasicFormatter.getDayOfWeekName(startingDayIndex) + " for " + numberOfDays + " days): " + difference;
+      }
+
+      changeRandomly(register, random);
+    }
+
+    return null;
+  }
+
+  /**
+   * Generate a schedule with the reference algorithm: every patient is sorted by priority, and then the patients are scheduled greedily (or matched to the days they are available if any patient has restrictions).
+   * @param register the register.
+   * @param startingDayIndex the index for the day of the week to start the schedule from (where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @param sink the sink to pass the schedule to.
+   * @throws FatalError if the register has no way of administering doses.
+   */
+  public static void writeReferenceSchedule(Register register, int startingDayIndex, int numberOfDays, ScheduleSink sink) {
+
+    ArrayList<Patient> patients = new ArrayList<Patient>(register.getPatientsList());
+    patients.sort(null);
+
+    if (register.hasAvailabilityRestrictions()) {
+      Register.generateAvailabilitySchedule(patients.iterator(), register.getDoctorsList(), register.getMaximumDosesPerDay(), startingDayIndex, numberOfDays, sink);
+    } else {
+      Register.generateSchedule(patients.iterator(), register.getDoctorsList(), register.getMaximumDosesPerDay(), startingDayIndex, numberOfDays, sink);
+    }
+  }
+
+  /**
+   * Check that a schedule matched to the days patients are available gives higher priority patients the earlier days: no patient could take an open place on an earlier day they are available, or trade days with a lower priority patient on an earlier day when both are available on the other's day.
+   * @param schedule the schedule.
+   * @param maximumDosesPerDay the mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day.
+   * @return a description of the first patient who could have had an earlier day, or null if there is none.
+   */
+  public static String findEarlierDay(RecordedSchedule schedule, int[] maximumDosesPerDay) {
+
+    // Count the appointments of each day
+    int[] appointmentCount = new int[schedule.getDayCount()];
+    for (int appointment = 0; appointment < schedule.getAppointmentCount(); appointment++) {
+      appointmentCount[schedule.getAppointmentDayIndex(appointment)]++;
+    }
+
+    for (int appointment = 0; appointment < schedule.getAppointmentCount(); appointment++) {
+
+      Patient patient = schedule.getAppointmentPatient(appointment);
+      int dayIndex = schedule.getAppointmentDayIndex(appointment);
+      int dayMask = 1 << (schedule.getDayOfWeek(dayIndex) - 1);
+
+      for (int otherAppointment = 0; otherAppointment < schedule.getAppointmentCount(); otherAppointment++) {
+
+        Patient otherPatient = schedule.getAppointmentPatient(otherAppointment);
+        int otherDayIndex = schedule.getAppointmentDayIndex(otherAppointment);
+        int otherDayMask = 1 << (schedule.getDayOfWeek(otherDayIndex) - 1);
+
+        if (otherDayIndex < dayIndex && patient.compareTo(otherPatient) < 0 && (patient.getAvailableDays() & otherDayMask) != 0 && (otherPatient.getAvailableDays() & dayMask) != 0) {
+          return patient.getName() + " day " + schedule.getDayNumber(dayIndex) + " though they could trade with " + otherPatient.getName() + " on day " + schedule.getDayNumber(otherDayIndex);
+        }
+      }
+
+      for (int otherDayIndex = 0; otherDayIndex < dayIndex; otherDayIndex++) {
+        int otherDayOfWeek = schedule.getDayOfWeek(otherDayIndex);
+        if ((patient.getAvailableDays() & (1 << (otherDayOfWeek - 1))) != 0 && appointmentCount[otherDayIndex] < maximumDosesPerDay[otherDayOfWeek - 1]) {
+          return patient.getName() + " day " + schedule.getDayNumber(dayIndex) + " though day " + schedule.getDayNumber(otherDayIndex) + " has room";
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Helper method that generates a random register (with few distinct weights, so ties are common).
+   * @param random the source of randomness.
+   * @return the register.
+   */
+  private static Register generateRandomRegister(Random random) {
+
+    int[] ageWeighting = new int[9];
+    for (int decade = 0; decade < ageWeighting.length; decade++) {
+      ageWeighting[decade] = random.nextInt(4);
+    }
+
+    int[] weighting = new int[4];
+    for (int weightIndex = 0; weightIndex < weighting.length; weightIndex++) {
+      weighting[weightIndex] = random.nextInt(5) - 1;
+    }
+
+    // Leave some days without doses (and rarely every day, so errors are compared too)
+    int[] dosesPerDay = new int[7];
+    boolean hasNoDoses = random.nextInt(50) == 0;
+    for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+      dosesPerDay[dayIndex] = (hasNoDoses || random.nextInt(3) == 0) ? 0 : 1 + random.nextInt(8);
+    }
+
+    int patientCount = random.nextInt(random.nextBoolean() ? 20 : 150);
+    int[] patientAges = new int[patientCount];
+    boolean[][] patientParameters = new boolean[patientCount][weighting.length];
+    for (int patientIndex = 0; patientIndex < patientCount; patientIndex++) {
+      patientAges[patientIndex] = random.nextInt(90);
+      for (int parameterIndex = 0; parameterIndex < weighting.length; parameterIndex++) {
+        patientParameters[patientIndex][parameterIndex] = random.nextBoolean();
+      }
+    }
+
+    int[][] doctorParameters = new int[1 + random.nextInt(4)][7];
+    for (int[] doctorDoses : doctorParameters) {
+      for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+        doctorDoses[dayIndex] = random.nextInt(4);
+      }
+    }
+
+    Register register = Register.generateTestRegister(ageWeighting, weighting, dosesPerDay, patientAges, patientParameters, doctorParameters);
+    register.setLazyOrdering(random.nextBoolean());
+
+    // Restrict the days some patients are available in a quarter of the registers
+    if (random.nextInt(4) == 0) {
+      for (Patient patient : register.getPatientsList()) {
+        if (random.nextInt(3) == 0) {
+          register.setAvailableDays(patient, 1 + random.nextInt(0b1111111));
+        }
+      }
+    }
+
+    return register;
+  }
+
+  /**
+   * Helper method that makes a random change to a register (or none).
+   * @param register the register.
+   * @param random the source of randomness.
+   */
+  private static void changeRandomly(Register register, Random random) {
+
+    switch (random.nextInt(6)) {
+      case 0: // add a patient
+        Patient newPatient = new Patient();
+        newPatient.setName("p" + BasicFormatter.getThreeDigitString(random.nextInt(1000)));
+        newPatient.setBirthdate(LocalDate.now().minusYears(random.nextInt(90)));
+        for (int parameterIndex = 0; parameterIndex < 4; parameterIndex++) {
+          newPatient.appendMedicalBoolean("w" + parameterIndex, random.nextBoolean());
+        }
+        register.addPatient(newPatient);
+        break;
+
+      case 1: // remove a patient
+        if (register.hasPatients()) {
+          register.removePatient(register.getPatientsList().get(random.nextInt(register.getPatientsList().size())));
+        }
+        break;
+
+      case 2: // change the doses of a day
+        register.setDailyDoses(1 + random.nextInt(7), random.nextInt(8));
+        break;
+
+      case 3: // change an age weight and rescore
+        register.setAgeRangeWeight(random.nextInt(9), random.nextInt(4));
+        register.recompilePatients();
+        break;
+
+      default: // make no change (so cached schedules are used)
+        break;
+    }
+  }
+}
@@ -0,0 +1,373 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The ScheduleExporter class writes the appointments of a schedule to a file as CSV or JSON Lines (one appointment per line), for systems that contact patients. Appointments are encoded straight into a direct ByteBuffer (taken from a shared pool) and written through a FileChannel when it fills, so no strings are built per line and memory use does not grow with the size of the schedule.
+ * Fields that were not provided ("N/A") are written as empty CSV fields or JSON nulls.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class ScheduleExporter implements ScheduleSink, AutoCloseable {
+
+  /** The number of bytes in each pooled buffer. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The most bytes a single character can be written as (a JSON escape sequence). */
+  private static final int MAXIMUM_CHARACTER_BYTES = 6;
+
+  /** The pool of buffers not in use by an exporter. */
+  private static final ConcurrentLinkedQueue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<ByteBuffer>();
+
+  /** The first line of a CSV file. */
+  private static final byte[] CSV_HEADER = ascii("day,weekday,doctor_id,doctor_name,patient_id,patient_name,phone,email\n");
+
+  /** The start of a JSON line up to the day number. */
+  private static final byte[] JSON_DAY = ascii("{\"day\":");
+
+  /** The JSON field name of the day of the week (with the punctuation before the value). */
+  private static final byte[] JSON_WEEKDAY = ascii(",\"weekday\":");
+
+  /** The JSON field name of the doctor's ID (with the punctuation before the value). */
+  private static final byte[] JSON_DOCTOR_ID = ascii(",\"doctorID\":");
+
+  /** The JSON field name of the doctor's name (with the punctuation before the value). */
+  private static final byte[] JSON_DOCTOR_NAME = ascii(",\"doctorName\":");
+
+  /** The JSON field name of the patient's ID (with the punctuation before the value). */
+  private static final byte[] JSON_PATIENT_ID = ascii(",\"patientID\":");
+
+  /** The JSON field name of the patient's name (with the punctuation before the value). */
+  private static final byte[] JSON_PATIENT_NAME = ascii(",\"patientName\":");
+
+  /** The JSON field name of the patient's phone number (with the punctuation before the value). */
+  private static final byte[] JSON_PHONE = ascii(",\"phone\":");
+
+  /** The JSON field name of the patient's email address (with the punctuation before the value). */
+  private static final byte[] JSON_EMAIL = ascii(",\"email\":");
+
+  /** The JSON value written for a field that was not provided. */
+  private static final byte[] JSON_NULL = ascii("null");
+
+  /** The hexadecimal digits (for JSON escape sequences). */
+  private static final byte[] HEXADECIMAL_DIGITS = ascii("0123456789abcdef");
+
+  /** The channel of the file being written. */
+  private final FileChannel channel;
+
+  /** Whether appointments are written as JSON Lines (or CSV otherwise). */
+  private final boolean isJSONLines;
+
+  /** The buffer appointments are encoded into before being written to the channel. */
+  private ByteBuffer buffer;
+
+  /** Scratch space for the digits of a number (written backwards). */
+  private final byte[] digits;
+
+  /** The number of the current day. */
+  private int dayNumber;
+
+  /** The name of the current day's day of the week. */
+  private String weekdayName;
+
+  /** The number of appointments written. */
+  private long appointmentCount;
+
+  /**
+   * Constructor that opens the file to export to (replacing the file if it exists).
+   * @param fileName the name of the file.
+   * @param isJSONLines whether to write JSON Lines (or CSV otherwise).
+   * @throws IOException if the file cannot be opened.
+   */
+  public ScheduleExporter(String fileName, boolean isJSONLines) throws IOException {
+
+    channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    this.isJSONLines = isJSONLines;
+
+    // Take a buffer from the pool (or make one if the pool is empty)
+    buffer = bufferPool.poll();
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    digits = new byte[20];
+    appointmentCount = 0;
+
+    if (!isJSONLines) {
+      putBytes(CSV_HEADER);
+    }
+  }
+
+  /**
+   * Helper method that gets the bytes of an ASCII string.
+   * @param string the string.
+   * @return the bytes.
+   */
+  private static byte[] ascii(String string) {
+    return string.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Getter for the appointment count.
+   * @return the number of appointments written.
+   */
+  public long getAppointmentCount() {
+    return appointmentCount;
+  }
+
+  @Override
+  public void appendDay(int dayNumber, int dayOfWeek) {
+    this.dayNumber = dayNumber;
+    this.weekdayName = BasicFormatter.getDayOfWeekName(dayOfWeek);
+  }
+
+  /**
+   * Write an appointment on the current day as a line of the file.
+   * @param doctor the doctor who will vaccinate the patient.
+   * @param patient the patient to vaccinate.
+   * @throws UncheckedIOException if the file cannot be written to.
+   */
+  @Override
+  public void appendAppointment(Doctor doctor, Patient patient) {
+
+    if (isJSONLines) {
+      putBytes(JSON_DAY);
+      putNumber(dayNumber);
+      putBytes(JSON_WEEKDAY);
+      putJSONString(weekdayName);
+      putBytes(JSON_DOCTOR_ID);
+      putNumber(doctor.getDoctorID());
+      putBytes(JSON_DOCTOR_NAME);
+      putJSONString(doctor.getName());
+      putBytes(JSON_PATIENT_ID);
+      putNumber(patient.getPatientID());
+      putBytes(JSON_PATIENT_NAME);
+      putJSONString(patient.getName());
+      putBytes(JSON_PHONE);
+      putJSONString(patient.getPhone());
+      putBytes(JSON_EMAIL);
+      putJSONString(patient.getEmail());
+      putByte('}');
+
+    } else {
+      putNumber(dayNumber);
+      putByte(',');
+      putCSVField(weekdayName);
+      putByte(',');
+      putNumber(doctor.getDoctorID());
+      putByte(',');
+      putCSVField(doctor.getName());
+      putByte(',');
+      putNumber(patient.getPatientID());
+      putByte(',');
+      putCSVField(patient.getName());
+      putByte(',');
+      putCSVField(patient.getPhone());
+      putByte(',');
+      putCSVField(patient.getEmail());
+    }
+
+    putByte('\n');
+    appointmentCount++;
+  }
+
+  /**
+   * Helper method that ensures the buffer has room for some bytes (writing the buffer to the file if it does not).
+   * @param byteCount the number of bytes (at most the buffer size).
+   */
+  private void ensureRemaining(int byteCount) {
+    if (buffer.remaining() < byteCount) {
+      flush();
+    }
+  }
+
+  /**
+   * Helper method that writes a byte.
+   * @param value the byte (as a char for convenience, which must be ASCII).
+   */
+  private void putByte(char value) {
+    ensureRemaining(1);
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Helper method that writes bytes.
+   * @param bytes the bytes (at most the buffer size).
+   */
+  private void putBytes(byte[] bytes) {
+    ensureRemaining(bytes.length);
+    buffer.put(bytes);
+  }
+
+  /**
+   * Helper method that writes a number in decimal.
+   * @param number the number.
+   */
+  private void putNumber(long number) {
+
+    ensureRemaining(digits.length);
+
+    if (number < 0) {
+      buffer.put((byte) '-');
+    }
+
+    // Fill the digits from the end (the remainder is negated for negative numbers, so Long.MIN_VALUE does not overflow)
+    int start = digits.length;
+    do {
+      digits[--start] = (byte) ('0' + Math.abs(number % 10));
+      number /= 10;
+    } while (number != 0);
+
+    buffer.put(digits, start, digits.length - start);
+  }
+
+  /**
+   * Helper method that writes a character as UTF-8.
+   * @param string the string containing the character.
+   * @param index the index of the character in the string.
+   * @return the index of the next character (a surrogate pair takes two chars).
+   */
+  private int putCharacter(String string, int index) {
+
+    ensureRemaining(MAXIMUM_CHARACTER_BYTES);
+
+    int codePoint = string.codePointAt(index);
+
+    if (codePoint < 0x80) {
+      buffer.put((byte) codePoint);
+    } else if (codePoint < 0x800) {
+      buffer.put((byte) (0xC0 | (codePoint >> 6)));
+      buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+    } else if (codePoint < 0x10000) {
+      buffer.put((byte) (0xE0 | (codePoint >> 12)));
+      buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+      buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+    } else {
+      buffer.put((byte) (0xF0 | (codePoint >> 18)));
+      buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+      buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+      buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+    }
+
+    return index + Character.charCount(codePoint);
+  }
+
+  /**
+   * Helper method that writes a CSV field (quoted only if it contains a comma, quote, or line break).
+   * @param value the value of the field.
+   */
+  private void putCSVField(String value) {
+
+    if (value == null || StringPool.NOT_AVAILABLE.equals(value)) {
+      return;
+    }
+
+    // Check if the field needs quotes
+    boolean isQuoted = false;
+    for (int index = 0; index < value.length() && !isQuoted; index++) {
+      char character = value.charAt(index);
+      isQuoted = character == ',' || character == '"' || character == '\n' || character == '\r';
+    }
+
+    if (isQuoted) {
+      putByte('"');
+    }
+
+    for (int index = 0; index < value.length();) {
+      // Double any quotes
+      if (value.charAt(index) == '"') {
+        putByte('"');
+      }
+      index = putCharacter(value, index);
+    }
+
+    if (isQuoted) {
+      putByte('"');
+    }
+  }
+
+  /**
+   * Helper method that writes a JSON string (with quotes, backslashes, and control characters escaped).
+   * @param value the value of the string.
+   */
+  private void putJSONString(String value) {
+
+    if (value == null || StringPool.NOT_AVAILABLE.equals(value)) {
+      putBytes(JSON_NULL);
+      return;
+    }
+
+    putByte('"');
+
+    for (int index = 0; index < value.length();) {
+
+      char character = value.charAt(index);
+
+      if (character == '"' || character == '\\') {
+        putByte('\\');
+        putByte(character);
+        index++;
+
+      } else if (character < 0x20) {
+        ensureRemaining(MAXIMUM_CHARACTER_BYTES);
+        buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0');
+        buffer.put(HEXADECIMAL_DIGITS[character >> 4]).put(HEXADECIMAL_DIGITS[character & 0xF]);
+        index++;
+
+      } else {
+        index = putCharacter(value, index);
+      }
+    }
+
+    putByte('"');
+  }
+
+  /**
+   * Write the buffered bytes to the file.
+   * @throws UncheckedIOException if the file cannot be written to.
+   */
+  public void flush() {
+
+    buffer.flip();
+
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Write the buffered bytes, close the file, and return the buffer to the pool.
+   * @throws IOException if the file cannot be written to or closed.
+   */
+  @Override
+  public void close() throws IOException {
+
+    // Ensure the exporter is only closed once
+    if (buffer == null) {
+      return;
+    }
+
+    try {
+      flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      bufferPool.offer(buffer);
+      buffer = null;
+      channel.close();
+    }
+  }
+}
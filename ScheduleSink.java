@@ -0,0 +1,21 @@
+/**
+ * The ScheduleSink interface receives a schedule as it is generated, one day and one appointment at a time, so a schedule can be written out (as text or to a file) without being held in memory as a whole. Appointments are passed grouped by doctor within each day, in the order the doctors are listed.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public interface ScheduleSink {
+
+  /**
+   * Start a new active day of the schedule (the appointments that follow are on this day).
+   * @param dayNumber the active day number (starting from 1, and not counting idle days).
+   * @param dayOfWeek the index for the day of the week (1 is Sunday and 7 is Saturday).
+   */
+  void appendDay(int dayNumber, int dayOfWeek);
+
+  /**
+   * Add an appointment to the current day.
+   * @param doctor the doctor who will vaccinate the patient.
+   * @param patient the patient to vaccinate.
+   */
+  void appendAppointment(Doctor doctor, Patient patient);
+}
@@ -0,0 +1,420 @@
+import java.util.ArrayList;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * The ShardCoordinator class manages a register that is split into shards, one per site, where each shard is its own Register saved to its own file. Sites are listed (in the order they were added) in a manifest file, and a site's position in the manifest determines the range of IDs its shard assigns, so IDs are unique across all sites (a shard refuses to assign IDs past its range). The coordinator can produce a schedule for a single site or a global schedule that merges every site's schedule day by day, where each site's patients are only scheduled with that site's doctors and doses.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class ShardCoordinator {
+
+  /** The filename of the site manifest (one site name per line). */
+  public static final String SITE_MANIFEST_FILE_NAME = "Sites.txt";
+
+  /** The number of IDs reserved for each site (site n assigns IDs starting from the default first ID plus n times this number). */
+  public static final int SHARD_ID_SPAN = 1000000;
+
+  /** The directory the manifest and shards are kept in. */
+  private final File directory;
+
+  /** The mapping of site indices to site names. */
+  private ArrayList<String> siteNames;
+
+  /** The mapping of site indices to the loaded shards (an element is null until that shard is loaded). */
+  private ArrayList<Register> shards;
+
+  /**
+   * The default constructor, which reads the site manifest in the working directory (if there is one).
+   * @throws FatalError if there is an IOException thrown while reading the manifest.
+   */
+  public ShardCoordinator() {
+    this(new File("."));
+  }
+
+  /**
+   * Constructor that reads the site manifest in a directory (if there is one), where the shards are also kept.
+   * @param directory the directory.
+   * @throws FatalError if there is an IOException thrown while reading the manifest.
+   */
+  public ShardCoordinator(File directory) {
+
+    this.directory = directory;
+    siteNames = new ArrayList<String>();
+    shards = new ArrayList<Register>();
+
+    // Read the manifest (there are no sites if it does not exist yet)
+    BufferedReader manifestReader = null;
+
+    try {
+      manifestReader = new BufferedReader(new FileReader(new File(directory, SITE_MANIFEST_FILE_NAME)));
+      String siteName = null;
+
+      while ( (siteName = manifestReader.readLine()) != null) {
+        if (!siteName.isEmpty()) {
+          siteNames.add(siteName);
+          shards.add(null);
+        }
+      }
+
+    } catch (FileNotFoundException e) {
+      // There is no manifest yet (there are no sites)
+
+    } catch (IOException e) {
+      throw new FatalError("IOException: " + e.getMessage());
+
+    } finally {
+      if (manifestReader != null) {
+        try {
+          manifestReader.close();
+        } catch (IOException e) {
+          throw new FatalError("IOException: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the filename of the shard for a site.
+   * @param siteName the name of the site.
+   * @return the filename of the site's shard.
+   */
+  public static String getShardFileName(String siteName) {
+    return "ProgramData-" + siteName + ".bin";
+  }
+
+  /**
+   * Get the filename of the archive of cleared patients for a site.
+   * @param siteName the name of the site.
+   * @return the filename of the site's archive.
+   */
+  public static String getShardArchiveFileName(String siteName) {
+    return "ProgramArchive-" + siteName + ".bin";
+  }
+
+  /**
+   * Create an empty shard for a site index (with that site's range of IDs, which it cannot assign IDs past).
+   * @param siteIndex the index of the site.
+   * @return the new, empty shard.
+   * @throws IllegalArgumentException if the site's range of IDs would go past the largest ID.
+   */
+  public static Register newShard(int siteIndex) {
+
+    if (siteIndex < 0 || siteIndex >= (Integer.MAX_VALUE - 9000) / SHARD_ID_SPAN) {
+      throw new IllegalArgumentException("illegal site index: " + siteIndex);
+    }
+
+    return new Register(1000 + siteIndex * SHARD_ID_SPAN, 9000 + siteIndex * SHARD_ID_SPAN, SHARD_ID_SPAN);
+  }
+
+  /**
+   * Get the index of a site.
+   * @param siteName the name of the site.
+   * @return the index of the site or -1 if there is no site with that name.
+   */
+  public int getSiteIndex(String siteName) {
+    return siteNames.indexOf(siteName);
+  }
+
+  /**
+   * Get the index of a site, adding the site to the manifest if it is not there yet.
+   * @param siteName the name of the site (this must only contain letters, digits, '-', and '_' so that it can be used in a filename).
+   * @return the index of the site.
+   * @throws IllegalArgumentException if the site name is empty or contains other characters.
+   * @throws FatalError if there is an IOException thrown while writing the manifest.
+   */
+  public int addSite(String siteName) {
+
+    // Ensure the name can be used in a filename
+    if (!siteName.matches("[A-Za-z0-9_-]+")) {
+      throw new IllegalArgumentException("illegal site name: \"" + siteName + "\"");
+    }
+
+    // Return the existing index if the site is already present
+    int siteIndex = getSiteIndex(siteName);
+    if (siteIndex != -1) {
+      return siteIndex;
+    }
+
+    // Append the site to the manifest
+    BufferedWriter manifestWriter = null;
+
+    try {
+      manifestWriter = new BufferedWriter(new FileWriter(new File(directory, SITE_MANIFEST_FILE_NAME), true));
+      manifestWriter.write(siteName);
+      manifestWriter.newLine();
+
+    } catch (IOException e) {
+      throw new FatalError("IOException: " + e.getMessage());
+
+    } finally {
+      if (manifestWriter != null) {
+        try {
+          manifestWriter.close();
+        } catch (IOException e) {
+          throw new FatalError("IOException: " + e.getMessage());
+        }
+      }
+    }
+
+    siteNames.add(siteName);
+    shards.add(null);
+    return siteNames.size() - 1;
+  }
+
+  /**
+   * Get the names of all sites (it is not recommended that the returned list be modified).
+   * @return the list of site names in manifest order.
+   */
+  public ArrayList<String> getSiteNames() {
+    return siteNames;
+  }
+
+  /**
+   * Get the shard of a site, loading it from its file if it has not been loaded yet (a site without a file gets an empty shard).
+   * @param siteName the name of the site.
+   * @return the shard of the site.
+   * @throws IllegalArgumentException if there is no site with that name.
+   * @throws FatalError if the shard file cannot be read.
+   */
+  public Register getShard(String siteName) {
+
+    int siteIndex = getSiteIndex(siteName);
+    if (siteIndex == -1) {
+      throw new IllegalArgumentException("no site named \"" + siteName + "\"");
+    }
+
+    // Load the shard if needed
+    if (shards.get(siteIndex) == null) {
+      Register shard = readRegister(new File(directory, getShardFileName(siteName)).getPath());
+      shards.set(siteIndex, shard != null ? shard : newShard(siteIndex));
+    }
+
+    return shards.get(siteIndex);
+  }
+
+  /**
+   * Save the shard of a site to its file (nothing is written if the shard has not been loaded).
+   * @param siteName the name of the site.
+   * @throws IllegalArgumentException if there is no site with that name.
+   * @throws FatalError if the shard file cannot be written.
+   */
+  public void saveShard(String siteName) {
+
+    int siteIndex = getSiteIndex(siteName);
+    if (siteIndex == -1) {
+      throw new IllegalArgumentException("no site named \"" + siteName + "\"");
+    }
+
+    if (shards.get(siteIndex) != null) {
+      writeRegister(shards.get(siteIndex), new File(directory, getShardFileName(siteName)).getPath());
+    }
+  }
+
+  /**
+   * Read a register from a file.
+   * @param filename the file to read.
+   * @return the register or null if the file does not exist.
+   * @throws FatalError if the file cannot be read.
+   */
+  public static Register readRegister(String filename) {
+
+    if (!new File(filename).exists()) {
+      return null;
+    }
+
+    try {
+      return Register.readSaveState(new FileInputStream(filename));
+
+    } catch (ClassNotFoundException e) {
+      throw new FatalError("ClassNotFoundException: " + e.getMessage());
+
+    } catch (IOException e) {
+      throw new FatalError("IOException while reading \"" + filename + "\": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Write a register to a file.
+   * @param register the register to write.
+   * @param filename the destination of the write.
+   * @throws FatalError if the file cannot be written.
+   */
+  public static void writeRegister(Register register, String filename) {
+
+    try {
+      register.writeSaveState(new FileOutputStream(filename));
+
+    } catch (IOException e) {
+      throw new FatalError("IOException while writing \"" + filename + "\": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Generate a global schedule, where each site's patients are scheduled with that site's doctors and doses, and the sites' schedules are merged day by day (in manifest order within each day).
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to (a day is active if any site can administer doses on it).
+   * @return the global schedule.
+   * @throws FatalError if no site can administer doses.
+   */
+  public String generateGlobalScheduleString(int startingDayIndex, int numberOfDays) {
+    Register.TextScheduleSink workingSchedule = new Register.TextScheduleSink();
+    writeGlobalSchedule(startingDayIndex, numberOfDays, workingSchedule);
+    return workingSchedule.toString();
+  }
+
+  /**
+   * Generate a global schedule (as generateGlobalScheduleString does) and pass it to a sink.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to (a day is active if any site can administer doses on it).
+   * @param sink the sink to pass the schedule to.
+   * @throws FatalError if no site can administer doses.
+   */
+  public void writeGlobalSchedule(int startingDayIndex, int numberOfDays, ScheduleSink sink) {
+
+    // Find the days of the week each site and any site can administer doses on
+    int[] siteActiveDays = new int[siteNames.size()];
+    int activeDays = 0;
+    for (int siteIndex = 0; siteIndex < siteNames.size(); siteIndex++) {
+      int[] maximumDosesPerDay = getShard(siteNames.get(siteIndex)).getMaximumDosesPerDay();
+      for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+        if (maximumDosesPerDay[dayIndex] != 0) {
+          siteActiveDays[siteIndex] |= 1 << dayIndex;
+        }
+      }
+      activeDays |= siteActiveDays[siteIndex];
+    }
+
+    if (activeDays == 0) {
+      throw new FatalError("No site can administer doses at schedule generation");
+    }
+
+    // Generate each site's schedule out to the site's active days among the global schedule's days (whole weeks, and then the days of the last partial week)
+    int activeDaysPerWeek = Integer.bitCount(activeDays);
+    ArrayList<RecordedSchedule> siteSchedules = new ArrayList<RecordedSchedule>();
+
+    for (int siteIndex = 0; siteIndex < siteNames.size(); siteIndex++) {
+
+      long siteNumberOfDays = (long) (numberOfDays / activeDaysPerWeek) * Integer.bitCount(siteActiveDays[siteIndex]);
+      int dayOfWeek = startingDayIndex;
+      for (int dayCount = 0; dayCount < numberOfDays % activeDaysPerWeek; dayOfWeek = (dayOfWeek % 7) + 1) {
+        if ((activeDays & (1 << (dayOfWeek - 1))) != 0) {
+          siteNumberOfDays += (siteActiveDays[siteIndex] >> (dayOfWeek - 1)) & 1;
+          dayCount++;
+        }
+      }
+
+      RecordedSchedule siteSchedule = new RecordedSchedule();
+      if (siteNumberOfDays != 0) {
+        getShard(siteNames.get(siteIndex)).writeSchedule(startingDayIndex, (int) siteNumberOfDays, siteSchedule);
+      }
+      siteSchedules.add(siteSchedule);
+    }
+
+    // Walk the global days, matching each site's next day to the global day it falls on (by counting the site's active days)
+    int[] nextDayIndex = new int[siteNames.size()];
+    int[] siteDayNumber = new int[siteNames.size()];
+    int remainingSites = 0;
+    for (RecordedSchedule siteSchedule : siteSchedules) {
+      remainingSites += (siteSchedule.getDayCount() != 0) ? 1 : 0;
+    }
+
+    int dayOfWeek = startingDayIndex;
+    for (int dayNumber = 1; remainingSites != 0; dayOfWeek = (dayOfWeek % 7) + 1) {
+
+      if ((activeDays & (1 << (dayOfWeek - 1))) == 0) {
+        continue;
+      }
+
+      boolean isDayAppended = false;
+      for (int siteIndex = 0; siteIndex < siteNames.size(); siteIndex++) {
+
+        RecordedSchedule siteSchedule = siteSchedules.get(siteIndex);
+        if ((siteActiveDays[siteIndex] & (1 << (dayOfWeek - 1))) == 0 || nextDayIndex[siteIndex] == siteSchedule.getDayCount()) {
+          continue;
+        }
+
+        // Append the site's day if it falls on this global day
+        if (siteSchedule.getDayNumber(nextDayIndex[siteIndex]) == ++siteDayNumber[siteIndex]) {
+          if (!isDayAppended) {
+            sink.appendDay(dayNumber, dayOfWeek);
+            isDayAppended = true;
+          }
+          siteSchedule.writeAppointmentsTo(sink, nextDayIndex[siteIndex]++);
+          if (nextDayIndex[siteIndex] == siteSchedule.getDayCount()) {
+            remainingSites--;
+          }
+        }
+      }
+
+      dayNumber++;
+    }
+  }
+
+  /**
+   * Generate the schedule for a single site (this is saved as that shard's current schedule).
+   * @param siteName the name of the site.
+   * @param startingDayIndex the index for the day of the week to start generating the schedule (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days to schedule out to.
+   * @return the site's schedule.
+   * @throws IllegalArgumentException if there is no site with that name.
+   * @throws FatalError if the site cannot administer doses.
+   */
+  public String generateSiteScheduleString(String siteName, int startingDayIndex, int numberOfDays) {
+    return getShard(siteName).generateScheduleString(startingDayIndex, numberOfDays);
+  }
+
+  /**
+   * Print a global schedule for all sites (or only the passed sites) from the command line. The arguments are the starting day-of-the-week index (1 is Sunday and 7 is Saturday), the number of active days, and optionally a site name to print that site's schedule alone.
+   * @param args the command-line arguments.
+   */
+  public static void main(String[] args) {
+
+    // Check the arguments before loading any shards
+    int startingDayIndex = (args.length == 2 || args.length == 3) ? parseArgument(args[0], 1, 7) : -1;
+    int numberOfDays = (startingDayIndex != -1) ? parseArgument(args[1], 1, Integer.MAX_VALUE) : -1;
+
+    if (numberOfDays == -1) {
+      System.out.println("Usage: java ShardCoordinator <starting day index> <number of days> [site name]");
+      System.out.println("The starting day index must be between 1 (Sunday) and 7 (Saturday), and the number of days must be at least 1.");
+      return;
+    }
+
+    ShardCoordinator coordinator = new ShardCoordinator();
+
+    try {
+      if (args.length == 3) {
+        System.out.println(coordinator.generateSiteScheduleString(args[2], startingDayIndex, numberOfDays));
+      } else {
+        System.out.println(coordinator.generateGlobalScheduleString(startingDayIndex, numberOfDays));
+      }
+
+    } catch (IllegalArgumentException | FatalError e) {
+      System.out.println("Error: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Helper method that parses a command-line argument as an int within a range.
+   * @param argument the argument.
+   * @param minimum the smallest value allowed.
+   * @param maximum the largest value allowed.
+   * @return the value, or -1 if the argument is not an int within the range.
+   */
+  private static int parseArgument(String argument, int minimum, int maximum) {
+    try {
+      int value = Integer.parseInt(argument.trim());
+      return (value >= minimum && value <= maximum) ? value : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class provides static methods for canonicalizing repeated strings, so that records share one instance of each questionnaire key and common value (such as "N/A") instead of each holding their own copy. Since a save state writes a shared instance once and refers back to it after that, canonical strings are also stored once in save states.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public final class StringPool {
+
+  /** The value used for a field that was not provided. */
+  public static final String NOT_AVAILABLE = "N/A";
+
+  /** The mapping of each pooled string to its canonical instance. */
+  private static final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<String, String>();
+
+  static {
+    pool.put(NOT_AVAILABLE, NOT_AVAILABLE);
+  }
+
+  /** Overridden default constructor, so StringPool cannot be instantiated. */
+  private StringPool() {}
+
+  /**
+   * Get the canonical instance of a string, adding the string to the pool if it is not there yet (this should only be used for strings from a small set, such as questionnaire keys).
+   * @param string the string to canonicalize (or null).
+   * @return the canonical instance (or null if null was passed).
+   */
+  public static String canonicalize(String string) {
+
+    if (string == null) {
+      return null;
+    }
+
+    String canonical = pool.putIfAbsent(string, string);
+    return canonical == null ? string : canonical;
+  }
+
+  /**
+   * Get the canonical instance of a string if it is already pooled, without adding it (this is used for values that are usually unique, such as names, phone numbers, and email addresses).
+   * @param string the string to canonicalize (or null).
+   * @return the canonical instance if there is one or the passed string otherwise.
+   */
+  public static String canonicalizeValue(String string) {
+
+    if (string == null) {
+      return null;
+    }
+
+    String canonical = pool.get(string);
+    return canonical == null ? string : canonical;
+  }
+
+  /**
+   * Get the number of strings in the pool.
+   * @return the size of the pool.
+   */
+  public static int size() {
+    return pool.size();
+  }
+}
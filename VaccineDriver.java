@@ -1,14 +1,22 @@
 import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.List;
+
+import java.time.LocalDate;
 
 import java.io.FileOutputStream;
-import java.io.ObjectOutputStream;
 
 import java.io.FileInputStream;
-import java.io.ObjectInputStream;
+
+import java.io.PrintWriter;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.nio.file.InvalidPathException;
 
 /**
  * The VaccineDriver displays all program commands, accepts user input, saves and loads the state of the program, and stores a register with which it interfaces.
@@ -17,22 +25,126 @@ import java.io.IOException;
  */
 public class VaccineDriver{
 
-  /** The filename of the save state file. */
+  /** The number of characters of bulk output buffered before being written to the console. */
+  private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+  /** The filename of the save state file (when not running for a site). */
   private static final String REGISTER_FILE_NAME = "ProgramData.bin";
 
+  /** The filename of the archive file (when not running for a site). */
+  private static final String ARCHIVE_FILE_NAME = "ProgramArchive.bin";
+
+  /** The command-line option that turns off input prompts (such as when answers are piped in from a file). */
+  private static final String NO_PROMPTS_OPTION = "--no-prompts";
+
+  /** The names of the main menu commands (where the command numbered n is at index n - 1). */
+  private static final String[] COMMAND_NAMES = {
+    "Display available doses and questionnaire weighting",
+    "Set available doses for day",
+    "Set questionnaire response weighting",
+    "Add a patient",
+    "Search for a patient",
+    "Clear a patient",
+    "Add a doctor",
+    "Search for a doctor",
+    "Remove a doctor",
+    "Generate schedule",
+    "Display current schedule",
+    "Reset system",
+    "Quit",
+    "Set patient ordering mode",
+    "Export schedule",
+    "Run clinic dispatch",
+    "Simulate weighting scenarios",
+    "Remove duplicate patients",
+    "Clear vaccinated patients",
+    "Set save state compression",
+    "Find a patient's appointment",
+    "Display days of the schedule",
+    "Find patients in a cohort",
+    "Performance diagnostics"
+  };
+
+  /** The filename of the save state file the driver uses (the site's shard file when running for a site). */
+  private String registerFileName;
+
+  /** The filename of the archive file cleared patients are moved into (the site's archive file when running for a site). */
+  private String archiveFileName;
+
+  /** The archive cleared patients are moved into (or null until it is opened). */
+  private PatientArchive archive;
+
+  /** The index of the site the driver is running for in the ShardCoordinator's manifest (or -1 if not running for a site). */
+  private int siteIndex;
+
   /** The standard scanner instance for a driver. */
   private InputScanner stdScanner;
 
+  /** The buffered writer for bulk output (listings, search results, and schedules), which is flushed once after each command. */
+  private PrintWriter out;
+
+  /** The reused buffer people are rendered into before being written to the output. */
+  private StringBuilder renderBuffer;
+
+  /** The reused array renderings are copied into to be written to the output. */
+  private char[] renderCharacters;
+
   /** The model (important data) of the program, storing the patients, doctors, weighting system, scheduling data, etc.. */
   private Register register;
 
+  /** The profiler that measures the time and allocations of each command. */
+  private CommandProfiler profiler;
+
 
   /**
-   * The sole constructor.
+   * The default constructor (for a driver using the single save state file).
    */
   public VaccineDriver() {
-    stdScanner = new InputScanner(System.in);
-    register = new Register();
+    this(null);
+  }
+
+  /**
+   * Constructor that takes the site to run for, which makes the driver use that site's shard (adding the site to the ShardCoordinator's manifest if needed).
+   * @param siteName the name of the site or null to use the single save state file.
+   * @throws IllegalArgumentException if the site name cannot be used.
+   */
+  public VaccineDriver(String siteName) {
+    this(siteName, true);
+  }
+
+  /**
+   * Constructor that takes the site to run for and whether to print input prompts.
+   * @param siteName the name of the site or null to use the single save state file.
+   * @param isPrompting whether input prompts are printed (they may be turned off when answers are piped in from a file).
+   * @throws IllegalArgumentException if the site name cannot be used.
+   */
+  public VaccineDriver(String siteName, boolean isPrompting) {
+
+    stdScanner = new InputScanner(System.in, isPrompting);
+    out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), OUTPUT_BUFFER_SIZE), false);
+    renderBuffer = new StringBuilder();
+    renderCharacters = new char[256];
+    profiler = new CommandProfiler(COMMAND_NAMES, stdScanner::getInputWaitNanos);
+
+    if (siteName == null) {
+      siteIndex = -1;
+      registerFileName = REGISTER_FILE_NAME;
+      archiveFileName = ARCHIVE_FILE_NAME;
+    } else {
+      siteIndex = new ShardCoordinator().addSite(siteName);
+      registerFileName = ShardCoordinator.getShardFileName(siteName);
+      archiveFileName = ShardCoordinator.getShardArchiveFileName(siteName);
+    }
+
+    register = newRegister();
+  }
+
+  /**
+   * Create a new, empty register (with the site's range of IDs when running for a site).
+   * @return the new register.
+   */
+  private Register newRegister() {
+    return siteIndex == -1 ? new Register() : ShardCoordinator.newShard(siteIndex);
   }
 
 
@@ -42,29 +154,13 @@ public class VaccineDriver{
    */
   public void saveState(String filename) {
 
-    // Create an object output stream reference
-    ObjectOutputStream writer = null;
-
     try {
-      // Set up the output stream and attempt to save the register
-      writer = new ObjectOutputStream(new FileOutputStream(filename));
-      writer.writeObject(register);
+      // Attempt to save the register (compressed if the register has a compression level set), which also closes the file
+      register.writeSaveState(new FileOutputStream(filename));
 
     } catch (IOException e) {
-      // An error was encountered saving the file (report to the user)
+      // An error was encountered saving or closing the file (report to the user)
       System.out.println("Error: there was a file error encountered while saving data.");
-
-    } finally {
-      if (writer != null) {
-        try {
-          // Attempt to close the writer
-          writer.close();
-
-        } catch (IOException e) {
-          // An error was encountered while closing the writer (report to the user)
-          System.out.println("Error: there was a file error encountered while closing save data.");
-        }
-      }
     }
   }
 
@@ -75,13 +171,9 @@ public class VaccineDriver{
    */
   public void loadState(String filename) {
 
-    // Create an object input stream reference
-    ObjectInputStream reader = null;
-
     try {
-      FileInputStream file = new FileInputStream(filename);
-      reader = new ObjectInputStream(file);
-      register = (Register) reader.readObject();
+      // Attempt to load the register (decompressing it if it was saved compressed), which also closes the file
+      register = Register.readSaveState(new FileInputStream(filename));
 
     } catch (ClassNotFoundException e) {
       // An error was encountered while reading  (report to the user and throw a fatal error)
@@ -101,41 +193,42 @@ public class VaccineDriver{
       }
 
       System.out.println(); // spacer
+    }
+  }
 
-    } finally {
+  /**
+   * Open the archive file cleared patients are moved into (creating it if needed) and give it to the register.
+   * @param filename the name of the archive file.
+   * @throws FatalError if the archive file cannot be opened.
+   */
+  public void openArchive(String filename) {
 
-      if (reader != null) {
-        try {
-          // Attempt to close the reader
-          reader.close();
+    try {
+      archive = PatientArchive.open(filename);
+    } catch (IOException e) {
+      // Continuing would lose the records of cleared patients (report to the user and throw a fatal error)
+      System.out.println("Error: there was a file error encountered while opening the patient archive.");
+      throw new FatalError("IOException: " + e.getMessage());
+    }
 
-        } catch (IOException e) {
-          // An error was encountered while closing the reader (report to the user and throw a fatal error)
-          System.out.println("Error: there was a file error encountered while closing the save state file.");
-          throw new FatalError("IOException: " + e.getMessage());
-        }
-      }
+    if (archive.getDamagedSegmentCount() > 0) {
+      System.out.println("Warning: " + archive.getDamagedSegmentCount() + " damaged parts of the patient archive were skipped, so some archived patients cannot be found.\n");
     }
+
+    register.setArchive(archive);
   }
 
   /**
    * Present the user with the available main menu commands.
    */
   private void presentMenu() {
-    System.out.println("Main Menu:\n" +
-                       " 1) Display available doses and questionnaire weighting\n" +
-                       " 2) Set available doses for day\n" +
-                       " 3) Set questionnaire response weighting\n" +
-                       " 4) Add a patient\n" + 
-                       " 5) Search for a patient\n" +
-                       " 6) Clear a patient\n" +
-                       " 7) Add a doctor\n" +
-                       " 8) Search for a doctor \n" +
-                       " 9) Remove a doctor\n" +
-                       "10) Generate schedule\n" +
-                       "11) Display current schedule\n" +
-                       "12) Reset system\n" +
-                       "13) Quit");
+
+    StringBuilder menu = new StringBuilder("Main Menu:");
+    for (int command = 1; command <= COMMAND_NAMES.length; command++) {
+      menu.append(String.format("%n%2d) %s", command, COMMAND_NAMES[command - 1]));
+    }
+
+    System.out.println(menu);
   }
 
   /**
@@ -207,21 +300,12 @@ public class VaccineDriver{
     // Ensure the user wants to change the weighting
     if (stdScanner.getBoolean()) {
 
-      // Get the weighting for those under 10
-      System.out.println("What is the new number of points for those whose age is less than 10?");
-      register.setAgeRangeWeight(0, stdScanner.getIntWithMinimum(0));
-
-      // Get the weighting for those in the range between 10 and 80
-      for (int decadeAgeStart = 1; decadeAgeStart <= 7; decadeAgeStart++) {
-        System.out.println("\nWhat is the new number of points for those whose age is in the " + decadeAgeStart + "0s?");
-        register.setAgeRangeWeight(decadeAgeStart, stdScanner.getIntWithMinimum(0));
+      // Get the weighting for each age range
+      int[] ageRangeWeights = getAgeRangeWeights();
+      for (int decade = 0; decade < ageRangeWeights.length; decade++) {
+        register.setAgeRangeWeight(decade, ageRangeWeights[decade]);
       }
 
-      // Get the weighting for those at or over 80
-      System.out.println("\nWhat is the new number of points for those whose age is or is greater than 80?");
-      register.setAgeRangeWeight(8, stdScanner.getIntWithMinimum(0));
-      System.out.println(); // spacer
-
       // Get the weighting for the questionnaire responses (via a Form method)
       register.setPositiveResponseWeights(Form.getResponseWeightsByForm(register.getPositiveResponseWeights(), stdScanner));
 
@@ -234,6 +318,32 @@ public class VaccineDriver{
     System.out.println(); // spacer
   }
 
+  /**
+   * Get the number of points for each age range (via user input).
+   * @return the mapping of decades (0 through 8 inclusive) to the points for that age range.
+   */
+  private int[] getAgeRangeWeights() {
+
+    int[] ageRangeWeights = new int[PriorityScorer.MAXIMUM_DECADE + 1];
+
+    // Get the weighting for those under 10
+    System.out.println("What is the new number of points for those whose age is less than 10?");
+    ageRangeWeights[0] = stdScanner.getIntWithMinimum(0);
+
+    // Get the weighting for those in the range between 10 and 80
+    for (int decadeAgeStart = 1; decadeAgeStart <= 7; decadeAgeStart++) {
+      System.out.println("\nWhat is the new number of points for those whose age is in the " + decadeAgeStart + "0s?");
+      ageRangeWeights[decadeAgeStart] = stdScanner.getIntWithMinimum(0);
+    }
+
+    // Get the weighting for those at or over 80
+    System.out.println("\nWhat is the new number of points for those whose age is or is greater than 80?");
+    ageRangeWeights[8] = stdScanner.getIntWithMinimum(0);
+    System.out.println(); // spacer
+
+    return ageRangeWeights;
+  }
+
   /**
    * Present a form to generate a new patient and add that patient to the register's listing.
    */
@@ -244,12 +354,24 @@ public class VaccineDriver{
     // Create the new patient from a form filled out by user input (or null if the patient does not qualify)
     Patient newPatient = Form.getPatientByForm(stdScanner);
 
+    // Check if the patient appears to be registered already (and confirm they should be added again)
+    if (newPatient != null) {
+      Patient duplicate = register.findDuplicatePatient(newPatient);
+      if (duplicate != null) {
+        System.out.println("\nThis patient appears to be registered already:\n" + duplicate + "\nWould you like to add them anyway?");
+        if (!stdScanner.getBoolean()) {
+          System.out.println("The patient was not added.\n");
+          return;
+        }
+      }
+    }
+
     // Add the new patient to the register if not null
     if (newPatient != null) {
       register.addPatient(newPatient);
 
       // Save the state and present the new patient's ID
-      saveState(REGISTER_FILE_NAME);
+      saveState(registerFileName);
       System.out.println("You have been added to the register.\nYour patient ID number is " + newPatient.getPatientID() + ".\nThank you.\n");
     }
   }
@@ -268,13 +390,13 @@ public class VaccineDriver{
 
     // Check if any results were found
     if (searchResults.size() == 0) {
-      System.out.println("Sorry, no one matching that name was found.");
+      out.println("Sorry, no one matching that name was found.");
 
     } else {
       // Display all results
-      System.out.println("Results:");
+      out.println("Results:");
       for (Person person : searchResults) {
-        System.out.println(person);
+        printPerson(person);
       }
     }
   }
@@ -292,13 +414,40 @@ public class VaccineDriver{
     Person searchResult = isPatient ? register.getPatientByID(id) : register.getDoctorByID(id);
 
     // Check if any results were found
-    if (searchResult == null) {
-      System.out.println("Sorry, no one matching that id was found.");
+    if (searchResult == null && isPatient) {
+      // Check for the patient in the archive
+      searchInArchive(id);
+
+    } else if (searchResult == null) {
+      out.println("Sorry, no one matching that id was found.");
 
     } else {
       // Display all results
-      System.out.println("Results:");
-      System.out.println(searchResult);
+      out.println("Results:");
+      printPerson(searchResult);
+    }
+  }
+
+  /**
+   * Find and display a patient who has been cleared from the register (and moved into the archive) by ID.
+   * @param id the ID to search for.
+   */
+  private void searchInArchive(int id) {
+
+    PatientArchive.Record record;
+    try {
+      record = archive == null ? null : archive.find(id);
+    } catch (IOException e) {
+      out.println("Sorry, the patient archive could not be read.");
+      return;
+    }
+
+    if (record == null) {
+      out.println("Sorry, no one matching that id was found.");
+
+    } else {
+      out.println("This patient was " + (record.wasVaccinated() ? "vaccinated" : "cleared") + " on " + BasicFormatter.getDateString(record.getArchiveDate()) + ":");
+      printPerson(record.getPatient());
     }
   }
 
@@ -312,17 +461,40 @@ public class VaccineDriver{
 
     // Check if there is anyone to list
     if (listing.size() == 0) {
-      System.out.println("Sorry, there is no one to list.");
+      out.println("Sorry, there is no one to list.");
 
     } else {
       // Display the listing
-      System.out.println("Listing:");
+      out.println("Listing:");
       for (Person person : listing) {
-        System.out.println(person);
+        printPerson(person);
       }
     }
   }
 
+  /**
+   * Write a patient or doctor to the buffered output (on its own lines).
+   * @param person the person to write.
+   */
+  private void printPerson(Person person) {
+
+    // Render the person into the reused buffer (one write of the whole person is much faster than many small writes to the PrintWriter)
+    renderBuffer.setLength(0);
+    try {
+      person.appendTo(renderBuffer);
+    } catch (IOException e) { /* A StringBuilder does not throw IOExceptions */ }
+
+    // Copy the rendering out without creating a string (growing the reused character array if needed)
+    int length = renderBuffer.length();
+    if (renderCharacters.length < length) {
+      renderCharacters = new char[Math.max(length, 2 * renderCharacters.length)];
+    }
+    renderBuffer.getChars(0, length, renderCharacters, 0);
+
+    out.write(renderCharacters, 0, length);
+    out.println();
+  }
+
   /**
    * Provide an interface for the user to find and display a patient or doctor in the register
    * @param isPatient whether to check in the patient listing (if false, check the doctor listing)
@@ -348,7 +520,7 @@ public class VaccineDriver{
         break;
     }
     
-    System.out.println(); // spacer
+    out.println(); // spacer
   }
 
   /**
@@ -368,11 +540,60 @@ public class VaccineDriver{
       System.out.println("Sorry, no one matching that id was found.\n");
 
     } else {
-      // Remove the patient from the register and print a confirmation
-      register.removePatient(patientToRemove);
-      System.out.println(patientToRemove.getName() + " has been cleared.\n");
+      // Remove the patient from the register (moving them into the archive) and print a confirmation
+      try {
+        register.removePatient(patientToRemove);
+        System.out.println(patientToRemove.getName() + " has been cleared.\n");
+      } catch (UncheckedIOException e) {
+        System.out.println("Sorry, the patient could not be archived, so they have not been cleared.\n");
+      }
+    }
+
+  }
+
+  /**
+   * Clear the patients who have been vaccinated (remove them from the register) in one pass, either by the days of the schedule they were on or by their user-specified IDs.
+   */
+  private void clearVaccinatedPatients() {
+
+    System.out.println("\nWould you like to clear the patients on days of the last schedule generated (otherwise you will enter their IDs)?");
+    int removedCount;
+
+    try {
+      if (stdScanner.getBoolean()) {
+
+        // Get the range of the schedule's days that were administered
+        System.out.println("\nWhat is the first day of administering to clear?");
+        int firstDayNumber = stdScanner.getIntWithMinimum(1);
+
+        System.out.println("What is the last day of administering to clear?");
+        int lastDayNumber = stdScanner.getIntWithMinimum(firstDayNumber);
+
+        // Clear the patients from the schedule that was given out (refusing if it is not known or the register has changed since)
+        try {
+          removedCount = register.removeScheduledPatients(firstDayNumber, lastDayNumber);
+        } catch (IllegalStateException e) {
+          System.out.println("\nSorry, " + e.getMessage() + ", so the patients cannot be cleared by day (generate the schedule again or enter their IDs).\n");
+          return;
+        }
+
+      } else {
+        // Get the IDs of the patients to clear
+        System.out.println("\nWhat are the IDs of the patients who were vaccinated?");
+        int[] patientIDs = stdScanner.getIntsWithMinimum(0);
+
+        removedCount = register.removePatientsByID(patientIDs, true);
+        if (removedCount < patientIDs.length) {
+          System.out.println("\n" + (patientIDs.length - removedCount) + " of the IDs did not match anyone in the register.");
+        }
+      }
+
+    } catch (UncheckedIOException e) {
+      System.out.println("\nSorry, the patients could not be archived, so they have not been cleared.\n");
+      return;
     }
 
+    System.out.println("\n" + removedCount + " vaccinated patients have been cleared.\n");
   }
 
   /**
@@ -387,7 +608,7 @@ public class VaccineDriver{
     register.addDoctor(newDoctor);
 
     // Save the state and present the new doctor's ID
-    saveState(REGISTER_FILE_NAME);
+    saveState(registerFileName);
     System.out.println("You have been added to the register.\nYour doctor ID number is " + newDoctor.getDoctorID() + ".\nThank you.\n");
   }
 
@@ -417,11 +638,11 @@ public class VaccineDriver{
   }
 
   /**
-   * Generate and print a schedule based upon the register's data, and then save the schedule to the register for later retrieval.
+   * Check if the register can produce a schedule, reporting the reason to the user if it cannot.
+   * @return whether a schedule can be generated.
    */
-  private void generateSchedule() {
+  private boolean canGenerateSchedule() {
 
-    // Ensure the register can produce a schedule (if it can, control will be handed to the final else block)
     if (!register.hasPatients()) {
       System.out.println("\nSorry, there are no patients in the system.\n");
 
@@ -432,6 +653,19 @@ public class VaccineDriver{
       System.out.println("\nSorry, no doctors can meet on days where vaccines are administered.\n");
 
     } else {
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Generate and print a schedule based upon the register's data, and then save the schedule to the register for later retrieval.
+   */
+  private void generateSchedule() {
+
+    // Ensure the register can produce a schedule
+    if (canGenerateSchedule()) {
 
       // Get the starting day of the week for the schedule
       System.out.println("\nWhich day would you like to start from?");
@@ -443,10 +677,357 @@ public class VaccineDriver{
       
       // Generate, save, and present the schedule
       String schedule = register.generateScheduleString(startingDayIndex, numberOfDays);
-      System.out.println("\n" + schedule);
+      out.println();
+      out.println(schedule);
+    }
+  }
+
+  /**
+   * Find and display when a patient will be vaccinated (their priority rank and the day and doctor of their appointment) by a user-entered ID, without generating the schedule.
+   */
+  private void findAppointment() {
+
+    // Ensure the register can produce a schedule
+    if (canGenerateSchedule()) {
+
+      // Get the patient's ID and the starting day of the week for the schedule
+      System.out.println("\nWhat is the ID of the patient?");
+      int patientID = stdScanner.getIntWithMinimum(0);
+      System.out.println("Which day would the schedule start from?");
+      int startingDayIndex = stdScanner.getWeekIndex();
+
+      // Project and present the appointment
+      AppointmentProjector.Projection projection = register.projectAppointment(patientID, startingDayIndex);
+      if (projection == null) {
+        out.println("\nSorry, no patient matching that id was found.\n");
+      } else {
+        out.println("\n" + projection.getPatient().getName() + " (" + patientID + "): " + projection + "\n");
+      }
+    }
+  }
+
+  /**
+   * Generate and print a range of days of the schedule (via user input), without generating the days before them (this does not change the current schedule).
+   */
+  private void displayScheduleDays() {
+
+    // Ensure the register can produce a schedule
+    if (canGenerateSchedule()) {
+
+      // Get the starting day of the week for the schedule and the days to display
+      System.out.println("\nWhich day does the schedule start from?");
+      int startingDayIndex = stdScanner.getWeekIndex();
+      System.out.println("What is the number of the first day of administering to display?");
+      int firstDayNumber = stdScanner.getIntWithMinimum(1);
+      System.out.println("How many days of administering would you like to display?");
+      int numberOfDays = stdScanner.getIntWithMinimum(1);
+
+      // Generate and present the days
+      out.println();
+      out.println(register.generateScheduleDaysString(startingDayIndex, firstDayNumber, (int) Math.min((long) firstDayNumber + numberOfDays - 1, Integer.MAX_VALUE)));
+    }
+  }
+
+  /**
+   * Count (and optionally list) the waiting patients with a questionnaire response, an age range, and a place in the first days of the schedule (via user input), found by combining cohort bitmaps rather than scanning the patients.
+   */
+  private void findCohort() {
+
+    CohortBitmap cohort = register.getWaitingCohort();
+
+    // Narrow the cohort to a questionnaire response
+    System.out.println("\nWhat questionnaire key should the patients have responded to (enter nothing for any)?");
+    String key = stdScanner.getLine().trim();
+    if (!key.isEmpty()) {
+      System.out.println("Should the patients have responded yes?");
+      cohort = cohort.and(register.getResponseCohort(key, stdScanner.getBoolean()));
+    }
+
+    // Narrow the cohort to an age range
+    System.out.println("What is the youngest age decade of the patients (from 0 for all ages through " + PriorityScorer.MAXIMUM_DECADE + " for " + PriorityScorer.MAXIMUM_DECADE + "0 and up)?");
+    int firstDecade = stdScanner.getIntInRange(0, PriorityScorer.MAXIMUM_DECADE);
+    if (firstDecade > 0) {
+      cohort = cohort.and(register.getDecadeCohort(firstDecade, PriorityScorer.MAXIMUM_DECADE));
+    }
+
+    // Narrow the cohort to the patients in the first days of the schedule
+    System.out.println("Within how many days of administering should the patients be scheduled (0 for any waiting patient)?");
+    int numberOfDays = stdScanner.getIntWithMinimum(0);
+    if (numberOfDays > 0) {
+      if (!canGenerateSchedule()) {
+        return;
+      }
+      System.out.println("Which day does the schedule start from?");
+      cohort = cohort.and(register.getScheduledCohort(stdScanner.getWeekIndex(), numberOfDays));
+    }
+
+    // Present the count, and list the patients if requested
+    System.out.println("\n" + cohort.getCardinality() + " waiting patient(s) are in the cohort. Would you like to list them?");
+    if (stdScanner.getBoolean()) {
+      for (Patient patient : register.getCohortPatients(cohort)) {
+        printPerson(patient);
+      }
+    }
+
+    out.println(); // spacer
+  }
+
+  /**
+   * Generate a schedule based upon the register's data and export its appointments to a CSV or JSON Lines file (via user input).
+   */
+  private void exportSchedule() {
+
+    // Ensure the register can produce a schedule
+    if (canGenerateSchedule()) {
+
+      // Get the starting day of the week for the schedule
+      System.out.println("\nWhich day would you like to start from?");
+      int startingDayIndex = stdScanner.getWeekIndex();
+
+      // Get the number of work days out to generate the schedule
+      System.out.println("How many days of administering would you like to schedule out to?");
+      int numberOfDays = stdScanner.getIntWithMinimum(1);
+
+      // Get the format and destination of the export
+      System.out.println("Would you like to export as JSON Lines (otherwise the schedule is exported as CSV)?");
+      boolean isJSONLines = stdScanner.getBoolean();
+
+      System.out.println("What is the name of the file to export to?");
+      String fileName = stdScanner.getLine().trim();
+
+      // Write the schedule to the file
+      try (ScheduleExporter exporter = new ScheduleExporter(fileName, isJSONLines)) {
+        register.writeSchedule(startingDayIndex, numberOfDays, exporter);
+        System.out.println("\n" + exporter.getAppointmentCount() + " appointments were exported to " + fileName + ".\n");
+
+      } catch (IOException | UncheckedIOException | InvalidPathException e) {
+        System.out.println("\nSorry, the schedule could not be exported to " + fileName + ".\n");
+      }
+    }
+  }
+
+  /**
+   * Dispatch patients live for a clinic day (via user input), where each doctor calls for the next patient as they are ready. Patients marked as vaccinated are cleared from the register when dispatching is finished.
+   */
+  private void runClinicDispatch() {
+
+    // Ensure the register can produce a schedule (dispatching has the same requirements)
+    if (!canGenerateSchedule()) {
+      return;
+    }
+
+    // Get the day of the week of the clinic
+    System.out.println("\nWhich day of the week is the clinic for?");
+    ClinicDispatcher dispatcher = new ClinicDispatcher(register, stdScanner.getWeekIndex());
+
+    System.out.println("\n" + dispatcher.getWaitingCount() + " patients are waiting, and " + dispatcher.getRemainingDoses() + " doses can be given.\n");
+
+    // Create a variable to track whether the user is still dispatching
+    boolean isDispatching = true;
+
+    while (isDispatching) {
+
+      System.out.println("Clinic Dispatch:\n" +
+                         " 1) Call the next patient for a doctor\n" +
+                         " 2) Mark a patient as vaccinated\n" +
+                         " 3) Return a patient who did not show up\n" +
+                         " 4) Finish dispatching");
+
+      switch (stdScanner.getCommand(4)) {
+        case 1: // call the next patient
+          System.out.println("\nWhat is the ID of the doctor calling for a patient?");
+          Doctor doctor = register.getDoctorByID(stdScanner.getIntWithMinimum(0));
+
+          if (doctor == null) {
+            System.out.println("Sorry, no doctor matching that id was found.\n");
+          } else {
+            Patient patient = dispatcher.callNextPatient(doctor.getDoctorID());
+            if (patient == null) {
+              System.out.println("Sorry, there are no patients waiting or no doses left for " + doctor.getName() + ".\n");
+            } else {
+              System.out.println(doctor.getName() + " will vaccinate:\n\t" + patient.getContactDetails() + "\n");
+            }
+          }
+          break;
+
+        case 2: // mark a patient as vaccinated
+          System.out.println("\nWhat is the ID of the patient who was vaccinated?");
+          if (dispatcher.markVaccinated(stdScanner.getIntWithMinimum(0))) {
+            System.out.println("The patient has been marked as vaccinated.\n");
+          } else {
+            System.out.println("Sorry, that patient has not been called.\n");
+          }
+          break;
+
+        case 3: // return a no-show
+          System.out.println("\nWhat is the ID of the patient who did not show up?");
+          if (dispatcher.returnNoShow(stdScanner.getIntWithMinimum(0))) {
+            System.out.println("The patient has been returned to the waiting patients.\n");
+          } else {
+            System.out.println("Sorry, that patient has not been called.\n");
+          }
+          break;
+
+        case 4: // finish
+          isDispatching = false;
+          break;
+      }
+    }
+
+    // Clear the vaccinated patients from the register (in one pass)
+    List<Patient> vaccinatedPatients = dispatcher.getVaccinatedPatients();
+    try {
+      register.removePatients(vaccinatedPatients, true);
+      System.out.println("\n" + vaccinatedPatients.size() + " vaccinated patients have been cleared.\n");
+    } catch (UncheckedIOException e) {
+      System.out.println("\nSorry, the vaccinated patients could not be archived, so they have not been cleared.\n");
+    }
+  }
+
+  /**
+   * Compare candidate weighting systems against the current one (via user input) by simulating the schedule each would produce, without changing the register.
+   */
+  private void simulateWeightings() {
+
+    // Ensure the register can produce a schedule
+    if (!canGenerateSchedule()) {
+      return;
+    }
+
+    // Get the schedule to simulate
+    System.out.println("\nWhich day would you like to start from?");
+    int startingDayIndex = stdScanner.getWeekIndex();
+
+    System.out.println("How many days of administering would you like to simulate?");
+    int numberOfDays = stdScanner.getIntWithMinimum(1);
+
+    // Start with the current weighting (for comparison)
+    int[] currentAgeRangeWeights = new int[PriorityScorer.MAXIMUM_DECADE + 1];
+    for (int decade = 0; decade < currentAgeRangeWeights.length; decade++) {
+      currentAgeRangeWeights[decade] = register.getAgeWeight(decade);
+    }
+
+    ArrayList<WeightingSimulator.Scenario> scenarios = new ArrayList<WeightingSimulator.Scenario>();
+    scenarios.add(new WeightingSimulator.Scenario("Current weighting", currentAgeRangeWeights, register.getPositiveResponseWeights()));
+
+    // Get each candidate weighting
+    System.out.println("How many candidate weightings would you like to compare?");
+    int candidateCount = stdScanner.getIntWithMinimum(1);
+
+    for (int candidate = 1; candidate <= candidateCount; candidate++) {
+      System.out.println("\nCandidate " + candidate + ":\n");
+      int[] ageRangeWeights = getAgeRangeWeights();
+      scenarios.add(new WeightingSimulator.Scenario("Candidate " + candidate, ageRangeWeights, Form.getResponseWeightsByForm(register.getPositiveResponseWeights(), stdScanner)));
+    }
+
+    // Simulate every weighting on a snapshot of the patients and report the coverage of each
+    WeightingSimulator simulator = new WeightingSimulator(register);
+    out.println("\nCoverage of " + simulator.getPatientCount() + " patients over " + numberOfDays + " days:\n");
+
+    for (WeightingSimulator.Result result : simulator.simulateAll(scenarios, startingDayIndex, numberOfDays)) {
+      out.println(result);
     }
   }
 
+  /**
+   * Find the patients who are likely duplicates of earlier registrations, and remove them after user confirmation.
+   */
+  private void removeDuplicatePatients() {
+
+    ArrayList<Patient> duplicates = register.findDuplicatePatients();
+
+    if (duplicates.isEmpty()) {
+      System.out.println("\nNo duplicate patients were found.\n");
+      return;
+    }
+
+    // Display the duplicates (the first registration of each patient is kept)
+    out.println("\nThe following patients appear to have registered more than once (their first registrations will be kept):\n");
+    for (Patient duplicate : duplicates) {
+      printPerson(duplicate);
+    }
+    out.flush();
+
+    System.out.println("\nWould you like to remove these " + duplicates.size() + " patients?");
+    if (stdScanner.getBoolean()) {
+      try {
+        System.out.println("\n" + register.removePatients(duplicates) + " duplicate patients have been removed.\n");
+      } catch (UncheckedIOException e) {
+        System.out.println("\nSorry, the duplicate patients could not be archived, so they have not been removed.\n");
+      }
+    } else {
+      System.out.println(); // spacer
+    }
+  }
+
+  /**
+   * Set whether the register keeps its patient listing sorted at all times or sorts lazily (via user input).
+   */
+  private void setOrderingMode() {
+
+    System.out.println("\nPatients are currently " + (register.isLazyOrdering() ? "sorted only when needed (lazy ordering)." : "kept sorted at all times."));
+    System.out.println("Lazy ordering makes adding patients faster on large registers, and schedules then only sort the patients they include. Would you like to use lazy ordering?");
+
+    register.setLazyOrdering(stdScanner.getBoolean());
+    System.out.println(); // spacer
+  }
+
+  /**
+   * Set whether and how much the register's save state is compressed (via user input).
+   */
+  private void setSaveCompression() {
+
+    int level = register.getSaveCompressionLevel();
+    System.out.println("\nThe save state is currently " + (level == 0 ? "not compressed." : "compressed at level " + level + "."));
+    System.out.println("Compression makes the save state smaller (it is compressed and decompressed on several threads, so saving and loading large registers is usually faster too). Would you like to compress the save state?");
+
+    if (stdScanner.getBoolean()) {
+      System.out.println("What level of compression would you like (1 is the fastest and 9 is the smallest)?");
+      register.setSaveCompressionLevel(stdScanner.getIntInRange(1, 9));
+    } else {
+      register.setSaveCompressionLevel(0);
+    }
+
+    System.out.println(); // spacer
+  }
+
+  /**
+   * Display how long each command has taken to run and how much it allocated, and start or stop writing a CSV trace of every command (via user input).
+   */
+  private void showPerformanceDiagnostics() {
+
+    // Display the summary of the recent runs of each command
+    System.out.println("\nPerformance of the last " + CommandProfiler.SAMPLE_COUNT + " runs of each command (time spent waiting for input is left out):");
+    System.out.print(profiler.getSummary());
+
+    if (profiler.getTraceFileName() != null) {
+
+      // Offer to stop the trace being written
+      System.out.println("\nEvery command is being written to the trace " + profiler.getTraceFileName() + ". Would you like to stop writing the trace?");
+      if (stdScanner.getBoolean()) {
+        profiler.stopTrace();
+      }
+
+    } else {
+
+      // Offer to start a trace
+      System.out.println("\nWould you like to write every command to a CSV trace file?");
+      if (stdScanner.getBoolean()) {
+
+        System.out.println("What is the name of the file to write to (the trace is added to the end of the file if it exists)?");
+        String fileName = stdScanner.getLine().trim();
+
+        try {
+          profiler.startTrace(fileName);
+        } catch (IOException | InvalidPathException e) {
+          System.out.println("\nSorry, the trace could not be written to " + fileName + ".");
+        }
+      }
+    }
+
+    System.out.println(); // spacer
+  }
+
   /**
    * Reset the entire register (listings, weighting system, and scheduling) after user confirmation.
    */
@@ -456,9 +1037,10 @@ public class VaccineDriver{
     System.out.println("\nAre you sure you want to reset the entire register (listings, weighting system, and scheduling)?");
     if (stdScanner.getBoolean()) {
 
-      // Instantiate a new register and save to disk
-      register = new Register();
-      saveState(REGISTER_FILE_NAME);
+      // Instantiate a new register (keeping the archive, so new patients are numbered after archived ones) and save to disk
+      register = newRegister();
+      register.setArchive(archive);
+      saveState(registerFileName);
 
       System.out.println("\nRegister reset.");
     }
@@ -477,16 +1059,31 @@ public class VaccineDriver{
 
     try {
 
-      // Load the last state
-      loadState(REGISTER_FILE_NAME);
+      // Compile and validate the questionnaires
+      try {
+        Form.loadQuestionnaires();
+      } catch (FatalError e) {
+        System.out.println("Error: there is a problem with the questionnaire formatting (" + e.getMessage() + ").");
+        throw e;
+      }
+
+      // Load the last state and open the archive of cleared patients
+      loadState(registerFileName);
+      openArchive(archiveFileName);
 
       while(isRunning){
 
+        // Rescore any patients who have moved into a new age range since the last command (this does nothing more than a date check on most days)
+        register.rescoreBirthdays(LocalDate.now());
+
         // Present the available commands
         presentMenu();
 
         // Get the user-selected command
-        int userInput = stdScanner.getCommand(13);
+        int userInput = stdScanner.getCommand(COMMAND_NAMES.length);
+
+        // Start measuring the command
+        profiler.start();
       
         // Switch over the command and execute it
         switch (userInput) {
@@ -498,13 +1095,13 @@ public class VaccineDriver{
           case 2:
             // Set available dosses for day
             setDosesForDay();
-            saveState(REGISTER_FILE_NAME);
+            saveState(registerFileName);
             break;
 
           case 3:
             // Set questionnaire response weighting
             setWeightsForResponses();
-            saveState(REGISTER_FILE_NAME);
+            saveState(registerFileName);
             break;
 
           case 4:
@@ -520,7 +1117,7 @@ public class VaccineDriver{
           case 6:
             // Clear a patient
             clearPatient();
-            saveState(REGISTER_FILE_NAME);
+            saveState(registerFileName);
             break;
 
           case 7:
@@ -536,7 +1133,7 @@ public class VaccineDriver{
           case 9:
             // Remove a doctor
             removeDoctor();
-            saveState(REGISTER_FILE_NAME);
+            saveState(registerFileName);
             break;
 
           case 10:
@@ -546,7 +1143,8 @@ public class VaccineDriver{
 
           case 11:
             // Display current schedule
-            System.out.println("\n" + register.getCurrentScheduleString());
+            out.println();
+            out.println(register.getCurrentScheduleString());
             break;
 
           case 12:
@@ -556,21 +1154,117 @@ public class VaccineDriver{
 
           case 13:
             // Quit
-            saveState(REGISTER_FILE_NAME);
+            saveState(registerFileName);
             isRunning = false;
             break;
+
+          case 14:
+            // Set patient ordering mode
+            setOrderingMode();
+            saveState(registerFileName);
+            break;
+
+          case 15:
+            // Export schedule
+            exportSchedule();
+            break;
+
+          case 16:
+            // Run clinic dispatch
+            runClinicDispatch();
+            saveState(registerFileName);
+            break;
+
+          case 17:
+            // Simulate weighting scenarios
+            simulateWeightings();
+            break;
+
+          case 18:
+            // Remove duplicate patients
+            removeDuplicatePatients();
+            saveState(registerFileName);
+            break;
+
+          case 19:
+            // Clear vaccinated patients
+            clearVaccinatedPatients();
+            saveState(registerFileName);
+            break;
+
+          case 20:
+            // Set save state compression
+            setSaveCompression();
+            saveState(registerFileName);
+            break;
+
+          case 21:
+            // Find a patient's appointment
+            findAppointment();
+            break;
+
+          case 22:
+            // Display days of the schedule
+            displayScheduleDays();
+            break;
+
+          case 23:
+            // Find patients in a cohort
+            findCohort();
+            break;
+
+          case 24:
+            // Performance diagnostics
+            showPerformanceDiagnostics();
+            break;
+        }
+
+        // Write the command's buffered output (the next command's prompts are written directly to the console)
+        out.flush();
+
+        // Record the command's measures
+        try {
+          profiler.stop(userInput);
+        } catch (UncheckedIOException e) {
+          System.out.println("Error: the performance trace could not be written, so it has been stopped.\n");
         }
       }
     } catch (FatalError e) {
       // A fatal error was encountered during the execution of the program (exit the run method)
+      out.flush();
       System.out.println("A fatal error was encountered, so the program will now terminate...");
+    } finally {
+      profiler.stopTrace();
     }
   }
 
+  /**
+   * Run the driver, optionally for a single site (whose shard is kept in its own save state file).
+   * @param args the command-line arguments (optionally the name of the site, and NO_PROMPTS_OPTION to not print input prompts).
+   */
   public static void main(String[] args) {
+
+    // Read the options and the site name (if one is passed)
+    String siteName = null;
+    boolean isPrompting = true;
+    for (String arg : args) {
+      if (arg.equals(NO_PROMPTS_OPTION)) {
+        isPrompting = false;
+      } else if (siteName == null) {
+        siteName = arg;
+      }
+    }
     
-    // Create a driver instance and have it run
-    VaccineDriver driver = new VaccineDriver();
+    // Create a driver instance (for the site if one is passed) and have it run
+    VaccineDriver driver;
+
+    try {
+      driver = new VaccineDriver(siteName, isPrompting);
+    } catch (IllegalArgumentException e) {
+      System.out.println("Error: site names may only contain letters, digits, '-', and '_'.");
+      return;
+    }
+
     driver.run();
       
   }
@@ -0,0 +1,57 @@
+import java.io.Serializable;
+
+/**
+ * The WeightingRule class is the base of all rules that award priority weighting points to patients. Rules can be evaluated directly against a patient (the reference behavior), but the Register compiles its rules into a PriorityScorer, which evaluates all of them at once over primitive patient data.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public abstract class WeightingRule implements Serializable {
+
+  /** The serial version used when decoding. */
+  private static final long serialVersionUID = 3000L;
+
+  /** The number of weighting points awarded when the rule applies (this may be negative). */
+  protected int points;
+
+  /** The key (questionnaire key or description) the rule is for. */
+  protected String key;
+
+  /**
+   * Constructor that takes the points and key.
+   * @param points the weighting points awarded when the rule applies.
+   * @param key the key the rule is for.
+   */
+  protected WeightingRule(int points, String key) {
+    this.points = points;
+    this.key = key;
+  }
+
+  /**
+   * Get the number of weighting points the rule awards the passed patient.
+   * @param patient the patient to evaluate.
+   * @return the weighting points awarded.
+   */
+  public abstract int weightForPatient(Patient patient);
+
+  /**
+   * Add the rule to a scorer that is being compiled.
+   * @param builder the builder of the scorer.
+   */
+  public abstract void compileInto(PriorityScorer.Builder builder);
+
+  /**
+   * Getter for the points.
+   * @return the weighting points awarded when the rule applies.
+   */
+  public int getPoints() {
+    return points;
+  }
+
+  /**
+   * Getter for the key.
+   * @return the key the rule is for.
+   */
+  public String getKey() {
+    return key;
+  }
+}
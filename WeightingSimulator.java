@@ -0,0 +1,426 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import java.time.LocalDate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The WeightingSimulator class evaluates candidate weighting systems without changing a register. It takes a snapshot of the register's patients as primitive data (birthdates, response masks, and availability, copied from the register's off-heap columns), and then scores the snapshot under each candidate weighting and finds which patients a schedule would include, reporting the coverage of each age range and each risk factor (a yes response to a questionnaire key).
+ * The snapshot is never modified after it is taken, so candidates are simulated in parallel across the available cores, and the register can change (or be saved) while a simulator is in use without affecting its results.
+ * @author Thomas Merino, Austin Lee, Nam Luu.
+ * @version 1.0 (last modified 10/18/26).
+ */
+public class WeightingSimulator {
+
+  /** The largest range of weights that is counting sorted regardless of the number of patients. */
+  private static final int MAXIMUM_COUNTING_RANGE = 1 << 16;
+
+  /** The date ages are calculated against. */
+  private final LocalDate referenceDate;
+
+  /** The questionnaire keys by key ordinal (the bit positions of the response masks). */
+  private final List<String> responseKeys;
+
+  /** The mapping of questionnaire keys to key ordinals. */
+  private final HashMap<String, Integer> responseKeyOrdinals;
+
+  /** The mapping of day indices minus one (where 0 is Sunday and 6 is Saturday) to the maximum doses for that day. */
+  private final int[] maximumDosesPerDay;
+
+  /** The number of patients in the snapshot. */
+  private final int patientCount;
+
+  /** The birthdates as epoch days (every column is in the order of the patients' IDs). */
+  private final long[] birthEpochDays;
+
+  /** The bitmasks of key ordinals answered yes to. */
+  private final long[] positiveMasks;
+
+  /** The bitmasks of key ordinals answered. */
+  private final long[] answeredMasks;
+
+  /** The bitmasks of the days of the week each patient is available. */
+  private final int[] availableDays;
+
+  /** The age of each patient in decades on the reference date. */
+  private final byte[] decades;
+
+  /** The mapping of decades to the number of patients in that age range. */
+  private final int[] decadeTotals;
+
+  /** The mapping of key ordinals to the number of patients who answered yes. */
+  private final int[] riskFactorTotals;
+
+  /**
+   * Constructor that takes a snapshot of a register's patients and dose capacity (ages are calculated against today).
+   * @param register the register.
+   */
+  public WeightingSimulator(Register register) {
+    this(register, LocalDate.now());
+  }
+
+  /**
+   * Constructor that takes a snapshot of a register's patients and dose capacity.
+   * @param register the register.
+   * @param referenceDate the date ages are calculated against.
+   */
+  public WeightingSimulator(Register register, LocalDate referenceDate) {
+
+    this.referenceDate = referenceDate;
+    responseKeys = new ArrayList<String>(register.getResponseKeys());
+    maximumDosesPerDay = register.getMaximumDosesPerDay();
+
+    responseKeyOrdinals = new HashMap<String, Integer>();
+    for (int ordinal = 0; ordinal < responseKeys.size(); ordinal++) {
+      responseKeyOrdinals.put(responseKeys.get(ordinal), ordinal);
+    }
+
+    // Order the records of the register's columns by patient ID (so ties in priority are broken by position), packing each ID with its ordinal so that only primitives are sorted
+    ColumnarPatientStore columns = register.getPatientColumns();
+    patientCount = columns.size();
+    long[] orderedRecords = new long[patientCount];
+    for (int ordinal = 0; ordinal < patientCount; ordinal++) {
+      orderedRecords[ordinal] = (long) columns.getPatientID(ordinal) << 32 | ordinal;
+    }
+    Arrays.sort(orderedRecords);
+
+    birthEpochDays = new long[patientCount];
+    positiveMasks = new long[patientCount];
+    answeredMasks = new long[patientCount];
+    availableDays = new int[patientCount];
+    decades = new byte[patientCount];
+    decadeTotals = new int[PriorityScorer.MAXIMUM_DECADE + 1];
+    riskFactorTotals = new int[responseKeys.size()];
+
+    // Any scorer for the reference date can find ages
+    PriorityScorer ageScorer = new PriorityScorer.Builder(responseKeyOrdinals).build(new ArrayList<WeightingRule>(), referenceDate);
+
+    for (int index = 0; index < patientCount; index++) {
+
+      // Copy the record's data straight from the columns
+      int ordinal = (int) orderedRecords[index];
+      birthEpochDays[index] = columns.getBirthEpochDay(ordinal);
+      positiveMasks[index] = columns.getPositiveResponseMask(ordinal);
+      answeredMasks[index] = columns.getAnsweredResponseMask(ordinal);
+      availableDays[index] = columns.getAvailableDays(ordinal);
+
+      decades[index] = (byte) ageScorer.ageInDecades(birthEpochDays[index]);
+      decadeTotals[decades[index]]++;
+
+      for (long bits = positiveMasks[index]; bits != 0; bits &= bits - 1) {
+        riskFactorTotals[Long.numberOfTrailingZeros(bits)]++;
+      }
+    }
+  }
+
+  /**
+   * Get the number of patients in the snapshot.
+   * @return the number of patients.
+   */
+  public int getPatientCount() {
+    return patientCount;
+  }
+
+  /**
+   * Simulate a schedule under each of several candidate weightings (in parallel).
+   * @param scenarios the candidate weightings.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days in the schedule.
+   * @return the results in the same order as the scenarios.
+   */
+  public List<Result> simulateAll(List<Scenario> scenarios, int startingDayIndex, int numberOfDays) {
+    return scenarios.parallelStream().map(scenario -> simulate(scenario, startingDayIndex, numberOfDays)).collect(Collectors.toList());
+  }
+
+  /**
+   * Simulate a schedule under a candidate weighting.
+   * @param scenario the candidate weighting.
+   * @param startingDayIndex the index for the day of the week the schedule starts from (must be bewteen 1 and 7 inclusive, where 1 is Sunday and 7 is Saturday).
+   * @param numberOfDays the number of active days in the schedule.
+   * @return the result.
+   */
+  public Result simulate(Scenario scenario, int startingDayIndex, int numberOfDays) {
+
+    // Score every patient under the candidate weighting
+    PriorityScorer scorer = new PriorityScorer.Builder(responseKeyOrdinals).build(Register.getWeightingRules(scenario.ageRangeWeights, scenario.positiveResponseWeights), referenceDate);
+    int[] weights = new int[patientCount];
+    scorer.scoreAll(birthEpochDays, positiveMasks, answeredMasks, weights, patientCount);
+
+    // Order the patients by priority (a higher weight first, and then a lower ID, which matches the order of a register's listing)
+    int[] order = getPriorityOrder(weights);
+
+    int[] orderedAvailableDays = new int[patientCount];
+    for (int position = 0; position < patientCount; position++) {
+      orderedAvailableDays[position] = availableDays[order[position]];
+    }
+
+    // Find the patients the schedule would include
+    boolean[] selected = new boolean[patientCount];
+    int scheduledCount = AvailabilityMatcher.selectPatients(orderedAvailableDays, patientCount, maximumDosesPerDay, startingDayIndex, numberOfDays, selected);
+
+    // Count the coverage of each age range and risk factor
+    Result result = new Result(scenario.name, scheduledCount, decadeTotals, riskFactorTotals, responseKeys);
+
+    for (int position = 0; position < patientCount; position++) {
+      if (selected[position]) {
+        int index = order[position];
+        result.decadeScheduled[decades[index]]++;
+        for (long bits = positiveMasks[index]; bits != 0; bits &= bits - 1) {
+          result.riskFactorScheduled[Long.numberOfTrailingZeros(bits)]++;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Helper method that orders the snapshot's patients by priority (a higher weight first, and then a lower ID). Weights usually span a small range, so they are counting sorted in linear time, and otherwise sorted as packed keys.
+   * @param weights the priority weight of each patient.
+   * @return the indices of the patients in priority order.
+   */
+  private int[] getPriorityOrder(int[] weights) {
+
+    int[] order = new int[patientCount];
+
+    // Find the range of the weights
+    int minimumWeight = Integer.MAX_VALUE;
+    int maximumWeight = Integer.MIN_VALUE;
+    for (int weight : weights) {
+      minimumWeight = Math.min(minimumWeight, weight);
+      maximumWeight = Math.max(maximumWeight, weight);
+    }
+
+    long range = (long) maximumWeight - minimumWeight + 1;
+
+    if (patientCount > 0 && range <= Math.max(MAXIMUM_COUNTING_RANGE, patientCount)) {
+
+      // Count the patients with each weight, and then find where each weight starts (the highest weight first)
+      int[] starts = new int[(int) range + 1];
+      for (int weight : weights) {
+        starts[maximumWeight - weight + 1]++;
+      }
+      for (int bucket = 1; bucket < starts.length; bucket++) {
+        starts[bucket] += starts[bucket - 1];
+      }
+
+      // Place the patients in the order of their IDs (so ties stay in that order)
+      for (int index = 0; index < patientCount; index++) {
+        order[starts[maximumWeight - weights[index]]++] = index;
+      }
+
+    } else {
+
+      // Sort packed keys (the negated weight above the index)
+      long[] orderKeys = new long[patientCount];
+      for (int index = 0; index < patientCount; index++) {
+        orderKeys[index] = (-(long) weights[index] << 32) | index;
+      }
+      Arrays.sort(orderKeys);
+
+      for (int position = 0; position < patientCount; position++) {
+        order[position] = (int) orderKeys[position];
+      }
+    }
+
+    return order;
+  }
+
+  /**
+   * The Scenario class is a candidate weighting system (age range weights and questionnaire-response weights, as a Register stores them).
+   */
+  public static final class Scenario {
+
+    /** The name of the scenario (used in reports). */
+    private final String name;
+
+    /** The mapping of decades (0 through 8 inclusive) to the points for that age range. */
+    private final int[] ageRangeWeights;
+
+    /** The mapping of questionnaire keys to the points for a yes response (a negative weight awards a no response). */
+    private final TreeMap<String, Integer> positiveResponseWeights;
+
+    /**
+     * The sole constructor (the weights are copied).
+     * @param name the name of the scenario.
+     * @param ageRangeWeights the mapping of decades (0 through 8 inclusive) to the points for that age range.
+     * @param positiveResponseWeights the mapping of questionnaire keys to the points for a yes response (a negative weight awards a no response).
+     * @throws IllegalArgumentException if there is not a weight for each age range.
+     */
+    public Scenario(String name, int[] ageRangeWeights, Map<String, Integer> positiveResponseWeights) {
+
+      if (ageRangeWeights.length != PriorityScorer.MAXIMUM_DECADE + 1) {
+        throw new IllegalArgumentException("expected " + (PriorityScorer.MAXIMUM_DECADE + 1) + " age range weights but got " + ageRangeWeights.length);
+      }
+
+      this.name = name;
+      this.ageRangeWeights = ageRangeWeights.clone();
+      this.positiveResponseWeights = new TreeMap<String, Integer>(positiveResponseWeights);
+    }
+
+    /**
+     * Getter for the name.
+     * @return the name of the scenario.
+     */
+    public String getName() {
+      return name;
+    }
+  }
+
+  /**
+   * The Result class is the coverage of a simulated schedule (the number of patients the schedule includes out of the total, for each age range and risk factor).
+   */
+  public static final class Result {
+
+    /** The name of the scenario simulated. */
+    private final String name;
+
+    /** The number of patients the schedule includes. */
+    private final int scheduledCount;
+
+    /** The mapping of decades to the number of patients in that age range the schedule includes. */
+    private final int[] decadeScheduled;
+
+    /** The mapping of decades to the number of patients in that age range (shared between results). */
+    private final int[] decadeTotals;
+
+    /** The mapping of key ordinals to the number of patients who answered yes the schedule includes. */
+    private final int[] riskFactorScheduled;
+
+    /** The mapping of key ordinals to the number of patients who answered yes (shared between results). */
+    private final int[] riskFactorTotals;
+
+    /** The questionnaire keys by key ordinal (shared between results). */
+    private final List<String> responseKeys;
+
+    /**
+     * Private constructor (results are made by a WeightingSimulator).
+     * @param name the name of the scenario simulated.
+     * @param scheduledCount the number of patients the schedule includes.
+     * @param decadeTotals the mapping of decades to the number of patients in that age range.
+     * @param riskFactorTotals the mapping of key ordinals to the number of patients who answered yes.
+     * @param responseKeys the questionnaire keys by key ordinal.
+     */
+    private Result(String name, int scheduledCount, int[] decadeTotals, int[] riskFactorTotals, List<String> responseKeys) {
+      this.name = name;
+      this.scheduledCount = scheduledCount;
+      this.decadeTotals = decadeTotals;
+      this.riskFactorTotals = riskFactorTotals;
+      this.responseKeys = responseKeys;
+      decadeScheduled = new int[decadeTotals.length];
+      riskFactorScheduled = new int[riskFactorTotals.length];
+    }
+
+    /**
+     * Getter for the name.
+     * @return the name of the scenario simulated.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Getter for the scheduled count.
+     * @return the number of patients the schedule includes.
+     */
+    public int getScheduledCount() {
+      return scheduledCount;
+    }
+
+    /**
+     * Get the number of patients in an age range the schedule includes.
+     * @param decade the age range (this must be 0 through 8 inclusive where 0 is [0,10) and 8 is [80, inf)).
+     * @return the number of patients.
+     */
+    public int getScheduledInDecade(int decade) {
+      return decadeScheduled[decade];
+    }
+
+    /**
+     * Get the number of patients in an age range.
+     * @param decade the age range (this must be 0 through 8 inclusive where 0 is [0,10) and 8 is [80, inf)).
+     * @return the number of patients.
+     */
+    public int getPatientsInDecade(int decade) {
+      return decadeTotals[decade];
+    }
+
+    /**
+     * Get the number of patients who answered yes to a question the schedule includes.
+     * @param key the questionnaire key.
+     * @return the number of patients (0 if no patient has answered the question).
+     */
+    public int getScheduledWithRiskFactor(String key) {
+      int ordinal = responseKeys.indexOf(key);
+      return ordinal < 0 ? 0 : riskFactorScheduled[ordinal];
+    }
+
+    /**
+     * Get the number of patients who answered yes to a question.
+     * @param key the questionnaire key.
+     * @return the number of patients (0 if no patient has answered the question).
+     */
+    public int getPatientsWithRiskFactor(String key) {
+      int ordinal = responseKeys.indexOf(key);
+      return ordinal < 0 ? 0 : riskFactorTotals[ordinal];
+    }
+
+    /**
+     * Append a report of the coverage (one line per age range and risk factor).
+     * @param output the destination of the report.
+     * @throws IOException if the destination cannot be appended to.
+     */
+    public void appendTo(Appendable output) throws IOException {
+
+      output.append(name).append(": ").append(Integer.toString(scheduledCount)).append(" patients scheduled\n");
+
+      for (int decade = 0; decade < decadeTotals.length; decade++) {
+        output.append("\tAge in ").append(Integer.toString(decade)).append(decade == PriorityScorer.MAXIMUM_DECADE ? "0s+ : " : "0s : ");
+        appendCoverage(output, decadeScheduled[decade], decadeTotals[decade]);
+      }
+
+      for (int ordinal = 0; ordinal < riskFactorTotals.length; ordinal++) {
+        output.append('\t').append(responseKeys.get(ordinal)).append(" (yes) : ");
+        appendCoverage(output, riskFactorScheduled[ordinal], riskFactorTotals[ordinal]);
+      }
+    }
+
+    /**
+     * Helper method that appends a count out of a total with the percentage.
+     * @param output the destination.
+     * @param count the count.
+     * @param total the total.
+     * @throws IOException if the destination cannot be appended to.
+     */
+    private static void appendCoverage(Appendable output, int count, int total) throws IOException {
+
+      output.append(Integer.toString(count)).append(" of ").append(Integer.toString(total));
+
+      // Write the percentage to one decimal place
+      if (total != 0) {
+        long tenths = Math.round(1000.0 * count / total);
+        output.append(" (").append(Long.toString(tenths / 10)).append('.').append((char) ('0' + tenths % 10)).append("%)");
+      }
+
+      output.append('\n');
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      try {
+        appendTo(builder);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return builder.toString();
+    }
+  }
+}